@@ -1,12 +1,24 @@
 package com.vendraly;
 
+import com.vendraly.api.EconomyService;
 import com.vendraly.commands.*;
 import com.vendraly.core.auth.AuthManager;
 import com.vendraly.core.config.ConfigManager;
+import com.vendraly.core.database.PlayerOperations;
 import com.vendraly.core.database.UserDataManager;
+import com.vendraly.core.economy.BatchTransferService;
 import com.vendraly.core.economy.CashManager;
+import com.vendraly.core.economy.EconomyLedger;
 import com.vendraly.core.economy.EconomyManager;
+import com.vendraly.core.economy.EconomyMetrics;
+import com.vendraly.core.economy.EconomyPolicyEngine;
+import com.vendraly.core.economy.LedgerReplay;
+import com.vendraly.core.economy.VendralyEconomyService;
 import com.vendraly.core.jobs.JobManager;
+import com.vendraly.core.leaderboard.LeaderboardManager;
+import com.vendraly.core.mail.MailboxManager;
+import com.vendraly.core.market.MarketEngine;
+import com.vendraly.core.pricing.PricingEngine;
 import com.vendraly.core.clans.ClanManager;
 import com.vendraly.core.protection.ProtectionManager;
 import com.vendraly.core.roles.RoleManager;
@@ -25,9 +37,13 @@ import com.vendraly.utils.TaskUtil;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.logging.Logger;
 
 /**
@@ -43,10 +59,19 @@ public final class VendralyCore extends JavaPlugin {
     private Logger logger;
     private ConfigManager configManager;
     private UserDataManager userDataManager;
+    private PlayerOperations playerOperations;
     private AuthManager authManager;
     private RoleManager roleManager;
+    private EconomyLedger economyLedger;
     private EconomyManager economyManager;
     private CashManager cashManager;
+    private VendralyEconomyService economyService;
+    private BatchTransferService batchTransferService;
+    private EconomyPolicyEngine economyPolicyEngine;
+    private EconomyMetrics economyMetrics;
+    private MailboxManager mailboxManager;
+    private PricingEngine pricingEngine;
+    private MarketEngine marketEngine;
     private TradeManager tradeManager;
     private TradeGuiManager tradeGuiManager;
     private JobManager jobManager;
@@ -59,6 +84,7 @@ public final class VendralyCore extends JavaPlugin {
     private CombatManager combatManager;
     private LootTableManager lootTableManager;
     private ScoreboardManager scoreboardManager;
+    private LeaderboardManager leaderboardManager;
 
     /**
      * Obtiene la instancia singleton del plugin.
@@ -80,16 +106,28 @@ public final class VendralyCore extends JavaPlugin {
         saveDefaultConfig();
         this.configManager = new ConfigManager(this);
         this.userDataManager = new UserDataManager(this);
+        this.playerOperations = new PlayerOperations(this, userDataManager);
+        this.leaderboardManager = new LeaderboardManager(this, userDataManager);
         this.roleManager = new RoleManager(this);
         this.authManager = new AuthManager(this, userDataManager, roleManager);
-        this.economyManager = new EconomyManager(this, userDataManager);
-        this.cashManager = new CashManager(this, userDataManager);
-        this.tradeManager = new TradeManager(this, cashManager);
+        this.economyLedger = openLedger();
+        this.economyMetrics = new EconomyMetrics(this, userDataManager.getDirectory(), economyLedger);
+        this.economyManager = new EconomyManager(this, userDataManager, economyLedger);
+        this.cashManager = new CashManager(this, userDataManager, economyLedger);
+        this.economyService = new VendralyEconomyService(this, userDataManager, economyLedger);
+        this.batchTransferService = new BatchTransferService(this, userDataManager, economyLedger);
+        Bukkit.getServicesManager().register(EconomyService.class, economyService, this, ServicePriority.Normal);
+        this.mailboxManager = new MailboxManager(this, userDataManager, cashManager);
+        mailboxManager.start();
+        this.tradeManager = new TradeManager(this, cashManager, mailboxManager);
         this.tradeGuiManager = new TradeGuiManager();
+        this.marketEngine = openMarket();
         this.jobManager = new JobManager(this);
         this.clanManager = new ClanManager(configManager);
         this.protectionManager = new ProtectionManager(clanManager);
-        this.xpManager = new XPManager(this, userDataManager);
+        this.pricingEngine = new PricingEngine(this);
+        this.economyPolicyEngine = new EconomyPolicyEngine(this, userDataManager, economyLedger, clanManager);
+        this.xpManager = new XPManager(this, userDataManager, playerOperations);
         this.statManager = new StatManager(this, userDataManager, xpManager);
         this.staminaManager = new StaminaManager();
         this.abilityManager = new AbilityManager(statManager);
@@ -100,6 +138,10 @@ public final class VendralyCore extends JavaPlugin {
         registerCommands();
         registerListeners();
         startSchedulers();
+        for (Player online : Bukkit.getOnlinePlayers()) {
+            userDataManager.handleJoin(online.getUniqueId(), online.getName());
+            mailboxManager.load(online.getUniqueId());
+        }
 
         logger.info("VendralyCore habilitado correctamente");
     }
@@ -107,6 +149,7 @@ public final class VendralyCore extends JavaPlugin {
     @Override
     public void onDisable() {
         Bukkit.getScheduler().cancelTasks(this);
+        Bukkit.getServicesManager().unregisterAll(this);
         if (tradeManager != null) {
             tradeManager.shutdown();
         }
@@ -116,16 +159,48 @@ public final class VendralyCore extends JavaPlugin {
         if (staminaManager != null) {
             staminaManager.shutdown();
         }
+        if (jobManager != null) {
+            jobManager.payPending();
+        }
+        if (economyPolicyEngine != null) {
+            economyPolicyEngine.cancel();
+        }
+        if (marketEngine != null) {
+            try {
+                marketEngine.close();
+            } catch (IOException e) {
+                logger.severe("No se pudo cerrar el mercado: " + e.getMessage());
+            }
+        }
+        if (mailboxManager != null) {
+            mailboxManager.close();
+        }
+        if (pricingEngine != null) {
+            pricingEngine.save();
+        }
         if (userDataManager != null) {
             userDataManager.saveAll();
         }
+        if (economyMetrics != null) {
+            economyMetrics.close();
+        }
+        if (userDataManager != null) {
+            userDataManager.close();
+        }
+        if (economyLedger != null) {
+            try {
+                economyLedger.close();
+            } catch (IOException e) {
+                logger.severe("No se pudo cerrar el ledger económico: " + e.getMessage());
+            }
+        }
         logger.info("VendralyCore deshabilitado");
     }
 
     private void registerCommands() {
         register(new LoginCommand(authManager));
         register(new RegisterCommand(authManager));
-        register(new EconomyCommand(economyManager, cashManager));
+        register(new EconomyCommand(economyManager, cashManager, userDataManager.getDirectory(), playerOperations));
         register(new PayCommand(cashManager));
         register(new TradeCommand(tradeManager));
         register(new ClanCommand(clanManager));
@@ -133,15 +208,51 @@ public final class VendralyCore extends JavaPlugin {
         register(new RoleCommand(authManager));
         register(new StatsCommand(statManager, xpManager));
         register(new LootCommand(lootTableManager));
-        register(new RpgExpCommand(xpManager));
+        register(new RpgExpCommand(xpManager, userDataManager.getDirectory()));
+        register(new StorageCommand(userDataManager, playerOperations));
+        register(new BulkCommand(userDataManager, economyManager, cashManager, statManager));
+        register(new TopCommand(leaderboardManager, userDataManager.getDirectory(), "top"));
+        register(new TopCommand(leaderboardManager, userDataManager.getDirectory(), "baltop"));
+        register(new LedgerCommand(this, economyLedger, new LedgerReplay(economyLedger, userDataManager), userDataManager.getDirectory(),
+                economyService, batchTransferService));
+        register(new EconomyPolicyCommand(this, economyPolicyEngine));
+        register(new EconomyMetricsCommand(this, economyMetrics));
+        register(new MarketCommand(this, marketEngine, cashManager, userDataManager));
+        register(new MailCommand(mailboxManager, userDataManager.getDirectory()));
+        register(new PricesCommand(pricingEngine));
+    }
+
+    private EconomyLedger openLedger() {
+        EconomyLedger ledger = new EconomyLedger(new File(getDataFolder(), "ledger"), logger,
+                getConfig().getLong("economy.ledger.flush-interval-ms", 200L),
+                getConfig().getLong("economy.ledger.max-file-mb", 64L) * 1024L * 1024L);
+        if (getConfig().getBoolean("economy.ledger.enabled", true)) {
+            try {
+                ledger.open();
+            } catch (IOException e) {
+                logger.severe("No se pudo abrir el ledger económico: " + e.getMessage());
+            }
+        }
+        return ledger;
+    }
+
+    private MarketEngine openMarket() {
+        MarketEngine market = new MarketEngine(this, cashManager, mailboxManager);
+        try {
+            market.open();
+        } catch (IOException | RuntimeException e) {
+            logger.severe("No se pudo abrir el mercado; queda cerrado: " + e.getMessage());
+        }
+        return market;
     }
 
     private void registerListeners() {
         PluginManager pluginManager = Bukkit.getPluginManager();
         pluginManager.registerEvents(new PlayerConnectionListener(authManager, userDataManager, statManager, staminaManager, scoreboardManager), this);
         pluginManager.registerEvents(new AuthListener(authManager), this);
-        pluginManager.registerEvents(new EconomyListener(cashManager, economyManager, protectionManager), this);
+        pluginManager.registerEvents(new EconomyListener(cashManager, economyManager, protectionManager, pricingEngine), this);
         pluginManager.registerEvents(new TradeListener(tradeManager, tradeGuiManager), this);
+        pluginManager.registerEvents(new MailListener(mailboxManager), this);
         pluginManager.registerEvents(new RPGPlayerListener(statManager, xpManager, jobManager, lootTableManager, abilityManager), this);
         pluginManager.registerEvents(new CombatListener(combatManager), this);
         pluginManager.registerEvents(new ProtectionListener(protectionManager), this);
@@ -155,6 +266,19 @@ public final class VendralyCore extends JavaPlugin {
         TaskUtil.runTimer(this, () -> staminaManager.tick(), 20L, 10L);
         TaskUtil.runTimer(this, () -> abilityManager.tick(), 40L, 20L);
         TaskUtil.runTimer(this, () -> tradeManager.tick(), 20L, 20L);
+        long payrollInterval = Math.max(20L, getConfig().getLong("economy.payroll.job-interval-ticks", 100L));
+        TaskUtil.runTimer(this, () -> jobManager.payPending(), payrollInterval, payrollInterval);
+        TaskUtil.runAsyncTimer(this, () -> economyMetrics.sample(), 1200L, 1200L);
+        long policyCheck = Math.max(200L, getConfig().getLong("economy.policy.check-interval-ticks", 12000L));
+        TaskUtil.runAsyncTimer(this, () -> economyPolicyEngine.runIfDue(), policyCheck, policyCheck);
+        long pricingSave = Math.max(200L, getConfig().getLong("pricing.save-interval-ticks", 6000L));
+        TaskUtil.runAsyncTimer(this, () -> pricingEngine.save(), pricingSave, pricingSave);
+        long flushInterval = Math.max(1L, getConfig().getLong("storage.flush-interval-ticks", 40L));
+        TaskUtil.runAsyncTimer(this, () -> userDataManager.flushPending(), flushInterval, flushInterval);
+        long compactionInterval = Math.max(20L, getConfig().getLong("storage.compaction-interval-ticks", 6000L));
+        TaskUtil.runAsyncTimer(this, () -> userDataManager.compactStorage(), compactionInterval, compactionInterval);
+        long sweepInterval = Math.max(20L, getConfig().getLong("storage.cache.sweep-interval-ticks", 1200L));
+        TaskUtil.runAsyncTimer(this, () -> userDataManager.evictIdle(), sweepInterval, sweepInterval);
     }
 
     private void register(CommandExecutorHolder holder) {
@@ -181,6 +305,14 @@ public final class VendralyCore extends JavaPlugin {
         return userDataManager;
     }
 
+    public PlayerOperations getPlayerOperations() {
+        return playerOperations;
+    }
+
+    public LeaderboardManager getLeaderboardManager() {
+        return leaderboardManager;
+    }
+
     public AuthManager getAuthManager() {
         return authManager;
     }
@@ -193,6 +325,38 @@ public final class VendralyCore extends JavaPlugin {
         return economyManager;
     }
 
+    public EconomyLedger getEconomyLedger() {
+        return economyLedger;
+    }
+
+    public VendralyEconomyService getEconomyService() {
+        return economyService;
+    }
+
+    public BatchTransferService getBatchTransferService() {
+        return batchTransferService;
+    }
+
+    public EconomyPolicyEngine getEconomyPolicyEngine() {
+        return economyPolicyEngine;
+    }
+
+    public EconomyMetrics getEconomyMetrics() {
+        return economyMetrics;
+    }
+
+    public MailboxManager getMailboxManager() {
+        return mailboxManager;
+    }
+
+    public PricingEngine getPricingEngine() {
+        return pricingEngine;
+    }
+
+    public MarketEngine getMarketEngine() {
+        return marketEngine;
+    }
+
     public CashManager getCashManager() {
         return cashManager;
     }
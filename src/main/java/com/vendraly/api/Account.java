@@ -0,0 +1,9 @@
+package com.vendraly.api;
+
+/**
+ * Cuenta de un jugador sobre la que opera {@link EconomyService}.
+ */
+public enum Account {
+    BANK,
+    CASH
+}
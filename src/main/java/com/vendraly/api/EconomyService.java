@@ -0,0 +1,81 @@
+package com.vendraly.api;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Economía de VendralyCore para otros plugins, registrada en el
+ * {@code ServicesManager} de Bukkit:
+ * <pre>
+ * EconomyService economy = Bukkit.getServicesManager().load(EconomyService.class);
+ * </pre>
+ * Ningún método bloquea al llamante: los jugadores que no están en memoria se
+ * cargan en segundo plano y los futuros se completan en ese hilo, no en el
+ * principal, así que quien necesite tocar la API de Bukkit al recibir el
+ * resultado debe volver al hilo principal por su cuenta.
+ * <p>
+ * Los depósitos, retiradas y transferencias aceptan una clave de idempotencia:
+ * repetir la llamada con la misma clave devuelve el resultado de la primera
+ * sin volver a mover dinero (útil para reintentos tras un timeout), y
+ * repetirla con otra operación, jugador, cuenta o importe da
+ * {@link Status#KEY_CONFLICT}. Las claves se recuerdan durante
+ * {@code economy.api.idempotency-ttl-seconds}; las de operaciones aplicadas
+ * viajan en el ledger y sobreviven a un reinicio. Con {@code null} no hay
+ * deduplicación.
+ */
+public interface EconomyService {
+
+    enum Status {
+        SUCCESS,
+        INSUFFICIENT_FUNDS,
+        INVALID_AMOUNT,
+        /**
+         * El abono haría desbordar el saldo del destinatario.
+         */
+        LIMIT_EXCEEDED,
+        /**
+         * La clave de idempotencia ya se usó con otra operación.
+         */
+        KEY_CONFLICT
+    }
+
+    /**
+     * Resultado de una operación. {@code balance} es el saldo del jugador
+     * afectado (el emisor en una transferencia) tras aplicarla y
+     * {@code transaction} su id en el ledger, o 0 si no se aplicó.
+     * {@code replayed} indica que se devolvió el resultado guardado de una
+     * llamada anterior con la misma clave.
+     */
+    record Result(Status status, double balance, long transaction, boolean replayed) {
+        public boolean isSuccess() {
+            return status == Status.SUCCESS;
+        }
+    }
+
+    CompletableFuture<Double> getBalance(UUID player, Account account);
+
+    /**
+     * Saldos de varios jugadores en una sola llamada, resueltos desde memoria
+     * y desde el directorio de jugadores sin cargar registros. Los jugadores
+     * desconocidos aparecen con 0.
+     */
+    CompletableFuture<Map<UUID, Double>> getBalances(Collection<UUID> players, Account account);
+
+    CompletableFuture<Result> deposit(UUID player, Account account, double amount, String reason,
+                                      String idempotencyKey);
+
+    /**
+     * Retira {@code amount} solo si hay saldo suficiente.
+     */
+    CompletableFuture<Result> withdraw(UUID player, Account account, double amount, String reason,
+                                       String idempotencyKey);
+
+    /**
+     * Mueve {@code amount} entre dos jugadores en la misma cuenta: o se aplican
+     * ambos lados o ninguno.
+     */
+    CompletableFuture<Result> transfer(UUID from, UUID to, Account account, double amount, String reason,
+                                       String idempotencyKey);
+}
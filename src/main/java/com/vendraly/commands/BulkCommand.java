@@ -0,0 +1,161 @@
+package com.vendraly.commands;
+
+import com.vendraly.core.database.BulkFilter;
+import com.vendraly.core.database.BulkOperation;
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.UserDataManager;
+import com.vendraly.core.economy.CashManager;
+import com.vendraly.core.economy.EconomyManager;
+import com.vendraly.core.economy.Money;
+import com.vendraly.core.rpg.stats.StatManager;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Correcciones masivas sobre todos los jugadores guardados:
+ * {@code /bulk run <id> <acción> [criterios...]}, {@code /bulk status} y
+ * {@code /bulk stop}. Las acciones son {@code bank+N}, {@code bank-N},
+ * {@code bank=N}, lo mismo con {@code cash}, y {@code stats=reset}; los
+ * criterios los describe {@link BulkFilter}. Repetir un id ya usado reanuda
+ * la operación sin aplicarla dos veces.
+ */
+public class BulkCommand implements CommandExecutorHolder {
+
+    private final UserDataManager userDataManager;
+    private final EconomyManager economyManager;
+    private final CashManager cashManager;
+    private final StatManager statManager;
+
+    public BulkCommand(UserDataManager userDataManager, EconomyManager economyManager, CashManager cashManager, StatManager statManager) {
+        this.userDataManager = userDataManager;
+        this.economyManager = economyManager;
+        this.cashManager = cashManager;
+        this.statManager = statManager;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("vendraly.bulk.admin")) {
+            sender.sendMessage(Component.text("Sin permisos", NamedTextColor.RED));
+            return true;
+        }
+        String sub = args.length == 0 ? "status" : args[0].toLowerCase(Locale.ROOT);
+        switch (sub) {
+            case "status" -> status(sender);
+            case "stop" -> {
+                BulkOperation running = userDataManager.getBulk();
+                if (running == null) {
+                    sender.sendMessage(Component.text("No hay ninguna operación masiva en curso", NamedTextColor.YELLOW));
+                } else {
+                    running.cancel();
+                    sender.sendMessage(Component.text("Deteniendo " + running.getId() + " tras los lotes en curso", NamedTextColor.YELLOW));
+                }
+            }
+            case "run" -> run(sender, args);
+            default -> sender.sendMessage(Component.text("Uso: /bulk <run|status|stop>", NamedTextColor.YELLOW));
+        }
+        return true;
+    }
+
+    @Override
+    public String getCommandName() {
+        return "bulk";
+    }
+
+    private void run(CommandSender sender, String[] args) {
+        if (args.length < 3) {
+            sender.sendMessage(Component.text("Uso: /bulk run <id> <acción> [criterios...]", NamedTextColor.YELLOW));
+            return;
+        }
+        String id = args[1].toLowerCase(Locale.ROOT);
+        if (!id.matches("[a-z0-9_-]+")) {
+            sender.sendMessage(Component.text("El id solo admite letras, números, '-' y '_'", NamedTextColor.RED));
+            return;
+        }
+        Consumer<PlayerData> action;
+        BulkFilter filter;
+        try {
+            action = parseAction(args[2].toLowerCase(Locale.ROOT), "bulk:" + id);
+            filter = BulkFilter.parse(Arrays.copyOfRange(args, 3, args.length));
+        } catch (IllegalArgumentException ex) {
+            sender.sendMessage(Component.text(ex.getMessage(), NamedTextColor.RED));
+            return;
+        }
+        String spec = String.join(" ", Arrays.copyOfRange(args, 2, args.length)).toLowerCase(Locale.ROOT);
+        boolean started = userDataManager.startBulk(id, spec, filter, action,
+                report -> sender.sendMessage(Component.text("Operación " + id + (report.cancelled() ? " detenida: " : " terminada: ")
+                        + report.applied() + " aplicados, " + report.skipped() + " ya aplicados, " + report.failed() + " fallidos en "
+                        + report.millis() + " ms", report.failed() == 0 ? NamedTextColor.GREEN : NamedTextColor.RED)),
+                error -> sender.sendMessage(Component.text("Operación " + id + " abortada: " + error, NamedTextColor.RED)));
+        if (!started) {
+            sender.sendMessage(Component.text("Ya hay una operación masiva en curso", NamedTextColor.RED));
+            return;
+        }
+        sender.sendMessage(Component.text("Operación " + id + " iniciada; consulta /bulk status", NamedTextColor.GREEN));
+    }
+
+    private void status(CommandSender sender) {
+        BulkOperation running = userDataManager.getBulk();
+        if (running == null) {
+            sender.sendMessage(Component.text("No hay ninguna operación masiva en curso", NamedTextColor.YELLOW));
+            return;
+        }
+        sender.sendMessage(Component.text("Operación " + running.getId() + ": " + running.getScanned() + "/" + running.getTotal()
+                + " recorridos, " + running.getApplied() + " aplicados, " + running.getFailed() + " fallidos", NamedTextColor.GOLD));
+    }
+
+    private Consumer<PlayerData> parseAction(String action, String reason) {
+        if (action.equals("stats=reset")) {
+            return data -> {
+                statManager.resetPoints(data);
+                Player online = Bukkit.getPlayer(data.getUuid());
+                if (online != null) {
+                    statManager.apply(online);
+                }
+            };
+        }
+        boolean bank = action.startsWith("bank");
+        if (!bank && !action.startsWith("cash")) {
+            throw new IllegalArgumentException("Acción desconocida: " + action);
+        }
+        String rest = action.substring(4);
+        if (rest.length() < 2 || "+-=".indexOf(rest.charAt(0)) < 0) {
+            throw new IllegalArgumentException("Acción inválida: " + action);
+        }
+        char operator = rest.charAt(0);
+        double amount;
+        try {
+            amount = Double.parseDouble(rest.substring(1));
+            Money.toMinor(amount);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Cantidad inválida: " + rest.substring(1));
+        }
+        return switch (operator) {
+            case '+' -> data -> adjust(data, bank, amount, reason);
+            case '-' -> data -> adjust(data, bank, -amount, reason);
+            default -> data -> {
+                if (bank) {
+                    economyManager.setBalance(data, amount, reason);
+                } else {
+                    cashManager.setBalance(data, amount, reason);
+                }
+            };
+        };
+    }
+
+    private void adjust(PlayerData data, boolean bank, double amount, String reason) {
+        if (bank) {
+            economyManager.adjust(data, amount, reason);
+        } else {
+            cashManager.adjust(data, amount, reason);
+        }
+    }
+}
@@ -1,25 +1,44 @@
 package com.vendraly.commands;
 
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerDirectory;
+import com.vendraly.core.database.PlayerOperations;
 import com.vendraly.core.economy.CashManager;
 import com.vendraly.core.economy.EconomyManager;
+import com.vendraly.core.economy.Money;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
-import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
 
 /**
- * Comando administrativo para gestionar saldos.
+ * Comando administrativo para gestionar saldos. Los jugadores se resuelven con
+ * el {@link PlayerDirectory}, sin consultar perfiles desde el hilo principal,
+ * y los cambios pasan por {@link PlayerOperations} para no leer registros de
+ * desconectados dentro del comando.
  */
-public class EconomyCommand implements CommandExecutorHolder {
+public class EconomyCommand implements CommandExecutorHolder, TabCompleter {
+
+    private static final List<String> ACTIONS = List.of("give", "take", "set");
+    private static final List<String> ACCOUNTS = List.of("cash", "bank");
 
     private final EconomyManager economyManager;
     private final CashManager cashManager;
+    private final PlayerDirectory directory;
+    private final PlayerOperations playerOperations;
 
-    public EconomyCommand(EconomyManager economyManager, CashManager cashManager) {
+    public EconomyCommand(EconomyManager economyManager, CashManager cashManager, PlayerDirectory directory,
+                          PlayerOperations playerOperations) {
         this.economyManager = economyManager;
         this.cashManager = cashManager;
+        this.directory = directory;
+        this.playerOperations = playerOperations;
     }
 
     @Override
@@ -33,48 +52,62 @@ public class EconomyCommand implements CommandExecutorHolder {
             return true;
         }
         String action = args[0];
-        OfflinePlayer target = Bukkit.getOfflinePlayer(args[1]);
+        PlayerDirectory.Entry entry = directory.findByName(args[1]);
+        if (entry == null) {
+            sender.sendMessage(Component.text("Jugador desconocido", NamedTextColor.RED));
+            return true;
+        }
+        UUID target = entry.uuid();
         double amount;
         try {
             amount = Double.parseDouble(args[2]);
-        } catch (NumberFormatException ex) {
+            Money.toMinor(amount);
+        } catch (IllegalArgumentException ex) {
             sender.sendMessage(Component.text("Cantidad inválida", NamedTextColor.RED));
             return true;
         }
         boolean cash = args[3].equalsIgnoreCase("cash");
-        switch (action.toLowerCase()) {
-            case "give" -> {
-                if (cash) {
-                    cashManager.modify(target.getUniqueId(), amount);
-                } else {
-                    economyManager.deposit(target.getUniqueId(), amount);
-                }
-            }
-            case "take" -> {
-                if (cash) {
-                    cashManager.modify(target.getUniqueId(), -amount);
-                } else {
-                    economyManager.withdraw(target.getUniqueId(), amount);
-                }
-            }
-            case "set" -> {
-                if (cash) {
-                    cashManager.modify(target.getUniqueId(), amount - cashManager.getBalance(target.getUniqueId()));
-                } else {
-                    economyManager.setBalance(target.getUniqueId(), amount);
-                }
-            }
-            default -> {
-                sender.sendMessage(Component.text("Acción inválida.", NamedTextColor.RED));
-                return true;
-            }
+        String reason = "admin:" + sender.getName();
+        Function<PlayerData, Double> operation = switch (action.toLowerCase()) {
+            case "give" -> data -> cash ? cashManager.adjust(data, amount, reason) : economyManager.adjust(data, amount, reason);
+            case "take" -> data -> cash ? cashManager.adjust(data, -amount, reason) : economyManager.adjust(data, -amount, reason);
+            case "set" -> data -> cash ? cashManager.setBalance(data, amount, reason) : economyManager.setBalance(data, amount, reason);
+            default -> null;
+        };
+        if (operation == null) {
+            sender.sendMessage(Component.text("Acción inválida.", NamedTextColor.RED));
+            return true;
         }
-        sender.sendMessage(Component.text("Economía actualizada", NamedTextColor.GREEN));
+        playerOperations.apply(target, entry.name(), operation).whenComplete((balance, error) -> {
+            if (error != null) {
+                sender.sendMessage(Component.text("No se pudo actualizar a " + entry.name(), NamedTextColor.RED));
+            } else {
+                sender.sendMessage(Component.text("Economía actualizada: " + entry.name() + " tiene " + balance
+                        + (cash ? " en efectivo" : " en el banco"), NamedTextColor.GREEN));
+            }
+        });
         return true;
     }
 
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (!sender.hasPermission("vendraly.economy.admin")) {
+            return Collections.emptyList();
+        }
+        return switch (args.length) {
+            case 1 -> filter(ACTIONS, args[0]);
+            case 2 -> directory.complete(args[1], 20);
+            case 4 -> filter(ACCOUNTS, args[3]);
+            default -> Collections.emptyList();
+        };
+    }
+
     @Override
     public String getCommandName() {
         return "eco";
     }
+
+    private static List<String> filter(List<String> options, String prefix) {
+        return options.stream().filter(option -> option.startsWith(prefix.toLowerCase())).toList();
+    }
 }
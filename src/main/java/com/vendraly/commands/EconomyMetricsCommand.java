@@ -0,0 +1,170 @@
+package com.vendraly.commands;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.core.economy.EconomyMetrics;
+import com.vendraly.core.economy.Money;
+import com.vendraly.utils.TaskUtil;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Tendencias de la economía: {@code /ecometrics [minute|hour|day] [n]} muestra
+ * la masa monetaria actual, su evolución en las últimas {@code n} muestras y
+ * las fuentes y sumideros por categoría; {@code /ecometrics export <serie>}
+ * vuelca la serie a un CSV en {@code exports/}.
+ */
+public class EconomyMetricsCommand implements CommandExecutorHolder {
+
+    private static final int MAX_CATEGORIES = 8;
+    private static final String BARS = "▁▂▃▄▅▆▇█";
+
+    private final VendralyCore plugin;
+    private final EconomyMetrics metrics;
+
+    public EconomyMetricsCommand(VendralyCore plugin, EconomyMetrics metrics) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("vendraly.economy.admin")) {
+            sender.sendMessage(Component.text("Sin permisos", NamedTextColor.RED));
+            return true;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("export")) {
+            EconomyMetrics.Resolution resolution = args.length > 1 ? parse(args[1]) : EconomyMetrics.Resolution.HOUR;
+            if (resolution == null) {
+                sender.sendMessage(Component.text("Serie desconocida: usa minute, hour o day", NamedTextColor.RED));
+                return true;
+            }
+            export(sender, resolution);
+            return true;
+        }
+        EconomyMetrics.Resolution resolution = args.length > 0 ? parse(args[0]) : EconomyMetrics.Resolution.HOUR;
+        if (resolution == null) {
+            sender.sendMessage(Component.text("Uso: /ecometrics [minute|hour|day] [n] | export <serie>", NamedTextColor.YELLOW));
+            return true;
+        }
+        int limit = resolution == EconomyMetrics.Resolution.MINUTE ? 60 : resolution == EconomyMetrics.Resolution.HOUR ? 24 : 30;
+        if (args.length > 1) {
+            try {
+                limit = Math.max(2, Math.min(resolution.getCapacity(), Integer.parseInt(args[1])));
+            } catch (NumberFormatException ex) {
+                sender.sendMessage(Component.text("Cantidad inválida", NamedTextColor.RED));
+                return true;
+            }
+        }
+        show(sender, resolution, limit);
+        return true;
+    }
+
+    @Override
+    public String getCommandName() {
+        return "ecometrics";
+    }
+
+    private void show(CommandSender sender, EconomyMetrics.Resolution resolution, int limit) {
+        EconomyMetrics.Sample now = metrics.current();
+        sender.sendMessage(Component.text("Masa monetaria: " + Money.format(now.supply()) + " (banco " + Money.format(now.bank())
+                + ", efectivo " + Money.format(now.cash()) + ")", NamedTextColor.GOLD));
+        List<EconomyMetrics.Sample> samples = metrics.series(resolution, limit);
+        String unit = resolution.name().toLowerCase(Locale.ROOT);
+        if (samples.isEmpty()) {
+            sender.sendMessage(Component.text("Aún no hay muestras por " + unit, NamedTextColor.YELLOW));
+        } else {
+            long first = samples.get(0).supply();
+            long change = now.supply() - first;
+            long faucets = 0L;
+            long sinks = 0L;
+            for (EconomyMetrics.Sample sample : samples) {
+                faucets += sample.faucets();
+                sinks += sample.sinks();
+            }
+            String percent = first == 0L ? "" : String.format(Locale.ROOT, " (%+.2f%%)", change * 100.0 / first);
+            sender.sendMessage(Component.text("Últimas " + samples.size() + " muestras por " + unit + ": "
+                    + (change >= 0L ? "+" : "-") + Money.format(Math.abs(change)) + percent,
+                    change > 0L ? NamedTextColor.GREEN : change < 0L ? NamedTextColor.RED : NamedTextColor.YELLOW));
+            sender.sendMessage(Component.text(sparkline(samples), NamedTextColor.AQUA));
+            sender.sendMessage(Component.text("- Fuentes: +" + Money.format(faucets) + " | sumideros: -" + Money.format(sinks),
+                    NamedTextColor.YELLOW));
+        }
+        List<EconomyMetrics.Flow> flows = metrics.flows();
+        if (!flows.isEmpty()) {
+            sender.sendMessage(Component.text("Por categoría (acumulado):", NamedTextColor.GOLD));
+            for (EconomyMetrics.Flow flow : flows.subList(0, Math.min(MAX_CATEGORIES, flows.size()))) {
+                sender.sendMessage(Component.text("- " + flow.category() + ": +" + Money.format(flow.faucets()) + " / -"
+                        + Money.format(flow.sinks()), flow.net() >= 0L ? NamedTextColor.GREEN : NamedTextColor.RED));
+            }
+        }
+    }
+
+    private void export(CommandSender sender, EconomyMetrics.Resolution resolution) {
+        List<EconomyMetrics.Sample> samples = metrics.series(resolution, resolution.getCapacity());
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.ROOT);
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date());
+        File target = new File(new File(plugin.getDataFolder(), "exports"),
+                "ecometrics-" + resolution.name().toLowerCase(Locale.ROOT) + "-" + stamp + ".csv");
+        TaskUtil.runAsync(plugin, () -> {
+            try {
+                Files.createDirectories(target.getParentFile().toPath());
+                try (BufferedWriter out = Files.newBufferedWriter(target.toPath(), StandardCharsets.UTF_8)) {
+                    out.write("time,bank,cash,supply,faucets,sinks");
+                    out.newLine();
+                    for (EconomyMetrics.Sample sample : samples) {
+                        out.write(iso.format(new Date(sample.time())) + "," + decimal(sample.bank()) + "," + decimal(sample.cash())
+                                + "," + decimal(sample.supply()) + "," + decimal(sample.faucets()) + "," + decimal(sample.sinks()));
+                        out.newLine();
+                    }
+                }
+            } catch (IOException e) {
+                plugin.getPluginLogger().severe("No se pudo exportar las métricas económicas: " + e.getMessage());
+                TaskUtil.runSync(plugin, () -> sender.sendMessage(Component.text("No se pudo exportar", NamedTextColor.RED)));
+                return;
+            }
+            TaskUtil.runSync(plugin, () -> sender.sendMessage(Component.text(samples.size() + " muestras exportadas a "
+                    + target.getName(), NamedTextColor.GREEN)));
+        });
+    }
+
+    private static String sparkline(List<EconomyMetrics.Sample> samples) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (EconomyMetrics.Sample sample : samples) {
+            min = Math.min(min, sample.supply());
+            max = Math.max(max, sample.supply());
+        }
+        StringBuilder line = new StringBuilder(samples.size());
+        for (EconomyMetrics.Sample sample : samples) {
+            int level = max == min ? 0 : (int) ((sample.supply() - min) * (BARS.length() - 1) / (max - min));
+            line.append(BARS.charAt(level));
+        }
+        return line.toString();
+    }
+
+    private static String decimal(long minor) {
+        return String.format(Locale.ROOT, "%.2f", Money.toMajor(minor));
+    }
+
+    private static EconomyMetrics.Resolution parse(String value) {
+        try {
+            return EconomyMetrics.Resolution.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.vendraly.commands;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.core.economy.EconomyPolicyEngine;
+import com.vendraly.core.economy.Money;
+import com.vendraly.core.economy.PolicyRule;
+import com.vendraly.utils.TaskUtil;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Política económica periódica: {@code /ecopolicy} muestra las reglas y el
+ * estado de la pasada, {@code /ecopolicy run} lanza ya la del periodo actual
+ * si no se completó y {@code /ecopolicy stop} la detiene para reanudarla más
+ * tarde.
+ */
+public class EconomyPolicyCommand implements CommandExecutorHolder {
+
+    private final VendralyCore plugin;
+    private final EconomyPolicyEngine engine;
+
+    public EconomyPolicyCommand(VendralyCore plugin, EconomyPolicyEngine engine) {
+        this.plugin = plugin;
+        this.engine = engine;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("vendraly.economy.admin")) {
+            sender.sendMessage(Component.text("Sin permisos", NamedTextColor.RED));
+            return true;
+        }
+        String sub = args.length == 0 ? "status" : args[0].toLowerCase(Locale.ROOT);
+        switch (sub) {
+            case "status" -> status(sender);
+            case "run" -> run(sender);
+            case "stop" -> {
+                if (!engine.isRunning()) {
+                    sender.sendMessage(Component.text("No hay ninguna pasada en curso", NamedTextColor.YELLOW));
+                } else {
+                    engine.cancel();
+                    sender.sendMessage(Component.text("Deteniendo la pasada tras los bloques en curso", NamedTextColor.YELLOW));
+                }
+            }
+            default -> sender.sendMessage(Component.text("Uso: /ecopolicy <status|run|stop>", NamedTextColor.YELLOW));
+        }
+        return true;
+    }
+
+    @Override
+    public String getCommandName() {
+        return "ecopolicy";
+    }
+
+    private void run(CommandSender sender) {
+        if (engine.getRules().isEmpty()) {
+            sender.sendMessage(Component.text("No hay reglas configuradas", NamedTextColor.RED));
+            return;
+        }
+        String period = engine.currentPeriod();
+        if (engine.isDone(period)) {
+            sender.sendMessage(Component.text("La pasada " + period + " ya se aplicó", NamedTextColor.YELLOW));
+            return;
+        }
+        if (engine.isRunning()) {
+            sender.sendMessage(Component.text("Ya hay una pasada en curso", NamedTextColor.RED));
+            return;
+        }
+        sender.sendMessage(Component.text("Pasada " + period + " iniciada; consulta /ecopolicy", NamedTextColor.GREEN));
+        TaskUtil.runAsync(plugin, () -> {
+            EconomyPolicyEngine.Report report;
+            try {
+                report = engine.run(period);
+            } catch (IOException e) {
+                plugin.getPluginLogger().severe("Política económica " + period + " abortada: " + e.getMessage());
+                TaskUtil.runSync(plugin, () -> sender.sendMessage(Component.text("Pasada " + period + " abortada: " + e.getMessage(),
+                        NamedTextColor.RED)));
+                return;
+            }
+            if (report == null) {
+                TaskUtil.runSync(plugin, () -> sender.sendMessage(Component.text("Ya hay una pasada en curso", NamedTextColor.RED)));
+                return;
+            }
+            TaskUtil.runSync(plugin, () -> sender.sendMessage(Component.text(describe(report),
+                    report.failed() == 0 ? NamedTextColor.GREEN : NamedTextColor.RED)));
+        });
+    }
+
+    private void status(CommandSender sender) {
+        sender.sendMessage(Component.text("Política económica" + (engine.isEnabled() ? "" : " (desactivada)") + ":", NamedTextColor.GOLD));
+        for (PolicyRule rule : engine.getRules()) {
+            sender.sendMessage(Component.text("- " + rule.id() + ": " + rule.kind().name().toLowerCase(Locale.ROOT) + " sobre "
+                    + rule.account().name().toLowerCase(Locale.ROOT) + details(rule), NamedTextColor.YELLOW));
+        }
+        if (engine.isRunning()) {
+            sender.sendMessage(Component.text("Pasada " + engine.getCurrentRun() + " en curso: " + engine.getScanned() + "/"
+                    + engine.getTotal() + " recorridas, " + engine.getAdjusted() + " ajustadas, " + engine.getFailed() + " fallidas",
+                    NamedTextColor.YELLOW));
+        } else {
+            String period = engine.currentPeriod();
+            sender.sendMessage(Component.text("Periodo " + period + (engine.isDone(period) ? ": aplicado" : ": pendiente"),
+                    NamedTextColor.YELLOW));
+        }
+        EconomyPolicyEngine.Report last = engine.getLastReport();
+        if (last != null) {
+            sender.sendMessage(Component.text("Última: " + describe(last), NamedTextColor.GRAY));
+        }
+    }
+
+    private static String details(PolicyRule rule) {
+        return switch (rule.kind()) {
+            case INTEREST, TAX -> String.format(Locale.ROOT, " %.4f%%", rule.rate() * 100.0)
+                    + (rule.threshold() > 0L ? " desde " + Money.format(rule.threshold()) : "")
+                    + (rule.cap() > 0L ? " (máx. " + Money.format(rule.cap()) + ")" : "");
+            case UPKEEP -> " " + Money.format(rule.amount()) + " por miembro de clan";
+        };
+    }
+
+    private static String describe(EconomyPolicyEngine.Report report) {
+        return "Pasada " + report.run() + (report.cancelled() ? " detenida: " : ": ") + report.adjusted() + " cuentas ajustadas (+"
+                + Money.format(report.credited()) + " / -" + Money.format(report.debited()) + "), " + report.skipped()
+                + " ya ajustadas, " + report.failed() + " fallidas en " + report.millis() + " ms";
+    }
+}
@@ -0,0 +1,155 @@
+package com.vendraly.commands;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.core.database.PlayerDirectory;
+import com.vendraly.core.economy.BatchTransferService;
+import com.vendraly.core.economy.EconomyLedger;
+import com.vendraly.core.economy.LedgerReplay;
+import com.vendraly.core.economy.Money;
+import com.vendraly.core.economy.VendralyEconomyService;
+import com.vendraly.utils.TaskUtil;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Consulta el ledger económico: {@code /ledger} muestra su estado,
+ * {@code /ledger <jugador> [n]} los últimos movimientos de un jugador y
+ * {@code /ledger verify} reproduce el ledger y lo compara con los saldos
+ * guardados. Las lecturas de disco se hacen fuera del hilo principal.
+ */
+public class LedgerCommand implements CommandExecutorHolder {
+
+    private static final int DEFAULT_ENTRIES = 10;
+    private static final int MAX_ENTRIES = 100;
+
+    private final VendralyCore plugin;
+    private final EconomyLedger ledger;
+    private final LedgerReplay replay;
+    private final PlayerDirectory directory;
+    private final VendralyEconomyService economyService;
+    private final BatchTransferService batchTransferService;
+
+    public LedgerCommand(VendralyCore plugin, EconomyLedger ledger, LedgerReplay replay, PlayerDirectory directory,
+                         VendralyEconomyService economyService, BatchTransferService batchTransferService) {
+        this.plugin = plugin;
+        this.ledger = ledger;
+        this.replay = replay;
+        this.directory = directory;
+        this.economyService = economyService;
+        this.batchTransferService = batchTransferService;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("vendraly.economy.admin")) {
+            sender.sendMessage(Component.text("Sin permisos", NamedTextColor.RED));
+            return true;
+        }
+        if (!ledger.isOpen()) {
+            sender.sendMessage(Component.text("El ledger económico está desactivado", NamedTextColor.YELLOW));
+            return true;
+        }
+        if (args.length == 0) {
+            sender.sendMessage(Component.text("Ledger económico:", NamedTextColor.GOLD));
+            sender.sendMessage(Component.text("- Movimientos: " + ledger.getRecorded() + " | grupos escritos: " + ledger.getGroups()
+                    + " | en cola: " + ledger.getPending() + " | ficheros: " + ledger.getFileCount(), NamedTextColor.YELLOW));
+            sender.sendMessage(Component.text("- API: " + economyService.getOperations() + " operaciones | repetidas: "
+                    + economyService.getReplays() + " | claves recordadas: " + economyService.getRememberedKeys(), NamedTextColor.YELLOW));
+            sender.sendMessage(Component.text("- Lotes: " + batchTransferService.getBatches() + " aplicados ("
+                    + batchTransferService.getLegsApplied() + " movimientos) | rechazados: " + batchTransferService.getRejected(), NamedTextColor.YELLOW));
+            return true;
+        }
+        if (args[0].equalsIgnoreCase("verify")) {
+            verify(sender);
+            return true;
+        }
+        PlayerDirectory.Entry entry = directory.findByName(args[0]);
+        if (entry == null) {
+            sender.sendMessage(Component.text("Jugador desconocido", NamedTextColor.RED));
+            return true;
+        }
+        int limit = DEFAULT_ENTRIES;
+        if (args.length > 1) {
+            try {
+                limit = Math.max(1, Math.min(MAX_ENTRIES, Integer.parseInt(args[1])));
+            } catch (NumberFormatException ex) {
+                sender.sendMessage(Component.text("Cantidad inválida", NamedTextColor.RED));
+                return true;
+            }
+        }
+        history(sender, entry, limit);
+        return true;
+    }
+
+    @Override
+    public String getCommandName() {
+        return "ledger";
+    }
+
+    private void history(CommandSender sender, PlayerDirectory.Entry entry, int limit) {
+        TaskUtil.runAsync(plugin, () -> {
+            List<EconomyLedger.Entry> entries;
+            try {
+                entries = ledger.history(entry.uuid(), limit);
+            } catch (IOException e) {
+                plugin.getPluginLogger().severe("No se pudo leer el ledger: " + e.getMessage());
+                TaskUtil.runSync(plugin, () -> sender.sendMessage(Component.text("No se pudo leer el ledger", NamedTextColor.RED)));
+                return;
+            }
+            TaskUtil.runSync(plugin, () -> {
+                sender.sendMessage(Component.text("Movimientos de " + entry.name() + " (" + entries.size() + "):", NamedTextColor.GOLD));
+                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.ROOT);
+                for (EconomyLedger.Entry movement : entries) {
+                    sender.sendMessage(Component.text("#" + movement.transaction() + " " + format.format(new Date(movement.timestamp()))
+                            + " " + movement.account().name().toLowerCase(Locale.ROOT)
+                            + " " + (movement.amountMinor() >= 0L ? "+" : "") + Money.format(movement.amountMinor())
+                            + " -> " + Money.format(movement.balanceAfterMinor())
+                            + " " + movement.reason() + counterparty(movement.counterparty()),
+                            movement.amountMinor() >= 0L ? NamedTextColor.GREEN : NamedTextColor.YELLOW));
+                }
+            });
+        });
+    }
+
+    private void verify(CommandSender sender) {
+        sender.sendMessage(Component.text("Reproduciendo el ledger...", NamedTextColor.YELLOW));
+        TaskUtil.runAsync(plugin, () -> {
+            LedgerReplay.Report report;
+            try {
+                report = replay.run();
+            } catch (IOException e) {
+                plugin.getPluginLogger().severe("No se pudo reproducir el ledger: " + e.getMessage());
+                TaskUtil.runSync(plugin, () -> sender.sendMessage(Component.text("No se pudo reproducir el ledger", NamedTextColor.RED)));
+                return;
+            }
+            TaskUtil.runSync(plugin, () -> {
+                boolean clean = report.chainBreaks() == 0 && report.mismatches() == 0;
+                sender.sendMessage(Component.text("Ledger: " + report.entries() + " movimientos de " + report.players() + " jugadores en "
+                        + report.millis() + " ms", NamedTextColor.GOLD));
+                sender.sendMessage(Component.text("- Saltos de cadena: " + report.chainBreaks() + " | saldos distintos: " + report.mismatches(),
+                        clean ? NamedTextColor.GREEN : NamedTextColor.RED));
+                for (UUID uuid : report.mismatched()) {
+                    PlayerDirectory.Entry entry = directory.get(uuid);
+                    sender.sendMessage(Component.text("  " + (entry == null ? uuid.toString() : entry.name()), NamedTextColor.RED));
+                }
+            });
+        });
+    }
+
+    private String counterparty(UUID uuid) {
+        if (uuid == null) {
+            return "";
+        }
+        PlayerDirectory.Entry entry = directory.get(uuid);
+        return " con " + (entry == null || entry.name().isEmpty() ? uuid.toString().substring(0, 8) : entry.name());
+    }
+}
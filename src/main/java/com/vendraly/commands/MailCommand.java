@@ -0,0 +1,103 @@
+package com.vendraly.commands;
+
+import com.vendraly.core.database.PlayerDirectory;
+import com.vendraly.core.economy.Money;
+import com.vendraly.core.mail.MailboxManager;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Material;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.List;
+
+/**
+ * Correo: {@code /mail} recoge los envíos que quepan en el inventario;
+ * {@code /mail refund <jugador> <cantidad|hand>} envía un reembolso de
+ * dinero o una copia del objeto de la mano y {@code /mail stats} muestra los
+ * contadores (ambos administrativos).
+ */
+public class MailCommand implements CommandExecutorHolder {
+
+    private final MailboxManager mailboxManager;
+    private final PlayerDirectory directory;
+
+    public MailCommand(MailboxManager mailboxManager, PlayerDirectory directory) {
+        this.mailboxManager = mailboxManager;
+        this.directory = directory;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length > 0 && (args[0].equalsIgnoreCase("refund") || args[0].equalsIgnoreCase("stats"))) {
+            if (!sender.hasPermission("vendraly.economy.admin")) {
+                sender.sendMessage(Component.text("Sin permisos", NamedTextColor.RED));
+            } else if (args[0].equalsIgnoreCase("stats")) {
+                stats(sender);
+            } else {
+                refund(sender, args);
+            }
+            return true;
+        }
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage("Solo jugadores");
+            return true;
+        }
+        int remaining = mailboxManager.deliver(player);
+        if (remaining < 0) {
+            player.sendMessage(Component.text("Tu correo aún se está cargando.", NamedTextColor.YELLOW));
+        } else if (remaining == 0) {
+            player.sendMessage(Component.text("No te quedan envíos en el correo.", NamedTextColor.GREEN));
+        }
+        return true;
+    }
+
+    @Override
+    public String getCommandName() {
+        return "mail";
+    }
+
+    private void refund(CommandSender sender, String[] args) {
+        if (args.length < 3) {
+            sender.sendMessage(Component.text("Uso: /mail refund <jugador> <cantidad|hand>", NamedTextColor.YELLOW));
+            return;
+        }
+        PlayerDirectory.Entry entry = directory.findByName(args[1]);
+        if (entry == null) {
+            sender.sendMessage(Component.text("Jugador desconocido", NamedTextColor.RED));
+            return;
+        }
+        if (args[2].equalsIgnoreCase("hand")) {
+            ItemStack hand = sender instanceof Player player ? player.getInventory().getItemInMainHand() : null;
+            if (hand == null || hand.getType() == Material.AIR) {
+                sender.sendMessage(Component.text("Sostén en la mano el objeto a reembolsar.", NamedTextColor.RED));
+                return;
+            }
+            mailboxManager.send(entry.uuid(), sender.getName(), "refund", 0L, List.of(hand.clone()));
+            sender.sendMessage(Component.text("Objeto enviado al correo de " + entry.name(), NamedTextColor.GREEN));
+            return;
+        }
+        long money;
+        try {
+            money = Money.toMinor(Double.parseDouble(args[2]));
+        } catch (IllegalArgumentException ex) {
+            money = 0L;
+        }
+        if (money <= 0L) {
+            sender.sendMessage(Component.text("Cantidad inválida", NamedTextColor.RED));
+            return;
+        }
+        mailboxManager.send(entry.uuid(), sender.getName(), "refund", money, List.of());
+        sender.sendMessage(Component.text(Money.format(money) + " enviados al correo de " + entry.name(), NamedTextColor.GREEN));
+    }
+
+    private void stats(CommandSender sender) {
+        sender.sendMessage(Component.text("Correo: " + mailboxManager.getPosted() + " envíos, " + mailboxManager.getDelivered()
+                + " entregados (" + mailboxManager.getDeliveredItems() + " objetos, "
+                + Money.format(mailboxManager.getDeliveredMoney()) + ")", NamedTextColor.GOLD));
+        sender.sendMessage(Component.text("- " + mailboxManager.getLoaded() + " buzones cargados, " + mailboxManager.getQueued()
+                + " operaciones en cola, " + mailboxManager.getWrites() + " escrituras", NamedTextColor.YELLOW));
+    }
+}
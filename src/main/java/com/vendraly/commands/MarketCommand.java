@@ -0,0 +1,292 @@
+package com.vendraly.commands;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.UserDataManager;
+import com.vendraly.core.economy.CashManager;
+import com.vendraly.core.economy.Money;
+import com.vendraly.core.market.MarketEngine;
+import com.vendraly.core.market.MarketFill;
+import com.vendraly.core.market.MarketOrder;
+import com.vendraly.utils.TaskUtil;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Material;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Casa de subastas: {@code /market sell <precio> [cantidad]} pone a la venta
+ * el objeto de la mano, {@code /market buy <material> <cantidad> <precio>}
+ * deja una orden de compra y {@code cancel}, {@code orders} y {@code book}
+ * gestionan y muestran las órdenes. Los precios son por unidad y lo comprado
+ * llega por {@code /mail}.
+ */
+public class MarketCommand implements CommandExecutorHolder, TabCompleter {
+
+    private static final List<String> ACTIONS = List.of("sell", "buy", "cancel", "orders", "book", "stats");
+    private static final int BOOK_LEVELS = 5;
+
+    private final VendralyCore plugin;
+    private final MarketEngine market;
+    private final CashManager cashManager;
+    private final UserDataManager userDataManager;
+    private final long maxPrice;
+    private final int maxQuantity;
+
+    public MarketCommand(VendralyCore plugin, MarketEngine market, CashManager cashManager, UserDataManager userDataManager) {
+        this.plugin = plugin;
+        this.market = market;
+        this.cashManager = cashManager;
+        this.userDataManager = userDataManager;
+        this.maxPrice = Money.toMinor(Math.max(0.01, plugin.getConfig().getDouble("market.max-price", 1000000.0)));
+        this.maxQuantity = Math.max(1, plugin.getConfig().getInt("market.max-quantity", 2304));
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("stats")) {
+            if (!sender.hasPermission("vendraly.economy.admin")) {
+                sender.sendMessage(Component.text("Sin permisos", NamedTextColor.RED));
+                return true;
+            }
+            stats(sender);
+            return true;
+        }
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage("Solo jugadores");
+            return true;
+        }
+        if (!market.isOpen()) {
+            player.sendMessage(Component.text("El mercado está cerrado.", NamedTextColor.RED));
+            return true;
+        }
+        String action = args.length == 0 ? "" : args[0].toLowerCase(Locale.ROOT);
+        switch (action) {
+            case "sell" -> sell(player, args);
+            case "buy" -> buy(player, args);
+            case "cancel" -> cancel(player, args);
+            case "orders" -> orders(player);
+            case "book" -> book(player, args);
+            default -> player.sendMessage(Component.text("Uso: /market <sell <precio> [cantidad]|buy <material> <cantidad> <precio>"
+                    + "|cancel <id>|orders|book <material>>", NamedTextColor.YELLOW));
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length == 1) {
+            return ACTIONS.stream().filter(option -> option.startsWith(args[0].toLowerCase(Locale.ROOT))).toList();
+        }
+        if (args.length == 2 && (args[0].equalsIgnoreCase("buy") || args[0].equalsIgnoreCase("book"))) {
+            String prefix = args[1].toUpperCase(Locale.ROOT);
+            return Arrays.stream(Material.values())
+                    .filter(material -> material.isItem() && material.name().startsWith(prefix))
+                    .map(material -> material.name().toLowerCase(Locale.ROOT))
+                    .limit(20)
+                    .toList();
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String getCommandName() {
+        return "market";
+    }
+
+    private void sell(Player player, String[] args) {
+        if (args.length < 2) {
+            player.sendMessage(Component.text("Uso: /market sell <precio por unidad> [cantidad]", NamedTextColor.YELLOW));
+            return;
+        }
+        ItemStack hand = player.getInventory().getItemInMainHand();
+        if (hand == null || hand.getType() == Material.AIR || hand.getAmount() <= 0) {
+            player.sendMessage(Component.text("Sostén en la mano lo que quieres vender.", NamedTextColor.RED));
+            return;
+        }
+        if (hand.hasItemMeta()) {
+            player.sendMessage(Component.text("Solo se venden objetos sin nombre, encantamientos ni datos extra.", NamedTextColor.RED));
+            return;
+        }
+        long price = parsePrice(player, args[1]);
+        int quantity = args.length > 2 ? parseQuantity(player, args[2]) : hand.getAmount();
+        if (price <= 0L || quantity <= 0 || total(player, price, quantity) < 0L) {
+            return;
+        }
+        Material material = hand.getType();
+        ItemStack offered = new ItemStack(material, quantity);
+        if (!player.getInventory().containsAtLeast(new ItemStack(material), quantity)) {
+            player.sendMessage(Component.text("No tienes " + quantity + " de " + material.name() + ".", NamedTextColor.RED));
+            return;
+        }
+        player.getInventory().removeItem(offered);
+        submit(player, market.place(player.getUniqueId(), MarketOrder.Side.SELL, material.name(), price, quantity));
+    }
+
+    private void buy(Player player, String[] args) {
+        if (args.length < 4) {
+            player.sendMessage(Component.text("Uso: /market buy <material> <cantidad> <precio por unidad>", NamedTextColor.YELLOW));
+            return;
+        }
+        Material material = Material.matchMaterial(args[1]);
+        if (material == null || material == Material.AIR || !material.isItem()) {
+            player.sendMessage(Component.text("Material desconocido: " + args[1], NamedTextColor.RED));
+            return;
+        }
+        int quantity = parseQuantity(player, args[2]);
+        long price = quantity <= 0 ? 0L : parsePrice(player, args[3]);
+        long total = price <= 0L ? -1L : total(player, price, quantity);
+        if (total < 0L) {
+            return;
+        }
+        PlayerData data = userDataManager.getOrCreate(player.getUniqueId(), player.getName());
+        if (!cashManager.withdraw(data, Money.toMajor(total), "market:escrow")) {
+            player.sendMessage(Component.text("Necesitas " + Money.format(total) + " en efectivo.", NamedTextColor.RED));
+            return;
+        }
+        userDataManager.save(data);
+        submit(player, market.place(player.getUniqueId(), MarketOrder.Side.BUY, material.name(), price, quantity));
+    }
+
+    private void submit(Player player, CompletableFuture<MarketEngine.PlaceResult> result) {
+        result.whenComplete((placed, error) -> TaskUtil.runSync(plugin, () -> {
+            if (error != null) {
+                player.sendMessage(Component.text("Error del mercado al registrar la orden; revisa /market orders.", NamedTextColor.RED));
+                return;
+            }
+            if (!placed.isAccepted()) {
+                player.sendMessage(Component.text(placed.error() + " Lo depositado se te devuelve.", NamedTextColor.RED));
+                return;
+            }
+            MarketOrder order = placed.order();
+            int filled = 0;
+            for (MarketFill fill : placed.fills()) {
+                filled += fill.quantity();
+            }
+            String side = order.getSide() == MarketOrder.Side.BUY ? "Compra" : "Venta";
+            player.sendMessage(Component.text(side + " #" + order.getId() + ": " + order.getQuantity() + " " + order.getItem()
+                    + " a " + Money.format(order.getPrice()) + " c/u, " + filled + " cruzadas al momento.", NamedTextColor.GREEN));
+        }));
+    }
+
+    private void cancel(Player player, String[] args) {
+        long id;
+        try {
+            id = Long.parseLong(args.length > 1 ? args[1].replace("#", "") : "");
+        } catch (NumberFormatException ex) {
+            player.sendMessage(Component.text("Uso: /market cancel <id>", NamedTextColor.YELLOW));
+            return;
+        }
+        market.cancel(player.getUniqueId(), id, player.hasPermission("vendraly.economy.admin"))
+                .whenComplete((order, error) -> TaskUtil.runSync(plugin, () -> {
+                    if (error != null || order == null) {
+                        player.sendMessage(Component.text("No tienes una orden abierta #" + id, NamedTextColor.RED));
+                    } else {
+                        player.sendMessage(Component.text("Orden #" + id + " cancelada; se devuelven " + order.getRemaining()
+                                + " " + order.getItem() + (order.getSide() == MarketOrder.Side.BUY ? " en dinero" : ""),
+                                NamedTextColor.GREEN));
+                    }
+                }));
+    }
+
+    private void orders(Player player) {
+        market.orders(player.getUniqueId()).whenComplete((orders, error) -> TaskUtil.runSync(plugin, () -> {
+            if (error != null || orders.isEmpty()) {
+                player.sendMessage(Component.text("No tienes órdenes abiertas.", NamedTextColor.YELLOW));
+                return;
+            }
+            player.sendMessage(Component.text("Tus órdenes:", NamedTextColor.GOLD));
+            for (MarketOrder order : orders) {
+                player.sendMessage(Component.text("#" + order.getId() + " " + (order.getSide() == MarketOrder.Side.BUY ? "compra " : "venta ")
+                        + order.getRemaining() + "/" + order.getQuantity() + " " + order.getItem() + " a "
+                        + Money.format(order.getPrice()), NamedTextColor.YELLOW));
+            }
+        }));
+    }
+
+    private void book(Player player, String[] args) {
+        Material material = args.length > 1 ? Material.matchMaterial(args[1]) : null;
+        if (material == null) {
+            player.sendMessage(Component.text("Uso: /market book <material>", NamedTextColor.YELLOW));
+            return;
+        }
+        market.depth(material.name(), BOOK_LEVELS).whenComplete((depth, error) -> TaskUtil.runSync(plugin, () -> {
+            if (error != null) {
+                player.sendMessage(Component.text("El mercado no respondió.", NamedTextColor.RED));
+                return;
+            }
+            player.sendMessage(Component.text("Libro de " + depth.item() + ":", NamedTextColor.GOLD));
+            if (depth.asks().isEmpty() && depth.bids().isEmpty()) {
+                player.sendMessage(Component.text("Sin órdenes.", NamedTextColor.YELLOW));
+                return;
+            }
+            for (int i = depth.asks().size() - 1; i >= 0; i--) {
+                MarketEngine.PriceLevel level = depth.asks().get(i);
+                player.sendMessage(Component.text("  venta " + Money.format(level.price()) + " x" + level.quantity()
+                        + " (" + level.orders() + ")", NamedTextColor.RED));
+            }
+            for (MarketEngine.PriceLevel level : depth.bids()) {
+                player.sendMessage(Component.text("  compra " + Money.format(level.price()) + " x" + level.quantity()
+                        + " (" + level.orders() + ")", NamedTextColor.GREEN));
+            }
+        }));
+    }
+
+    private void stats(CommandSender sender) {
+        sender.sendMessage(Component.text("Mercado " + (market.isOpen() ? "abierto" : "cerrado") + ": "
+                + market.getOpenOrders() + " órdenes abiertas, " + market.getQueued() + " peticiones en cola", NamedTextColor.GOLD));
+        sender.sendMessage(Component.text("- Órdenes: " + market.getPlaced() + " colocadas, " + market.getCancelled()
+                + " canceladas, " + market.getRejected() + " rechazadas", NamedTextColor.YELLOW));
+        sender.sendMessage(Component.text("- Cruces: " + market.getFills() + " (" + market.getVolume() + " objetos, "
+                + Money.format(market.getTurnover()) + ") en " + market.getGroups() + " escrituras", NamedTextColor.YELLOW));
+    }
+
+    private long parsePrice(Player player, String value) {
+        long price;
+        try {
+            price = Money.toMinor(Double.parseDouble(value));
+        } catch (IllegalArgumentException ex) {
+            price = 0L;
+        }
+        if (price <= 0L || price > maxPrice) {
+            player.sendMessage(Component.text("Precio inválido (máximo " + Money.format(maxPrice) + ")", NamedTextColor.RED));
+            return 0L;
+        }
+        return price;
+    }
+
+    private int parseQuantity(Player player, String value) {
+        int quantity;
+        try {
+            quantity = Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            quantity = 0;
+        }
+        if (quantity <= 0 || quantity > maxQuantity) {
+            player.sendMessage(Component.text("Cantidad inválida (máximo " + maxQuantity + ")", NamedTextColor.RED));
+            return 0;
+        }
+        return quantity;
+    }
+
+    private long total(Player player, long price, int quantity) {
+        try {
+            long total = Math.multiplyExact(price, quantity);
+            Money.toMinor(Money.toMajor(total));
+            return total;
+        } catch (ArithmeticException | IllegalArgumentException ex) {
+            player.sendMessage(Component.text("El total de la orden es demasiado grande.", NamedTextColor.RED));
+            return -1L;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.vendraly.commands;
 
 import com.vendraly.core.economy.CashManager;
+import com.vendraly.core.economy.Money;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
@@ -37,7 +38,8 @@ public class PayCommand implements CommandExecutorHolder {
         double amount;
         try {
             amount = Double.parseDouble(args[1]);
-        } catch (NumberFormatException ex) {
+            Money.toMinor(amount);
+        } catch (IllegalArgumentException ex) {
             player.sendMessage(Component.text("Cantidad inválida", NamedTextColor.RED));
             return true;
         }
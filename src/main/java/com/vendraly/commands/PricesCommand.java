@@ -0,0 +1,68 @@
+package com.vendraly.commands;
+
+import com.vendraly.core.economy.Money;
+import com.vendraly.core.pricing.PricingEngine;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Material;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Precios de venta actuales: {@code /prices} lista los materiales (primero los
+ * más depreciados por la oferta reciente) y {@code /prices <material>}
+ * detalla uno con lo que se cobraría por un stack.
+ */
+public class PricesCommand implements CommandExecutorHolder {
+
+    private static final int MAX_LINES = 10;
+
+    private final PricingEngine pricingEngine;
+
+    public PricesCommand(PricingEngine pricingEngine) {
+        this.pricingEngine = pricingEngine;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length > 0) {
+            Material material = Material.matchMaterial(args[0]);
+            PricingEngine.Quote quote = material == null ? null : pricingEngine.quote(material);
+            if (quote == null) {
+                sender.sendMessage(Component.text("Ese material no tiene precio de venta.", NamedTextColor.RED));
+                return true;
+            }
+            sender.sendMessage(Component.text(line(quote), NamedTextColor.GOLD));
+            sender.sendMessage(Component.text("- Un stack de 64 se pagaría ahora a " + Money.format(pricingEngine.estimate(material, 64)),
+                    NamedTextColor.YELLOW));
+            return true;
+        }
+        List<PricingEngine.Quote> quotes = pricingEngine.quotes();
+        if (quotes.isEmpty()) {
+            sender.sendMessage(Component.text("No hay materiales con precio de venta.", NamedTextColor.YELLOW));
+            return true;
+        }
+        sender.sendMessage(Component.text("Precios de venta:", NamedTextColor.GOLD));
+        for (PricingEngine.Quote quote : quotes.subList(0, Math.min(MAX_LINES, quotes.size()))) {
+            sender.sendMessage(Component.text("- " + line(quote), quote.factor() < 0.999 ? NamedTextColor.RED : NamedTextColor.GREEN));
+        }
+        if (sender.hasPermission("vendraly.economy.admin")) {
+            sender.sendMessage(Component.text("Ventas: " + pricingEngine.getSales() + " (" + pricingEngine.getUnits() + " unidades, "
+                    + Money.format(pricingEngine.getPaid()) + ")", NamedTextColor.YELLOW));
+        }
+        return true;
+    }
+
+    @Override
+    public String getCommandName() {
+        return "prices";
+    }
+
+    private static String line(PricingEngine.Quote quote) {
+        return quote.material().name().toLowerCase(Locale.ROOT) + ": " + Money.format(quote.price()) + " c/u ("
+                + String.format(Locale.ROOT, "%.0f%%", quote.factor() * 100.0) + " de " + Money.format(quote.base()) + ")";
+    }
+}
@@ -1,22 +1,24 @@
 package com.vendraly.commands;
 
+import com.vendraly.core.database.PlayerDirectory;
 import com.vendraly.core.rpg.stats.XPManager;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
-import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
-import org.bukkit.entity.Player;
 
 /**
- * Comando para otorgar XP RPG.
+ * Comando para otorgar XP RPG. Admite jugadores desconectados: se resuelven
+ * con el {@link PlayerDirectory} y se cargan fuera del hilo principal.
  */
 public class RpgExpCommand implements CommandExecutorHolder {
 
     private final XPManager xpManager;
+    private final PlayerDirectory directory;
 
-    public RpgExpCommand(XPManager xpManager) {
+    public RpgExpCommand(XPManager xpManager, PlayerDirectory directory) {
         this.xpManager = xpManager;
+        this.directory = directory;
     }
 
     @Override
@@ -29,18 +31,25 @@ public class RpgExpCommand implements CommandExecutorHolder {
             sender.sendMessage(Component.text("Uso: /rgpexp <jugador> <cantidad>", NamedTextColor.YELLOW));
             return true;
         }
-        Player target = Bukkit.getPlayer(args[0]);
+        PlayerDirectory.Entry target = directory.findByName(args[0]);
         if (target == null) {
             sender.sendMessage(Component.text("Jugador no encontrado", NamedTextColor.RED));
             return true;
         }
+        long amount;
         try {
-            long amount = Long.parseLong(args[1]);
-            xpManager.addExperience(target, amount);
-            sender.sendMessage(Component.text("Experiencia otorgada", NamedTextColor.GREEN));
+            amount = Long.parseLong(args[1]);
         } catch (NumberFormatException ex) {
             sender.sendMessage(Component.text("Cantidad inválida", NamedTextColor.RED));
+            return true;
         }
+        xpManager.addExperience(target.uuid(), amount).whenComplete((level, error) -> {
+            if (error != null) {
+                sender.sendMessage(Component.text("No se pudo otorgar experiencia a " + target.name(), NamedTextColor.RED));
+            } else {
+                sender.sendMessage(Component.text("Experiencia otorgada: " + target.name() + " está en nivel " + level, NamedTextColor.GREEN));
+            }
+        });
         return true;
     }
 
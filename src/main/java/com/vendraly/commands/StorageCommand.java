@@ -0,0 +1,110 @@
+package com.vendraly.commands;
+
+import com.vendraly.core.database.PlayerDataCache;
+import com.vendraly.core.database.PlayerOperations;
+import com.vendraly.core.database.SaveQueue;
+import com.vendraly.core.database.UserDataManager;
+import com.vendraly.core.database.storage.JdbcPlayerStorage;
+import com.vendraly.core.database.storage.PlayerStorage;
+import com.vendraly.core.database.storage.SegmentPlayerStorage;
+import com.vendraly.core.database.storage.SegmentStore;
+import com.vendraly.core.database.storage.StorageMigration;
+import com.vendraly.core.database.storage.WriteAheadJournal;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+/**
+ * Comando administrativo para consultar el estado de la persistencia y migrar
+ * ficheros sueltos al backend activo.
+ */
+public class StorageCommand implements CommandExecutorHolder {
+
+    private final UserDataManager userDataManager;
+    private final PlayerOperations playerOperations;
+
+    public StorageCommand(UserDataManager userDataManager, PlayerOperations playerOperations) {
+        this.userDataManager = userDataManager;
+        this.playerOperations = playerOperations;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("vendraly.storage.admin")) {
+            sender.sendMessage(Component.text("Sin permisos", NamedTextColor.RED));
+            return true;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("migrate")) {
+            return migrate(sender, args);
+        }
+        SaveQueue queue = userDataManager.getSaveQueue();
+        PlayerStorage storage = userDataManager.getStorage();
+        sender.sendMessage(Component.text("Almacenamiento: " + storage.getName(), NamedTextColor.GOLD));
+        sender.sendMessage(Component.text("Cola de guardado:", NamedTextColor.GOLD));
+        sender.sendMessage(Component.text("- Pendientes: " + queue.getQueueDepth() + " (en curso " + queue.getInFlight() + ")", NamedTextColor.YELLOW));
+        sender.sendMessage(Component.text("- Mutaciones: " + queue.getMutations() + " | escrituras: " + queue.getWrites() + " | fallos: " + queue.getFailures(), NamedTextColor.YELLOW));
+        sender.sendMessage(Component.text("- Retraso: último " + queue.getLastFlushLagMillis() + " ms, medio " + queue.getAverageFlushLagMillis() + " ms, máximo " + queue.getMaxFlushLagMillis() + " ms", NamedTextColor.YELLOW));
+        sender.sendMessage(Component.text("- Pendiente más antiguo: " + queue.getOldestPendingMillis() + " ms", NamedTextColor.YELLOW));
+        WriteAheadJournal journal = userDataManager.getJournal();
+        if (journal != null) {
+            sender.sendMessage(Component.text("Journal:", NamedTextColor.GOLD));
+            sender.sendMessage(Component.text("- Entradas: " + journal.getAppended() + " | fsync: " + journal.getSyncs() + String.format(" (%.1f por grupo, último %d µs)", journal.getAverageGroupSize(), journal.getLastSyncMicros()), NamedTextColor.YELLOW));
+            sender.sendMessage(Component.text("- Sin sincronizar: " + journal.getUnsyncedFrames() + " | jugadores sin confirmar: " + journal.getPendingPlayers() + " | ficheros: " + journal.getFileCount(), NamedTextColor.YELLOW));
+        }
+        PlayerDataCache cache = userDataManager.getCache();
+        long lookups = cache.getHits() + cache.getMisses();
+        long hitPercent = lookups == 0 ? 100L : cache.getHits() * 100L / lookups;
+        sender.sendMessage(Component.text("Caché:", NamedTextColor.GOLD));
+        sender.sendMessage(Component.text("- Conectados: " + cache.getPinnedSize() + " | offline: " + cache.getOfflineSize(), NamedTextColor.YELLOW));
+        sender.sendMessage(Component.text("- Aciertos: " + cache.getHits() + " | fallos: " + cache.getMisses() + " (" + hitPercent + "% acierto)", NamedTextColor.YELLOW));
+        sender.sendMessage(Component.text("- Expulsiones: " + cache.getEvictions() + " | volcados previos: " + cache.getEvictionFlushes(), NamedTextColor.YELLOW));
+        sender.sendMessage(Component.text("- Directorio: " + userDataManager.getDirectory().size() + " jugadores conocidos", NamedTextColor.YELLOW));
+        sender.sendMessage(Component.text("- Precargados en prelogin: " + userDataManager.getPreloaded() + " | plazos agotados: " + userDataManager.getPreloadTimeouts()
+                + " | entradas síncronas: " + userDataManager.getSyncJoinLoads() + " (" + userDataManager.getSyncJoinMillis() + " ms)", NamedTextColor.YELLOW));
+        sender.sendMessage(Component.text("- Operaciones sobre jugadores: " + playerOperations.getImmediate() + " inmediatas, "
+                + playerOperations.getDeferred() + " diferidas, " + playerOperations.getFailed() + " fallidas", NamedTextColor.YELLOW));
+        if (storage instanceof JdbcPlayerStorage jdbc) {
+            sender.sendMessage(Component.text("- Conexiones SQL abiertas: " + jdbc.getOpenConnections(), NamedTextColor.YELLOW));
+        }
+        if (storage instanceof SegmentPlayerStorage segmentStorage) {
+            SegmentStore store = segmentStorage.getStore();
+            long total = store.getTotalBytes();
+            long livePercent = total == 0 ? 100L : store.getLiveBytes() * 100L / total;
+            sender.sendMessage(Component.text("Segmentos:", NamedTextColor.GOLD));
+            sender.sendMessage(Component.text("- Registros: " + store.getRecordCount() + " en " + store.getSegmentCount() + " segmentos", NamedTextColor.YELLOW));
+            sender.sendMessage(Component.text("- Tamaño: " + (total / 1024L) + " KiB (" + livePercent + "% vivo) | compactaciones: " + store.getCompactions(), NamedTextColor.YELLOW));
+            sender.sendMessage(Component.text("- Último arranque del índice: " + store.getLastOpenMillis() + " ms", NamedTextColor.YELLOW));
+            sender.sendMessage(Component.text("- Escrituras: " + store.getFullWrites() + " completas, " + store.getDeltaWrites() + " deltas (" + (store.getBytesWritten() / 1024L) + " KiB)", NamedTextColor.YELLOW));
+        }
+        StorageMigration migration = userDataManager.getMigration();
+        if (migration != null) {
+            sender.sendMessage(Component.text("Migración en curso: " + migration.getMigrated() + " migrados de " + migration.getScanned() + " leídos", NamedTextColor.GOLD));
+        }
+        return true;
+    }
+
+    private boolean migrate(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(Component.text("Uso: /storage migrate <yaml|binary> [borrar]", NamedTextColor.YELLOW));
+            return true;
+        }
+        boolean deleteSource = args.length > 2 && args[2].equalsIgnoreCase("borrar");
+        boolean started = userDataManager.startMigration(args[1], deleteSource, report -> {
+            NamedTextColor color = report.isComplete() ? NamedTextColor.GREEN : NamedTextColor.RED;
+            sender.sendMessage(Component.text("Migración terminada en " + report.millis() + " ms: " + report.migrated() + " migrados, "
+                    + report.skipped() + " omitidos, " + report.failed() + " fallidos, " + report.mismatched() + " con checksum distinto", color));
+        });
+        if (!started) {
+            sender.sendMessage(Component.text("No se puede migrar desde " + args[1] + ": ya hay una migración en curso o es el backend activo", NamedTextColor.RED));
+            return true;
+        }
+        sender.sendMessage(Component.text("Migración desde " + args[1] + " iniciada; consulta el progreso con /storage", NamedTextColor.GREEN));
+        return true;
+    }
+
+    @Override
+    public String getCommandName() {
+        return "storage";
+    }
+}
@@ -0,0 +1,125 @@
+package com.vendraly.commands;
+
+import com.vendraly.core.database.PlayerDirectory;
+import com.vendraly.core.leaderboard.LeaderboardManager;
+import com.vendraly.core.leaderboard.RankIndex;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Muestra las clasificaciones: {@code /top <balance|level> [página]},
+ * {@code /top job <oficio> [página]} y el atajo {@code /baltop [página]}. Se
+ * registra dos veces, una por nombre de comando.
+ */
+public class TopCommand implements CommandExecutorHolder, TabCompleter {
+
+    private static final int PAGE_SIZE = 10;
+
+    private final LeaderboardManager leaderboardManager;
+    private final PlayerDirectory directory;
+    private final String commandName;
+
+    public TopCommand(LeaderboardManager leaderboardManager, PlayerDirectory directory, String commandName) {
+        this.leaderboardManager = leaderboardManager;
+        this.directory = directory;
+        this.commandName = commandName;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        String board;
+        int pageArg;
+        if (commandName.equals("baltop")) {
+            board = LeaderboardManager.BALANCE;
+            pageArg = 0;
+        } else if (args.length == 0) {
+            sender.sendMessage(Component.text("Uso: /top <balance|level|job <oficio>> [página]", NamedTextColor.YELLOW));
+            return true;
+        } else if (args[0].equalsIgnoreCase("job")) {
+            if (args.length < 2) {
+                sender.sendMessage(Component.text("Oficios: " + String.join(", ", leaderboardManager.getJobIds()), NamedTextColor.YELLOW));
+                return true;
+            }
+            board = LeaderboardManager.jobBoardName(args[1]);
+            pageArg = 2;
+        } else {
+            board = args[0].toLowerCase(Locale.ROOT);
+            pageArg = 1;
+        }
+        RankIndex index = leaderboardManager.getBoard(board);
+        if (index == null) {
+            sender.sendMessage(Component.text("Clasificación desconocida", NamedTextColor.RED));
+            return true;
+        }
+        int page = 1;
+        if (args.length > pageArg) {
+            try {
+                page = Math.max(1, Integer.parseInt(args[pageArg]));
+            } catch (NumberFormatException ex) {
+                sender.sendMessage(Component.text("Página inválida", NamedTextColor.RED));
+                return true;
+            }
+        }
+        int pages = Math.max(1, (index.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        sender.sendMessage(Component.text("Top " + board + " (" + page + "/" + pages + ")"
+                + (leaderboardManager.isReady() ? "" : " - reconstruyendo"), NamedTextColor.GOLD));
+        for (RankIndex.Ranked ranked : leaderboardManager.page(board, page, PAGE_SIZE)) {
+            sender.sendMessage(Component.text(ranked.rank() + ". " + nameOf(ranked) + " - " + format(board, ranked.score()), NamedTextColor.YELLOW));
+        }
+        if (sender instanceof Player player) {
+            int rank = index.rank(player.getUniqueId());
+            if (rank > 0) {
+                sender.sendMessage(Component.text("Tu posición: " + rank + " (" + format(board, index.score(player.getUniqueId())) + ")", NamedTextColor.GREEN));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (commandName.equals("baltop")) {
+            return Collections.emptyList();
+        }
+        if (args.length == 1) {
+            return List.of(LeaderboardManager.BALANCE, LeaderboardManager.LEVEL, "job").stream()
+                    .filter(option -> option.startsWith(args[0].toLowerCase(Locale.ROOT)))
+                    .toList();
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("job")) {
+            List<String> jobs = new ArrayList<>();
+            for (String job : leaderboardManager.getJobIds()) {
+                if (job.startsWith(args[1].toLowerCase(Locale.ROOT))) {
+                    jobs.add(job);
+                }
+            }
+            return jobs;
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String getCommandName() {
+        return commandName;
+    }
+
+    private String nameOf(RankIndex.Ranked ranked) {
+        PlayerDirectory.Entry entry = directory.get(ranked.uuid());
+        return entry == null || entry.name().isEmpty() ? ranked.uuid().toString().substring(0, 8) : entry.name();
+    }
+
+    private static String format(String board, double score) {
+        if (board.equals(LeaderboardManager.BALANCE)) {
+            return String.format(Locale.ROOT, "%.2f", score);
+        }
+        return "nivel " + LeaderboardManager.levelOf(score);
+    }
+}
@@ -1,5 +1,6 @@
 package com.vendraly.commands;
 
+import com.vendraly.core.economy.Money;
 import com.vendraly.core.trade.TradeManager;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -43,12 +44,13 @@ public class TradeCommand implements CommandExecutorHolder {
         if (args[0].equalsIgnoreCase("money") && args.length >= 2) {
             try {
                 double amount = Double.parseDouble(args[1]);
+                Money.toMinor(amount);
                 if (tradeManager.offerMoney(player, amount)) {
                     player.sendMessage(Component.text("Oferta monetaria actualizada", NamedTextColor.GREEN));
                 } else {
                     player.sendMessage(Component.text("No puedes ofertar esa cantidad", NamedTextColor.RED));
                 }
-            } catch (NumberFormatException ex) {
+            } catch (IllegalArgumentException ex) {
                 player.sendMessage(Component.text("Cantidad inválida", NamedTextColor.RED));
             }
             return true;
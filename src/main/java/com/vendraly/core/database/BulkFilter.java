@@ -0,0 +1,141 @@
+package com.vendraly.core.database;
+
+import com.vendraly.core.roles.Role;
+
+import java.util.Locale;
+
+/**
+ * Criterios de selección de una {@link BulkOperation}, escritos como
+ * {@code clave<op>valor}: {@code role=VIP}, {@code level>=80},
+ * {@code bank<100}, {@code cash>0} o {@code inactive=30} (días sin
+ * conectarse). Los criterios se combinan con Y. Se evalúan primero sobre el
+ * {@link PlayerDirectory} para no cargar registros que no encajan y se
+ * vuelven a comprobar sobre el {@link PlayerData} antes de modificarlo.
+ */
+public final class BulkFilter {
+
+    private static final long DAY_MILLIS = 24L * 60L * 60L * 1000L;
+
+    private Role role;
+    private double minLevel = Double.NEGATIVE_INFINITY;
+    private double maxLevel = Double.POSITIVE_INFINITY;
+    private double minBank = Double.NEGATIVE_INFINITY;
+    private double maxBank = Double.POSITIVE_INFINITY;
+    private double minCash = Double.NEGATIVE_INFINITY;
+    private double maxCash = Double.POSITIVE_INFINITY;
+    private long inactiveMillis;
+
+    private BulkFilter() {
+    }
+
+    /**
+     * @throws IllegalArgumentException si algún criterio no se entiende
+     */
+    public static BulkFilter parse(String[] criteria) {
+        BulkFilter filter = new BulkFilter();
+        for (String criterion : criteria) {
+            filter.add(criterion.toLowerCase(Locale.ROOT));
+        }
+        return filter;
+    }
+
+    /**
+     * Comprobación previa con el resumen del directorio.
+     */
+    public boolean test(PlayerDirectory.Entry entry, long now) {
+        return matches(entry.role(), entry.level(), entry.bank(), entry.cash(), entry.lastSeen(), now);
+    }
+
+    /**
+     * Comprobación definitiva sobre los datos cargados; la última conexión
+     * solo la guarda el directorio.
+     */
+    public boolean test(PlayerData data, long lastSeen, long now) {
+        return matches(data.getRole(), data.getRpgLevel(), data.getBankBalance(), data.getCashBalance(), lastSeen, now);
+    }
+
+    private boolean matches(Role playerRole, int level, double bank, double cash, long lastSeen, long now) {
+        if (role != null && playerRole != role) {
+            return false;
+        }
+        if (level < minLevel || level > maxLevel || bank < minBank || bank > maxBank || cash < minCash || cash > maxCash) {
+            return false;
+        }
+        // Sin última conexión registrada el jugador cuenta como inactivo desde siempre.
+        return inactiveMillis == 0L || now - lastSeen >= inactiveMillis;
+    }
+
+    private void add(String criterion) {
+        int at = indexOfOperator(criterion);
+        if (at <= 0) {
+            throw new IllegalArgumentException("Criterio inválido: " + criterion);
+        }
+        String key = criterion.substring(0, at);
+        String operator = criterion.length() > at + 1 && criterion.charAt(at + 1) == '=' ? criterion.substring(at, at + 2)
+                : criterion.substring(at, at + 1);
+        String value = criterion.substring(at + operator.length());
+        switch (key) {
+            case "role" -> {
+                if (!operator.equals("=")) {
+                    throw new IllegalArgumentException("El rol solo admite '='");
+                }
+                try {
+                    role = Role.valueOf(value.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException("Rol desconocido: " + value);
+                }
+            }
+            case "inactive" -> {
+                if (!operator.equals("=") && !operator.equals(">=")) {
+                    throw new IllegalArgumentException("inactive solo admite '=' (días)");
+                }
+                inactiveMillis = (long) (number(value) * DAY_MILLIS);
+            }
+            case "level" -> {
+                double[] range = range(operator, number(value), minLevel, maxLevel);
+                minLevel = range[0];
+                maxLevel = range[1];
+            }
+            case "bank" -> {
+                double[] range = range(operator, number(value), minBank, maxBank);
+                minBank = range[0];
+                maxBank = range[1];
+            }
+            case "cash" -> {
+                double[] range = range(operator, number(value), minCash, maxCash);
+                minCash = range[0];
+                maxCash = range[1];
+            }
+            default -> throw new IllegalArgumentException("Criterio desconocido: " + key);
+        }
+    }
+
+    private static double[] range(String operator, double value, double min, double max) {
+        return switch (operator) {
+            case "=" -> new double[]{value, value};
+            case ">=" -> new double[]{Math.max(min, value), max};
+            case "<=" -> new double[]{min, Math.min(max, value)};
+            case ">" -> new double[]{Math.max(min, Math.nextUp(value)), max};
+            case "<" -> new double[]{min, Math.min(max, Math.nextDown(value))};
+            default -> throw new IllegalArgumentException("Operador inválido: " + operator);
+        };
+    }
+
+    private static int indexOfOperator(String criterion) {
+        for (int i = 0; i < criterion.length(); i++) {
+            char c = criterion.charAt(i);
+            if (c == '=' || c == '<' || c == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static double number(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Número inválido: " + value);
+        }
+    }
+}
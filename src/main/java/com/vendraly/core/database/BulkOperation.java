@@ -0,0 +1,288 @@
+package com.vendraly.core.database;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.utils.TaskUtil;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Corrección masiva sobre todos los jugadores guardados. Los UUID se recorren
+ * en lotes; cada lote se filtra con el {@link PlayerDirectory}, se carga en
+ * paralelo fuera del hilo principal y la acción se aplica en el hilo
+ * principal sobre la copia en caché, de modo que los conectados ven el cambio
+ * al instante y nada compite con sus propias mutaciones. Los UUID aplicados se
+ * anotan en un fichero de progreso en el mismo tick, así que repetir la
+ * operación con el mismo id la reanuda sin aplicar dos veces la acción.
+ */
+public class BulkOperation {
+
+    /**
+     * Resultado de una ejecución. {@code skipped} cuenta los ya aplicados en
+     * una ejecución anterior.
+     */
+    public record Report(long scanned, long matched, long applied, long skipped, long failed, boolean cancelled, long millis) {
+    }
+
+    private final VendralyCore plugin;
+    private final UserDataManager userDataManager;
+    private final String id;
+    private final String spec;
+    private final BulkFilter filter;
+    private final Consumer<PlayerData> action;
+    private final File progressFile;
+    private final int threads;
+    private final int batchSize;
+    private final Logger logger;
+
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long total;
+    private volatile boolean cancelled;
+
+    /**
+     * @param spec   texto que describe acción y criterios; se guarda en la
+     *               cabecera del progreso para no reanudar otra operación con
+     *               el mismo id
+     * @param action se ejecuta en el hilo principal; el guardado lo hace la
+     *               operación
+     */
+    public BulkOperation(VendralyCore plugin, UserDataManager userDataManager, String id, String spec, BulkFilter filter,
+                         Consumer<PlayerData> action, int threads, int batchSize) {
+        this.plugin = plugin;
+        this.userDataManager = userDataManager;
+        this.id = id;
+        this.spec = spec;
+        this.filter = filter;
+        this.action = action;
+        this.progressFile = new File(new File(userDataManager.getUserDataFolder(), "bulk"), id + ".progress");
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+        this.logger = plugin.getPluginLogger();
+    }
+
+    /**
+     * Ejecuta la operación; debe llamarse fuera del hilo principal.
+     *
+     * @throws IOException si el progreso no se puede leer o pertenece a otra
+     *                     operación
+     */
+    public Report run() throws IOException {
+        long start = System.currentTimeMillis();
+        Set<UUID> done = readProgress();
+        if (!done.isEmpty()) {
+            logger.info("Reanudando operación masiva " + id + ": " + done.size() + " jugadores ya aplicados");
+        }
+        List<UUID> players = new ArrayList<>(userDataManager.listPlayers());
+        total = players.size();
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "VendralyCore-Bulk-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore slots = new Semaphore(threads * 2);
+        long now = System.currentTimeMillis();
+        PlayerDirectory directory = userDataManager.getDirectory();
+        try (BufferedWriter progress = Files.newBufferedWriter(progressFile.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (done.isEmpty() && progressFile.length() == 0L) {
+                progress.write("# " + spec);
+                progress.newLine();
+                progress.flush();
+            }
+            List<UUID> batch = new ArrayList<>(batchSize);
+            for (UUID uuid : players) {
+                if (cancelled) {
+                    break;
+                }
+                scanned.incrementAndGet();
+                if (done.contains(uuid)) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                PlayerDirectory.Entry entry = directory.get(uuid);
+                if (entry != null && !filter.test(entry, now)) {
+                    continue;
+                }
+                batch.add(uuid);
+                if (batch.size() >= batchSize) {
+                    submit(pool, slots, batch, progress, now);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty() && !cancelled) {
+                submit(pool, slots, batch, progress, now);
+            }
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Operación masiva interrumpida", e);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return new Report(scanned.get(), matched.get(), applied.get(), skipped.get(), failed.get(), cancelled,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Detiene la operación tras los lotes en curso; puede reanudarse después.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getScanned() {
+        return scanned.get();
+    }
+
+    public long getApplied() {
+        return applied.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    private void submit(ExecutorService pool, Semaphore slots, List<UUID> batch, BufferedWriter progress, long now) {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+            return;
+        }
+        pool.execute(() -> {
+            try {
+                applyBatch(batch, progress, now);
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    private void applyBatch(List<UUID> uuids, BufferedWriter progress, long now) {
+        if (cancelled) {
+            return;
+        }
+        List<UUID> loaded = new ArrayList<>(uuids.size());
+        for (UUID uuid : uuids) {
+            try {
+                // La lectura ocurre aquí; el registro queda en caché para que el hilo principal lo encuentre.
+                userDataManager.getOrCreate(uuid, "");
+                loaded.add(uuid);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                logger.warning("No se pudo cargar " + uuid + " en la operación " + id + ": " + e.getMessage());
+            }
+        }
+        CompletableFuture<Void> applying = new CompletableFuture<>();
+        TaskUtil.runSync(plugin, () -> {
+            try {
+                applyOnMainThread(loaded, progress, now);
+                applying.complete(null);
+            } catch (RuntimeException e) {
+                applying.completeExceptionally(e);
+            }
+        });
+        try {
+            applying.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        } catch (ExecutionException e) {
+            cancelled = true;
+            logger.severe("La operación " + id + " se detuvo: " + e.getCause().getMessage());
+        }
+    }
+
+    private void applyOnMainThread(List<UUID> uuids, BufferedWriter progress, long now) {
+        PlayerDirectory directory = userDataManager.getDirectory();
+        List<UUID> done = new ArrayList<>(uuids.size());
+        for (UUID uuid : uuids) {
+            // Se usa la copia vigente: pudo conectarse o expulsarse de la caché desde la carga.
+            PlayerData data = userDataManager.getOrCreate(uuid, "");
+            PlayerDirectory.Entry entry = directory.get(uuid);
+            if (!filter.test(data, entry == null ? 0L : entry.lastSeen(), now)) {
+                continue;
+            }
+            matched.incrementAndGet();
+            action.accept(data);
+            userDataManager.save(data);
+            applied.incrementAndGet();
+            done.add(uuid);
+        }
+        if (done.isEmpty()) {
+            return;
+        }
+        try {
+            synchronized (progress) {
+                for (UUID uuid : done) {
+                    progress.write(uuid.toString());
+                    progress.newLine();
+                }
+                progress.flush();
+            }
+        } catch (IOException e) {
+            // Sin progreso no se puede garantizar que reanudar no aplique dos veces: se detiene.
+            cancelled = true;
+            logger.severe("No se pudo anotar el progreso de la operación " + id + ": " + e.getMessage());
+        }
+    }
+
+    private Set<UUID> readProgress() throws IOException {
+        Set<UUID> done = new HashSet<>();
+        Files.createDirectories(progressFile.toPath().getParent());
+        if (!progressFile.exists()) {
+            return done;
+        }
+        List<String> lines = Files.readAllLines(progressFile.toPath(), StandardCharsets.UTF_8);
+        if (!lines.isEmpty() && lines.get(0).startsWith("# ") && !lines.get(0).substring(2).equals(spec)) {
+            throw new IOException("El id " + id + " ya se usó para otra operación: " + lines.get(0).substring(2));
+        }
+        for (String line : lines) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                done.add(UUID.fromString(line.trim()));
+            } catch (IllegalArgumentException ignored) {
+                // Línea a medio escribir en una caída.
+            }
+        }
+        return done;
+    }
+}
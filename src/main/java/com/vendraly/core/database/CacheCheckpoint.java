@@ -0,0 +1,140 @@
+package com.vendraly.core.database;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Volcado de la {@link PlayerDataCache} completa en un único fichero mapeado
+ * en memoria. Al apagar se escribe de una sola pasada secuencial y al arrancar
+ * se lee antes de la primera conexión para calentar la caché.
+ * <p>
+ * Formato: magic, versión, CRC32 del resto, fecha, secuencia del journal,
+ * nombre del backend y número de entradas; cada entrada es una bandera de
+ * sucio, la longitud y un registro completo de {@link PlayerDataCodec}.
+ */
+public class CacheCheckpoint {
+
+    private static final int MAGIC = 0x56434B50;
+    private static final int VERSION = 1;
+    private static final int PREFIX = 12;
+
+    public record Entry(PlayerData data, boolean dirty) {
+    }
+
+    public record Snapshot(String storageName, long journalSequence, long createdAt, List<Entry> entries) {
+    }
+
+    private final File file;
+
+    public CacheCheckpoint(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Escribe el volcado en un temporal mapeado, lo sincroniza y lo renombra
+     * de forma atómica sobre el anterior.
+     *
+     * @return bytes escritos
+     */
+    public long write(String storageName, long journalSequence, Collection<Entry> entries) throws IOException {
+        List<byte[]> records = new ArrayList<>(entries.size());
+        byte[] name = storageName.getBytes(StandardCharsets.UTF_8);
+        long size = PREFIX + 8L + 8L + 2L + name.length + 4L;
+        for (Entry entry : entries) {
+            byte[] record = PlayerDataCodec.encode(entry.data().publishSnapshot(), false);
+            records.add(record);
+            size += 1L + 4L + record.length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Checkpoint demasiado grande: " + size + " bytes");
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(0);
+            buffer.putLong(System.currentTimeMillis()).putLong(journalSequence);
+            buffer.putShort((short) name.length).put(name);
+            buffer.putInt(records.size());
+            int index = 0;
+            for (Entry entry : entries) {
+                byte[] record = records.get(index++);
+                buffer.put((byte) (entry.dirty() ? 1 : 0)).putInt(record.length).put(record);
+            }
+            buffer.putInt(8, checksum(buffer.duplicate().position(PREFIX)));
+            buffer.force();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    /**
+     * Lee el volcado existente.
+     *
+     * @return el contenido, o {@code null} si no hay fichero
+     * @throws IOException si el fichero está truncado o corrupto
+     */
+    public Snapshot read() throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < PREFIX) {
+                throw new IOException("Checkpoint truncado");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Checkpoint con cabecera desconocida");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Versión de checkpoint no soportada: " + version);
+            }
+            int crc = buffer.getInt();
+            if (checksum(buffer.duplicate()) != crc) {
+                throw new IOException("Checksum de checkpoint incorrecto");
+            }
+            long createdAt = buffer.getLong();
+            long journalSequence = buffer.getLong();
+            byte[] name = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(name);
+            int count = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                boolean dirty = buffer.get() != 0;
+                byte[] record = new byte[buffer.getInt()];
+                buffer.get(record);
+                entries.add(new Entry(PlayerDataCodec.decode(record), dirty));
+            }
+            return new Snapshot(new String(name, StandardCharsets.UTF_8), journalSequence, createdAt, entries);
+        } catch (RuntimeException e) {
+            throw new IOException("Checkpoint ilegible: " + e.getMessage(), e);
+        }
+    }
+
+    public void delete() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    private static int checksum(ByteBuffer body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+}
@@ -1,26 +1,41 @@
 package com.vendraly.core.database;
 
+import com.vendraly.core.economy.AtomicAccount;
+import com.vendraly.core.economy.Money;
 import com.vendraly.core.jobs.JobProgress;
 import com.vendraly.core.roles.Role;
 import com.vendraly.core.rpg.stats.RPGStats;
 import org.bukkit.Bukkit;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Representa la información persistente de un jugador.
+ * Representa la información persistente de un jugador. Cada setter marca el
+ * grupo de campos ({@code SECTION_*}) que modifica, de modo que la persistencia
+ * pueda escribir solo lo que cambió desde el último guardado. Los lectores de
+ * otros hilos usan la {@link PlayerSnapshot} publicada, nunca el objeto vivo.
  */
 public class PlayerData {
 
+    public static final int SECTION_PROFILE = 1;
+    public static final int SECTION_AUTH = 1 << 1;
+    public static final int SECTION_BALANCES = 1 << 2;
+    public static final int SECTION_PROGRESSION = 1 << 3;
+    public static final int SECTION_STATS = 1 << 4;
+    public static final int SECTION_JOBS = 1 << 5;
+    public static final int SECTION_ALL = (1 << 6) - 1;
+
     private final UUID uuid;
     private String name;
     private String passwordHash;
     private boolean authenticated;
     private Role role;
-    private double bankBalance;
-    private double cashBalance;
+    private final AtomicAccount bank;
+    private final AtomicAccount cash;
     private final RPGStats stats;
     private final Map<String, JobProgress> jobs;
     private String clanId;
@@ -28,16 +43,20 @@ public class PlayerData {
     private long rpgExperience;
     private int unspentPoints;
     private boolean banned;
+    // Un registro recién creado no existe aún en disco: todas sus secciones cuentan como cambiadas.
+    private final AtomicInteger changedSections = new AtomicInteger(SECTION_ALL);
+    private volatile PlayerSnapshot snapshot;
+    private long snapshotVersion;
 
     public PlayerData(UUID uuid, String name) {
         this.uuid = uuid;
         this.name = name;
-        this.stats = new RPGStats();
-        this.jobs = new HashMap<>();
+        this.stats = new RPGStats(() -> markChanged(SECTION_STATS));
+        this.jobs = new ConcurrentHashMap<>();
         this.role = Role.CIVILIAN;
         this.passwordHash = "";
-        this.bankBalance = 0.0D;
-        this.cashBalance = 0.0D;
+        this.bank = new AtomicAccount(() -> markChanged(SECTION_BALANCES));
+        this.cash = new AtomicAccount(() -> markChanged(SECTION_BALANCES));
         this.rpgLevel = 1;
         this.rpgExperience = 0L;
         this.unspentPoints = 0;
@@ -53,6 +72,7 @@ public class PlayerData {
 
     public void setName(String name) {
         this.name = name;
+        markChanged(SECTION_PROFILE);
     }
 
     public String getPasswordHash() {
@@ -61,6 +81,7 @@ public class PlayerData {
 
     public void setPasswordHash(String passwordHash) {
         this.passwordHash = passwordHash;
+        markChanged(SECTION_AUTH);
     }
 
     public boolean isAuthenticated() {
@@ -77,22 +98,37 @@ public class PlayerData {
 
     public void setRole(Role role) {
         this.role = role;
+        markChanged(SECTION_AUTH);
+    }
+
+    /**
+     * Cuenta bancaria en unidades mínimas; admite cambios desde cualquier hilo.
+     */
+    public AtomicAccount getBank() {
+        return bank;
+    }
+
+    /**
+     * Efectivo en unidades mínimas; admite cambios desde cualquier hilo.
+     */
+    public AtomicAccount getCash() {
+        return cash;
     }
 
     public double getBankBalance() {
-        return bankBalance;
+        return Money.toMajor(bank.get());
     }
 
     public void setBankBalance(double bankBalance) {
-        this.bankBalance = bankBalance;
+        bank.set(Money.toMinor(Math.max(0.0D, bankBalance)));
     }
 
     public double getCashBalance() {
-        return cashBalance;
+        return Money.toMajor(cash.get());
     }
 
     public void setCashBalance(double cashBalance) {
-        this.cashBalance = cashBalance;
+        cash.set(Money.toMinor(Math.max(0.0D, cashBalance)));
     }
 
     public RPGStats getStats() {
@@ -100,7 +136,7 @@ public class PlayerData {
     }
 
     public Map<String, JobProgress> getJobs() {
-        return jobs;
+        return Collections.unmodifiableMap(jobs);
     }
 
     public String getClanId() {
@@ -109,6 +145,7 @@ public class PlayerData {
 
     public void setClanId(String clanId) {
         this.clanId = clanId;
+        markChanged(SECTION_PROFILE);
     }
 
     public int getRpgLevel() {
@@ -117,6 +154,7 @@ public class PlayerData {
 
     public void setRpgLevel(int rpgLevel) {
         this.rpgLevel = rpgLevel;
+        markChanged(SECTION_PROGRESSION);
     }
 
     public long getRpgExperience() {
@@ -125,6 +163,7 @@ public class PlayerData {
 
     public void setRpgExperience(long rpgExperience) {
         this.rpgExperience = rpgExperience;
+        markChanged(SECTION_PROGRESSION);
     }
 
     public int getUnspentPoints() {
@@ -133,6 +172,7 @@ public class PlayerData {
 
     public void setUnspentPoints(int unspentPoints) {
         this.unspentPoints = unspentPoints;
+        markChanged(SECTION_PROGRESSION);
     }
 
     public boolean isBanned() {
@@ -141,10 +181,42 @@ public class PlayerData {
 
     public void setBanned(boolean banned) {
         this.banned = banned;
+        markChanged(SECTION_AUTH);
     }
 
     public JobProgress getOrCreateJob(String id) {
-        return jobs.computeIfAbsent(id.toLowerCase(), key -> new JobProgress(key));
+        return jobs.computeIfAbsent(id.toLowerCase(), key -> {
+            markChanged(SECTION_JOBS);
+            return new JobProgress(key, () -> markChanged(SECTION_JOBS));
+        });
+    }
+
+    public void markChanged(int sections) {
+        changedSections.accumulateAndGet(sections, (current, added) -> current | added);
+    }
+
+    /**
+     * Devuelve los grupos modificados desde la llamada anterior y los limpia.
+     */
+    public int drainChangedSections() {
+        return changedSections.getAndSet(0);
+    }
+
+    /**
+     * Publica una vista inmutable del estado actual para los lectores de otros
+     * hilos. Debe llamarse desde el hilo que muta los datos.
+     */
+    public PlayerSnapshot publishSnapshot() {
+        PlayerSnapshot published = PlayerSnapshot.of(this, ++snapshotVersion);
+        snapshot = published;
+        return published;
+    }
+
+    /**
+     * Última vista publicada, o {@code null} si aún no se publicó ninguna.
+     */
+    public PlayerSnapshot getSnapshot() {
+        return snapshot;
     }
 
     public void resetAuth() {
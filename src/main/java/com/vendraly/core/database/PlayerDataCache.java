@@ -0,0 +1,230 @@
+package com.vendraly.core.database;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Caché de {@link PlayerData} en dos niveles: los jugadores conectados quedan
+ * fijados y nunca se expulsan; los desconectados (cargados por comandos de
+ * administración o recompensas offline) viven en un LRU limitado por tamaño y
+ * por tiempo de inactividad. Un registro sucio se vuelca antes de expulsarlo.
+ */
+public class PlayerDataCache {
+
+    private static final class Entry {
+        private final PlayerData data;
+        private volatile long lastAccess;
+
+        private Entry(PlayerData data, long lastAccess) {
+            this.data = data;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final Map<UUID, PlayerData> pinned = new ConcurrentHashMap<>();
+    private final LinkedHashMap<UUID, Entry> offline = new LinkedHashMap<>(64, 0.75f, true);
+    private final int maxOffline;
+    private final long ttlMillis;
+    private final Predicate<UUID> dirtyCheck;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong evictionFlushes = new AtomicLong();
+
+    public PlayerDataCache(int maxOffline, long ttlMillis, Predicate<UUID> dirtyCheck) {
+        this.maxOffline = Math.max(0, maxOffline);
+        this.ttlMillis = Math.max(0L, ttlMillis);
+        this.dirtyCheck = dirtyCheck;
+    }
+
+    /**
+     * Busca un jugador y actualiza su posición en el LRU.
+     */
+    public PlayerData get(UUID uuid) {
+        PlayerData data = pinned.get(uuid);
+        if (data == null) {
+            synchronized (offline) {
+                Entry entry = offline.get(uuid);
+                if (entry != null) {
+                    entry.lastAccess = System.currentTimeMillis();
+                    data = entry.data;
+                }
+            }
+        }
+        (data == null ? misses : hits).incrementAndGet();
+        return data;
+    }
+
+    /**
+     * Busca un jugador sin contar estadísticas ni alterar el orden del LRU.
+     */
+    public PlayerData peek(UUID uuid) {
+        PlayerData data = pinned.get(uuid);
+        if (data != null) {
+            return data;
+        }
+        synchronized (offline) {
+            // containsKey no reordena un LinkedHashMap en orden de acceso.
+            return offline.containsKey(uuid) ? offline.get(uuid).data : null;
+        }
+    }
+
+    /**
+     * Añade un jugador recién cargado al nivel offline. Si otro hilo ya lo
+     * añadió, devuelve la instancia existente para que solo haya una.
+     */
+    public PlayerData admit(PlayerData data) {
+        PlayerData current = pinned.get(data.getUuid());
+        if (current != null) {
+            return current;
+        }
+        synchronized (offline) {
+            if (offline.containsKey(data.getUuid())) {
+                return offline.get(data.getUuid()).data;
+            }
+            offline.put(data.getUuid(), new Entry(data, System.currentTimeMillis()));
+            if (offline.size() > maxOffline * 2) {
+                evictCleanLocked(offline.size() - maxOffline);
+            }
+        }
+        return data;
+    }
+
+    public void pin(PlayerData data) {
+        synchronized (offline) {
+            offline.remove(data.getUuid());
+        }
+        pinned.put(data.getUuid(), data);
+    }
+
+    public void unpin(UUID uuid) {
+        PlayerData data = pinned.remove(uuid);
+        if (data == null) {
+            return;
+        }
+        synchronized (offline) {
+            offline.put(uuid, new Entry(data, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Expulsa los jugadores offline que sobran o llevan demasiado tiempo sin
+     * uso. Los sucios se entregan antes a {@code flusher}; si siguen sucios
+     * después (escritura fallida o nueva mutación) se conservan.
+     *
+     * @return jugadores expulsados
+     */
+    public int sweep(Consumer<List<UUID>> flusher) {
+        long now = System.currentTimeMillis();
+        Map<UUID, Long> candidates = new LinkedHashMap<>();
+        synchronized (offline) {
+            int excess = offline.size() - maxOffline;
+            for (Map.Entry<UUID, Entry> entry : offline.entrySet()) {
+                long lastAccess = entry.getValue().lastAccess;
+                if (excess <= 0 && now - lastAccess < ttlMillis) {
+                    break;
+                }
+                candidates.put(entry.getKey(), lastAccess);
+                excess--;
+            }
+        }
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        List<UUID> dirty = new ArrayList<>();
+        for (UUID uuid : candidates.keySet()) {
+            if (dirtyCheck.test(uuid)) {
+                dirty.add(uuid);
+            }
+        }
+        if (!dirty.isEmpty()) {
+            flusher.accept(dirty);
+            evictionFlushes.addAndGet(dirty.size());
+        }
+        int evicted = 0;
+        synchronized (offline) {
+            for (Map.Entry<UUID, Long> candidate : candidates.entrySet()) {
+                Entry entry = offline.remove(candidate.getKey());
+                if (entry == null) {
+                    continue;
+                }
+                if (entry.lastAccess != candidate.getValue() || dirtyCheck.test(candidate.getKey())) {
+                    offline.put(candidate.getKey(), entry);
+                    continue;
+                }
+                evicted++;
+            }
+        }
+        evictions.addAndGet(evicted);
+        return evicted;
+    }
+
+    /**
+     * Copia de todos los jugadores en caché: primero los offline del más
+     * antiguo al más reciente y después los fijados.
+     */
+    public List<PlayerData> values() {
+        List<PlayerData> values = new ArrayList<>();
+        synchronized (offline) {
+            for (Entry entry : offline.values()) {
+                values.add(entry.data);
+            }
+        }
+        values.addAll(pinned.values());
+        return values;
+    }
+
+    public void clear() {
+        pinned.clear();
+        synchronized (offline) {
+            offline.clear();
+        }
+    }
+
+    public int getPinnedSize() {
+        return pinned.size();
+    }
+
+    public int getOfflineSize() {
+        synchronized (offline) {
+            return offline.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getEvictionFlushes() {
+        return evictionFlushes.get();
+    }
+
+    private void evictCleanLocked(int count) {
+        Iterator<Map.Entry<UUID, Entry>> iterator = offline.entrySet().iterator();
+        while (count > 0 && iterator.hasNext()) {
+            Map.Entry<UUID, Entry> entry = iterator.next();
+            if (!dirtyCheck.test(entry.getKey())) {
+                iterator.remove();
+                evictions.incrementAndGet();
+                count--;
+            }
+        }
+    }
+}
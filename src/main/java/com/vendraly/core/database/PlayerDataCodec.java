@@ -0,0 +1,329 @@
+package com.vendraly.core.database;
+
+import com.vendraly.core.economy.Money;
+import com.vendraly.core.jobs.JobProgress;
+import com.vendraly.core.roles.Role;
+import com.vendraly.core.rpg.stats.RPGStats;
+import com.vendraly.core.rpg.stats.StatType;
+import com.vendraly.utils.ByteReader;
+import com.vendraly.utils.ByteWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Formato binario versionado de {@link PlayerData}.
+ * <p>
+ * Cabecera: {@code 'V' 'D'}, versión de esquema (1 byte) y banderas (1 byte).
+ * El cuerpo usa varints, cadenas UTF-8 con prefijo de longitud y las
+ * estadísticas en el orden ordinal de {@link StatType} precedidas de su
+ * cantidad, de modo que añadir estadísticas nuevas al final no rompe registros
+ * antiguos. Con {@link #FLAG_DEFLATE} el cuerpo va comprimido.
+ * <p>
+ * Desde la versión 2 el cuerpo es una máscara de {@code PlayerData.SECTION_*}
+ * seguida de esas secciones. Un registro completo lleva el UUID y todas; un
+ * delta ({@link #FLAG_DELTA}) solo las secciones modificadas y se aplica sobre
+ * un registro existente con {@link #apply}.
+ * <p>
+ * Desde la versión 3 los saldos se guardan en unidades mínimas
+ * ({@link Money}) como varlong con signo en lugar de {@code double}.
+ */
+public final class PlayerDataCodec {
+
+    public static final int SCHEMA_VERSION = 3;
+    public static final int FLAG_DEFLATE = 0x01;
+    public static final int FLAG_DELTA = 0x02;
+
+    private static final int MAGIC_0 = 'V';
+    private static final int MAGIC_1 = 'D';
+    private static final int HEADER_SIZE = 4;
+    private static final StatType[] STAT_TYPES = StatType.values();
+
+    private PlayerDataCodec() {
+    }
+
+    public static byte[] encode(PlayerSnapshot data, boolean compress) {
+        ByteWriter body = new ByteWriter(256);
+        body.writeUuid(data.getUuid());
+        writeSections(data, PlayerData.SECTION_ALL, body);
+        byte[] raw = body.toByteArray();
+        int flags = 0;
+        if (compress) {
+            byte[] deflated = deflate(raw);
+            if (deflated.length < raw.length) {
+                raw = deflated;
+                flags |= FLAG_DEFLATE;
+            }
+        }
+        ByteWriter out = new ByteWriter(raw.length + HEADER_SIZE);
+        out.writeByte(MAGIC_0).writeByte(MAGIC_1).writeByte(SCHEMA_VERSION).writeByte(flags);
+        out.writeBytes(raw);
+        return out.toByteArray();
+    }
+
+    /**
+     * Codifica solo las secciones indicadas. Si son todas, equivale a
+     * {@link #encode} sin compresión.
+     */
+    public static byte[] encodeDelta(PlayerSnapshot data, int sections) {
+        if ((sections & PlayerData.SECTION_ALL) == PlayerData.SECTION_ALL) {
+            return encode(data, false);
+        }
+        ByteWriter out = new ByteWriter(64);
+        out.writeByte(MAGIC_0).writeByte(MAGIC_1).writeByte(SCHEMA_VERSION).writeByte(FLAG_DELTA);
+        writeSections(data, sections, out);
+        return out.toByteArray();
+    }
+
+    public static PlayerData decode(byte[] bytes) throws IOException {
+        int version = readVersion(bytes);
+        int flags = bytes[3];
+        if ((flags & FLAG_DELTA) != 0) {
+            throw new IOException("Se esperaba un registro completo y se recibió un delta");
+        }
+        ByteReader in = body(bytes, flags);
+        if (version == 1) {
+            return readBodyV1(in);
+        }
+        PlayerData data = new PlayerData(in.readUuid(), "");
+        readSections(data, in, version);
+        data.drainChangedSections();
+        return data;
+    }
+
+    /**
+     * Aplica un registro completo o un delta sobre {@code target}.
+     */
+    public static void apply(PlayerData target, byte[] bytes) throws IOException {
+        int version = readVersion(bytes);
+        int flags = bytes[3];
+        if (version == 1) {
+            apply(target, encode(decode(bytes).publishSnapshot(), false));
+            return;
+        }
+        ByteReader in = body(bytes, flags);
+        if ((flags & FLAG_DELTA) == 0 && !in.readUuid().equals(target.getUuid())) {
+            throw new IOException("El registro pertenece a otro jugador");
+        }
+        readSections(target, in, version);
+    }
+
+    /**
+     * CRC32 del registro completo sin comprimir; dos registros con los mismos
+     * datos tienen el mismo valor.
+     */
+    public static long checksum(PlayerSnapshot data) {
+        CRC32 crc = new CRC32();
+        crc.update(encode(data, false));
+        return crc.getValue();
+    }
+
+    public static boolean isEncoded(byte[] bytes) {
+        return bytes.length >= HEADER_SIZE && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    public static boolean isDelta(byte[] bytes) {
+        return isEncoded(bytes) && (bytes[3] & FLAG_DELTA) != 0;
+    }
+
+    private static int readVersion(byte[] bytes) throws IOException {
+        if (!isEncoded(bytes)) {
+            throw new IOException("Cabecera de registro inválida");
+        }
+        int version = bytes[2];
+        if (version < 1 || version > SCHEMA_VERSION) {
+            throw new IOException("Versión de esquema no soportada: " + version);
+        }
+        return version;
+    }
+
+    private static ByteReader body(byte[] bytes, int flags) throws IOException {
+        if ((flags & FLAG_DEFLATE) != 0) {
+            byte[] inflated = inflate(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE);
+            return new ByteReader(inflated, 0, inflated.length);
+        }
+        return new ByteReader(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE);
+    }
+
+    private static void writeSections(PlayerSnapshot data, int sections, ByteWriter out) {
+        out.writeVarInt(sections);
+        if ((sections & PlayerData.SECTION_PROFILE) != 0) {
+            out.writeString(data.getName() == null ? "" : data.getName());
+            out.writeNullableString(data.getClanId());
+        }
+        if ((sections & PlayerData.SECTION_AUTH) != 0) {
+            out.writeString(data.getPasswordHash() == null ? "" : data.getPasswordHash());
+            out.writeString(data.getRole().name());
+            out.writeBoolean(data.isBanned());
+        }
+        if ((sections & PlayerData.SECTION_BALANCES) != 0) {
+            out.writeSignedVarLong(data.getBankMinor());
+            out.writeSignedVarLong(data.getCashMinor());
+        }
+        if ((sections & PlayerData.SECTION_PROGRESSION) != 0) {
+            out.writeSignedVarInt(data.getRpgLevel());
+            out.writeSignedVarLong(data.getRpgExperience());
+            out.writeSignedVarInt(data.getUnspentPoints());
+        }
+        if ((sections & PlayerData.SECTION_STATS) != 0) {
+            out.writeVarInt(STAT_TYPES.length);
+            for (StatType type : STAT_TYPES) {
+                out.writeDouble(data.getStat(type));
+            }
+        }
+        if ((sections & PlayerData.SECTION_JOBS) != 0) {
+            out.writeVarInt(data.getJobs().size());
+            for (PlayerSnapshot.JobSnapshot job : data.getJobs().values()) {
+                out.writeString(job.jobId());
+                out.writeSignedVarLong(job.experience());
+                out.writeSignedVarInt(job.level());
+            }
+        }
+    }
+
+    private static void readSections(PlayerData data, ByteReader in, int version) throws IOException {
+        int sections = in.readVarInt();
+        if ((sections & ~PlayerData.SECTION_ALL) != 0) {
+            throw new IOException("Secciones desconocidas en el registro: " + Integer.toHexString(sections));
+        }
+        if ((sections & PlayerData.SECTION_PROFILE) != 0) {
+            data.setName(in.readString());
+            data.setClanId(in.readNullableString());
+        }
+        if ((sections & PlayerData.SECTION_AUTH) != 0) {
+            data.setPasswordHash(in.readString());
+            data.setRole(parseRole(in.readString()));
+            data.setBanned(in.readBoolean());
+        }
+        if ((sections & PlayerData.SECTION_BALANCES) != 0) {
+            if (version >= 3) {
+                data.getBank().set(Math.max(0L, in.readSignedVarLong()));
+                data.getCash().set(Math.max(0L, in.readSignedVarLong()));
+            } else {
+                data.getBank().set(readLegacyBalance(in));
+                data.getCash().set(readLegacyBalance(in));
+            }
+        }
+        if ((sections & PlayerData.SECTION_PROGRESSION) != 0) {
+            data.setRpgLevel(in.readSignedVarInt());
+            data.setRpgExperience(in.readSignedVarLong());
+            data.setUnspentPoints(in.readSignedVarInt());
+        }
+        if ((sections & PlayerData.SECTION_STATS) != 0) {
+            RPGStats stats = data.getStats();
+            int statCount = in.readVarInt();
+            for (int i = 0; i < statCount; i++) {
+                double value = in.readDouble();
+                if (i < STAT_TYPES.length) {
+                    stats.setStat(STAT_TYPES[i], value);
+                }
+            }
+        }
+        if ((sections & PlayerData.SECTION_JOBS) != 0) {
+            int jobCount = in.readVarInt();
+            for (int i = 0; i < jobCount; i++) {
+                JobProgress progress = data.getOrCreateJob(in.readString());
+                progress.setExperience(in.readSignedVarLong());
+                progress.setLevel(in.readSignedVarInt());
+            }
+        }
+    }
+
+    /**
+     * Cuerpo de la versión 1: todos los campos en orden fijo.
+     */
+    private static PlayerData readBodyV1(ByteReader in) throws IOException {
+        UUID uuid = in.readUuid();
+        PlayerData data = new PlayerData(uuid, in.readString());
+        data.setPasswordHash(in.readString());
+        data.setRole(parseRole(in.readString()));
+        data.getBank().set(readLegacyBalance(in));
+        data.getCash().set(readLegacyBalance(in));
+        data.setClanId(in.readNullableString());
+        data.setRpgLevel(in.readSignedVarInt());
+        data.setRpgExperience(in.readSignedVarLong());
+        data.setUnspentPoints(in.readSignedVarInt());
+        data.setBanned(in.readBoolean());
+
+        RPGStats stats = data.getStats();
+        int statCount = in.readVarInt();
+        for (int i = 0; i < statCount; i++) {
+            double value = in.readDouble();
+            if (i < STAT_TYPES.length) {
+                stats.setStat(STAT_TYPES[i], value);
+            }
+        }
+
+        int jobCount = in.readVarInt();
+        for (int i = 0; i < jobCount; i++) {
+            JobProgress progress = data.getOrCreateJob(in.readString());
+            progress.addExperience(in.readSignedVarLong());
+            progress.setLevel(in.readSignedVarInt());
+        }
+        data.drainChangedSections();
+        return data;
+    }
+
+    /**
+     * Saldo en monedas ({@code double}) de las versiones 1 y 2.
+     */
+    private static long readLegacyBalance(ByteReader in) throws IOException {
+        double amount = in.readDouble();
+        try {
+            return Money.toMinor(Math.max(0.0D, amount));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Saldo inválido en el registro: " + amount);
+        }
+    }
+
+    private static Role parseRole(String name) {
+        try {
+            return Role.valueOf(name);
+        } catch (IllegalArgumentException ex) {
+            return Role.CIVILIAN;
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+            byte[] chunk = new byte[512];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(chunk);
+                out.write(chunk, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length * 3);
+            byte[] chunk = new byte[512];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(chunk);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Cuerpo comprimido truncado");
+                }
+                out.write(chunk, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Cuerpo comprimido corrupto", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.vendraly.core.database;
+
+import com.vendraly.core.economy.Money;
+import com.vendraly.core.roles.Role;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.logging.Logger;
+
+/**
+ * Directorio compacto de todos los jugadores conocidos, mapeado en memoria:
+ * UUID, último nombre, rol, nivel, saldos, baneo y última conexión en una
+ * ranura de tamaño fijo por jugador. Permite resolver nombres, completar con
+ * tabulador y comprobar baneos sin cargar registros completos ni consultar
+ * perfiles de Mojang. Es un índice derivado: si falta, está dañado o no se
+ * cerró limpiamente (el mapeado no garantiza qué páginas llegaron a disco) se
+ * reconstruye desde el almacenamiento.
+ */
+public class PlayerDirectory {
+
+    private static final int MAGIC = 0x56444952;
+    private static final int VERSION = 2;
+    private static final int HEADER = 32;
+    private static final int OFF_CLEAN = 16;
+    private static final int SLOT = 96;
+    private static final int NAME_BYTES = 48;
+    private static final int INITIAL_SLOTS = 1024;
+
+    private static final int OFF_LAST_SEEN = 16;
+    private static final int OFF_BANK = 24;
+    private static final int OFF_CASH = 32;
+    private static final int OFF_LEVEL = 40;
+    private static final int OFF_ROLE = 44;
+    private static final int OFF_BANNED = 45;
+    private static final int OFF_NAME_LENGTH = 46;
+    private static final int OFF_NAME = 47;
+
+    private static final Role[] ROLES = Role.values();
+
+    public record Entry(UUID uuid, String name, Role role, int level, double bank, double cash, boolean banned,
+                        long lastSeen) {
+    }
+
+    private final File file;
+    private final Logger logger;
+    private final Map<UUID, Integer> slots = new HashMap<>();
+    private final NavigableMap<String, UUID> byName = new ConcurrentSkipListMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+    private boolean fresh;
+    private long totalBank;
+    private long totalCash;
+
+    public PlayerDirectory(File file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+
+    /**
+     * Mapea el fichero y reconstruye los índices en memoria. Si no existe, no
+     * es válido o no se cerró limpiamente se empieza vacío y
+     * {@link #isFresh()} devuelve {@code true}. La marca de cierre limpio se
+     * borra en disco antes de volver, así que una caída posterior también
+     * obliga a reconstruir.
+     */
+    public synchronized void open() throws IOException {
+        boolean existed = file.isFile() && file.length() >= HEADER;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (existed) {
+            map((int) ((channel.size() - HEADER) / SLOT));
+            if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION && buffer.getInt(12) == SLOT) {
+                if (buffer.getInt(OFF_CLEAN) == 1) {
+                    load(Math.min(buffer.getInt(8), capacity));
+                    markDirty();
+                    return;
+                }
+                logger.warning("El directorio de jugadores no se cerró limpiamente; se reconstruirá");
+            } else {
+                logger.warning("Directorio de jugadores con cabecera desconocida; se reconstruirá");
+            }
+        }
+        map(INITIAL_SLOTS);
+        // Las ranuras que quedaran de antes no cuentan: el recuento vuelve a 0.
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, 0).putInt(12, SLOT);
+        markDirty();
+        count = 0;
+        totalBank = 0L;
+        totalCash = 0L;
+        slots.clear();
+        byName.clear();
+        fresh = true;
+    }
+
+    /**
+     * {@code true} si el directorio se creó vacío en este arranque y conviene
+     * reconstruirlo.
+     */
+    public synchronized boolean isFresh() {
+        return fresh;
+    }
+
+    public synchronized void markRebuilt() {
+        fresh = false;
+    }
+
+    /**
+     * Registra o actualiza el resumen del jugador conservando su última
+     * conexión.
+     */
+    public synchronized void update(PlayerSnapshot data) {
+        if (buffer == null) {
+            return;
+        }
+        int slot = slotFor(data.getUuid());
+        int base = offset(slot);
+        String previous = readName(base);
+        String name = data.getName() == null ? "" : data.getName();
+        // Las ranuras nuevas nacen a cero, así que la diferencia también vale para altas.
+        totalBank += data.getBankMinor() - minor(buffer.getDouble(base + OFF_BANK));
+        totalCash += data.getCashMinor() - minor(buffer.getDouble(base + OFF_CASH));
+        buffer.putDouble(base + OFF_BANK, data.getBankBalance());
+        buffer.putDouble(base + OFF_CASH, data.getCashBalance());
+        buffer.putInt(base + OFF_LEVEL, data.getRpgLevel());
+        buffer.put(base + OFF_ROLE, (byte) data.getRole().ordinal());
+        buffer.put(base + OFF_BANNED, (byte) (data.isBanned() ? 1 : 0));
+        if (!name.equals(previous)) {
+            writeName(base, name);
+            if (!previous.isEmpty()) {
+                byName.remove(previous.toLowerCase(Locale.ROOT), data.getUuid());
+            }
+            if (!name.isEmpty()) {
+                byName.put(name.toLowerCase(Locale.ROOT), data.getUuid());
+            }
+        }
+    }
+
+    /**
+     * Anota la última conexión de un jugador ya registrado.
+     */
+    public synchronized void touch(UUID uuid, long lastSeen) {
+        Integer slot = slots.get(uuid);
+        if (slot != null && buffer != null) {
+            buffer.putLong(offset(slot) + OFF_LAST_SEEN, lastSeen);
+        }
+    }
+
+    public synchronized Entry get(UUID uuid) {
+        Integer slot = slots.get(uuid);
+        return slot == null || buffer == null ? null : read(slot);
+    }
+
+    /**
+     * Busca por nombre sin distinguir mayúsculas.
+     */
+    public Entry findByName(String name) {
+        UUID uuid = byName.get(name.toLowerCase(Locale.ROOT));
+        return uuid == null ? null : get(uuid);
+    }
+
+    /**
+     * Nombres conocidos que empiezan por {@code prefix}, en orden alfabético.
+     */
+    public List<String> complete(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<String, UUID> candidate : byName.tailMap(key, true).entrySet()) {
+            if (names.size() >= limit || !candidate.getKey().startsWith(key)) {
+                break;
+            }
+            Entry entry = get(candidate.getValue());
+            if (entry != null) {
+                names.add(entry.name());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Suma de los saldos de banco de todos los jugadores, en unidades mínimas.
+     * Se mantiene con cada {@link #update}, sin recorrer el directorio.
+     */
+    public synchronized long getTotalBank() {
+        return totalBank;
+    }
+
+    /**
+     * Suma del efectivo de todos los jugadores, en unidades mínimas.
+     */
+    public synchronized long getTotalCash() {
+        return totalCash;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Vuelca las ranuras y, solo después, pone la marca de cierre limpio.
+     */
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        buffer.force();
+        buffer.putInt(OFF_CLEAN, 1);
+        buffer.force();
+        channel.close();
+        channel = null;
+        buffer = null;
+    }
+
+    private int slotFor(UUID uuid) {
+        Integer existing = slots.get(uuid);
+        if (existing != null) {
+            return existing;
+        }
+        if (count == capacity) {
+            try {
+                map(capacity * 2);
+            } catch (IOException e) {
+                throw new IllegalStateException("No se pudo ampliar el directorio de jugadores: " + e.getMessage(), e);
+            }
+        }
+        int slot = count++;
+        int base = offset(slot);
+        for (int i = 0; i < SLOT; i++) {
+            buffer.put(base + i, (byte) 0);
+        }
+        buffer.putLong(base, uuid.getMostSignificantBits());
+        buffer.putLong(base + 8, uuid.getLeastSignificantBits());
+        buffer.putInt(8, count);
+        slots.put(uuid, slot);
+        return slot;
+    }
+
+    private void load(int stored) {
+        slots.clear();
+        byName.clear();
+        count = 0;
+        totalBank = 0L;
+        totalCash = 0L;
+        for (int slot = 0; slot < stored; slot++) {
+            int base = offset(slot);
+            UUID uuid = new UUID(buffer.getLong(base), buffer.getLong(base + 8));
+            if (uuid.getMostSignificantBits() == 0L && uuid.getLeastSignificantBits() == 0L) {
+                break;
+            }
+            slots.put(uuid, slot);
+            totalBank += minor(buffer.getDouble(base + OFF_BANK));
+            totalCash += minor(buffer.getDouble(base + OFF_CASH));
+            String name = readName(base);
+            if (!name.isEmpty()) {
+                byName.put(name.toLowerCase(Locale.ROOT), uuid);
+            }
+            count = slot + 1;
+        }
+        buffer.putInt(8, count);
+        fresh = false;
+    }
+
+    /**
+     * Saldo de una ranura en unidades mínimas; un valor ilegible cuenta como 0.
+     */
+    private static long minor(double balance) {
+        try {
+            return Money.toMinor(balance);
+        } catch (IllegalArgumentException e) {
+            return 0L;
+        }
+    }
+
+    private void markDirty() {
+        buffer.putInt(OFF_CLEAN, 0);
+        buffer.force();
+    }
+
+    private void map(int slotCount) throws IOException {
+        capacity = Math.max(INITIAL_SLOTS, slotCount);
+        // El mapeado anterior queda vivo hasta que lo recoja el GC; las escrituras ya están en la caché de páginas.
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER + (long) capacity * SLOT);
+    }
+
+    private Entry read(int slot) {
+        int base = offset(slot);
+        int role = buffer.get(base + OFF_ROLE);
+        return new Entry(
+                new UUID(buffer.getLong(base), buffer.getLong(base + 8)),
+                readName(base),
+                role >= 0 && role < ROLES.length ? ROLES[role] : Role.CIVILIAN,
+                buffer.getInt(base + OFF_LEVEL),
+                buffer.getDouble(base + OFF_BANK),
+                buffer.getDouble(base + OFF_CASH),
+                buffer.get(base + OFF_BANNED) != 0,
+                buffer.getLong(base + OFF_LAST_SEEN));
+    }
+
+    private String readName(int base) {
+        int length = Math.min(NAME_BYTES, buffer.get(base + OFF_NAME_LENGTH) & 0xFF);
+        byte[] bytes = new byte[length];
+        buffer.get(base + OFF_NAME, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeName(int base, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(NAME_BYTES, bytes.length);
+        buffer.put(base + OFF_NAME_LENGTH, (byte) length);
+        buffer.put(base + OFF_NAME, bytes, 0, length);
+    }
+
+    private static int offset(int slot) {
+        return HEADER + slot * SLOT;
+    }
+}
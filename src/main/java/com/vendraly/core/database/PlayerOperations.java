@@ -0,0 +1,84 @@
+package com.vendraly.core.database;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.utils.TaskUtil;
+import org.bukkit.Bukkit;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Canal para modificar jugadores que pueden no estar cargados sin bloquear el
+ * hilo principal. Los conectados o ya presentes en caché se modifican en el
+ * acto; el resto se lee en el pool de precarga de {@link UserDataManager} y la
+ * operación se aplica después en el hilo principal, que es el único que muta
+ * {@link PlayerData}. La escritura sigue el camino normal de
+ * {@link UserDataManager#save(PlayerData)}, que ya es asíncrono.
+ */
+public class PlayerOperations {
+
+    private final VendralyCore plugin;
+    private final UserDataManager userDataManager;
+    private final AtomicLong immediate = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public PlayerOperations(VendralyCore plugin, UserDataManager userDataManager) {
+        this.plugin = plugin;
+        this.userDataManager = userDataManager;
+    }
+
+    /**
+     * Aplica {@code operation} sobre los datos del jugador y los guarda. Debe
+     * llamarse desde el hilo principal; el futuro devuelto siempre se completa
+     * en él, de modo que sus continuaciones pueden avisar al emisor del
+     * comando directamente.
+     */
+    public <T> CompletableFuture<T> apply(UUID uuid, String name, Function<PlayerData, T> operation) {
+        PlayerData cached = userDataManager.getCache().peek(uuid);
+        if (cached != null || Bukkit.getPlayer(uuid) != null) {
+            immediate.incrementAndGet();
+            CompletableFuture<T> result = new CompletableFuture<>();
+            run(cached != null ? cached : userDataManager.getOrCreate(uuid, name), operation, result);
+            return result;
+        }
+        deferred.incrementAndGet();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        userDataManager.loadAsync(uuid, name).whenComplete((data, error) -> TaskUtil.runSync(plugin, () -> {
+            if (error != null) {
+                failed.incrementAndGet();
+                plugin.getPluginLogger().severe("No se pudo cargar a " + uuid + " para una operación diferida: " + error.getMessage());
+                result.completeExceptionally(error);
+                return;
+            }
+            // Entre la carga y este tick pudo conectarse o expulsarse de la caché; se usa la copia vigente.
+            run(userDataManager.getOrCreate(uuid, name), operation, result);
+        }));
+        return result;
+    }
+
+    public long getImmediate() {
+        return immediate.get();
+    }
+
+    public long getDeferred() {
+        return deferred.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    private <T> void run(PlayerData data, Function<PlayerData, T> operation, CompletableFuture<T> result) {
+        try {
+            T value = operation.apply(data);
+            userDataManager.save(data);
+            result.complete(value);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            result.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.vendraly.core.database;
+
+import com.vendraly.core.economy.Money;
+import com.vendraly.core.jobs.JobProgress;
+import com.vendraly.core.roles.Role;
+import com.vendraly.core.rpg.stats.RPGStats;
+import com.vendraly.core.rpg.stats.StatType;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Vista inmutable de un {@link PlayerData} en un instante dado. El hilo que
+ * muta los datos la publica con {@link PlayerData#publishSnapshot()}; la
+ * persistencia asíncrona, las métricas y cualquier lector fuera del hilo
+ * principal la consumen sin bloqueos ni copias adicionales.
+ */
+public final class PlayerSnapshot {
+
+    private static final StatType[] STAT_TYPES = StatType.values();
+
+    /**
+     * Progreso de un oficio congelado.
+     */
+    public record JobSnapshot(String jobId, long experience, int level) {
+    }
+
+    private final UUID uuid;
+    private final long version;
+    private final String name;
+    private final String passwordHash;
+    private final Role role;
+    private final long bankMinor;
+    private final long cashMinor;
+    private final double[] stats;
+    private final Map<String, JobSnapshot> jobs;
+    private final String clanId;
+    private final int rpgLevel;
+    private final long rpgExperience;
+    private final int unspentPoints;
+    private final boolean banned;
+
+    private PlayerSnapshot(PlayerData data, long version) {
+        this.uuid = data.getUuid();
+        this.version = version;
+        this.name = data.getName();
+        this.passwordHash = data.getPasswordHash();
+        this.role = data.getRole();
+        this.bankMinor = data.getBank().get();
+        this.cashMinor = data.getCash().get();
+        RPGStats source = data.getStats();
+        this.stats = new double[STAT_TYPES.length];
+        for (StatType type : STAT_TYPES) {
+            stats[type.ordinal()] = source.getStat(type);
+        }
+        // Ordenados por id para que dos vistas iguales codifiquen los mismos bytes.
+        Map<String, JobSnapshot> copy = new TreeMap<>();
+        for (JobProgress progress : data.getJobs().values()) {
+            copy.put(progress.getJobId(), new JobSnapshot(progress.getJobId(), progress.getExperience(), progress.getLevel()));
+        }
+        this.jobs = Collections.unmodifiableMap(copy);
+        this.clanId = data.getClanId();
+        this.rpgLevel = data.getRpgLevel();
+        this.rpgExperience = data.getRpgExperience();
+        this.unspentPoints = data.getUnspentPoints();
+        this.banned = data.isBanned();
+    }
+
+    /**
+     * Copia el estado actual. Debe llamarse desde el hilo que muta los datos.
+     */
+    static PlayerSnapshot of(PlayerData data, long version) {
+        return new PlayerSnapshot(data, version);
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * Número de publicación; crece con cada {@link PlayerData#publishSnapshot()}.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public double getBankBalance() {
+        return Money.toMajor(bankMinor);
+    }
+
+    /**
+     * Saldo bancario en unidades mínimas ({@link Money}).
+     */
+    public long getBankMinor() {
+        return bankMinor;
+    }
+
+    public double getCashBalance() {
+        return Money.toMajor(cashMinor);
+    }
+
+    /**
+     * Efectivo en unidades mínimas ({@link Money}).
+     */
+    public long getCashMinor() {
+        return cashMinor;
+    }
+
+    public double getStat(StatType type) {
+        return stats[type.ordinal()];
+    }
+
+    /**
+     * Oficios ordenados por id.
+     */
+    public Map<String, JobSnapshot> getJobs() {
+        return jobs;
+    }
+
+    public String getClanId() {
+        return clanId;
+    }
+
+    public int getRpgLevel() {
+        return rpgLevel;
+    }
+
+    public long getRpgExperience() {
+        return rpgExperience;
+    }
+
+    public int getUnspentPoints() {
+        return unspentPoints;
+    }
+
+    public boolean isBanned() {
+        return banned;
+    }
+}
@@ -0,0 +1,295 @@
+package com.vendraly.core.database;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cola de escritura diferida para datos de jugadores. Las mutaciones solo marcan
+ * al jugador como sucio; un pase periódico escribe cada jugador una única vez,
+ * sin importar cuántas modificaciones haya acumulado, y nunca lanza dos
+ * escrituras simultáneas del mismo jugador.
+ */
+public class SaveQueue {
+
+    /**
+     * Escritor de un registro concreto. Devuelve {@code false} si la escritura
+     * falló y el jugador debe reintentarse en el siguiente pase.
+     */
+    @FunctionalInterface
+    public interface RecordWriter {
+        boolean write(UUID uuid);
+
+        /**
+         * Escribe un lote completo; los backends transaccionales lo sobrescriben
+         * para hacerlo de una vez.
+         *
+         * @return jugadores cuya escritura falló
+         */
+        default Set<UUID> writeBatch(List<UUID> uuids) {
+            Set<UUID> failed = new HashSet<>();
+            for (UUID uuid : uuids) {
+                if (!write(uuid)) {
+                    failed.add(uuid);
+                }
+            }
+            return failed;
+        }
+    }
+
+    private final Logger logger;
+    private final RecordWriter writer;
+    private final long maxLatencyMillis;
+    private final int maxBatch;
+    private final Map<UUID, Long> dirtySince = new ConcurrentHashMap<>();
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong mutations = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalLagMillis = new AtomicLong();
+    private volatile long lastFlushLagMillis;
+    private volatile long maxFlushLagMillis;
+
+    public SaveQueue(Logger logger, RecordWriter writer, long maxLatencyMillis, int maxBatch) {
+        this.logger = logger;
+        this.writer = writer;
+        this.maxLatencyMillis = Math.max(0L, maxLatencyMillis);
+        this.maxBatch = Math.max(1, maxBatch);
+    }
+
+    public void markDirty(UUID uuid) {
+        mutations.incrementAndGet();
+        dirtySince.putIfAbsent(uuid, System.currentTimeMillis());
+    }
+
+    public boolean isDirty(UUID uuid) {
+        return dirtySince.containsKey(uuid) || inFlight.contains(uuid);
+    }
+
+    /**
+     * Ejecuta un pase de vaciado: escribe como máximo {@code maxBatch} jugadores,
+     * empezando por los más antiguos, más todos los que superen la latencia máxima.
+     *
+     * @return cantidad de registros escritos
+     */
+    public int flush() {
+        if (dirtySince.isEmpty()) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        List<Map.Entry<UUID, Long>> pending = new ArrayList<>(dirtySince.entrySet());
+        pending.sort(Map.Entry.comparingByValue());
+        List<UUID> batch = new ArrayList<>();
+        for (Map.Entry<UUID, Long> entry : pending) {
+            boolean overdue = now - entry.getValue() >= maxLatencyMillis;
+            if (batch.size() >= maxBatch && !overdue) {
+                break;
+            }
+            batch.add(entry.getKey());
+        }
+        return writeBatch(batch);
+    }
+
+    /**
+     * Escribe ya los jugadores indicados que sigan pendientes.
+     *
+     * @return cantidad de registros escritos
+     */
+    public int flush(List<UUID> uuids) {
+        return writeBatch(uuids);
+    }
+
+    /**
+     * Escribe todos los jugadores pendientes sin respetar el tamaño de lote.
+     *
+     * @return cantidad de registros escritos
+     */
+    public int drain() {
+        List<UUID> pending = new ArrayList<>(dirtySince.keySet());
+        int written = 0;
+        for (int from = 0; from < pending.size(); from += maxBatch) {
+            written += writeBatch(pending.subList(from, Math.min(pending.size(), from + maxBatch)));
+        }
+        return written;
+    }
+
+    /**
+     * Resultado de {@link #drain(int, long, long)}.
+     */
+    public record DrainResult(int written, List<UUID> remaining) {
+    }
+
+    /**
+     * Escribe todos los pendientes repartiendo los lotes entre {@code threads}
+     * hilos. Ningún lote empieza después de {@code deadline}; los que ya
+     * estaban en curso se esperan un margen de {@code graceMillis} y nunca se
+     * interrumpen, porque interrumpir un hilo cierra los canales de fichero que
+     * esté usando.
+     *
+     * @param deadline instante límite en milisegundos de época
+     */
+    public DrainResult drain(int threads, long deadline, long graceMillis) {
+        List<UUID> pending = new ArrayList<>(dirtySince.keySet());
+        ConcurrentLinkedQueue<List<UUID>> batches = new ConcurrentLinkedQueue<>();
+        for (int from = 0; from < pending.size(); from += maxBatch) {
+            batches.add(new ArrayList<>(pending.subList(from, Math.min(pending.size(), from + maxBatch))));
+        }
+        AtomicInteger written = new AtomicInteger();
+        int workers = Math.max(1, Math.min(threads, batches.size()));
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "VendralyCore-Flush-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            pool.execute(() -> {
+                List<UUID> batch;
+                while (System.currentTimeMillis() < deadline && (batch = batches.poll()) != null) {
+                    written.addAndGet(writeBatch(batch));
+                }
+            });
+        }
+        pool.shutdown();
+        try {
+            long wait = Math.max(0L, deadline - System.currentTimeMillis()) + Math.max(0L, graceMillis);
+            if (!pool.awaitTermination(wait, TimeUnit.MILLISECONDS)) {
+                logger.warning("Quedan escrituras de jugadores en curso tras el plazo de apagado");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<UUID> remaining = new ArrayList<>(dirtySince.keySet());
+        for (UUID uuid : inFlight) {
+            if (!dirtySince.containsKey(uuid)) {
+                remaining.add(uuid);
+            }
+        }
+        return new DrainResult(written.get(), remaining);
+    }
+
+    /**
+     * Espera a que terminen las escrituras lanzadas por otros hilos.
+     *
+     * @param timeoutMillis tiempo máximo de espera
+     * @return {@code true} si no quedan escrituras en curso
+     */
+    public boolean awaitInFlight(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!inFlight.isEmpty() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(5L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return inFlight.isEmpty();
+    }
+
+    private int writeBatch(List<UUID> candidates) {
+        Map<UUID, Long> claimed = new LinkedHashMap<>();
+        for (UUID uuid : candidates) {
+            if (!inFlight.add(uuid)) {
+                continue;
+            }
+            Long since = dirtySince.remove(uuid);
+            if (since == null) {
+                inFlight.remove(uuid);
+                continue;
+            }
+            claimed.put(uuid, since);
+        }
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        try {
+            Set<UUID> failed;
+            try {
+                failed = writer.writeBatch(new ArrayList<>(claimed.keySet()));
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Error inesperado guardando un lote de " + claimed.size() + " jugadores", e);
+                failed = claimed.keySet();
+            }
+            long now = System.currentTimeMillis();
+            int written = 0;
+            for (Map.Entry<UUID, Long> entry : claimed.entrySet()) {
+                if (failed.contains(entry.getKey())) {
+                    failures.incrementAndGet();
+                    dirtySince.merge(entry.getKey(), entry.getValue(), Math::min);
+                    continue;
+                }
+                long lag = now - entry.getValue();
+                lastFlushLagMillis = lag;
+                if (lag > maxFlushLagMillis) {
+                    maxFlushLagMillis = lag;
+                }
+                totalLagMillis.addAndGet(lag);
+                writes.incrementAndGet();
+                written++;
+            }
+            return written;
+        } finally {
+            inFlight.removeAll(claimed.keySet());
+        }
+    }
+
+    public int getQueueDepth() {
+        return dirtySince.size();
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    public long getMutations() {
+        return mutations.get();
+    }
+
+    public long getWrites() {
+        return writes.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getLastFlushLagMillis() {
+        return lastFlushLagMillis;
+    }
+
+    public long getMaxFlushLagMillis() {
+        return maxFlushLagMillis;
+    }
+
+    public long getAverageFlushLagMillis() {
+        long count = writes.get();
+        return count == 0 ? 0L : totalLagMillis.get() / count;
+    }
+
+    /**
+     * Mayor antigüedad, en milisegundos, entre los jugadores aún pendientes.
+     */
+    public long getOldestPendingMillis() {
+        long now = System.currentTimeMillis();
+        long oldest = 0L;
+        for (long since : dirtySince.values()) {
+            oldest = Math.max(oldest, now - since);
+        }
+        return oldest;
+    }
+}
@@ -1,117 +1,988 @@
 package com.vendraly.core.database;
 
 import com.vendraly.VendralyCore;
-import com.vendraly.core.jobs.JobProgress;
-import com.vendraly.core.roles.Role;
-import com.vendraly.core.rpg.stats.RPGStats;
-import com.vendraly.core.rpg.stats.StatType;
+import com.vendraly.core.database.storage.BinaryFilePlayerStorage;
+import com.vendraly.core.database.storage.FilePlayerStorage;
+import com.vendraly.core.database.storage.JdbcPlayerStorage;
+import com.vendraly.core.database.storage.PlayerStorage;
+import com.vendraly.core.database.storage.PlayerWrite;
+import com.vendraly.core.database.storage.SegmentPlayerStorage;
+import com.vendraly.core.database.storage.SegmentStore;
+import com.vendraly.core.database.storage.StorageMigration;
+import com.vendraly.core.database.storage.WriteAheadJournal;
+import com.vendraly.core.database.storage.YamlPlayerStorage;
 import com.vendraly.utils.TaskUtil;
+import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
- * Carga y guarda información persistente de jugadores en archivos YAML.
+ * Carga y guarda información persistente de jugadores a través de un
+ * {@link PlayerStorage} elegido con {@code storage.format} ({@code segment}
+ * por defecto, {@code binary}, {@code yaml} o {@code sql}). Los ficheros
+ * sueltos {@code userdata/<uuid>.dat} y {@code .yml} se siguen leyendo y se
+ * migran de forma perezosa al backend activo. Las escrituras pasan por una
+ * {@link SaveQueue} que agrupa las mutaciones de cada jugador antes de tocar
+ * disco, y los jugadores desconectados se expulsan de la
+ * {@link PlayerDataCache} cuando dejan de usarse. Con
+ * {@code storage.journal.enabled} cada mutación se registra antes en un
+ * {@link WriteAheadJournal} que se reproduce al arrancar tras una caída.
+ * Con {@code storage.checkpoint.enabled} el apagado vuelca la caché entera en
+ * un {@link CacheCheckpoint} en lugar de escribir jugador a jugador, y el
+ * arranque lo usa para precargar la caché.
+ * <p>
+ * Solo se persisten las secciones de {@link PlayerData} que cambiaron: el
+ * journal recibe deltas y los backends que lo admiten escriben únicamente
+ * esas secciones.
+ * <p>
+ * Los jugadores que se conectan se cargan en la prelogin asíncrona con
+ * {@link #preload(UUID, String)}; una misma carga nunca se ejecuta dos veces
+ * a la vez, de modo que la entrada espera a la prelogin en curso en lugar de
+ * leer de nuevo.
  */
 public class UserDataManager {
 
+    /**
+     * Recibe cada vista publicada por {@link #save(PlayerData)} o escrita por
+     * {@link #updateStored} junto con las secciones que cambiaron. Se invoca
+     * en el hilo que guarda y debe ser barata.
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+        void onChange(PlayerSnapshot snapshot, int sections);
+    }
+
+    /**
+     * Paso de {@link #updateStored} entre aplicar los cambios y escribirlos;
+     * si lanza, no se escribe nada.
+     */
+    @FunctionalInterface
+    public interface BeforeWrite {
+        void run() throws IOException;
+    }
+
+    private static final int DIRECTORY_SECTIONS = PlayerData.SECTION_PROFILE | PlayerData.SECTION_AUTH
+            | PlayerData.SECTION_BALANCES | PlayerData.SECTION_PROGRESSION;
+
     private final VendralyCore plugin;
-    private final Map<UUID, PlayerData> cache = new ConcurrentHashMap<>();
+    private final PlayerDataCache cache;
+    private final SaveQueue saveQueue;
+    private final Set<UUID> legacyMigrations = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Integer> pendingSections = new ConcurrentHashMap<>();
+    private final List<FilePlayerStorage> legacyStorages = new ArrayList<>();
+    private final PlayerStorage storage;
+    private final WriteAheadJournal journal;
+    private final CacheCheckpoint checkpoint;
+    private final CacheCheckpoint unsavedManifest;
+    private final AtomicReference<StorageMigration> migration = new AtomicReference<>();
+    private final AtomicReference<BulkOperation> bulk = new AtomicReference<>();
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final PlayerDirectory directory;
+    private final Map<UUID, CompletableFuture<PlayerData>> loading = new ConcurrentHashMap<>();
+    private final ExecutorService preloadPool;
+    private final long preloadTimeoutMillis;
+    private final AtomicLong preloaded = new AtomicLong();
+    private final AtomicLong preloadTimeouts = new AtomicLong();
+    private final AtomicLong syncJoinLoads = new AtomicLong();
+    private final AtomicLong syncJoinNanos = new AtomicLong();
 
     public UserDataManager(VendralyCore plugin) {
         this.plugin = plugin;
+        FileConfiguration config = plugin.getConfig();
+        this.saveQueue = new SaveQueue(plugin.getPluginLogger(), new SaveQueue.RecordWriter() {
+            @Override
+            public boolean write(UUID uuid) {
+                return flushBatch(Collections.singletonList(uuid)).isEmpty();
+            }
+
+            @Override
+            public Set<UUID> writeBatch(List<UUID> uuids) {
+                return flushBatch(uuids);
+            }
+        }, config.getLong("storage.max-latency-ms", 10000L), config.getInt("storage.max-batch", 200));
+        this.cache = new PlayerDataCache(config.getInt("storage.cache.max-offline", 2000),
+                config.getLong("storage.cache.offline-ttl-seconds", 900L) * 1000L, saveQueue::isDirty);
+        this.storage = openStorage(config);
+        File dir = getUserDataFolder();
+        boolean compress = config.getBoolean("storage.compression", true);
+        if (!(storage instanceof BinaryFilePlayerStorage)) {
+            legacyStorages.add(new BinaryFilePlayerStorage(dir, compress));
+        }
+        if (!(storage instanceof YamlPlayerStorage)) {
+            legacyStorages.add(new YamlPlayerStorage(dir));
+        }
+        this.directory = openDirectory(dir);
+        this.checkpoint = config.getBoolean("storage.checkpoint.enabled", true)
+                ? new CacheCheckpoint(new File(dir, "cache.ckpt")) : null;
+        this.unsavedManifest = new CacheCheckpoint(new File(dir, "unsaved.ckpt"));
+        long checkpointSequence = Math.max(warmFromCheckpoint(checkpoint), warmFromCheckpoint(unsavedManifest));
+        this.journal = openJournal(config, checkpointSequence);
+        this.preloadTimeoutMillis = config.getLong("storage.preload.timeout-ms", 3000L);
+        AtomicInteger threadId = new AtomicInteger();
+        this.preloadPool = Executors.newFixedThreadPool(Math.max(1, config.getInt("storage.preload.threads", 4)), runnable -> {
+            Thread thread = new Thread(runnable, "VendralyCore-Preload-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (directory.isFresh()) {
+            TaskUtil.runAsync(plugin, this::rebuildDirectory);
+        }
     }
 
     public PlayerData getOrCreate(UUID uuid, String name) {
-        return cache.computeIfAbsent(uuid, id -> load(uuid, name));
+        PlayerData data = cache.get(uuid);
+        if (data != null) {
+            return data;
+        }
+        CompletableFuture<PlayerData> created = new CompletableFuture<>();
+        CompletableFuture<PlayerData> existing = loading.putIfAbsent(uuid, created);
+        if (existing != null) {
+            // Hay una prelogin leyendo a este jugador: se espera su resultado en lugar de crear otra copia.
+            PlayerData joined = existing.join();
+            // null: era una reserva de updateStored que ya reescribió el registro; se vuelve a leer.
+            return joined != null ? joined : getOrCreate(uuid, name);
+        }
+        loadInto(created, uuid, name);
+        return created.join();
+    }
+
+    /**
+     * Carga al jugador en caché desde la prelogin asíncrona, esperando como
+     * mucho {@code storage.preload.timeout-ms}. Si se agota el plazo la carga
+     * sigue en segundo plano y se devuelve {@code null}; nunca se interrumpe
+     * el hilo de lectura.
+     */
+    public PlayerData preload(UUID uuid, String name) {
+        PlayerData data = cache.get(uuid);
+        if (data != null) {
+            return data;
+        }
+        try {
+            data = loadAsync(uuid, name).get(preloadTimeoutMillis, TimeUnit.MILLISECONDS);
+            preloaded.incrementAndGet();
+            return data;
+        } catch (TimeoutException e) {
+            preloadTimeouts.incrementAndGet();
+            plugin.getPluginLogger().warning("La precarga de " + name + " superó " + preloadTimeoutMillis
+                    + " ms; se completará en segundo plano");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            plugin.getPluginLogger().severe("No se pudo precargar a " + name + ": " + e.getCause().getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Como {@link #loadAsync(UUID, String)} tomando el nombre del directorio.
+     */
+    public CompletableFuture<PlayerData> loadAsync(UUID uuid) {
+        PlayerDirectory.Entry entry = directory.get(uuid);
+        return loadAsync(uuid, entry == null ? "" : entry.name());
+    }
+
+    /**
+     * Lleva al jugador a la caché leyendo en el pool de precarga. El futuro se
+     * completa en ese pool; quien vaya a mutar los datos debe volver antes al
+     * hilo principal.
+     */
+    public CompletableFuture<PlayerData> loadAsync(UUID uuid, String name) {
+        PlayerData data = cache.peek(uuid);
+        if (data != null) {
+            return CompletableFuture.completedFuture(data);
+        }
+        CompletableFuture<PlayerData> created = new CompletableFuture<>();
+        CompletableFuture<PlayerData> existing = loading.putIfAbsent(uuid, created);
+        if (existing != null) {
+            return existing.thenCompose(joined -> joined != null ? CompletableFuture.completedFuture(joined) : loadAsync(uuid, name));
+        }
+        preloadPool.execute(() -> loadInto(created, uuid, name));
+        return created;
     }
 
+    /**
+     * Carga al jugador que entra y lo fija en caché mientras siga conectado.
+     * Si la prelogin no lo dejó en caché la carga se hace (o se espera) en el
+     * hilo principal y se contabiliza como entrada síncrona.
+     */
+    public PlayerData handleJoin(UUID uuid, String name) {
+        PlayerData data = cache.get(uuid);
+        if (data == null) {
+            long start = System.nanoTime();
+            data = getOrCreate(uuid, name);
+            syncJoinLoads.incrementAndGet();
+            syncJoinNanos.addAndGet(System.nanoTime() - start);
+        }
+        cache.pin(data);
+        directory.update(data.publishSnapshot());
+        directory.touch(uuid, System.currentTimeMillis());
+        return data;
+    }
+
+    /**
+     * Devuelve al jugador que sale al nivel offline de la caché, donde podrá
+     * expulsarse tras {@code storage.cache.offline-ttl-seconds}.
+     */
+    public void handleQuit(UUID uuid) {
+        directory.touch(uuid, System.currentTimeMillis());
+        cache.unpin(uuid);
+    }
+
+    /**
+     * Marca los datos como modificados y publica su vista inmutable. La
+     * escritura real la realiza el pase periódico de {@link #flushPending()}
+     * sobre esa vista; si ninguna sección cambió desde el último guardado no se
+     * hace nada. Solo el hilo principal publica vistas: una llamada desde otro
+     * hilo (por ejemplo tras un cambio de saldo asíncrono sobre una
+     * {@code AtomicAccount}) se reenvía al siguiente tick.
+     */
     public void save(PlayerData data) {
-        TaskUtil.runAsync(plugin, () -> saveSync(data));
+        if (!Bukkit.isPrimaryThread() && plugin.isEnabled()) {
+            TaskUtil.runSync(plugin, () -> save(data));
+            return;
+        }
+        int changed = data.drainChangedSections();
+        if (changed == 0) {
+            return;
+        }
+        PlayerData cached = cache.peek(data.getUuid());
+        if (cached != data) {
+            // Alguien conservó la referencia mientras se expulsaba; se readmite para no perder el cambio.
+            PlayerData current = cached != null ? cached : cache.admit(data);
+            if (current != data) {
+                merge(data, current, changed);
+                save(current);
+                return;
+            }
+        }
+        PlayerSnapshot snapshot = data.publishSnapshot();
+        pendingSections.merge(data.getUuid(), changed, (current, added) -> current | added);
+        if ((changed & DIRECTORY_SECTIONS) != 0) {
+            directory.update(snapshot);
+        }
+        if (journal != null) {
+            journal.append(data.getUuid(), PlayerDataCodec.encodeDelta(snapshot, changed));
+        }
+        saveQueue.markDirty(data.getUuid());
+        for (ChangeListener listener : changeListeners) {
+            listener.onChange(snapshot, changed);
+        }
+    }
+
+    /**
+     * Lleva a la copia que está en caché lo que cambió en una referencia ya
+     * expulsada. Los saldos se suman como diferencia respecto a la última vista
+     * guardada de la referencia, porque la copia nueva puede haber cobrado o
+     * pagado entretanto; el resto de secciones cambiadas se copian tal cual.
+     * La vista que se publica sobre la referencia sirve de base si vuelve a
+     * guardarse.
+     */
+    private void merge(PlayerData stale, PlayerData current, int changed) {
+        PlayerSnapshot saved = stale.getSnapshot();
+        PlayerSnapshot latest = stale.publishSnapshot();
+        int copied = changed;
+        if ((changed & PlayerData.SECTION_BALANCES) != 0 && saved != null) {
+            current.getBank().addClamped(latest.getBankMinor() - saved.getBankMinor());
+            current.getCash().addClamped(latest.getCashMinor() - saved.getCashMinor());
+            copied &= ~PlayerData.SECTION_BALANCES;
+        }
+        if (copied == 0) {
+            return;
+        }
+        try {
+            PlayerDataCodec.apply(current, PlayerDataCodec.encodeDelta(latest, copied));
+        } catch (IOException e) {
+            plugin.getPluginLogger().severe("No se pudieron pasar los cambios de " + stale.getUuid()
+                    + " a su copia en caché: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Guarda varios jugadores cambiados a la vez (un lote económico, por
+     * ejemplo) y pide un único vaciado de la cola para ellos, en lugar de
+     * esperar al pase periódico. Debe llamarse desde el hilo principal.
+     */
+    public void saveBatch(Collection<PlayerData> batch) {
+        List<UUID> uuids = new ArrayList<>(batch.size());
+        for (PlayerData data : batch) {
+            save(data);
+            uuids.add(data.getUuid());
+        }
+        if (plugin.isEnabled()) {
+            TaskUtil.runAsync(plugin, () -> saveQueue.flush(uuids));
+        }
     }
 
+    /**
+     * Modifica jugadores que no están en caché directamente en el
+     * almacenamiento, sin admitirlos: pensado para recorridos masivos que no
+     * deben llenar la caché. Mientras se lee y reescribe cada registro se
+     * reserva su entrada en las cargas en curso, así que una carga simultánea
+     * espera y lee después la versión ya modificada. {@code change} indica si
+     * modificó los datos; solo esos se escriben, en un único lote, después de
+     * {@code beforeWrite}, y se notifican a los {@link ChangeListener}. Se
+     * ejecuta fuera del hilo principal.
+     *
+     * @return jugadores que no se pudieron tratar así porque están en caché o
+     * cargándose; el llamante debe aplicarles el cambio sobre la caché
+     * @throws IOException si el lote no se pudo escribir o {@code beforeWrite}
+     *                     falló; en ese caso no se escribió ninguno
+     */
+    public Set<UUID> updateStored(Collection<UUID> uuids, Predicate<PlayerData> change, BeforeWrite beforeWrite)
+            throws IOException {
+        Set<UUID> busy = new HashSet<>();
+        Map<UUID, CompletableFuture<PlayerData>> claims = new LinkedHashMap<>();
+        List<PlayerWrite> batch = new ArrayList<>(uuids.size());
+        Set<UUID> fromLegacy = new HashSet<>();
+        try {
+            for (UUID uuid : uuids) {
+                CompletableFuture<PlayerData> claim = new CompletableFuture<>();
+                if (loading.putIfAbsent(uuid, claim) != null) {
+                    busy.add(uuid);
+                    continue;
+                }
+                claims.put(uuid, claim);
+                if (cache.peek(uuid) != null) {
+                    busy.add(uuid);
+                    continue;
+                }
+                PlayerData stored;
+                try {
+                    stored = storage.load(uuid, "");
+                } catch (IOException | RuntimeException e) {
+                    plugin.getPluginLogger().warning("Registro ilegible para " + uuid + ": " + e.getMessage());
+                    continue;
+                }
+                int sections = PlayerData.SECTION_BALANCES;
+                if (stored == null) {
+                    stored = readStored(uuid);
+                    // Aún en un fichero suelto: se escribe entero en el backend activo.
+                    sections = PlayerData.SECTION_ALL;
+                    fromLegacy.add(uuid);
+                }
+                if (stored == null) {
+                    continue;
+                }
+                stored.drainChangedSections();
+                if (change.test(stored)) {
+                    batch.add(new PlayerWrite(stored.publishSnapshot(), stored.drainChangedSections() | sections));
+                }
+            }
+            if (!batch.isEmpty()) {
+                beforeWrite.run();
+                storage.saveAll(batch);
+            }
+            for (PlayerWrite write : batch) {
+                directory.update(write.data());
+                if (fromLegacy.contains(write.data().getUuid())) {
+                    deleteLegacy(write.data().getUuid());
+                }
+                for (ChangeListener listener : changeListeners) {
+                    listener.onChange(write.data(), PlayerData.SECTION_BALANCES);
+                }
+            }
+        } finally {
+            claims.forEach((uuid, claim) -> {
+                loading.remove(uuid, claim);
+                claim.complete(null);
+            });
+        }
+        return busy;
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Pase periódico de escritura diferida; se ejecuta fuera del hilo principal.
+     */
+    public void flushPending() {
+        saveQueue.flush();
+    }
+
+    /**
+     * Guardado de apagado. Con journal y checkpoint activos los pendientes no
+     * se escriben uno a uno: quedan en el checkpoint (y en el journal) y se
+     * guardan en el siguiente arranque. En otro caso se reparten entre
+     * {@code storage.shutdown.threads} hilos hasta agotar
+     * {@code storage.shutdown.deadline-ms}; lo que no dé tiempo a escribir se
+     * deja en un manifiesto que el siguiente arranque vuelve a encolar.
+     */
     public void saveAll() {
-        cache.values().forEach(this::saveSync);
+        FileConfiguration config = plugin.getConfig();
+        long start = System.currentTimeMillis();
+        long deadline = start + config.getLong("storage.shutdown.deadline-ms", 20000L);
+        saveQueue.awaitInFlight(5000L);
+        long waited = System.currentTimeMillis();
+        if (checkpoint != null && journal != null && writeCheckpoint()) {
+            return;
+        }
+        int threads = Math.max(1, config.getInt("storage.shutdown.threads", 4));
+        SaveQueue.DrainResult result = saveQueue.drain(threads, deadline, config.getLong("storage.shutdown.grace-ms", 5000L));
+        long drained = System.currentTimeMillis();
+        int unsaved = writeUnsavedManifest(result.remaining());
+        long manifested = System.currentTimeMillis();
+        plugin.getPluginLogger().info("Guardados " + result.written() + " jugadores pendientes con " + threads + " hilos (espera "
+                + (waited - start) + " ms, escritura " + (drained - waited) + " ms, manifiesto " + (manifested - drained) + " ms)");
+        if (unsaved > 0) {
+            plugin.getPluginLogger().warning(unsaved + " jugadores no se guardaron a tiempo; quedan en " + unsavedManifest.getFile().getName()
+                    + " para el siguiente arranque");
+        }
+        if (checkpoint != null && journal == null) {
+            writeCheckpoint();
+        }
+    }
+
+    /**
+     * Expulsa de la caché a los jugadores offline inactivos o sobrantes,
+     * volcando antes los que tengan cambios; se ejecuta fuera del hilo
+     * principal.
+     */
+    public void evictIdle() {
+        cache.sweep(saveQueue::flush);
+    }
+
+    /**
+     * Compacta los segmentos con mucho espacio muerto; se ejecuta fuera del
+     * hilo principal.
+     */
+    public void compactStorage() {
+        if (!(storage instanceof SegmentPlayerStorage segmentStorage)) {
+            return;
+        }
+        int compacted = segmentStorage.getStore().compact();
+        if (compacted > 0) {
+            plugin.getPluginLogger().info("Compactados " + compacted + " segmentos de datos de jugadores");
+        }
     }
 
-    private void saveSync(PlayerData data) {
-        File file = getFile(data.getUuid());
-        FileConfiguration config = new YamlConfiguration();
-        config.set("name", data.getName());
-        config.set("password", data.getPasswordHash());
-        config.set("role", data.getRole().name());
-        config.set("bank", data.getBankBalance());
-        config.set("cash", data.getCashBalance());
-        config.set("clan", data.getClanId());
-        config.set("rpg.level", data.getRpgLevel());
-        config.set("rpg.experience", data.getRpgExperience());
-        config.set("rpg.unspent", data.getUnspentPoints());
+    public void close() {
+        long start = System.currentTimeMillis();
+        // Sin shutdownNow: interrumpir un hilo a mitad de lectura cerraría el FileChannel del backend.
+        preloadPool.shutdown();
+        try {
+            directory.close();
+        } catch (IOException e) {
+            plugin.getPluginLogger().severe("No se pudo cerrar el directorio de jugadores: " + e.getMessage());
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                plugin.getPluginLogger().severe("No se pudo cerrar el journal de jugadores: " + e.getMessage());
+            }
+        }
+        try {
+            storage.close();
+        } catch (IOException e) {
+            plugin.getPluginLogger().severe("No se pudo cerrar el almacenamiento " + storage.getName() + ": " + e.getMessage());
+        }
+        plugin.getPluginLogger().info("Journal y almacenamiento cerrados en " + (System.currentTimeMillis() - start) + " ms");
+    }
 
-        RPGStats stats = data.getStats();
-        for (StatType type : StatType.values()) {
-            config.set("stats." + type.name().toLowerCase(), stats.getStat(type));
+    /**
+     * Lanza en segundo plano la migración masiva de los ficheros sueltos de
+     * {@code format} ({@code yaml} o {@code binary}) al backend activo. Los
+     * jugadores presentes en caché se omiten: su versión en memoria es más
+     * reciente y la migración perezosa ya los escribe.
+     *
+     * @return {@code false} si ya hay una migración en curso o el formato no
+     * es un backend de ficheros distinto del activo
+     */
+    public boolean startMigration(String format, boolean deleteSource, Consumer<StorageMigration.Report> onDone) {
+        FilePlayerStorage source = legacyStorages.stream()
+                .filter(legacy -> legacy.getName().equalsIgnoreCase(format))
+                .findFirst()
+                .orElse(null);
+        if (source == null) {
+            return false;
+        }
+        FileConfiguration config = plugin.getConfig();
+        StorageMigration created = new StorageMigration(source, storage,
+                new File(getUserDataFolder(), "migration-" + source.getName() + ".progress"), plugin.getPluginLogger(),
+                config.getInt("storage.migration.threads", 4), config.getInt("storage.migration.batch-size", 500),
+                deleteSource, uuid -> cache.peek(uuid) != null, directory::update);
+        if (!migration.compareAndSet(null, created)) {
+            return false;
         }
+        TaskUtil.runAsync(plugin, () -> {
+            try {
+                StorageMigration.Report report = created.run();
+                plugin.getPluginLogger().info("Migración " + source.getName() + " -> " + storage.getName() + ": " + report.migrated()
+                        + " migrados, " + report.skipped() + " omitidos, " + report.failed() + " fallidos, " + report.mismatched()
+                        + " con checksum distinto de " + report.scanned() + " en " + report.millis() + " ms");
+                TaskUtil.runSync(plugin, () -> onDone.accept(report));
+            } catch (IOException e) {
+                plugin.getPluginLogger().severe("Migración " + source.getName() + " abortada: " + e.getMessage());
+            } finally {
+                migration.set(null);
+            }
+        });
+        return true;
+    }
 
-        Map<String, Object> jobSection = new HashMap<>();
-        for (JobProgress progress : data.getJobs().values()) {
-            Map<String, Object> map = new HashMap<>();
-            map.put("experience", progress.getExperience());
-            map.put("level", progress.getLevel());
-            jobSection.put(progress.getJobId(), map);
+    /**
+     * Lanza en segundo plano una corrección masiva con
+     * {@code storage.bulk.threads} hilos de lectura y lotes de
+     * {@code storage.bulk.batch-size}. Ambos avisos se entregan en el hilo
+     * principal.
+     *
+     * @return {@code false} si ya hay otra operación masiva en curso
+     */
+    public boolean startBulk(String id, String spec, BulkFilter filter, Consumer<PlayerData> action,
+                             Consumer<BulkOperation.Report> onDone, Consumer<String> onFailure) {
+        FileConfiguration config = plugin.getConfig();
+        BulkOperation created = new BulkOperation(plugin, this, id, spec, filter, action,
+                config.getInt("storage.bulk.threads", 4), config.getInt("storage.bulk.batch-size", 200));
+        if (!bulk.compareAndSet(null, created)) {
+            return false;
         }
-        config.createSection("jobs", jobSection);
+        TaskUtil.runAsync(plugin, () -> {
+            try {
+                BulkOperation.Report report = created.run();
+                plugin.getPluginLogger().info("Operación masiva " + id + " (" + spec + "): " + report.applied() + " aplicados, "
+                        + report.skipped() + " ya aplicados, " + report.failed() + " fallidos de " + report.scanned() + " en "
+                        + report.millis() + " ms" + (report.cancelled() ? " (detenida)" : ""));
+                TaskUtil.runSync(plugin, () -> onDone.accept(report));
+            } catch (IOException e) {
+                plugin.getPluginLogger().severe("Operación masiva " + id + " abortada: " + e.getMessage());
+                TaskUtil.runSync(plugin, () -> onFailure.accept(e.getMessage()));
+            } finally {
+                bulk.set(null);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Operación masiva en curso, o {@code null}.
+     */
+    public BulkOperation getBulk() {
+        return bulk.get();
+    }
+
+    /**
+     * Migración en curso, o {@code null}.
+     */
+    public StorageMigration getMigration() {
+        return migration.get();
+    }
+
+    public SaveQueue getSaveQueue() {
+        return saveQueue;
+    }
+
+    public PlayerDataCache getCache() {
+        return cache;
+    }
+
+    public PlayerStorage getStorage() {
+        return storage;
+    }
+
+    public WriteAheadJournal getJournal() {
+        return journal;
+    }
+
+    public PlayerDirectory getDirectory() {
+        return directory;
+    }
 
+    public long getPreloaded() {
+        return preloaded.get();
+    }
+
+    public long getPreloadTimeouts() {
+        return preloadTimeouts.get();
+    }
+
+    /**
+     * Entradas que no encontraron al jugador en caché y tuvieron que cargarlo
+     * o esperarlo en el hilo principal.
+     */
+    public long getSyncJoinLoads() {
+        return syncJoinLoads.get();
+    }
+
+    public long getSyncJoinMillis() {
+        return syncJoinNanos.get() / 1_000_000L;
+    }
+
+    /**
+     * UUID de todos los jugadores guardados, en el backend activo o en
+     * ficheros sueltos aún sin migrar.
+     */
+    public Set<UUID> listPlayers() throws IOException {
+        Set<UUID> players = new LinkedHashSet<>(storage.listPlayers());
+        for (FilePlayerStorage legacy : legacyStorages) {
+            players.addAll(legacy.listPlayers());
+        }
+        return players;
+    }
+
+    /**
+     * Vuelve a llenar el directorio de jugadores leyendo todos los registros
+     * guardados; se ejecuta fuera del hilo principal.
+     */
+    public void rebuildDirectory() {
+        long start = System.currentTimeMillis();
+        if (!scanAll(directory::update)) {
+            return;
+        }
+        directory.markRebuilt();
+        plugin.getPluginLogger().info("Directorio de jugadores reconstruido: " + directory.size() + " jugadores en "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Recorre todos los jugadores guardados entregando su vista más reciente:
+     * la publicada en caché si la hay o, si no, la leída del almacenamiento.
+     * Se ejecuta fuera del hilo principal.
+     *
+     * @return {@code false} si no se pudo listar el almacenamiento
+     */
+    public boolean scanAll(Consumer<PlayerSnapshot> visitor) {
+        Set<UUID> players;
         try {
-            config.save(file);
+            players = listPlayers();
         } catch (IOException e) {
-            plugin.getPluginLogger().severe("No se pudo guardar datos de " + data.getName() + ": " + e.getMessage());
+            plugin.getPluginLogger().severe("No se pudo listar los jugadores guardados: " + e.getMessage());
+            return false;
+        }
+        for (UUID uuid : players) {
+            PlayerData cached = cache.peek(uuid);
+            PlayerSnapshot snapshot = cached == null ? null : cached.getSnapshot();
+            if (snapshot == null) {
+                PlayerData stored = readStored(uuid);
+                snapshot = stored == null ? null : stored.publishSnapshot();
+            }
+            if (snapshot != null) {
+                visitor.accept(snapshot);
+            }
         }
+        return true;
     }
 
-    private PlayerData load(UUID uuid, String name) {
-        File file = getFile(uuid);
-        if (!file.exists()) {
-            return new PlayerData(uuid, name);
+    private int writeUnsavedManifest(List<UUID> remaining) {
+        List<CacheCheckpoint.Entry> entries = new ArrayList<>(remaining.size());
+        for (UUID uuid : remaining) {
+            PlayerData data = cache.peek(uuid);
+            if (data != null) {
+                entries.add(new CacheCheckpoint.Entry(data, true));
+            }
+        }
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        try {
+            unsavedManifest.write(storage.getName(), journal == null ? 0L : journal.currentSequence(), entries);
+        } catch (IOException e) {
+            plugin.getPluginLogger().severe("No se pudo escribir el manifiesto de jugadores sin guardar: " + e.getMessage());
         }
-        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
-        PlayerData data = new PlayerData(uuid, config.getString("name", name));
-        data.setPasswordHash(config.getString("password", ""));
-        data.setRole(Role.valueOf(config.getString("role", Role.CIVILIAN.name())));
-        data.setBankBalance(config.getDouble("bank", 0.0));
-        data.setCashBalance(config.getDouble("cash", 0.0));
-        data.setClanId(config.getString("clan"));
-        data.setRpgLevel(config.getInt("rpg.level", 1));
-        data.setRpgExperience(config.getLong("rpg.experience", 0L));
-        data.setUnspentPoints(config.getInt("rpg.unspent", 0));
+        return entries.size();
+    }
 
-        RPGStats stats = data.getStats();
-        for (StatType type : StatType.values()) {
-            stats.setStat(type, config.getDouble("stats." + type.name().toLowerCase(), type.getBaseValue()));
+    private boolean writeCheckpoint() {
+        long start = System.nanoTime();
+        List<CacheCheckpoint.Entry> entries = new ArrayList<>();
+        int dirty = 0;
+        for (PlayerData data : cache.values()) {
+            boolean pending = saveQueue.isDirty(data.getUuid());
+            entries.add(new CacheCheckpoint.Entry(data, pending));
+            if (pending) {
+                dirty++;
+            }
+        }
+        try {
+            long bytes = checkpoint.write(storage.getName(), journal == null ? 0L : journal.currentSequence(), entries);
+            plugin.getPluginLogger().info("Checkpoint de caché: " + entries.size() + " jugadores (" + dirty + " pendientes de guardar, "
+                    + (bytes / 1024L) + " KiB) en " + (System.nanoTime() - start) / 1_000_000L + " ms");
+            return true;
+        } catch (IOException e) {
+            plugin.getPluginLogger().severe("No se pudo escribir el checkpoint de caché: " + e.getMessage());
+            return false;
         }
+    }
 
-        if (config.isConfigurationSection("jobs")) {
-            for (String key : config.getConfigurationSection("jobs").getKeys(false)) {
-                JobProgress progress = data.getOrCreateJob(key);
-                progress.addExperience(config.getLong("jobs." + key + ".experience", 0L));
-                progress.setLevel(config.getInt("jobs." + key + ".level", 1));
+    /**
+     * Precarga la caché con un checkpoint o manifiesto del último apagado y lo
+     * borra; los jugadores que quedaron sin guardar se vuelven a marcar como
+     * sucios.
+     *
+     * @return secuencia del journal cubierta por el fichero
+     */
+    private long warmFromCheckpoint(CacheCheckpoint source) {
+        if (source == null) {
+            return 0L;
+        }
+        long start = System.nanoTime();
+        CacheCheckpoint.Snapshot snapshot;
+        try {
+            snapshot = source.read();
+        } catch (IOException e) {
+            plugin.getPluginLogger().severe("Checkpoint " + source.getFile().getName() + " descartado: " + e.getMessage());
+            deleteCheckpoint(source);
+            return 0L;
+        }
+        if (snapshot == null) {
+            return 0L;
+        }
+        // Si cambió el backend, los registros limpios del checkpoint no están en él y se cargan de nuevo bajo demanda.
+        boolean sameStorage = snapshot.storageName().equals(storage.getName());
+        int warmed = 0;
+        int dirty = 0;
+        for (CacheCheckpoint.Entry entry : snapshot.entries()) {
+            if (!entry.dirty() && !sameStorage) {
+                continue;
+            }
+            directory.update(cache.admit(entry.data()).publishSnapshot());
+            warmed++;
+            if (entry.dirty()) {
+                pendingSections.put(entry.data().getUuid(), PlayerData.SECTION_ALL);
+                saveQueue.markDirty(entry.data().getUuid());
+                dirty++;
             }
         }
+        deleteCheckpoint(source);
+        plugin.getPluginLogger().info("Caché precargada desde " + source.getFile().getName() + ": " + warmed + " jugadores (" + dirty
+                + " pendientes de guardar) en " + (System.nanoTime() - start) / 1_000_000L + " ms");
+        return snapshot.journalSequence();
+    }
+
+    private void deleteCheckpoint(CacheCheckpoint source) {
+        try {
+            source.delete();
+        } catch (IOException e) {
+            plugin.getPluginLogger().warning("No se pudo borrar " + source.getFile().getName() + ": " + e.getMessage());
+        }
+    }
 
-        data.setBanned(config.getBoolean("banned", false));
-        return data;
+    private PlayerDirectory openDirectory(File dir) {
+        PlayerDirectory opened = new PlayerDirectory(new File(dir, "directory.dat"), plugin.getPluginLogger());
+        try {
+            opened.open();
+        } catch (IOException e) {
+            plugin.getPluginLogger().severe("No se pudo abrir el directorio de jugadores: " + e.getMessage());
+        }
+        return opened;
+    }
+
+    private WriteAheadJournal openJournal(FileConfiguration config, long checkpointSequence) {
+        if (!config.getBoolean("storage.journal.enabled", true)) {
+            return null;
+        }
+        WriteAheadJournal opened = new WriteAheadJournal(new File(getUserDataFolder(), "journal"), plugin.getPluginLogger(),
+                config.getLong("storage.journal.sync-interval-ms", 20L),
+                config.getLong("storage.journal.max-file-mb", 16L) * 1024L * 1024L);
+        Map<UUID, List<WriteAheadJournal.Recovered>> recovered;
+        try {
+            recovered = opened.open();
+        } catch (IOException e) {
+            plugin.getPluginLogger().severe("No se pudo abrir el journal de jugadores, se continúa sin él: " + e.getMessage());
+            return null;
+        }
+        for (Map.Entry<UUID, List<WriteAheadJournal.Recovered>> entry : recovered.entrySet()) {
+            UUID uuid = entry.getKey();
+            // Lo precargado desde el checkpoint ya incluye las entradas hasta su secuencia.
+            PlayerData data = cache.peek(uuid);
+            long applyAfter = data == null ? 0L : checkpointSequence;
+            if (data == null) {
+                data = load(uuid, "");
+            }
+            try {
+                for (WriteAheadJournal.Recovered change : entry.getValue()) {
+                    if (change.sequence() > applyAfter) {
+                        PlayerDataCodec.apply(data, change.payload());
+                    }
+                }
+            } catch (IOException e) {
+                plugin.getPluginLogger().severe("Entrada de journal ilegible para " + uuid + ": " + e.getMessage());
+            }
+            data.drainChangedSections();
+            directory.update(cache.admit(data).publishSnapshot());
+            pendingSections.put(uuid, PlayerData.SECTION_ALL);
+            saveQueue.markDirty(uuid);
+        }
+        if (!recovered.isEmpty()) {
+            plugin.getPluginLogger().warning("Recuperados " + recovered.size() + " jugadores sin guardar desde el journal");
+        }
+        return opened;
+    }
+
+    private PlayerStorage openStorage(FileConfiguration config) {
+        File dir = getUserDataFolder();
+        boolean compress = config.getBoolean("storage.compression", true);
+        String format = config.getString("storage.format", "segment").toLowerCase();
+        PlayerStorage selected = switch (format) {
+            case "yaml" -> new YamlPlayerStorage(dir);
+            case "binary" -> new BinaryFilePlayerStorage(dir, compress);
+            case "sql" -> new JdbcPlayerStorage(
+                    config.getString("storage.sql.url", "jdbc:sqlite:{data}/players.db")
+                            .replace("{data}", plugin.getDataFolder().getAbsolutePath()),
+                    config.getString("storage.sql.user", ""),
+                    config.getString("storage.sql.password", ""),
+                    config.getInt("storage.sql.pool-size", 4));
+            default -> new SegmentPlayerStorage(new SegmentStore(new File(dir, "segments"), plugin.getPluginLogger(),
+                    config.getLong("storage.segment-max-mb", 64L) * 1024L * 1024L,
+                    config.getDouble("storage.compaction-threshold", 0.5)), compress,
+                    config.getInt("storage.delta.checkpoint-every", 16));
+        };
+        try {
+            selected.open();
+            return selected;
+        } catch (IOException e) {
+            plugin.getPluginLogger().severe("No se pudo abrir el almacenamiento " + selected.getName()
+                    + ", se usarán ficheros sueltos: " + e.getMessage());
+            return new BinaryFilePlayerStorage(dir, compress);
+        }
+    }
+
+    private Set<UUID> flushBatch(List<UUID> uuids) {
+        // Se lee antes de tomar las vistas: todo lo registrado hasta aquí ya está publicado en ellas.
+        long covered = journal == null ? 0L : journal.currentSequence();
+        List<PlayerWrite> batch = new ArrayList<>(uuids.size());
+        for (UUID uuid : uuids) {
+            PlayerData data = cache.peek(uuid);
+            Integer sections = pendingSections.remove(uuid);
+            // Solo se escribe lo publicado; el objeto vivo puede estar a medio mutar en el hilo principal.
+            PlayerSnapshot snapshot = data == null ? null : data.getSnapshot();
+            if (snapshot != null) {
+                batch.add(new PlayerWrite(snapshot, sections == null ? PlayerData.SECTION_ALL : sections));
+            }
+        }
+        try {
+            storage.saveAll(batch);
+        } catch (IOException e) {
+            plugin.getPluginLogger().severe("No se pudo guardar un lote de " + batch.size() + " jugadores: " + e.getMessage());
+            for (PlayerWrite write : batch) {
+                pendingSections.merge(write.data().getUuid(), write.sections(), (current, added) -> current | added);
+            }
+            return new HashSet<>(uuids);
+        }
+        for (PlayerWrite write : batch) {
+            PlayerSnapshot data = write.data();
+            if (journal != null) {
+                journal.commit(data.getUuid(), covered);
+            }
+            if (legacyMigrations.remove(data.getUuid())) {
+                deleteLegacy(data.getUuid());
+            }
+        }
+        return Collections.emptySet();
+    }
+
+    private void loadInto(CompletableFuture<PlayerData> target, UUID uuid, String name) {
+        try {
+            // Otra carga pudo terminar entre la consulta a la caché y el registro en loading.
+            PlayerData data = cache.peek(uuid);
+            if (data == null) {
+                // Se publica antes de admitir: en cuanto está en caché otro hilo puede empezar a mutarlo.
+                PlayerData loaded = load(uuid, name);
+                PlayerSnapshot snapshot = loaded.publishSnapshot();
+                data = cache.admit(loaded);
+                if (data == loaded) {
+                    directory.update(snapshot);
+                }
+            }
+            target.complete(data);
+        } catch (RuntimeException e) {
+            target.completeExceptionally(e);
+        } finally {
+            loading.remove(uuid, target);
+        }
+    }
+
+    private PlayerData load(UUID uuid, String name) {
+        try {
+            PlayerData data = storage.load(uuid, name);
+            if (data != null) {
+                data.drainChangedSections();
+                return data;
+            }
+        } catch (IOException e) {
+            plugin.getPluginLogger().severe("Registro ilegible para " + uuid + " en " + storage.getName() + ": " + e.getMessage());
+        }
+        for (FilePlayerStorage legacy : legacyStorages) {
+            try {
+                PlayerData data = legacy.load(uuid, name);
+                if (data != null) {
+                    // Migración perezosa: el siguiente pase lo escribe en el backend activo y borra el fichero suelto.
+                    data.drainChangedSections();
+                    legacyMigrations.add(uuid);
+                    pendingSections.put(uuid, PlayerData.SECTION_ALL);
+                    saveQueue.markDirty(uuid);
+                    return data;
+                }
+            } catch (IOException e) {
+                plugin.getPluginLogger().severe("Registro " + legacy.getName() + " corrupto para " + uuid + ": " + e.getMessage());
+            }
+        }
+        return new PlayerData(uuid, name);
+    }
+
+    /**
+     * Lee un registro del backend o de los ficheros sueltos sin efectos
+     * secundarios: no lo admite en caché ni programa su migración.
+     */
+    private PlayerData readStored(UUID uuid) {
+        try {
+            PlayerData data = storage.load(uuid, "");
+            if (data != null) {
+                return data;
+            }
+            for (FilePlayerStorage legacy : legacyStorages) {
+                data = legacy.load(uuid, "");
+                if (data != null) {
+                    return data;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            plugin.getPluginLogger().warning("Registro ilegible para " + uuid + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    private void deleteLegacy(UUID uuid) {
+        for (FilePlayerStorage legacy : legacyStorages) {
+            try {
+                legacy.delete(uuid);
+            } catch (IOException e) {
+                plugin.getPluginLogger().warning("No se pudo eliminar el fichero " + legacy.getName() + " migrado de " + uuid);
+            }
+        }
     }
 
-    private File getFile(UUID uuid) {
+    File getUserDataFolder() {
         File dir = new File(plugin.getDataFolder(), "userdata");
         if (!dir.exists()) {
             dir.mkdirs();
         }
-        return new File(dir, uuid + ".yml");
+        return dir;
     }
 }
@@ -0,0 +1,50 @@
+package com.vendraly.core.database.storage;
+
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerDataCodec;
+import com.vendraly.core.database.PlayerSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+
+/**
+ * Un fichero {@code .dat} de {@link PlayerDataCodec} por jugador. Un registro
+ * ilegible se renombra a {@code .dat.corrupt} para no sobrescribirlo.
+ */
+public class BinaryFilePlayerStorage extends FilePlayerStorage {
+
+    public static final String EXTENSION = ".dat";
+
+    private final boolean compress;
+
+    public BinaryFilePlayerStorage(File directory, boolean compress) {
+        super(directory, EXTENSION);
+        this.compress = compress;
+    }
+
+    @Override
+    public String getName() {
+        return "binary";
+    }
+
+    @Override
+    public PlayerData load(UUID uuid, String fallbackName) throws IOException {
+        File file = getFile(uuid);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return PlayerDataCodec.decode(Files.readAllBytes(file.toPath()));
+        } catch (IOException e) {
+            file.renameTo(new File(file.getParentFile(), file.getName() + ".corrupt"));
+            throw e;
+        }
+    }
+
+    @Override
+    public void save(PlayerSnapshot data) throws IOException {
+        writeAtomically(data.getUuid(), PlayerDataCodec.encode(data, compress));
+    }
+}
@@ -0,0 +1,132 @@
+package com.vendraly.core.database.storage;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool mínimo de conexiones JDBC. Crea conexiones bajo demanda hasta
+ * {@code size}, reutiliza las devueltas y descarta las que dejan de ser válidas.
+ */
+public class ConnectionPool implements Closeable {
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final int size;
+    private final long timeoutMillis;
+    private final BlockingQueue<Connection> idle;
+    private final AtomicInteger open = new AtomicInteger();
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionFactory factory, int size, long timeoutMillis) {
+        this.factory = factory;
+        this.size = Math.max(1, size);
+        this.timeoutMillis = timeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(this.size);
+    }
+
+    /**
+     * Ejecuta {@code work} con una conexión prestada y la devuelve al terminar.
+     */
+    public <T> T execute(SqlWork<T> work) throws SQLException {
+        Connection connection = borrow();
+        try {
+            return work.run(connection);
+        } finally {
+            release(connection);
+        }
+    }
+
+    public Connection borrow() throws SQLException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            if (closed) {
+                throw new SQLException("Pool de conexiones cerrado");
+            }
+            Connection connection = idle.poll();
+            if (connection == null) {
+                connection = tryCreate();
+            }
+            if (connection == null) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0L) {
+                    throw new SQLException("Sin conexiones libres tras " + timeoutMillis + " ms");
+                }
+                try {
+                    connection = idle.poll(wait, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrumpido esperando una conexión", e);
+                }
+                if (connection == null) {
+                    continue;
+                }
+            }
+            if (connection.isValid(1)) {
+                return connection;
+            }
+            discard(connection);
+        }
+    }
+
+    public void release(Connection connection) {
+        try {
+            if (!closed && !connection.getAutoCommit()) {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(connection);
+            return;
+        }
+        if (closed || !idle.offer(connection)) {
+            discard(connection);
+        }
+    }
+
+    public int getOpenConnections() {
+        return open.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            discard(connection);
+        }
+    }
+
+    private Connection tryCreate() throws SQLException {
+        if (open.incrementAndGet() > size) {
+            open.decrementAndGet();
+            return null;
+        }
+        try {
+            return factory.create();
+        } catch (SQLException e) {
+            open.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void discard(Connection connection) {
+        open.decrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.vendraly.core.database.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Base de los backends que guardan un fichero por jugador en
+ * {@code userdata/<uuid><extensión>}. Las escrituras van a un temporal que se
+ * sincroniza y se renombra de forma atómica, así una caída nunca deja el
+ * registro truncado.
+ */
+public abstract class FilePlayerStorage implements PlayerStorage {
+
+    private final File directory;
+    private final String extension;
+
+    protected FilePlayerStorage(File directory, String extension) {
+        this.directory = directory;
+        this.extension = extension;
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear " + directory);
+        }
+    }
+
+    public boolean exists(UUID uuid) {
+        return getFile(uuid).exists();
+    }
+
+    /**
+     * Recorre los ficheros de jugadores del directorio sin cargarlos todos en
+     * memoria. Hay que cerrar el stream.
+     */
+    public DirectoryStream<Path> streamFiles() throws IOException {
+        return Files.newDirectoryStream(directory.toPath(), "*" + extension);
+    }
+
+    @Override
+    public Collection<UUID> listPlayers() throws IOException {
+        List<UUID> players = new ArrayList<>();
+        if (!directory.isDirectory()) {
+            return players;
+        }
+        try (DirectoryStream<Path> files = streamFiles()) {
+            for (Path file : files) {
+                UUID uuid = parseUuid(file);
+                if (uuid != null) {
+                    players.add(uuid);
+                }
+            }
+        }
+        return players;
+    }
+
+    /**
+     * UUID del jugador de un fichero de {@link #streamFiles()}, o {@code null}
+     * si el nombre no corresponde a ninguno.
+     */
+    public UUID parseUuid(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(extension)) {
+            return null;
+        }
+        try {
+            return UUID.fromString(name.substring(0, name.length() - extension.length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Borra el fichero del jugador, normalmente tras migrarlo a otro backend.
+     */
+    public void delete(UUID uuid) throws IOException {
+        Files.deleteIfExists(getFile(uuid).toPath());
+    }
+
+    @Override
+    public void close() {
+    }
+
+    protected void writeAtomically(UUID uuid, byte[] bytes) throws IOException {
+        File target = getFile(uuid);
+        File temp = new File(directory, target.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    protected File getFile(UUID uuid) {
+        return new File(directory, uuid + extension);
+    }
+}
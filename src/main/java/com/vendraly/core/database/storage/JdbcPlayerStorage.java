@@ -0,0 +1,356 @@
+package com.vendraly.core.database.storage;
+
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerSnapshot;
+import com.vendraly.core.jobs.JobProgress;
+import com.vendraly.core.roles.Role;
+import com.vendraly.core.rpg.stats.RPGStats;
+import com.vendraly.core.rpg.stats.StatType;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Backend SQL embebido (SQLite por defecto, H2 si se indica su URL). Los datos
+ * básicos van en {@code players} y las estadísticas y oficios en las tablas
+ * normalizadas {@code player_stats} y {@code player_jobs}. {@link #saveAll}
+ * agrupa todas las sentencias de un lote en una sola transacción y solo
+ * reescribe las tablas hijas cuyas secciones cambiaron. Los saldos se guardan
+ * en céntimos ({@code BIGINT}); una tabla de un esquema anterior, con saldos
+ * {@code DOUBLE}, se migra al abrir.
+ */
+public class JdbcPlayerStorage implements PlayerStorage {
+
+    private static final String PLAYERS_TABLE =
+            "CREATE TABLE IF NOT EXISTS players ("
+                    + "uuid VARCHAR(36) NOT NULL PRIMARY KEY, name VARCHAR(32), password VARCHAR(128), role VARCHAR(32) NOT NULL, "
+                    + "bank_minor BIGINT NOT NULL, cash_minor BIGINT NOT NULL, clan VARCHAR(64), rpg_level INT NOT NULL, "
+                    + "rpg_experience BIGINT NOT NULL, unspent_points INT NOT NULL, banned BOOLEAN NOT NULL)";
+    private static final String LEGACY_PLAYERS = "players_legacy";
+    private static final String[] SCHEMA = {
+            PLAYERS_TABLE,
+            "CREATE TABLE IF NOT EXISTS player_stats ("
+                    + "uuid VARCHAR(36) NOT NULL, stat VARCHAR(32) NOT NULL, stat_value DOUBLE NOT NULL, PRIMARY KEY (uuid, stat))",
+            "CREATE TABLE IF NOT EXISTS player_jobs ("
+                    + "uuid VARCHAR(36) NOT NULL, job VARCHAR(64) NOT NULL, experience BIGINT NOT NULL, job_level INT NOT NULL, "
+                    + "PRIMARY KEY (uuid, job))"
+    };
+    private static final String PLAYER_COLUMNS =
+            "uuid, name, password, role, bank_minor, cash_minor, clan, rpg_level, rpg_experience, unspent_points, banned";
+    private static final String UPSERT_PLAYER =
+            "INSERT INTO players (" + PLAYER_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+                    + "ON CONFLICT (uuid) DO UPDATE SET name = excluded.name, password = excluded.password, "
+                    + "role = excluded.role, bank_minor = excluded.bank_minor, cash_minor = excluded.cash_minor, clan = excluded.clan, "
+                    + "rpg_level = excluded.rpg_level, rpg_experience = excluded.rpg_experience, "
+                    + "unspent_points = excluded.unspent_points, banned = excluded.banned";
+    private static final String MERGE_PLAYER =
+            "MERGE INTO players (" + PLAYER_COLUMNS + ") KEY (uuid) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int poolSize;
+    private final boolean h2;
+    private ConnectionPool pool;
+
+    public JdbcPlayerStorage(String url, String user, String password, int poolSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.poolSize = poolSize;
+        this.h2 = url.startsWith("jdbc:h2:");
+    }
+
+    @Override
+    public String getName() {
+        return h2 ? "h2" : "sql";
+    }
+
+    @Override
+    public void open() throws IOException {
+        pool = new ConnectionPool(this::connect, poolSize, 5000L);
+        try {
+            pool.execute(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    for (String ddl : SCHEMA) {
+                        statement.execute(ddl);
+                    }
+                }
+                migrateBalances(connection);
+                return null;
+            });
+        } catch (SQLException e) {
+            pool.close();
+            throw new IOException("No se pudo preparar el esquema SQL: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public PlayerData load(UUID uuid, String fallbackName) throws IOException {
+        String key = uuid.toString();
+        try {
+            return pool.execute(connection -> {
+                PlayerData data;
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT " + PLAYER_COLUMNS + " FROM players WHERE uuid = ?")) {
+                    statement.setString(1, key);
+                    try (ResultSet row = statement.executeQuery()) {
+                        if (!row.next()) {
+                            return null;
+                        }
+                        String name = row.getString("name");
+                        data = new PlayerData(uuid, name == null ? fallbackName : name);
+                        data.setPasswordHash(row.getString("password"));
+                        data.setRole(parseRole(row.getString("role")));
+                        data.getBank().set(Math.max(0L, row.getLong("bank_minor")));
+                        data.getCash().set(Math.max(0L, row.getLong("cash_minor")));
+                        data.setClanId(row.getString("clan"));
+                        data.setRpgLevel(row.getInt("rpg_level"));
+                        data.setRpgExperience(row.getLong("rpg_experience"));
+                        data.setUnspentPoints(row.getInt("unspent_points"));
+                        data.setBanned(row.getBoolean("banned"));
+                    }
+                }
+                RPGStats stats = data.getStats();
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT stat, stat_value FROM player_stats WHERE uuid = ?")) {
+                    statement.setString(1, key);
+                    try (ResultSet row = statement.executeQuery()) {
+                        while (row.next()) {
+                            StatType type = parseStat(row.getString("stat"));
+                            if (type != null) {
+                                stats.setStat(type, row.getDouble("stat_value"));
+                            }
+                        }
+                    }
+                }
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT job, experience, job_level FROM player_jobs WHERE uuid = ?")) {
+                    statement.setString(1, key);
+                    try (ResultSet row = statement.executeQuery()) {
+                        while (row.next()) {
+                            JobProgress progress = data.getOrCreateJob(row.getString("job"));
+                            progress.addExperience(row.getLong("experience"));
+                            progress.setLevel(row.getInt("job_level"));
+                        }
+                    }
+                }
+                return data;
+            });
+        } catch (SQLException e) {
+            throw new IOException("Error SQL cargando " + uuid + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Collection<UUID> listPlayers() throws IOException {
+        try {
+            return pool.execute(connection -> {
+                List<UUID> players = new ArrayList<>();
+                try (PreparedStatement statement = connection.prepareStatement("SELECT uuid FROM players");
+                     ResultSet row = statement.executeQuery()) {
+                    while (row.next()) {
+                        players.add(UUID.fromString(row.getString("uuid")));
+                    }
+                }
+                return players;
+            });
+        } catch (SQLException e) {
+            throw new IOException("Error SQL listando jugadores: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void save(PlayerSnapshot data) throws IOException {
+        saveAll(List.of(new PlayerWrite(data, PlayerData.SECTION_ALL)));
+    }
+
+    @Override
+    public void saveChanges(PlayerSnapshot data, int sections) throws IOException {
+        saveAll(List.of(new PlayerWrite(data, sections)));
+    }
+
+    @Override
+    public void saveAll(Collection<PlayerWrite> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            pool.execute(connection -> {
+                connection.setAutoCommit(false);
+                try (PreparedStatement players = connection.prepareStatement(h2 ? MERGE_PLAYER : UPSERT_PLAYER);
+                     PreparedStatement deleteStats = connection.prepareStatement("DELETE FROM player_stats WHERE uuid = ?");
+                     PreparedStatement insertStats = connection.prepareStatement(
+                             "INSERT INTO player_stats (uuid, stat, stat_value) VALUES (?, ?, ?)");
+                     PreparedStatement deleteJobs = connection.prepareStatement("DELETE FROM player_jobs WHERE uuid = ?");
+                     PreparedStatement insertJobs = connection.prepareStatement(
+                             "INSERT INTO player_jobs (uuid, job, experience, job_level) VALUES (?, ?, ?, ?)")) {
+                    for (PlayerWrite write : batch) {
+                        // La fila principal es pequeña y se escribe siempre para que exista antes que sus hijas.
+                        PlayerSnapshot data = write.data();
+                        String key = data.getUuid().toString();
+                        players.setString(1, key);
+                        players.setString(2, data.getName());
+                        players.setString(3, data.getPasswordHash());
+                        players.setString(4, data.getRole().name());
+                        players.setLong(5, data.getBankMinor());
+                        players.setLong(6, data.getCashMinor());
+                        players.setString(7, data.getClanId());
+                        players.setInt(8, data.getRpgLevel());
+                        players.setLong(9, data.getRpgExperience());
+                        players.setInt(10, data.getUnspentPoints());
+                        players.setBoolean(11, data.isBanned());
+                        players.addBatch();
+
+                        if (write.touches(PlayerData.SECTION_STATS)) {
+                            deleteStats.setString(1, key);
+                            deleteStats.addBatch();
+                            for (StatType type : StatType.values()) {
+                                insertStats.setString(1, key);
+                                insertStats.setString(2, type.name());
+                                insertStats.setDouble(3, data.getStat(type));
+                                insertStats.addBatch();
+                            }
+                        }
+
+                        if (write.touches(PlayerData.SECTION_JOBS)) {
+                            deleteJobs.setString(1, key);
+                            deleteJobs.addBatch();
+                            for (PlayerSnapshot.JobSnapshot job : data.getJobs().values()) {
+                                insertJobs.setString(1, key);
+                                insertJobs.setString(2, job.jobId());
+                                insertJobs.setLong(3, job.experience());
+                                insertJobs.setInt(4, job.level());
+                                insertJobs.addBatch();
+                            }
+                        }
+                    }
+                    players.executeBatch();
+                    deleteStats.executeBatch();
+                    insertStats.executeBatch();
+                    deleteJobs.executeBatch();
+                    insertJobs.executeBatch();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new IOException("Error SQL guardando " + batch.size() + " jugadores: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    public int getOpenConnections() {
+        return pool == null ? 0 : pool.getOpenConnections();
+    }
+
+    private Connection connect() throws SQLException {
+        Connection connection = user == null || user.isEmpty()
+                ? DriverManager.getConnection(url)
+                : DriverManager.getConnection(url, user, password);
+        if (url.startsWith("jdbc:sqlite:")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=FULL");
+                statement.execute("PRAGMA busy_timeout=5000");
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Pasa los saldos {@code DOUBLE} de un esquema anterior a céntimos. SQLite
+     * no cambia el tipo de una columna, así que la tabla vieja se renombra y
+     * sus filas se copian redondeadas a la nueva; si una migración se corta,
+     * la tabla renombrada sigue ahí y la copia se repite al abrir.
+     */
+    private static void migrateBalances(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (!hasColumn(connection, "players", "bank_minor")) {
+                statement.execute("ALTER TABLE players RENAME TO " + LEGACY_PLAYERS);
+                statement.execute(PLAYERS_TABLE);
+            }
+            if (!hasTable(connection, LEGACY_PLAYERS)) {
+                return;
+            }
+            connection.setAutoCommit(false);
+            try {
+                statement.execute("DELETE FROM players");
+                statement.executeUpdate("INSERT INTO players (" + PLAYER_COLUMNS + ") "
+                        + "SELECT uuid, name, password, role, CAST(ROUND(bank * 100) AS BIGINT), "
+                        + "CAST(ROUND(cash * 100) AS BIGINT), clan, rpg_level, rpg_experience, unspent_points, banned "
+                        + "FROM " + LEGACY_PLAYERS);
+                statement.execute("DROP TABLE " + LEGACY_PLAYERS);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static boolean hasTable(Connection connection, String table) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        // H2 guarda en mayúsculas los nombres sin comillas; SQLite los deja tal cual.
+        for (String name : new String[]{table, table.toUpperCase(Locale.ROOT)}) {
+            try (ResultSet tables = meta.getTables(null, null, name, null)) {
+                if (tables.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        for (String name : new String[]{table, table.toUpperCase(Locale.ROOT)}) {
+            try (ResultSet columns = meta.getColumns(null, null, name, null)) {
+                while (columns.next()) {
+                    if (column.equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Role parseRole(String name) {
+        try {
+            return Role.valueOf(name);
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            return Role.CIVILIAN;
+        }
+    }
+
+    private static StatType parseStat(String name) {
+        try {
+            return StatType.valueOf(name);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
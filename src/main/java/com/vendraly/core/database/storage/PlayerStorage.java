@@ -0,0 +1,63 @@
+package com.vendraly.core.database.storage;
+
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerSnapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Backend de persistencia de {@link PlayerData}. {@code UserDataManager} solo
+ * habla con esta interfaz; el backend concreto se elige con
+ * {@code storage.format}. Las implementaciones deben ser seguras para hilos:
+ * el pase de escritura diferida corre fuera del hilo principal.
+ */
+public interface PlayerStorage extends Closeable {
+
+    /**
+     * Nombre corto del backend para registros y {@code /storage}.
+     */
+    String getName();
+
+    void open() throws IOException;
+
+    /**
+     * @param fallbackName nombre a usar si el registro no guarda uno
+     * @return datos guardados o {@code null} si el jugador no existe
+     */
+    PlayerData load(UUID uuid, String fallbackName) throws IOException;
+
+    /**
+     * UUID de todos los jugadores guardados. Puede ser costoso: pensado para
+     * reconstrucciones y operaciones masivas fuera del hilo principal.
+     */
+    Collection<UUID> listPlayers() throws IOException;
+
+    /**
+     * Guarda el registro completo del jugador.
+     */
+    void save(PlayerSnapshot data) throws IOException;
+
+    /**
+     * Guarda solo las secciones indicadas. Los backends que reescriben el
+     * registro entero ignoran la máscara.
+     */
+    default void saveChanges(PlayerSnapshot data, int sections) throws IOException {
+        save(data);
+    }
+
+    /**
+     * Guarda un lote de jugadores. Los backends que lo permitan deben hacerlo
+     * en una única transacción.
+     */
+    default void saveAll(Collection<PlayerWrite> batch) throws IOException {
+        for (PlayerWrite write : batch) {
+            saveChanges(write.data(), write.sections());
+        }
+    }
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,19 @@
+package com.vendraly.core.database.storage;
+
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerSnapshot;
+
+/**
+ * Escritura pendiente de un jugador: la vista publicada y las secciones
+ * ({@code PlayerData.SECTION_*}) modificadas desde su último guardado.
+ */
+public record PlayerWrite(PlayerSnapshot data, int sections) {
+
+    public boolean isFull() {
+        return (sections & PlayerData.SECTION_ALL) == PlayerData.SECTION_ALL;
+    }
+
+    public boolean touches(int section) {
+        return (sections & section) != 0;
+    }
+}
@@ -0,0 +1,91 @@
+package com.vendraly.core.database.storage;
+
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerDataCodec;
+import com.vendraly.core.database.PlayerSnapshot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Registros de {@link PlayerDataCodec} añadidos a un {@link SegmentStore}.
+ * Los guardados parciales se escriben como deltas encadenados; cada
+ * {@code checkpointEvery} deltas, o si el jugador aún no tiene registro, se
+ * escribe de nuevo el registro completo.
+ */
+public class SegmentPlayerStorage implements PlayerStorage {
+
+    private final SegmentStore store;
+    private final boolean compress;
+    private final int checkpointEvery;
+
+    public SegmentPlayerStorage(SegmentStore store, boolean compress, int checkpointEvery) {
+        this.store = store;
+        this.compress = compress;
+        this.checkpointEvery = Math.max(0, checkpointEvery);
+    }
+
+    @Override
+    public String getName() {
+        return "segment";
+    }
+
+    @Override
+    public void open() throws IOException {
+        store.open();
+    }
+
+    @Override
+    public PlayerData load(UUID uuid, String fallbackName) throws IOException {
+        List<byte[]> chain = store.read(uuid);
+        if (chain == null) {
+            return null;
+        }
+        PlayerData data = PlayerDataCodec.decode(chain.get(0));
+        for (int i = 1; i < chain.size(); i++) {
+            PlayerDataCodec.apply(data, chain.get(i));
+        }
+        return data;
+    }
+
+    @Override
+    public Collection<UUID> listPlayers() {
+        return new ArrayList<>(store.keys());
+    }
+
+    @Override
+    public void save(PlayerSnapshot data) throws IOException {
+        store.write(data.getUuid(), PlayerDataCodec.encode(data, compress));
+    }
+
+    @Override
+    public void saveChanges(PlayerSnapshot data, int sections) throws IOException {
+        UUID uuid = data.getUuid();
+        boolean full = (sections & PlayerData.SECTION_ALL) == PlayerData.SECTION_ALL;
+        if (full || !store.contains(uuid) || store.getDeltaCount(uuid) >= checkpointEvery) {
+            save(data);
+        } else if (sections != 0) {
+            store.writeDelta(uuid, PlayerDataCodec.encodeDelta(data, sections));
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<PlayerWrite> batch) throws IOException {
+        for (PlayerWrite write : batch) {
+            saveChanges(write.data(), write.sections());
+        }
+        store.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+    public SegmentStore getStore() {
+        return store;
+    }
+}
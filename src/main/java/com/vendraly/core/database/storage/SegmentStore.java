@@ -0,0 +1,630 @@
+package com.vendraly.core.database.storage;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Almacén log-structured de registros de jugador. Cada escritura se añade al
+ * final del segmento activo y un índice en memoria {@code UUID → cadena}
+ * resuelve las lecturas con lecturas posicionadas. Una cadena es el último
+ * registro completo seguido de los deltas escritos después; quien escribe
+ * decide cuándo volver a escribir un registro completo para acotarla. Los
+ * segmentos sellados guardan un fichero {@code .hint} con su índice para
+ * reconstruirlo al arrancar sin leer los registros, y la compactación reescribe
+ * los registros vivos de segmentos con mucho espacio muerto.
+ * <p>
+ * Registro: magia (completo o delta), longitud, secuencia, UUID, CRC32 y carga
+ * útil. La secuencia ordena los registros de un UUID repartidos entre
+ * segmentos.
+ */
+public class SegmentStore implements Closeable {
+
+    private static final int FILE_MAGIC = 0x56534547;
+    private static final int FILE_VERSION = 1;
+    private static final int FILE_HEADER = 8;
+    private static final int RECORD_MAGIC = 0x52454331;
+    private static final int DELTA_MAGIC = 0x44454C31;
+    private static final int RECORD_HEADER = 36;
+    private static final int HINT_MAGIC = 0x56484E32;
+    private static final int HINT_HEADER = 16;
+    private static final int HINT_ENTRY = 37;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String HINT_SUFFIX = ".hint";
+
+    /**
+     * Posición de un registro dentro de una cadena.
+     */
+    public record Location(int segment, long offset, int length, long sequence, boolean delta) {
+
+        long diskSize() {
+            return RECORD_HEADER + (long) length;
+        }
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final File file;
+        private final FileChannel channel;
+        private final AtomicLong liveBytes = new AtomicLong();
+        private volatile long size;
+
+        private Segment(int id, File file, FileChannel channel) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+
+    private final File directory;
+    private final Logger logger;
+    private final long maxSegmentBytes;
+    private final double compactionThreshold;
+    private final Map<UUID, List<Location>> index = new ConcurrentHashMap<>();
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Object writeLock = new Object();
+    private volatile Segment active;
+    private volatile long lastOpenMillis;
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong fullWrites = new AtomicLong();
+    private final AtomicLong deltaWrites = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    public SegmentStore(File directory, Logger logger, long maxSegmentBytes, double compactionThreshold) {
+        this.directory = directory;
+        this.logger = logger;
+        this.maxSegmentBytes = Math.max(1024L * 1024L, maxSegmentBytes);
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Abre los segmentos existentes y reconstruye el índice, usando los
+     * ficheros hint cuando cubren el segmento completo.
+     */
+    public void open() throws IOException {
+        long start = System.currentTimeMillis();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear " + directory);
+        }
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            files = new File[0];
+        }
+        Arrays.sort(files, Comparator.comparingInt(SegmentStore::parseId));
+        Map<UUID, List<Location>> found = new HashMap<>();
+        List<Segment> scannedSealed = new ArrayList<>();
+        int hinted = 0;
+        for (int i = 0; i < files.length; i++) {
+            boolean last = i == files.length - 1;
+            Segment segment = openSegment(parseId(files[i]), files[i]);
+            segments.put(segment.id, segment);
+            if (loadHint(segment, found)) {
+                hinted++;
+                continue;
+            }
+            scan(segment, last, found);
+            if (!last) {
+                scannedSealed.add(segment);
+            }
+        }
+        int orphans = 0;
+        for (Map.Entry<UUID, List<Location>> entry : found.entrySet()) {
+            List<Location> chain = resolveChain(entry.getValue());
+            if (chain == null) {
+                orphans++;
+                continue;
+            }
+            index.put(entry.getKey(), chain);
+            for (Location location : chain) {
+                Segment segment = segments.get(location.segment());
+                if (segment != null) {
+                    segment.liveBytes.addAndGet(location.diskSize());
+                }
+            }
+        }
+        if (orphans > 0) {
+            logger.warning(orphans + " jugadores solo tienen deltas sin registro completo en los segmentos; se ignoran");
+        }
+        for (Segment sealed : scannedSealed) {
+            writeHint(sealed);
+        }
+        synchronized (writeLock) {
+            if (files.length == 0) {
+                active = createSegment(1);
+            } else {
+                active = segments.get(parseId(files[files.length - 1]));
+            }
+        }
+        lastOpenMillis = System.currentTimeMillis() - start;
+        logger.info("Índice de segmentos reconstruido: " + index.size() + " jugadores en " + segments.size()
+                + " segmentos (" + hinted + " desde hint) en " + lastOpenMillis + " ms");
+    }
+
+    public boolean contains(UUID uuid) {
+        return index.containsKey(uuid);
+    }
+
+    public Set<UUID> keys() {
+        return index.keySet();
+    }
+
+    /**
+     * Cantidad de deltas encadenados tras el último registro completo.
+     */
+    public int getDeltaCount(UUID uuid) {
+        List<Location> chain = index.get(uuid);
+        return chain == null ? 0 : chain.size() - 1;
+    }
+
+    /**
+     * Lee la cadena vigente de un registro: primero el registro completo y
+     * después los deltas en orden de escritura.
+     *
+     * @return cargas útiles o {@code null} si el jugador no existe en el almacén
+     */
+    public List<byte[]> read(UUID uuid) throws IOException {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            List<Location> chain = index.get(uuid);
+            if (chain == null) {
+                return null;
+            }
+            try {
+                List<byte[]> payloads = new ArrayList<>(chain.size());
+                for (Location location : chain) {
+                    Segment segment = segments.get(location.segment());
+                    if (segment == null) {
+                        throw new ClosedChannelException();
+                    }
+                    payloads.add(readPayload(segment, location, uuid));
+                }
+                return payloads;
+            } catch (ClosedChannelException ignored) {
+                // Un segmento se compactó entre la consulta del índice y la lectura.
+            }
+        }
+        throw new IOException("Registro de " + uuid + " movido repetidamente durante la lectura");
+    }
+
+    /**
+     * Escribe un registro completo que sustituye a toda la cadena anterior.
+     */
+    public void write(UUID uuid, byte[] payload) throws IOException {
+        synchronized (writeLock) {
+            Location location = append(uuid, payload, sequence.incrementAndGet(), false);
+            List<Location> previous = index.put(uuid, List.of(location));
+            if (previous != null) {
+                previous.forEach(this::release);
+            }
+            fullWrites.incrementAndGet();
+        }
+    }
+
+    /**
+     * Añade un delta a la cadena del jugador, que ya debe tener un registro
+     * completo.
+     */
+    public void writeDelta(UUID uuid, byte[] payload) throws IOException {
+        synchronized (writeLock) {
+            List<Location> chain = index.get(uuid);
+            if (chain == null) {
+                throw new IOException("No hay registro completo de " + uuid + " al que añadir un delta");
+            }
+            Location location = append(uuid, payload, sequence.incrementAndGet(), true);
+            List<Location> extended = new ArrayList<>(chain.size() + 1);
+            extended.addAll(chain);
+            extended.add(location);
+            index.put(uuid, List.copyOf(extended));
+            deltaWrites.incrementAndGet();
+        }
+    }
+
+    /**
+     * Compacta los segmentos sellados cuya proporción de bytes vivos es menor
+     * que el umbral configurado.
+     *
+     * @return segmentos compactados
+     */
+    public int compact() {
+        int compacted = 0;
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment == active) {
+                continue;
+            }
+            long total = segment.size - FILE_HEADER;
+            if (total > 0 && (double) segment.liveBytes.get() / total >= compactionThreshold) {
+                continue;
+            }
+            try {
+                compactSegment(segment);
+                compacted++;
+            } catch (IOException e) {
+                logger.warning("No se pudo compactar " + segment.file.getName() + ": " + e.getMessage());
+            }
+        }
+        if (compacted > 0) {
+            compactions.addAndGet(compacted);
+        }
+        return compacted;
+    }
+
+    public void flush() throws IOException {
+        synchronized (writeLock) {
+            active.channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (active != null) {
+                active.channel.force(true);
+                writeHint(active);
+            }
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+            segments.clear();
+        }
+    }
+
+    public int getRecordCount() {
+        return index.size();
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getTotalBytes() {
+        long total = 0L;
+        for (Segment segment : segments.values()) {
+            total += segment.size;
+        }
+        return total;
+    }
+
+    public long getLiveBytes() {
+        long live = 0L;
+        for (Segment segment : segments.values()) {
+            live += segment.liveBytes.get();
+        }
+        return live;
+    }
+
+    public long getLastOpenMillis() {
+        return lastOpenMillis;
+    }
+
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    public long getFullWrites() {
+        return fullWrites.get();
+    }
+
+    public long getDeltaWrites() {
+        return deltaWrites.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    private void compactSegment(Segment segment) throws IOException {
+        for (Map.Entry<UUID, List<Location>> entry : index.entrySet()) {
+            for (Location location : entry.getValue()) {
+                if (location.segment() != segment.id) {
+                    continue;
+                }
+                byte[] payload = readPayload(segment, location, entry.getKey());
+                synchronized (writeLock) {
+                    List<Location> current = index.get(entry.getKey());
+                    int position = current == null ? -1 : current.indexOf(location);
+                    if (position < 0) {
+                        continue;
+                    }
+                    Location moved = append(entry.getKey(), payload, location.sequence(), location.delta());
+                    List<Location> updated = new ArrayList<>(current);
+                    updated.set(position, moved);
+                    index.put(entry.getKey(), List.copyOf(updated));
+                    release(location);
+                }
+            }
+        }
+        synchronized (writeLock) {
+            active.channel.force(false);
+            segments.remove(segment.id);
+        }
+        segment.channel.close();
+        Files.deleteIfExists(segment.file.toPath());
+        Files.deleteIfExists(hintFile(segment).toPath());
+    }
+
+    private Location append(UUID uuid, byte[] payload, long recordSequence, boolean delta) throws IOException {
+        long recordSize = RECORD_HEADER + (long) payload.length;
+        if (active.size > FILE_HEADER && active.size + recordSize > maxSegmentBytes) {
+            rotate();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) recordSize);
+        buffer.putInt(delta ? DELTA_MAGIC : RECORD_MAGIC)
+                .putInt(payload.length)
+                .putLong(recordSequence)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .putInt(checksum(payload.length, recordSequence, uuid, payload, delta))
+                .put(payload)
+                .flip();
+        long offset = active.size;
+        writeFully(active.channel, buffer, offset);
+        active.size = offset + recordSize;
+        active.liveBytes.addAndGet(recordSize);
+        bytesWritten.addAndGet(recordSize);
+        return new Location(active.id, offset, payload.length, recordSequence, delta);
+    }
+
+    private void release(Location previous) {
+        Segment segment = segments.get(previous.segment());
+        if (segment != null) {
+            segment.liveBytes.addAndGet(-previous.diskSize());
+        }
+    }
+
+    private void rotate() throws IOException {
+        Segment sealed = active;
+        sealed.channel.force(true);
+        writeHint(sealed);
+        active = createSegment(sealed.id + 1);
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        File file = new File(directory, String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(FILE_MAGIC).putInt(FILE_VERSION).flip();
+        writeFully(channel, header, 0L);
+        Segment segment = new Segment(id, file, channel);
+        segment.size = FILE_HEADER;
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Segment openSegment(int id, File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        if (channel.size() < FILE_HEADER) {
+            channel.truncate(0L);
+            writeFully(channel, header.putInt(FILE_MAGIC).putInt(FILE_VERSION).flip(), 0L);
+        } else {
+            readFully(channel, header, 0L);
+            header.flip();
+            if (header.getInt() != FILE_MAGIC) {
+                channel.close();
+                throw new IOException("Segmento inválido: " + file.getName());
+            }
+        }
+        Segment segment = new Segment(id, file, channel);
+        segment.size = channel.size();
+        return segment;
+    }
+
+    private void scan(Segment segment, boolean truncateTail, Map<UUID, List<Location>> found) throws IOException {
+        FileChannel channel = segment.channel;
+        long size = channel.size();
+        long position = FILE_HEADER;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        while (position + RECORD_HEADER <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            header.flip();
+            int magic = header.getInt();
+            int length = header.getInt();
+            long recordSequence = header.getLong();
+            UUID uuid = new UUID(header.getLong(), header.getLong());
+            int crc = header.getInt();
+            boolean delta = magic == DELTA_MAGIC;
+            if ((magic != RECORD_MAGIC && !delta) || length < 0 || position + RECORD_HEADER + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + RECORD_HEADER);
+            if (checksum(length, recordSequence, uuid, payload.array(), delta) != crc) {
+                break;
+            }
+            collect(found, uuid, new Location(segment.id, position, length, recordSequence, delta));
+            position += RECORD_HEADER + length;
+        }
+        if (position < size) {
+            if (truncateTail) {
+                logger.warning("Cola incompleta en " + segment.file.getName() + ": se descartan " + (size - position) + " bytes");
+                channel.truncate(position);
+                channel.force(true);
+            } else {
+                logger.warning("Registro corrupto en " + segment.file.getName() + " en la posición " + position
+                        + "; los registros posteriores se ignoran");
+            }
+        }
+        segment.size = position;
+    }
+
+    private void collect(Map<UUID, List<Location>> found, UUID uuid, Location location) {
+        sequence.accumulateAndGet(location.sequence(), Math::max);
+        found.computeIfAbsent(uuid, key -> new ArrayList<>()).add(location);
+    }
+
+    /**
+     * Se queda con el último registro completo y los deltas posteriores.
+     */
+    private static List<Location> resolveChain(List<Location> locations) {
+        locations.sort(Comparator.comparingLong(Location::sequence));
+        int base = -1;
+        for (int i = locations.size() - 1; i >= 0; i--) {
+            if (!locations.get(i).delta()) {
+                base = i;
+                break;
+            }
+        }
+        if (base < 0) {
+            return null;
+        }
+        List<Location> chain = new ArrayList<>();
+        long lastSequence = -1L;
+        for (Location location : locations.subList(base, locations.size())) {
+            // Tras una compactación interrumpida un registro puede aparecer dos veces con la misma secuencia.
+            if (location.sequence() != lastSequence) {
+                chain.add(location);
+                lastSequence = location.sequence();
+            }
+        }
+        return List.copyOf(chain);
+    }
+
+    private boolean loadHint(Segment segment, Map<UUID, List<Location>> found) {
+        File hint = hintFile(segment);
+        if (!hint.exists()) {
+            return false;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(hint.toPath()));
+            if (buffer.remaining() < HINT_HEADER + 4 || buffer.getInt() != HINT_MAGIC) {
+                return false;
+            }
+            long covered = buffer.getLong();
+            int count = buffer.getInt();
+            if (covered != segment.size || buffer.remaining() != (long) count * HINT_ENTRY + 4) {
+                return false;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, buffer.capacity() - 4);
+            if ((int) crc.getValue() != buffer.getInt(buffer.capacity() - 4)) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+                long offset = buffer.getLong();
+                int length = buffer.getInt();
+                long recordSequence = buffer.getLong();
+                boolean delta = buffer.get() != 0;
+                collect(found, uuid, new Location(segment.id, offset, length, recordSequence, delta));
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warning("Hint ilegible para " + segment.file.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void writeHint(Segment segment) throws IOException {
+        List<UUID> owners = new ArrayList<>();
+        List<Location> entries = new ArrayList<>();
+        for (Map.Entry<UUID, List<Location>> entry : index.entrySet()) {
+            for (Location location : entry.getValue()) {
+                if (location.segment() == segment.id) {
+                    owners.add(entry.getKey());
+                    entries.add(location);
+                }
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HINT_HEADER + entries.size() * HINT_ENTRY + 4);
+        buffer.putInt(HINT_MAGIC).putLong(segment.size).putInt(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Location location = entries.get(i);
+            buffer.putLong(owners.get(i).getMostSignificantBits())
+                    .putLong(owners.get(i).getLeastSignificantBits())
+                    .putLong(location.offset())
+                    .putInt(location.length())
+                    .putLong(location.sequence())
+                    .put((byte) (location.delta() ? 1 : 0));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        File hint = hintFile(segment);
+        File temp = new File(hint.getParentFile(), hint.getName() + ".tmp");
+        Files.write(temp.toPath(), buffer.array());
+        Files.move(temp.toPath(), hint.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private byte[] readPayload(Segment segment, Location location, UUID uuid) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) location.diskSize());
+        readFully(segment.channel, buffer, location.offset());
+        buffer.flip();
+        int expectedMagic = location.delta() ? DELTA_MAGIC : RECORD_MAGIC;
+        if (buffer.getInt() != expectedMagic || buffer.getInt() != location.length()) {
+            throw new IOException("Cabecera inesperada para " + uuid + " en " + segment.file.getName());
+        }
+        buffer.position(RECORD_HEADER - 4);
+        int crc = buffer.getInt();
+        byte[] payload = new byte[location.length()];
+        buffer.get(payload);
+        if (checksum(payload.length, location.sequence(), uuid, payload, location.delta()) != crc) {
+            throw new IOException("CRC inválido para " + uuid + " en " + segment.file.getName());
+        }
+        return payload;
+    }
+
+    private File hintFile(Segment segment) {
+        String name = segment.file.getName();
+        return new File(directory, name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + HINT_SUFFIX);
+    }
+
+    private static int checksum(int length, long recordSequence, UUID uuid, byte[] payload, boolean delta) {
+        ByteBuffer header = ByteBuffer.allocate(28)
+                .putInt(length)
+                .putLong(recordSequence)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits());
+        CRC32 crc = new CRC32();
+        crc.update(header.array());
+        if (delta) {
+            crc.update(1);
+        }
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static int parseId(File file) {
+        String name = file.getName();
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Fin de segmento inesperado");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.vendraly.core.database.storage;
+
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerDataCodec;
+import com.vendraly.core.database.PlayerSnapshot;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Migración masiva de ficheros sueltos ({@code .yml} o {@code .dat}) a otro
+ * {@link PlayerStorage}. El directorio se recorre en streaming y los ficheros
+ * se parsean en paralelo con el mismo mapeo de campos que la carga normal; cada
+ * lote se escribe con {@link PlayerStorage#saveAll} y se verifica releyéndolo
+ * del destino y comparando {@link PlayerDataCodec#checksum}. Los UUID
+ * verificados se añaden a un fichero de progreso, así una migración
+ * interrumpida se reanuda donde quedó.
+ */
+public class StorageMigration {
+
+    /**
+     * Resultado de una ejecución. {@code skipped} cuenta los ya migrados en una
+     * ejecución anterior y los excluidos por el filtro.
+     */
+    public record Report(long scanned, long migrated, long skipped, long failed, long mismatched, long millis) {
+
+        public boolean isComplete() {
+            return failed == 0 && mismatched == 0;
+        }
+    }
+
+    private final FilePlayerStorage source;
+    private final PlayerStorage target;
+    private final File progressFile;
+    private final Logger logger;
+    private final int threads;
+    private final int batchSize;
+    private final boolean deleteSource;
+    private final Predicate<UUID> exclude;
+    private final Consumer<PlayerSnapshot> onMigrated;
+
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong mismatched = new AtomicLong();
+
+    /**
+     * @param exclude    UUID que no deben tocarse, p. ej. los que ya están en
+     *                   caché con datos más recientes
+     * @param onMigrated se llama desde los hilos de migración con cada
+     *                   registro verificado
+     */
+    public StorageMigration(FilePlayerStorage source, PlayerStorage target, File progressFile, Logger logger,
+                            int threads, int batchSize, boolean deleteSource, Predicate<UUID> exclude,
+                            Consumer<PlayerSnapshot> onMigrated) {
+        this.source = source;
+        this.target = target;
+        this.progressFile = progressFile;
+        this.logger = logger;
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+        this.deleteSource = deleteSource;
+        this.exclude = exclude;
+        this.onMigrated = onMigrated;
+    }
+
+    public Report run() throws IOException {
+        long start = System.currentTimeMillis();
+        Set<UUID> done = readProgress();
+        if (!done.isEmpty()) {
+            logger.info("Reanudando migración " + source.getName() + " -> " + target.getName() + ": " + done.size() + " jugadores ya migrados");
+        }
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "VendralyCore-Migrate-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Limita los lotes en memoria mientras el recorrido del directorio va por delante de los hilos.
+        Semaphore slots = new Semaphore(threads * 2);
+        try (DirectoryStream<Path> files = source.streamFiles();
+             BufferedWriter progress = Files.newBufferedWriter(progressFile.toPath(), StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            List<UUID> batch = new ArrayList<>(batchSize);
+            for (Path file : files) {
+                UUID uuid = source.parseUuid(file);
+                if (uuid == null) {
+                    continue;
+                }
+                scanned.incrementAndGet();
+                if (done.contains(uuid) || exclude.test(uuid)) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                batch.add(uuid);
+                if (batch.size() >= batchSize) {
+                    submit(pool, slots, batch, progress);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(pool, slots, batch, progress);
+            }
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Migración interrumpida", e);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return new Report(scanned.get(), migrated.get(), skipped.get(), failed.get(), mismatched.get(),
+                System.currentTimeMillis() - start);
+    }
+
+    public long getScanned() {
+        return scanned.get();
+    }
+
+    public long getMigrated() {
+        return migrated.get();
+    }
+
+    private void submit(ExecutorService pool, Semaphore slots, List<UUID> batch, BufferedWriter progress) {
+        slots.acquireUninterruptibly();
+        pool.execute(() -> {
+            try {
+                migrateBatch(batch, progress);
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    private void migrateBatch(List<UUID> uuids, BufferedWriter progress) {
+        List<PlayerWrite> writes = new ArrayList<>(uuids.size());
+        Map<UUID, Long> checksums = new HashMap<>();
+        for (UUID uuid : uuids) {
+            try {
+                PlayerData data = source.load(uuid, uuid.toString());
+                if (data == null) {
+                    continue;
+                }
+                PlayerSnapshot snapshot = data.publishSnapshot();
+                writes.add(new PlayerWrite(snapshot, PlayerData.SECTION_ALL));
+                checksums.put(uuid, PlayerDataCodec.checksum(snapshot));
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                logger.warning("No se pudo leer " + uuid + " (" + source.getName() + "): " + e.getMessage());
+            }
+        }
+        // Un jugador puede haber entrado mientras se parseaba el lote; su copia en caché manda.
+        writes.removeIf(write -> {
+            boolean excluded = exclude.test(write.data().getUuid());
+            if (excluded) {
+                skipped.incrementAndGet();
+            }
+            return excluded;
+        });
+        if (writes.isEmpty()) {
+            return;
+        }
+        try {
+            target.saveAll(writes);
+        } catch (IOException e) {
+            failed.addAndGet(writes.size());
+            logger.severe("No se pudo escribir un lote de " + writes.size() + " jugadores en " + target.getName() + ": " + e.getMessage());
+            return;
+        }
+        List<UUID> verified = new ArrayList<>(writes.size());
+        for (PlayerWrite write : writes) {
+            UUID uuid = write.data().getUuid();
+            try {
+                PlayerData stored = target.load(uuid, "");
+                if (stored != null && PlayerDataCodec.checksum(stored.publishSnapshot()) == checksums.get(uuid)) {
+                    verified.add(uuid);
+                    onMigrated.accept(write.data());
+                    continue;
+                }
+            } catch (IOException e) {
+                logger.warning("No se pudo releer " + uuid + " de " + target.getName() + ": " + e.getMessage());
+            }
+            mismatched.incrementAndGet();
+        }
+        try {
+            synchronized (progress) {
+                for (UUID uuid : verified) {
+                    progress.write(uuid.toString());
+                    progress.newLine();
+                }
+                progress.flush();
+            }
+        } catch (IOException e) {
+            // Están escritos pero sin constar como migrados: una reanudación los repetirá.
+            logger.severe("No se pudo actualizar " + progressFile.getName() + ": " + e.getMessage());
+        }
+        migrated.addAndGet(verified.size());
+        if (deleteSource) {
+            for (UUID uuid : verified) {
+                try {
+                    source.delete(uuid);
+                } catch (IOException e) {
+                    logger.warning("No se pudo borrar el fichero migrado de " + uuid + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Set<UUID> readProgress() throws IOException {
+        Set<UUID> done = new HashSet<>();
+        if (!progressFile.isFile()) {
+            return done;
+        }
+        for (String line : Files.readAllLines(progressFile.toPath(), StandardCharsets.UTF_8)) {
+            try {
+                done.add(UUID.fromString(line.trim()));
+            } catch (IllegalArgumentException ignored) {
+                // Última línea a medias tras una interrupción.
+            }
+        }
+        return done;
+    }
+}
@@ -0,0 +1,471 @@
+package com.vendraly.core.database.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Journal de escritura anticipada para mutaciones de jugadores. Cada
+ * {@link #append} encola el cambio del jugador (un delta de
+ * {@code PlayerDataCodec}); un hilo propio los escribe por grupos y hace un
+ * único {@code fsync} por grupo, de modo que el coste de durabilidad se
+ * reparte entre todas las mutaciones de la ventana {@code syncIntervalMillis}.
+ * <p>
+ * Cuando el almacenamiento principal persiste a un jugador se añade una marca
+ * de confirmación con la secuencia cubierta. Al arrancar, {@link #open()}
+ * devuelve los registros de cada jugador posteriores a su confirmación. Los
+ * ficheros cuyas entradas están todas confirmadas se borran.
+ * <p>
+ * Si escribir un grupo falla, el fichero se recorta hasta donde empezaba el
+ * grupo (o, si ni eso es posible, se sigue en un fichero nuevo) y el grupo se
+ * reintenta: la lectura se detiene en el primer marco dañado de cada fichero,
+ * así que no puede quedar nada válido detrás de bytes a medias.
+ */
+public class WriteAheadJournal implements Closeable {
+
+    private static final int FRAME_MAGIC = 0x564A524E;
+    private static final int FRAME_HEADER = 37;
+    private static final byte TYPE_RECORD = 1;
+    private static final byte TYPE_COMMIT = 2;
+    private static final String FILE_PREFIX = "journal-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final long RETRY_MILLIS = 250L;
+
+    /**
+     * Registro sin confirmar de un jugador recuperado al arrancar.
+     */
+    public record Recovered(long sequence, byte[] payload) {
+    }
+
+    private record Frame(long sequence, ByteBuffer bytes) {
+    }
+
+    private record Pending(long first, long latest) {
+    }
+
+    private static final class JournalFile {
+        private final int id;
+        private final File file;
+        private volatile long maxSequence;
+
+        private JournalFile(int id, File file) {
+            this.id = id;
+            this.file = file;
+        }
+    }
+
+    private final File directory;
+    private final Logger logger;
+    private final long syncIntervalMillis;
+    private final long maxFileBytes;
+    private final BlockingQueue<Frame> queue = new LinkedBlockingQueue<>();
+    private final Map<UUID, Pending> pending = new ConcurrentHashMap<>();
+    private final Deque<JournalFile> files = new ArrayDeque<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Object appendLock = new Object();
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong syncedFrames = new AtomicLong();
+    private volatile long durableSequence;
+    private volatile long lastSyncMicros;
+
+    private JournalFile activeFile;
+    private FileChannel activeChannel;
+    private Thread writer;
+    private volatile boolean running;
+
+    public WriteAheadJournal(File directory, Logger logger, long syncIntervalMillis, long maxFileBytes) {
+        this.directory = directory;
+        this.logger = logger;
+        this.syncIntervalMillis = Math.max(0L, syncIntervalMillis);
+        this.maxFileBytes = Math.max(64L * 1024L, maxFileBytes);
+    }
+
+    /**
+     * Lee los ficheros existentes, arranca el hilo de escritura y devuelve los
+     * registros sin confirmar de cada jugador en orden de secuencia. Esos
+     * jugadores siguen pendientes hasta que se llame a {@link #commit} con su
+     * última secuencia.
+     */
+    public Map<UUID, List<Recovered>> open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear " + directory);
+        }
+        File[] existing = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (existing == null) {
+            existing = new File[0];
+        }
+        Arrays.sort(existing, Comparator.comparingInt(WriteAheadJournal::parseId));
+        Map<UUID, List<Recovered>> records = new HashMap<>();
+        Map<UUID, Long> commits = new HashMap<>();
+        int lastId = 0;
+        for (File file : existing) {
+            JournalFile journalFile = new JournalFile(parseId(file), file);
+            journalFile.maxSequence = scan(file, records, commits);
+            files.addLast(journalFile);
+            lastId = Math.max(lastId, journalFile.id);
+        }
+        for (Iterator<Map.Entry<UUID, List<Recovered>>> iterator = records.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<UUID, List<Recovered>> entry = iterator.next();
+            long committed = commits.getOrDefault(entry.getKey(), 0L);
+            List<Recovered> entries = entry.getValue();
+            entries.removeIf(recovered -> recovered.sequence() <= committed);
+            if (entries.isEmpty()) {
+                iterator.remove();
+                continue;
+            }
+            entries.sort(Comparator.comparingLong(Recovered::sequence));
+            pending.put(entry.getKey(), new Pending(entries.get(0).sequence(), entries.get(entries.size() - 1).sequence()));
+        }
+        durableSequence = sequence.get();
+        openNewFile(lastId + 1);
+        deleteObsolete();
+        running = true;
+        writer = new Thread(this::runWriter, "VendralyCore-Journal");
+        writer.setDaemon(true);
+        writer.start();
+        return records;
+    }
+
+    /**
+     * Encola el cambio de un jugador tras una mutación.
+     *
+     * @return secuencia asignada
+     */
+    public long append(UUID uuid, byte[] payload) {
+        synchronized (appendLock) {
+            long assigned = sequence.incrementAndGet();
+            pending.compute(uuid, (id, current) -> current == null
+                    ? new Pending(assigned, assigned)
+                    : new Pending(current.first(), assigned));
+            queue.add(new Frame(assigned, encodeFrame(TYPE_RECORD, assigned, uuid, payload)));
+            appended.incrementAndGet();
+            return assigned;
+        }
+    }
+
+    /**
+     * Secuencia más alta asignada hasta ahora. Capturarla antes de escribir un
+     * lote indica qué mutaciones cubre ese lote.
+     */
+    public long currentSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Marca como persistidas las mutaciones de {@code uuid} hasta
+     * {@code upToSequence} inclusive.
+     */
+    public void commit(UUID uuid, long upToSequence) {
+        boolean[] covered = {false};
+        pending.computeIfPresent(uuid, (id, current) -> {
+            if (current.first() > upToSequence) {
+                return current;
+            }
+            covered[0] = true;
+            return current.latest() <= upToSequence ? null : new Pending(upToSequence + 1, current.latest());
+        });
+        if (covered[0]) {
+            ByteBuffer marker = ByteBuffer.allocate(8).putLong(upToSequence);
+            synchronized (appendLock) {
+                long assigned = sequence.incrementAndGet();
+                queue.add(new Frame(assigned, encodeFrame(TYPE_COMMIT, assigned, uuid, marker.array())));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(10000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Frame> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (activeChannel != null) {
+            if (!remaining.isEmpty()) {
+                writeGroup(remaining);
+            }
+            activeChannel.force(true);
+            activeChannel.close();
+        }
+        if (pending.isEmpty()) {
+            for (JournalFile file : files) {
+                Files.deleteIfExists(file.file.toPath());
+            }
+            files.clear();
+        } else {
+            logger.warning("Journal cerrado con " + pending.size() + " jugadores sin confirmar; se recuperarán al arrancar");
+        }
+    }
+
+    public long getAppended() {
+        return appended.get();
+    }
+
+    public long getSyncs() {
+        return syncs.get();
+    }
+
+    public double getAverageGroupSize() {
+        long count = syncs.get();
+        return count == 0 ? 0.0 : (double) syncedFrames.get() / count;
+    }
+
+    public long getLastSyncMicros() {
+        return lastSyncMicros;
+    }
+
+    public long getUnsyncedFrames() {
+        return queue.size();
+    }
+
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    public int getPendingPlayers() {
+        return pending.size();
+    }
+
+    public synchronized int getFileCount() {
+        return files.size();
+    }
+
+    private void runWriter() {
+        List<Frame> group = new ArrayList<>();
+        while (running || !queue.isEmpty() || !group.isEmpty()) {
+            try {
+                if (group.isEmpty()) {
+                    Frame first = queue.poll(100L, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    group.add(first);
+                    if (syncIntervalMillis > 0L) {
+                        // Ventana de group commit: todo lo que llegue mientras tanto comparte el fsync.
+                        Thread.sleep(syncIntervalMillis);
+                    }
+                }
+                queue.drainTo(group);
+                writeGroup(group);
+                group.clear();
+                rotateIfNeeded();
+                deleteObsolete();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                if (!running) {
+                    logger.log(Level.SEVERE, "No se pudo escribir el journal de jugadores al cerrar; " + group.size()
+                            + " registros quedan solo en el guardado final", e);
+                    group.clear();
+                    continue;
+                }
+                logger.log(Level.SEVERE, "No se pudo escribir el journal de jugadores; se reintenta el grupo de "
+                        + group.size() + " registros", e);
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe el grupo y lo fuerza a disco. Si falla, deja el fichero como
+     * estaba antes del grupo para que se pueda reintentar.
+     */
+    private synchronized void writeGroup(List<Frame> group) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer[] buffers = new ByteBuffer[group.size()];
+        long highest = 0L;
+        for (int i = 0; i < group.size(); i++) {
+            // Una copia por intento: un reintento vuelve a escribir el marco entero.
+            buffers[i] = group.get(i).bytes().duplicate();
+            highest = Math.max(highest, group.get(i).sequence());
+        }
+        long offset = -1L;
+        try {
+            offset = activeChannel.size();
+            long remaining;
+            do {
+                activeChannel.write(buffers);
+                remaining = 0L;
+                for (ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
+                }
+            } while (remaining > 0L);
+            activeChannel.force(false);
+        } catch (IOException e) {
+            discardTail(offset, e);
+            throw e;
+        }
+        activeFile.maxSequence = Math.max(activeFile.maxSequence, highest);
+        durableSequence = Math.max(durableSequence, highest);
+        syncs.incrementAndGet();
+        syncedFrames.addAndGet(group.size());
+        lastSyncMicros = (System.nanoTime() - start) / 1000L;
+    }
+
+    /**
+     * Quita los bytes de un grupo fallido. Si no se puede recortar, el
+     * fichero se abandona (al leerlo se ignora su cola) y se abre otro.
+     */
+    private void discardTail(long offset, IOException cause) {
+        if (offset >= 0L) {
+            try {
+                activeChannel.truncate(offset);
+                activeChannel.force(true);
+                return;
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+        try {
+            activeChannel.close();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+        try {
+            openNewFile(activeFile.id + 1);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private synchronized void rotateIfNeeded() throws IOException {
+        if (activeChannel.size() < maxFileBytes) {
+            return;
+        }
+        activeChannel.force(true);
+        activeChannel.close();
+        openNewFile(activeFile.id + 1);
+    }
+
+    private synchronized void openNewFile(int id) throws IOException {
+        File file = new File(directory, String.format("%s%06d%s", FILE_PREFIX, id, FILE_SUFFIX));
+        activeChannel = openChannel(file);
+        activeFile = new JournalFile(id, file);
+        files.addLast(activeFile);
+    }
+
+    FileChannel openChannel(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private synchronized void deleteObsolete() {
+        long watermark = Long.MAX_VALUE;
+        for (Pending entry : pending.values()) {
+            watermark = Math.min(watermark, entry.first());
+        }
+        while (files.size() > 1 && files.peekFirst() != activeFile && files.peekFirst().maxSequence < watermark) {
+            JournalFile obsolete = files.pollFirst();
+            try {
+                Files.deleteIfExists(obsolete.file.toPath());
+            } catch (IOException e) {
+                logger.warning("No se pudo borrar " + obsolete.file.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private long scan(File file, Map<UUID, List<Recovered>> records, Map<UUID, Long> commits) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        long maxSequence = 0L;
+        while (buffer.remaining() >= FRAME_HEADER) {
+            int start = buffer.position();
+            int magic = buffer.getInt();
+            byte type = buffer.get();
+            int length = buffer.getInt();
+            long frameSequence = buffer.getLong();
+            UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+            int crc = buffer.getInt();
+            if (magic != FRAME_MAGIC || length < 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (checksum(type, frameSequence, uuid, payload) != crc) {
+                buffer.position(start);
+                break;
+            }
+            maxSequence = Math.max(maxSequence, frameSequence);
+            sequence.accumulateAndGet(frameSequence, Math::max);
+            if (type == TYPE_RECORD) {
+                records.computeIfAbsent(uuid, key -> new ArrayList<>()).add(new Recovered(frameSequence, payload));
+            } else if (type == TYPE_COMMIT) {
+                commits.merge(uuid, ByteBuffer.wrap(payload).getLong(), Math::max);
+            }
+        }
+        if (buffer.hasRemaining()) {
+            logger.warning("Journal " + file.getName() + " termina con " + buffer.remaining() + " bytes incompletos; se ignoran");
+        }
+        return maxSequence;
+    }
+
+    private static ByteBuffer encodeFrame(byte type, long frameSequence, UUID uuid, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(FRAME_HEADER + payload.length);
+        buffer.putInt(FRAME_MAGIC)
+                .put(type)
+                .putInt(payload.length)
+                .putLong(frameSequence)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .putInt(checksum(type, frameSequence, uuid, payload))
+                .put(payload)
+                .flip();
+        return buffer;
+    }
+
+    private static int checksum(byte type, long frameSequence, UUID uuid, byte[] payload) {
+        ByteBuffer header = ByteBuffer.allocate(25)
+                .put(type)
+                .putLong(frameSequence)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits());
+        CRC32 crc = new CRC32();
+        crc.update(header.array());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static int parseId(File file) {
+        String name = file.getName();
+        try {
+            return Integer.parseInt(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return Integer.MAX_VALUE;
+        }
+    }
+}
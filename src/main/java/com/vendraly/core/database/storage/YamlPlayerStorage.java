@@ -0,0 +1,97 @@
+package com.vendraly.core.database.storage;
+
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerSnapshot;
+import com.vendraly.core.jobs.JobProgress;
+import com.vendraly.core.roles.Role;
+import com.vendraly.core.rpg.stats.RPGStats;
+import com.vendraly.core.rpg.stats.StatType;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Formato original: un {@code .yml} legible por jugador.
+ */
+public class YamlPlayerStorage extends FilePlayerStorage {
+
+    public static final String EXTENSION = ".yml";
+
+    public YamlPlayerStorage(File directory) {
+        super(directory, EXTENSION);
+    }
+
+    @Override
+    public String getName() {
+        return "yaml";
+    }
+
+    @Override
+    public PlayerData load(UUID uuid, String fallbackName) {
+        File file = getFile(uuid);
+        if (!file.exists()) {
+            return null;
+        }
+        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
+        PlayerData data = new PlayerData(uuid, config.getString("name", fallbackName));
+        data.setPasswordHash(config.getString("password", ""));
+        data.setRole(Role.valueOf(config.getString("role", Role.CIVILIAN.name())));
+        data.setBankBalance(config.getDouble("bank", 0.0));
+        data.setCashBalance(config.getDouble("cash", 0.0));
+        data.setClanId(config.getString("clan"));
+        data.setRpgLevel(config.getInt("rpg.level", 1));
+        data.setRpgExperience(config.getLong("rpg.experience", 0L));
+        data.setUnspentPoints(config.getInt("rpg.unspent", 0));
+
+        RPGStats stats = data.getStats();
+        for (StatType type : StatType.values()) {
+            stats.setStat(type, config.getDouble("stats." + type.name().toLowerCase(), type.getBaseValue()));
+        }
+
+        if (config.isConfigurationSection("jobs")) {
+            for (String key : config.getConfigurationSection("jobs").getKeys(false)) {
+                JobProgress progress = data.getOrCreateJob(key);
+                progress.addExperience(config.getLong("jobs." + key + ".experience", 0L));
+                progress.setLevel(config.getInt("jobs." + key + ".level", 1));
+            }
+        }
+
+        data.setBanned(config.getBoolean("banned", false));
+        return data;
+    }
+
+    @Override
+    public void save(PlayerSnapshot data) throws IOException {
+        FileConfiguration config = new YamlConfiguration();
+        config.set("name", data.getName());
+        config.set("password", data.getPasswordHash());
+        config.set("role", data.getRole().name());
+        config.set("bank", data.getBankBalance());
+        config.set("cash", data.getCashBalance());
+        config.set("clan", data.getClanId());
+        config.set("rpg.level", data.getRpgLevel());
+        config.set("rpg.experience", data.getRpgExperience());
+        config.set("rpg.unspent", data.getUnspentPoints());
+        config.set("banned", data.isBanned());
+
+        for (StatType type : StatType.values()) {
+            config.set("stats." + type.name().toLowerCase(), data.getStat(type));
+        }
+
+        Map<String, Object> jobSection = new HashMap<>();
+        for (PlayerSnapshot.JobSnapshot job : data.getJobs().values()) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("experience", job.experience());
+            map.put("level", job.level());
+            jobSection.put(job.jobId(), map);
+        }
+        config.createSection("jobs", jobSection);
+        writeAtomically(data.getUuid(), config.saveToString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,152 @@
+package com.vendraly.core.economy;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Saldo en unidades mínimas ({@link Money}) actualizado por compare-and-set,
+ * seguro para llamadas concurrentes desde cualquier hilo. Las comprobaciones
+ * de desbordamiento y de saldo negativo viven solo aquí: ninguna operación deja
+ * el saldo por debajo de cero ni lo hace desbordar. Tras cada cambio se avisa
+ * al propietario (que marca la sección de saldos como modificada).
+ */
+public final class AtomicAccount {
+
+    /**
+     * Saldo antes y después de una operación aplicada.
+     */
+    public record Change(long before, long after) {
+        public long delta() {
+            return after - before;
+        }
+    }
+
+    private final AtomicLong balance = new AtomicLong();
+    private final Runnable onChange;
+
+    public AtomicAccount(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    public long get() {
+        return balance.get();
+    }
+
+    /**
+     * Suma {@code delta} solo si el resultado no es negativo ni desborda.
+     *
+     * @return el cambio aplicado, o {@code null} si se rechazó
+     */
+    public Change tryAdd(long delta) {
+        while (true) {
+            long current = balance.get();
+            long next = sum(current, delta);
+            if (next < 0L) {
+                return null;
+            }
+            if (balance.compareAndSet(current, next)) {
+                return changed(current, next);
+            }
+        }
+    }
+
+    /**
+     * Suma {@code delta} recortando en cero; se usa para cargos que deben
+     * aplicarse aunque no haya saldo suficiente.
+     *
+     * @return el cambio aplicado, o {@code null} si el abono desbordaría
+     */
+    public Change addClamped(long delta) {
+        return addComputed(current -> delta);
+    }
+
+    /**
+     * Suma el importe que {@code deltaOf} calcula a partir del saldo vigente
+     * (un interés, un impuesto), recalculándolo si otro hilo cambia el saldo
+     * entretanto. El resultado se recorta en cero.
+     *
+     * @return el cambio aplicado, o {@code null} si el abono desbordaría
+     */
+    public Change addComputed(LongUnaryOperator deltaOf) {
+        while (true) {
+            long current = balance.get();
+            long delta = deltaOf.applyAsLong(current);
+            long next = sum(current, delta);
+            if (next == Long.MIN_VALUE && delta > 0L) {
+                return null;
+            }
+            next = Math.max(0L, next);
+            if (balance.compareAndSet(current, next)) {
+                return changed(current, next);
+            }
+        }
+    }
+
+    /**
+     * Fija el saldo.
+     *
+     * @throws IllegalArgumentException si {@code value} es negativo
+     */
+    public Change set(long value) {
+        if (value < 0L) {
+            throw new IllegalArgumentException("Saldo negativo: " + value);
+        }
+        return changed(balance.getAndSet(value), value);
+    }
+
+    /**
+     * Mueve {@code amount} de una cuenta a otra: o se aplican ambos lados o
+     * ninguno. Primero se carga el origen (que no puede quedar en negativo) y
+     * luego se abona el destino; si el abono desbordase se devuelve el cargo.
+     * Entre los dos pasos el importe no está en ninguna cuenta, pero nunca se
+     * crea ni se pierde dinero.
+     *
+     * @return cambios de origen y destino, o {@code null} si se rechazó
+     */
+    public static Change[] transfer(AtomicAccount from, AtomicAccount to, long amount) {
+        if (amount <= 0L) {
+            throw new IllegalArgumentException("Importe de transferencia no positivo: " + amount);
+        }
+        Change debit = from.tryAdd(-amount);
+        if (debit == null) {
+            return null;
+        }
+        Change credit = to.tryAdd(amount);
+        if (credit == null) {
+            from.refund(amount);
+            return null;
+        }
+        return new Change[]{debit, credit};
+    }
+
+    private void refund(long amount) {
+        while (true) {
+            long current = balance.get();
+            long next = sum(current, amount);
+            if (balance.compareAndSet(current, next == Long.MIN_VALUE ? Long.MAX_VALUE : next)) {
+                onChange.run();
+                return;
+            }
+        }
+    }
+
+    private Change changed(long before, long after) {
+        if (before != after) {
+            onChange.run();
+        }
+        return new Change(before, after);
+    }
+
+    /**
+     * Suma con desbordamiento detectado; devuelve {@link Long#MIN_VALUE} si el
+     * resultado no cabe, valor que las operaciones tratan como rechazo (los
+     * saldos nunca son negativos).
+     */
+    private static long sum(long current, long delta) {
+        long result = current + delta;
+        if (((current ^ result) & (delta ^ result)) < 0L) {
+            return Long.MIN_VALUE;
+        }
+        return result;
+    }
+}
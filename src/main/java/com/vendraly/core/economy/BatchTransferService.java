@@ -0,0 +1,185 @@
+package com.vendraly.core.economy;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.UserDataManager;
+import com.vendraly.utils.TaskUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aplica un {@link EconomyBatch} como una sola operación:
+ * <ol>
+ *     <li>suma los movimientos de cada cuenta y carga en paralelo a los
+ *     jugadores que no estén en caché;</li>
+ *     <li>aplica primero los cargos netos y después los abonos sobre las
+ *     {@link AtomicAccount}; si alguno se rechaza (saldo insuficiente o
+ *     desbordamiento) deshace lo ya aplicado y el lote falla entero;</li>
+ *     <li>anota todos los movimientos en el ledger con un único id de
+ *     transacción y de una sola vez;</li>
+ *     <li>en el hilo principal guarda cada jugador una vez, pide un único
+ *     vaciado de la cola de guardado y envía a cada conectado un aviso con sus
+ *     totales.</li>
+ * </ol>
+ */
+public class BatchTransferService {
+
+    /**
+     * Resultado de un lote. Si no se aplicó, {@code failedPlayer} y
+     * {@code failedAccount} indican la cuenta que lo impidió.
+     */
+    public record Result(boolean applied, long transaction, int players, int legs, UUID failedPlayer,
+                         EconomyLedger.Account failedAccount) {
+    }
+
+    private record AccountKey(UUID player, EconomyLedger.Account account) {
+    }
+
+    private final VendralyCore plugin;
+    private final UserDataManager userDataManager;
+    private final EconomyLedger ledger;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong legsApplied = new AtomicLong();
+
+    public BatchTransferService(VendralyCore plugin, UserDataManager userDataManager, EconomyLedger ledger) {
+        this.plugin = plugin;
+        this.userDataManager = userDataManager;
+        this.ledger = ledger;
+    }
+
+    public CompletableFuture<Result> submit(EconomyBatch batch) {
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(new Result(true, 0L, 0, 0, null, null));
+        }
+        Map<AccountKey, Long> net = new LinkedHashMap<>();
+        for (EconomyBatch.Leg leg : batch.getLegs()) {
+            try {
+                net.merge(new AccountKey(leg.player(), leg.account()), leg.delta(), Math::addExact);
+            } catch (ArithmeticException e) {
+                rejected.incrementAndGet();
+                return CompletableFuture.completedFuture(new Result(false, 0L, 0, batch.size(), leg.player(), leg.account()));
+            }
+        }
+        Map<UUID, CompletableFuture<PlayerData>> loads = new LinkedHashMap<>();
+        for (AccountKey key : net.keySet()) {
+            loads.computeIfAbsent(key.player(), userDataManager::loadAsync);
+        }
+        return CompletableFuture.allOf(loads.values().toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            Map<UUID, PlayerData> players = new LinkedHashMap<>();
+            loads.forEach((uuid, future) -> players.put(uuid, future.join()));
+            return apply(batch, net, players);
+        });
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getLegsApplied() {
+        return legsApplied.get();
+    }
+
+    private Result apply(EconomyBatch batch, Map<AccountKey, Long> net, Map<UUID, PlayerData> players) {
+        Map<AccountKey, AtomicAccount.Change> applied = new LinkedHashMap<>();
+        // Cargos primero: si falta saldo en alguno no se ha abonado nada todavía.
+        for (int pass = 0; pass < 2; pass++) {
+            boolean debits = pass == 0;
+            for (Map.Entry<AccountKey, Long> entry : net.entrySet()) {
+                long delta = entry.getValue();
+                if (delta == 0L || (delta < 0L) != debits) {
+                    continue;
+                }
+                AccountKey key = entry.getKey();
+                AtomicAccount.Change change = key.account().of(players.get(key.player())).tryAdd(delta);
+                if (change == null) {
+                    rollback(applied, players);
+                    rejected.incrementAndGet();
+                    return new Result(false, 0L, players.size(), batch.size(), key.player(), key.account());
+                }
+                applied.put(key, change);
+            }
+        }
+        long transaction = ledger.nextTransaction();
+        ledger.recordAll(ledgerEntries(batch, transaction, applied));
+        batches.incrementAndGet();
+        legsApplied.addAndGet(batch.size());
+        Runnable finish = () -> {
+            userDataManager.saveBatch(players.values());
+            notify(batch.getLabel(), applied);
+        };
+        if (Bukkit.isPrimaryThread() || !plugin.isEnabled()) {
+            finish.run();
+        } else {
+            TaskUtil.runSync(plugin, finish);
+        }
+        return new Result(true, transaction, players.size(), batch.size(), null, null);
+    }
+
+    private void rollback(Map<AccountKey, AtomicAccount.Change> applied, Map<UUID, PlayerData> players) {
+        for (Map.Entry<AccountKey, AtomicAccount.Change> entry : applied.entrySet()) {
+            AccountKey key = entry.getKey();
+            AtomicAccount account = key.account().of(players.get(key.player()));
+            if (account.tryAdd(-entry.getValue().delta()) == null) {
+                account.addClamped(-entry.getValue().delta());
+            }
+        }
+    }
+
+    /**
+     * Un asiento por movimiento del lote con su motivo. Los saldos
+     * intermedios de una cuenta con varios movimientos se reconstruyen desde
+     * el saldo previo, de modo que la cadena del ledger sigue cuadrando.
+     */
+    private static List<EconomyLedger.Entry> ledgerEntries(EconomyBatch batch, long transaction,
+                                                           Map<AccountKey, AtomicAccount.Change> applied) {
+        Map<AccountKey, Long> running = new LinkedHashMap<>();
+        applied.forEach((key, change) -> running.put(key, change.before()));
+        long now = System.currentTimeMillis();
+        List<EconomyLedger.Entry> entries = new ArrayList<>(batch.size());
+        for (EconomyBatch.Leg leg : batch.getLegs()) {
+            AccountKey key = new AccountKey(leg.player(), leg.account());
+            Long before = running.get(key);
+            if (before == null) {
+                // Movimientos que se anulan entre sí: la cuenta no cambió y no hay nada que anotar.
+                continue;
+            }
+            long after = before + leg.delta();
+            running.put(key, after);
+            entries.add(new EconomyLedger.Entry(transaction, now, leg.player(), null, leg.account(), leg.delta(), after,
+                    leg.reason()));
+        }
+        return entries;
+    }
+
+    private void notify(String label, Map<AccountKey, AtomicAccount.Change> applied) {
+        Map<UUID, StringBuilder> messages = new LinkedHashMap<>();
+        for (Map.Entry<AccountKey, AtomicAccount.Change> entry : applied.entrySet()) {
+            long delta = entry.getValue().delta();
+            StringBuilder message = messages.computeIfAbsent(entry.getKey().player(), uuid -> new StringBuilder(label).append(":"));
+            if (message.charAt(message.length() - 1) != ':') {
+                message.append(",");
+            }
+            message.append(" ").append(delta > 0L ? "+" : "").append(Money.format(delta))
+                    .append(entry.getKey().account() == EconomyLedger.Account.BANK ? " en banco" : " en efectivo");
+        }
+        messages.forEach((uuid, message) -> {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player != null) {
+                player.sendMessage(message.toString());
+            }
+        });
+    }
+}
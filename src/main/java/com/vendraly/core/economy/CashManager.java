@@ -6,18 +6,24 @@ import com.vendraly.core.database.UserDataManager;
 import org.bukkit.entity.Player;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Maneja el dinero en mano (robable) sincronizado con acciones inmediatas.
+ * Los saldos son {@link AtomicAccount} en unidades mínimas, así que estos
+ * métodos pueden llamarse desde cualquier hilo. Todo cambio de saldo queda
+ * anotado en el {@link EconomyLedger} con su motivo.
  */
 public class CashManager {
 
     private final VendralyCore plugin;
     private final UserDataManager userDataManager;
+    private final EconomyLedger ledger;
 
-    public CashManager(VendralyCore plugin, UserDataManager userDataManager) {
+    public CashManager(VendralyCore plugin, UserDataManager userDataManager, EconomyLedger ledger) {
         this.plugin = plugin;
         this.userDataManager = userDataManager;
+        this.ledger = ledger;
     }
 
     public double getBalance(UUID uuid) {
@@ -26,35 +32,98 @@ public class CashManager {
     }
 
     public void give(Player player, double amount) {
-        modify(player.getUniqueId(), amount);
+        modify(player.getUniqueId(), amount, "give");
         player.sendMessage("Recibiste " + amount + " monedas en efectivo.");
     }
 
     public boolean take(Player player, double amount) {
-        if (getBalance(player.getUniqueId()) < amount) {
+        PlayerData data = userDataManager.getOrCreate(player.getUniqueId(), player.getName());
+        if (!withdraw(data, amount, "take")) {
             return false;
         }
-        modify(player.getUniqueId(), -amount);
+        userDataManager.save(data);
         player.sendMessage("Se dedujeron " + amount + " monedas de tu efectivo.");
         return true;
     }
 
     public boolean transferCash(Player sender, Player target, double amount) {
-        if (amount <= 0) {
+        return transfer(sender.getUniqueId(), target.getUniqueId(), amount, "pay");
+    }
+
+    /**
+     * Mueve efectivo entre dos jugadores como una sola transacción del
+     * ledger; falla sin tocar nada si el emisor no tiene bastante.
+     */
+    public boolean transfer(UUID sender, UUID target, double amount, String reason) {
+        long minor = Money.toMinor(amount);
+        if (minor <= 0L) {
             return false;
         }
-        if (getBalance(sender.getUniqueId()) < amount) {
+        PlayerData senderData = userDataManager.getOrCreate(sender, "Desconocido");
+        PlayerData targetData = userDataManager.getOrCreate(target, "Desconocido");
+        AtomicAccount.Change[] changes = AtomicAccount.transfer(senderData.getCash(), targetData.getCash(), minor);
+        if (changes == null) {
             return false;
         }
-        modify(sender.getUniqueId(), -amount);
-        modify(target.getUniqueId(), amount);
+        long transaction = ledger.nextTransaction();
+        ledger.record(transaction, sender, target, EconomyLedger.Account.CASH, changes[0], reason);
+        ledger.record(transaction, target, sender, EconomyLedger.Account.CASH, changes[1], reason);
+        userDataManager.save(senderData);
+        userDataManager.save(targetData);
         return true;
     }
 
-    public void modify(UUID uuid, double amount) {
+    public void modify(UUID uuid, double amount, String reason) {
         PlayerData data = userDataManager.getOrCreate(uuid, "Desconocido");
-        double newBalance = Math.max(0.0, data.getCashBalance() + amount);
-        data.setCashBalance(newBalance);
+        adjust(data, amount, reason);
         userDataManager.save(data);
     }
+
+    /**
+     * Ingresa {@code amount} a un jugador esté o no conectado, cargando sus
+     * datos sin bloquear a quien llama.
+     *
+     * @return el saldo en mano resultante
+     */
+    public CompletableFuture<Double> depositAsync(UUID uuid, double amount, String reason) {
+        return userDataManager.loadAsync(uuid).thenApply(data -> {
+            double balance = adjust(data, amount, reason);
+            userDataManager.save(data);
+            return balance;
+        });
+    }
+
+    /**
+     * Suma (o resta, si es negativo) sobre datos ya cargados sin bajar de
+     * cero; el guardado queda a cargo de quien llama.
+     */
+    public double adjust(PlayerData data, double amount, String reason) {
+        record(data, data.getCash().addClamped(Money.toMinor(amount)), reason);
+        return data.getCashBalance();
+    }
+
+    /**
+     * Resta {@code amount} solo si hay saldo suficiente; el guardado queda a
+     * cargo de quien llama.
+     */
+    public boolean withdraw(PlayerData data, double amount, String reason) {
+        AtomicAccount.Change change = data.getCash().tryAdd(-Money.toMinor(amount));
+        record(data, change, reason);
+        return change != null;
+    }
+
+    /**
+     * Fija el saldo sobre datos ya cargados; el guardado queda a cargo de
+     * quien llama.
+     */
+    public double setBalance(PlayerData data, double amount, String reason) {
+        record(data, data.getCash().set(Money.toMinor(Math.max(0.0, amount))), reason);
+        return data.getCashBalance();
+    }
+
+    private void record(PlayerData data, AtomicAccount.Change change, String reason) {
+        if (change != null) {
+            ledger.record(ledger.nextTransaction(), data.getUuid(), null, EconomyLedger.Account.CASH, change, reason);
+        }
+    }
 }
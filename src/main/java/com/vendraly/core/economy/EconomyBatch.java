@@ -0,0 +1,64 @@
+package com.vendraly.core.economy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Lote de movimientos de saldo (nóminas, premios, repartos) que
+ * {@link BatchTransferService} aplica de una vez: o entran todos o ninguno.
+ * Cada movimiento puede llevar su propio motivo para el ledger; si no, usa el
+ * del lote. {@code label} encabeza el aviso agregado que recibe cada jugador.
+ */
+public final class EconomyBatch {
+
+    public record Leg(UUID player, EconomyLedger.Account account, long delta, String reason) {
+    }
+
+    private final String reason;
+    private final String label;
+    private final List<Leg> legs = new ArrayList<>();
+
+    public EconomyBatch(String reason, String label) {
+        this.reason = reason;
+        this.label = label;
+    }
+
+    public EconomyBatch add(UUID player, EconomyLedger.Account account, double delta) {
+        return add(player, account, delta, reason);
+    }
+
+    /**
+     * Añade un movimiento; los importes que redondean a cero se ignoran.
+     *
+     * @throws IllegalArgumentException si el importe no es válido
+     */
+    public EconomyBatch add(UUID player, EconomyLedger.Account account, double delta, String legReason) {
+        long minor = Money.toMinor(delta);
+        if (minor != 0L) {
+            legs.add(new Leg(player, account, minor, legReason == null ? reason : legReason));
+        }
+        return this;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public List<Leg> getLegs() {
+        return Collections.unmodifiableList(legs);
+    }
+
+    public boolean isEmpty() {
+        return legs.isEmpty();
+    }
+
+    public int size() {
+        return legs.size();
+    }
+}
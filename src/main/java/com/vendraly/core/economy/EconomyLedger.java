@@ -0,0 +1,701 @@
+package com.vendraly.core.economy;
+
+import com.vendraly.core.database.PlayerData;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Registro de solo adición de todos los cambios de saldo: transacción,
+ * jugador, contraparte, cuenta, importe aplicado, saldo resultante y motivo.
+ * {@link #record} solo encola; un hilo propio escribe por grupos cada
+ * {@code flushIntervalMillis} con un único {@code fsync} por grupo. Los
+ * ficheros {@code ledger-NNNNNN.log} rotan al superar {@code maxFileBytes} y
+ * al cerrarse reciben un índice {@code .idx} ordenado por jugador, de modo que
+ * {@link #history} no recorre el registro entero.
+ * <p>
+ * Los marcos actuales guardan importe y saldo en céntimos; los de la primera
+ * versión, con otra marca, los guardaban como {@code double} y se siguen
+ * leyendo convirtiéndolos al céntimo.
+ */
+public class EconomyLedger implements Closeable {
+
+    private static final int FRAME_MAGIC = 0x564C4432;
+    private static final int LEGACY_FRAME_MAGIC = 0x564C4447;
+    private static final int FRAME_HEADER = 12;
+    private static final int INDEX_MAGIC = 0x564C4958;
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_HEADER = 24;
+    private static final int INDEX_SLOT = 24;
+    private static final String FILE_PREFIX = "ledger-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final UUID NONE = new UUID(0L, 0L);
+    private static final long RETRY_MILLIS = 250L;
+
+    public enum Account {
+        BANK, CASH;
+
+        /**
+         * Cuenta correspondiente de un jugador.
+         */
+        public AtomicAccount of(PlayerData data) {
+            return this == BANK ? data.getBank() : data.getCash();
+        }
+    }
+
+    /**
+     * Un cambio de saldo en céntimos. {@code amountMinor} es lo realmente
+     * aplicado (tras recortar en cero) y {@code counterparty} es {@code null}
+     * si no hubo.
+     */
+    public record Entry(long transaction, long timestamp, UUID player, UUID counterparty, Account account,
+                        long amountMinor, long balanceAfterMinor, String reason) {
+    }
+
+    private record Location(int segment, long offset) {
+    }
+
+    private record Waiter(long ticket, CompletableFuture<Void> future) {
+    }
+
+    private final File directory;
+    private final Logger logger;
+    private final long flushIntervalMillis;
+    private final long maxFileBytes;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong transactions = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final AtomicLong groups = new AtomicLong();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final List<Integer> sealed = new ArrayList<>();
+    private final Map<UUID, List<Long>> activeIndex = new HashMap<>();
+    private int activeId;
+    private FileChannel activeChannel;
+    private long activeEnd;
+    private Thread writer;
+    private volatile boolean running;
+
+    public EconomyLedger(File directory, Logger logger, long flushIntervalMillis, long maxFileBytes) {
+        this.directory = directory;
+        this.logger = logger;
+        this.flushIntervalMillis = Math.max(0L, flushIntervalMillis);
+        this.maxFileBytes = Math.max(64L * 1024L, maxFileBytes);
+    }
+
+    /**
+     * Abre los ficheros existentes, regenera los índices que falten, descarta
+     * una cola incompleta del último fichero y arranca el hilo de escritura.
+     */
+    public synchronized void open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear " + directory);
+        }
+        File[] logs = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(LOG_SUFFIX));
+        if (logs == null) {
+            logs = new File[0];
+        }
+        Arrays.sort(logs, Comparator.comparingInt(EconomyLedger::parseId));
+        for (int i = 0; i < logs.length - 1; i++) {
+            int id = parseId(logs[i]);
+            if (!readIndexHeader(id)) {
+                Map<UUID, List<Long>> index = new HashMap<>();
+                long valid = scan(logFile(id), index, null);
+                writeIndex(id, index);
+                logger.info("Índice del ledger " + logs[i].getName() + " regenerado (" + valid + " bytes)");
+            }
+            sealed.add(id);
+        }
+        activeId = logs.length == 0 ? 1 : parseId(logs[logs.length - 1]);
+        long valid = scan(logFile(activeId), activeIndex, null);
+        activeChannel = openChannel(logFile(activeId));
+        if (activeChannel.size() > valid) {
+            logger.warning("Ledger " + logFile(activeId).getName() + " termina con " + (activeChannel.size() - valid)
+                    + " bytes incompletos; se descartan");
+            activeChannel.truncate(valid);
+        }
+        activeChannel.position(valid);
+        activeEnd = valid;
+        running = true;
+        writer = new Thread(this::runWriter, "VendralyCore-Ledger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Recibe cada movimiento anotado, en el hilo que lo anota y aunque el
+     * ledger esté cerrado. Debe ser barato.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onRecord(Entry entry);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Reserva un id de transacción; los dos lados de una transferencia
+     * comparten el mismo.
+     */
+    public long nextTransaction() {
+        return transactions.incrementAndGet();
+    }
+
+    /**
+     * Encola un cambio de saldo. No hace nada si el importe aplicado es cero;
+     * con el ledger cerrado solo avisa a los {@link Listener}.
+     */
+    public void record(long transaction, UUID player, UUID counterparty, Account account, long amountMinor,
+                       long balanceAfterMinor, String reason) {
+        if (amountMinor == 0L) {
+            return;
+        }
+        Entry entry = new Entry(transaction, System.currentTimeMillis(), player, counterparty, account, amountMinor,
+                balanceAfterMinor, reason == null ? "" : reason);
+        for (Listener listener : listeners) {
+            listener.onRecord(entry);
+        }
+        if (!running) {
+            return;
+        }
+        synchronized (queue) {
+            queue.add(entry);
+            recorded.incrementAndGet();
+        }
+    }
+
+    /**
+     * Encola de una vez los asientos de un lote para que el escritor los
+     * recoja en el mismo grupo.
+     *
+     * @return se completa cuando los asientos están en disco (al momento si
+     * el ledger está cerrado, ya que entonces no se escriben) y falla si el
+     * ledger se cierra sin haber podido escribirlos
+     */
+    public CompletableFuture<Void> recordAll(List<Entry> entries) {
+        for (Listener listener : listeners) {
+            for (Entry entry : entries) {
+                listener.onRecord(entry);
+            }
+        }
+        if (!running || entries.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long ticket;
+        synchronized (queue) {
+            // La cola es FIFO: estos asientos están en disco cuando se hayan escrito ticket asientos.
+            queue.addAll(entries);
+            ticket = recorded.addAndGet(entries.size());
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (waiters) {
+            if (written.get() >= ticket) {
+                future.complete(null);
+            } else {
+                waiters.add(new Waiter(ticket, future));
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Encola un cambio ya aplicado sobre una {@link AtomicAccount}, tomando de
+     * él el importe y el saldo resultante.
+     */
+    public void record(long transaction, UUID player, UUID counterparty, Account account, AtomicAccount.Change change,
+                       String reason) {
+        record(transaction, player, counterparty, account, change.delta(), change.after(), reason);
+    }
+
+    /**
+     * Hasta {@code limit} movimientos del jugador, del más reciente al más
+     * antiguo. Los que aún están en cola no aparecen.
+     */
+    public synchronized List<Entry> history(UUID player, int limit) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (activeChannel == null) {
+            return entries;
+        }
+        List<Long> active = activeIndex.getOrDefault(player, List.of());
+        for (int i = active.size() - 1; i >= 0 && entries.size() < limit; i--) {
+            entries.add(read(activeChannel, active.get(i)));
+        }
+        for (int i = sealed.size() - 1; i >= 0 && entries.size() < limit; i--) {
+            int id = sealed.get(i);
+            List<Long> offsets = lookup(id, player);
+            if (offsets.isEmpty()) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(logFile(id).toPath(), StandardOpenOption.READ)) {
+                for (int j = offsets.size() - 1; j >= 0 && entries.size() < limit; j--) {
+                    entries.add(read(channel, offsets.get(j)));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Recorre todos los movimientos escritos en orden de escritura; lo usa la
+     * reproducción del ledger. Se ejecuta fuera del hilo principal.
+     */
+    public void replay(Consumer<Entry> visitor) throws IOException {
+        replay(0L, visitor);
+    }
+
+    /**
+     * Como {@link #replay(Consumer)}, pero salta los ficheros cerrados antes
+     * de {@code since} (milisegundos de época), que no pueden tener
+     * movimientos posteriores. Los de los ficheros recorridos llegan todos.
+     */
+    public void replay(long since, Consumer<Entry> visitor) throws IOException {
+        List<Integer> ids;
+        long activeLimit;
+        synchronized (this) {
+            ids = new ArrayList<>();
+            for (int id : sealed) {
+                if (logFile(id).lastModified() >= since) {
+                    ids.add(id);
+                }
+            }
+            ids.add(activeId);
+            activeLimit = activeChannel == null ? 0L : activeEnd;
+        }
+        for (int id : ids) {
+            long limit = id == ids.get(ids.size() - 1) ? activeLimit : Long.MAX_VALUE;
+            try (FileChannel channel = FileChannel.open(logFile(id).toPath(), StandardOpenOption.READ)) {
+                long position = 0L;
+                long end = Math.min(limit, channel.size());
+                while (position < end) {
+                    ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+                    readFully(channel, header, position);
+                    int length = header.getInt(4);
+                    ByteBuffer body = ByteBuffer.allocate(length);
+                    readFully(channel, body, position + FRAME_HEADER);
+                    visitor.accept(decode(header.getInt(0), body.array()));
+                    position += FRAME_HEADER + length;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(10000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Entry> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        try {
+            synchronized (this) {
+                if (activeChannel == null) {
+                    return;
+                }
+                if (!remaining.isEmpty()) {
+                    writeGroup(remaining);
+                }
+                activeChannel.force(true);
+                activeChannel.close();
+                activeChannel = null;
+            }
+        } finally {
+            synchronized (waiters) {
+                IOException cause = new IOException("El ledger se cerró sin escribir todos los asientos");
+                waiters.forEach(waiter -> waiter.future().completeExceptionally(cause));
+                waiters.clear();
+            }
+        }
+    }
+
+    public boolean isOpen() {
+        return running;
+    }
+
+    public long getRecorded() {
+        return recorded.get();
+    }
+
+    public long getGroups() {
+        return groups.get();
+    }
+
+    public int getPending() {
+        return queue.size();
+    }
+
+    public synchronized int getFileCount() {
+        return sealed.size() + (activeChannel == null ? 0 : 1);
+    }
+
+    private void runWriter() {
+        List<Entry> group = new ArrayList<>();
+        while (running || !queue.isEmpty() || !group.isEmpty()) {
+            try {
+                if (group.isEmpty()) {
+                    Entry first = queue.poll(100L, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    group.add(first);
+                    if (flushIntervalMillis > 0L) {
+                        Thread.sleep(flushIntervalMillis);
+                    }
+                }
+                queue.drainTo(group);
+                synchronized (this) {
+                    writeGroup(group);
+                    group.clear();
+                    rotateIfNeeded();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                if (!running) {
+                    logger.log(Level.SEVERE, "No se pudo escribir el ledger económico al cerrar; se pierden "
+                            + group.size() + " movimientos", e);
+                    group.clear();
+                    continue;
+                }
+                logger.log(Level.SEVERE, "No se pudo escribir el ledger económico; se reintenta el grupo de "
+                        + group.size() + " movimientos", e);
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe el grupo a continuación del último grupo confirmado y lo fuerza
+     * a disco. El índice solo se actualiza tras el {@code force}; si algo
+     * falla, el fichero se recorta al inicio del grupo para reintentarlo.
+     */
+    private void writeGroup(List<Entry> group) throws IOException {
+        long start = activeEnd;
+        ByteBuffer[] buffers = new ByteBuffer[group.size()];
+        long[] offsets = new long[group.size()];
+        long offset = start;
+        for (int i = 0; i < group.size(); i++) {
+            buffers[i] = encode(group.get(i));
+            offsets[i] = offset;
+            offset += buffers[i].remaining();
+        }
+        try {
+            if (!activeChannel.isOpen()) {
+                activeChannel = openChannel(logFile(activeId));
+            }
+            if (activeChannel.size() > start) {
+                // Restos de un intento anterior que entonces no se pudieron recortar.
+                activeChannel.truncate(start);
+            }
+            activeChannel.position(start);
+            long remaining;
+            do {
+                activeChannel.write(buffers);
+                remaining = 0L;
+                for (ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
+                }
+            } while (remaining > 0L);
+            activeChannel.force(false);
+        } catch (IOException e) {
+            discardTail(start, e);
+            throw e;
+        }
+        activeEnd = offset;
+        for (int i = 0; i < group.size(); i++) {
+            activeIndex.computeIfAbsent(group.get(i).player(), key -> new ArrayList<>()).add(offsets[i]);
+        }
+        groups.incrementAndGet();
+        synchronized (waiters) {
+            long done = written.addAndGet(group.size());
+            while (!waiters.isEmpty() && waiters.peekFirst().ticket() <= done) {
+                waiters.pollFirst().future().complete(null);
+            }
+        }
+    }
+
+    /**
+     * Quita del fichero activo lo escrito tras {@code start}. Si tampoco se
+     * puede, el siguiente intento vuelve a recortar antes de escribir.
+     */
+    private void discardTail(long start, IOException cause) {
+        try {
+            if (activeChannel.isOpen()) {
+                activeChannel.truncate(start);
+                activeChannel.position(start);
+            }
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private void rotateIfNeeded() throws IOException {
+        if (activeEnd < maxFileBytes) {
+            return;
+        }
+        activeChannel.force(true);
+        activeChannel.close();
+        writeIndex(activeId, activeIndex);
+        sealed.add(activeId);
+        activeIndex.clear();
+        activeId++;
+        activeChannel = openChannel(logFile(activeId));
+        activeEnd = activeChannel.size();
+        activeChannel.position(activeEnd);
+    }
+
+    FileChannel openChannel(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Lee un fichero de movimientos hasta el primer marco dañado, anotando
+     * posiciones por jugador y avanzando el contador de transacciones.
+     *
+     * @return bytes válidos
+     */
+    private long scan(File file, Map<UUID, List<Long>> index, Consumer<Entry> visitor) throws IOException {
+        if (!file.exists()) {
+            return 0L;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0L;
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+            while (position + FRAME_HEADER <= size) {
+                header.clear();
+                readFully(channel, header, position);
+                int magic = header.getInt(0);
+                int length = header.getInt(4);
+                int crc = header.getInt(8);
+                if ((magic != FRAME_MAGIC && magic != LEGACY_FRAME_MAGIC) || length <= 0
+                        || position + FRAME_HEADER + length > size) {
+                    break;
+                }
+                ByteBuffer body = ByteBuffer.allocate(length);
+                readFully(channel, body, position + FRAME_HEADER);
+                if (checksum(body.array()) != crc) {
+                    break;
+                }
+                Entry entry = decode(magic, body.array());
+                transactions.accumulateAndGet(entry.transaction(), Math::max);
+                index.computeIfAbsent(entry.player(), key -> new ArrayList<>()).add(position);
+                if (visitor != null) {
+                    visitor.accept(entry);
+                }
+                position += FRAME_HEADER + length;
+            }
+            return position;
+        }
+    }
+
+    private void writeIndex(int id, Map<UUID, List<Long>> index) throws IOException {
+        List<UUID> players = new ArrayList<>(index.keySet());
+        players.sort(Comparator.naturalOrder());
+        int count = 0;
+        for (List<Long> offsets : index.values()) {
+            count += offsets.size();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_HEADER + count * INDEX_SLOT);
+        buffer.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putInt(count).putInt(0).putLong(transactions.get());
+        for (UUID player : players) {
+            for (long offset : index.get(player)) {
+                buffer.putLong(player.getMostSignificantBits()).putLong(player.getLeastSignificantBits()).putLong(offset);
+            }
+        }
+        buffer.flip();
+        File target = indexFile(id);
+        File temp = new File(directory, target.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Valida la cabecera del índice y recupera de ella el contador de
+     * transacciones; {@code false} si falta o no es válido.
+     */
+    private boolean readIndexHeader(int id) {
+        File file = indexFile(id);
+        if (!file.isFile() || file.length() < INDEX_HEADER) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER);
+            readFully(channel, header, 0L);
+            if (header.getInt(0) != INDEX_MAGIC || header.getInt(4) != INDEX_VERSION
+                    || INDEX_HEADER + (long) header.getInt(8) * INDEX_SLOT != channel.size()) {
+                return false;
+            }
+            transactions.accumulateAndGet(header.getLong(16), Math::max);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private List<Long> lookup(int id, UUID player) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(indexFile(id).toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+            int count = index.getInt(8);
+            long most = player.getMostSignificantBits();
+            long least = player.getLeastSignificantBits();
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(index, mid, most, least) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int slot = low; slot < count && compare(index, slot, most, least) == 0; slot++) {
+                offsets.add(index.getLong(INDEX_HEADER + slot * INDEX_SLOT + 16));
+            }
+        }
+        return offsets;
+    }
+
+    private static int compare(ByteBuffer index, int slot, long most, long least) {
+        int base = INDEX_HEADER + slot * INDEX_SLOT;
+        // Mismo orden que UUID.compareTo: primero los bits altos, con signo.
+        int byMost = Long.compare(index.getLong(base), most);
+        return byMost != 0 ? byMost : Long.compare(index.getLong(base + 8), least);
+    }
+
+    private static Entry read(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        readFully(channel, header, offset);
+        ByteBuffer body = ByteBuffer.allocate(header.getInt(4));
+        readFully(channel, body, offset + FRAME_HEADER);
+        return decode(header.getInt(0), body.array());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Fin de fichero inesperado en el ledger");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static ByteBuffer encode(Entry entry) {
+        byte[] reason = entry.reason().getBytes(StandardCharsets.UTF_8);
+        int reasonLength = Math.min(reason.length, Short.MAX_VALUE);
+        UUID counterparty = entry.counterparty() == null ? NONE : entry.counterparty();
+        ByteBuffer body = ByteBuffer.allocate(67 + reasonLength);
+        body.putLong(entry.transaction())
+                .putLong(entry.timestamp())
+                .putLong(entry.player().getMostSignificantBits())
+                .putLong(entry.player().getLeastSignificantBits())
+                .putLong(counterparty.getMostSignificantBits())
+                .putLong(counterparty.getLeastSignificantBits())
+                .put((byte) entry.account().ordinal())
+                .putLong(entry.amountMinor())
+                .putLong(entry.balanceAfterMinor())
+                .putShort((short) reasonLength)
+                .put(reason, 0, reasonLength);
+        byte[] bytes = body.array();
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + bytes.length);
+        frame.putInt(FRAME_MAGIC).putInt(bytes.length).putInt(checksum(bytes)).put(bytes).flip();
+        return frame;
+    }
+
+    private static Entry decode(int magic, byte[] bytes) {
+        ByteBuffer body = ByteBuffer.wrap(bytes);
+        long transaction = body.getLong();
+        long timestamp = body.getLong();
+        UUID player = new UUID(body.getLong(), body.getLong());
+        UUID counterparty = new UUID(body.getLong(), body.getLong());
+        Account account = Account.values()[body.get()];
+        long amount;
+        long balanceAfter;
+        if (magic == LEGACY_FRAME_MAGIC) {
+            // Los double de la primera versión salieron de céntimos exactos y vuelven a ellos sin pérdida.
+            amount = Money.toMinor(body.getDouble());
+            balanceAfter = Money.toMinor(body.getDouble());
+        } else {
+            amount = body.getLong();
+            balanceAfter = body.getLong();
+        }
+        byte[] reason = new byte[body.getShort()];
+        body.get(reason);
+        return new Entry(transaction, timestamp, player, NONE.equals(counterparty) ? null : counterparty, account, amount,
+                balanceAfter, new String(reason, StandardCharsets.UTF_8));
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private File logFile(int id) {
+        return new File(directory, String.format("%s%06d%s", FILE_PREFIX, id, LOG_SUFFIX));
+    }
+
+    private File indexFile(int id) {
+        return new File(directory, String.format("%s%06d%s", FILE_PREFIX, id, INDEX_SUFFIX));
+    }
+
+    private static int parseId(File file) {
+        String name = file.getName();
+        try {
+            return Integer.parseInt(name.substring(FILE_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -8,16 +8,21 @@ import org.bukkit.OfflinePlayer;
 import java.util.UUID;
 
 /**
- * Maneja la economía bancaria (saldo seguro) de los jugadores.
+ * Maneja la economía bancaria (saldo seguro) de los jugadores. Los saldos son
+ * {@link AtomicAccount} en unidades mínimas, así que estos métodos pueden
+ * llamarse desde cualquier hilo. Todo cambio de saldo queda anotado en el
+ * {@link EconomyLedger} con su motivo.
  */
 public class EconomyManager {
 
     private final VendralyCore plugin;
     private final UserDataManager userDataManager;
+    private final EconomyLedger ledger;
 
-    public EconomyManager(VendralyCore plugin, UserDataManager userDataManager) {
+    public EconomyManager(VendralyCore plugin, UserDataManager userDataManager, EconomyLedger ledger) {
         this.plugin = plugin;
         this.userDataManager = userDataManager;
+        this.ledger = ledger;
     }
 
     public double getBalance(OfflinePlayer player) {
@@ -25,40 +30,66 @@ public class EconomyManager {
         return data.getBankBalance();
     }
 
-    public void deposit(UUID uuid, double amount) {
-        modify(uuid, amount);
+    public void deposit(UUID uuid, double amount, String reason) {
+        modify(uuid, amount, reason);
     }
 
-    public void withdraw(UUID uuid, double amount) {
-        modify(uuid, -amount);
+    public void withdraw(UUID uuid, double amount, String reason) {
+        modify(uuid, -amount, reason);
     }
 
-    public void setBalance(UUID uuid, double amount) {
+    public void setBalance(UUID uuid, double amount, String reason) {
         PlayerData data = userDataManager.getOrCreate(uuid, "Desconocido");
-        data.setBankBalance(Math.max(0.0, amount));
+        setBalance(data, amount, reason);
         userDataManager.save(data);
     }
 
-    public boolean transfer(UUID sender, UUID target, double amount) {
-        if (amount <= 0) {
+    /**
+     * Fija el saldo sobre datos ya cargados; el guardado queda a cargo de
+     * quien llama.
+     */
+    public double setBalance(PlayerData data, double amount, String reason) {
+        record(data, data.getBank().set(Money.toMinor(Math.max(0.0, amount))), reason);
+        return data.getBankBalance();
+    }
+
+    /**
+     * Suma (o resta, si es negativo) sobre datos ya cargados sin bajar de
+     * cero; el guardado queda a cargo de quien llama.
+     */
+    public double adjust(PlayerData data, double amount, String reason) {
+        record(data, data.getBank().addClamped(Money.toMinor(amount)), reason);
+        return data.getBankBalance();
+    }
+
+    public boolean transfer(UUID sender, UUID target, double amount, String reason) {
+        long minor = Money.toMinor(amount);
+        if (minor <= 0L) {
             return false;
         }
         PlayerData senderData = userDataManager.getOrCreate(sender, "Desconocido");
-        if (senderData.getBankBalance() < amount) {
+        PlayerData targetData = userDataManager.getOrCreate(target, "Desconocido");
+        AtomicAccount.Change[] changes = AtomicAccount.transfer(senderData.getBank(), targetData.getBank(), minor);
+        if (changes == null) {
             return false;
         }
-        PlayerData targetData = userDataManager.getOrCreate(target, "Desconocido");
-        senderData.setBankBalance(senderData.getBankBalance() - amount);
-        targetData.setBankBalance(targetData.getBankBalance() + amount);
+        long transaction = ledger.nextTransaction();
+        ledger.record(transaction, sender, target, EconomyLedger.Account.BANK, changes[0], reason);
+        ledger.record(transaction, target, sender, EconomyLedger.Account.BANK, changes[1], reason);
         userDataManager.save(senderData);
         userDataManager.save(targetData);
         return true;
     }
 
-    private void modify(UUID uuid, double amount) {
+    private void modify(UUID uuid, double amount, String reason) {
         PlayerData data = userDataManager.getOrCreate(uuid, "Desconocido");
-        double newBalance = Math.max(0.0, data.getBankBalance() + amount);
-        data.setBankBalance(newBalance);
+        adjust(data, amount, reason);
         userDataManager.save(data);
     }
+
+    private void record(PlayerData data, AtomicAccount.Change change, String reason) {
+        if (change != null) {
+            ledger.record(ledger.nextTransaction(), data.getUuid(), null, EconomyLedger.Account.BANK, change, reason);
+        }
+    }
 }
@@ -0,0 +1,414 @@
+package com.vendraly.core.economy;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.core.database.PlayerDirectory;
+import com.vendraly.utils.ByteReader;
+import com.vendraly.utils.ByteWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Masa monetaria y flujos de la economía a lo largo del tiempo, sin recorrer
+ * cuentas: los totales de banco y efectivo los mantiene el
+ * {@link PlayerDirectory} con cada guardado y los flujos llegan del
+ * {@link EconomyLedger}. Un movimiento sin contraparte es una fuente (abono) o
+ * un sumidero (cargo) de la categoría de su motivo, lo anterior al primer
+ * {@code :} ({@code job}, {@code loot}, {@code admin}...); las transferencias
+ * entre jugadores no cambian la masa y no cuentan.
+ * <p>
+ * {@link #sample()} toma una muestra por minuto; las muestras se agregan en
+ * series circulares de minutos, horas y días de tamaño fijo, y el cierre de
+ * cada hora las guarda en {@code economy-metrics.bin} con los tiempos y saldos
+ * codificados como diferencias.
+ */
+public class EconomyMetrics implements EconomyLedger.Listener {
+
+    /**
+     * Saldos totales al final del intervalo que empieza en {@code time} y
+     * flujos durante él, en unidades mínimas.
+     */
+    public record Sample(long time, long bank, long cash, long faucets, long sinks) {
+        public long supply() {
+            return bank + cash;
+        }
+
+        public long net() {
+            return faucets - sinks;
+        }
+    }
+
+    public record Flow(String category, long faucets, long sinks) {
+        public long net() {
+            return faucets - sinks;
+        }
+    }
+
+    public enum Resolution {
+        MINUTE(60_000L, 1440), HOUR(3_600_000L, 720), DAY(86_400_000L, 730);
+
+        private final long millis;
+        private final int capacity;
+
+        Resolution(long millis, int capacity) {
+            this.millis = millis;
+            this.capacity = capacity;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+    }
+
+    private static final int MAGIC = 0x56454D54;
+    private static final int VERSION = 1;
+    private static final int HEADER = 12;
+    private static final Resolution[] RESOLUTIONS = Resolution.values();
+
+    private final PlayerDirectory directory;
+    private final File file;
+    private final Logger logger;
+    private final AtomicLong pendingFaucets = new AtomicLong();
+    private final AtomicLong pendingSinks = new AtomicLong();
+    private final Map<String, AtomicLong[]> categories = new ConcurrentHashMap<>();
+    private final Ring[] rings = new Ring[RESOLUTIONS.length];
+    private final Bucket[] buckets = new Bucket[RESOLUTIONS.length];
+
+    public EconomyMetrics(VendralyCore plugin, PlayerDirectory directory, EconomyLedger ledger) {
+        this.directory = directory;
+        this.file = new File(plugin.getDataFolder(), "economy-metrics.bin");
+        this.logger = plugin.getPluginLogger();
+        for (int level = 0; level < RESOLUTIONS.length; level++) {
+            rings[level] = new Ring(RESOLUTIONS[level].capacity);
+            buckets[level] = new Bucket();
+        }
+        load();
+        ledger.addListener(this);
+    }
+
+    @Override
+    public void onRecord(EconomyLedger.Entry entry) {
+        if (entry.counterparty() != null) {
+            return;
+        }
+        long minor = entry.amountMinor();
+        AtomicLong[] totals = categories.computeIfAbsent(category(entry.reason()),
+                ignored -> new AtomicLong[]{new AtomicLong(), new AtomicLong()});
+        if (minor > 0L) {
+            pendingFaucets.addAndGet(minor);
+            totals[0].addAndGet(minor);
+        } else {
+            pendingSinks.addAndGet(-minor);
+            totals[1].addAndGet(-minor);
+        }
+    }
+
+    /**
+     * Toma la muestra del minuto actual; se llama cada minuto fuera del hilo
+     * principal. Guarda las series cuando se cierra una hora.
+     */
+    public synchronized void sample() {
+        long now = System.currentTimeMillis();
+        Sample sample = new Sample(now / Resolution.MINUTE.millis * Resolution.MINUTE.millis, directory.getTotalBank(),
+                directory.getTotalCash(), pendingFaucets.getAndSet(0L), pendingSinks.getAndSet(0L));
+        if (rings[0].size > 0 && rings[0].lastTime() == sample.time()) {
+            // Segunda muestra del mismo minuto (retraso del temporizador o cierre): se suma a la anterior.
+            rings[0].mergeLast(sample);
+            buckets[1].add(buckets[1].start, sample);
+            return;
+        }
+        if (append(0, sample)) {
+            save();
+        }
+    }
+
+    /**
+     * Toma una última muestra con los flujos pendientes y guarda las series.
+     */
+    public synchronized void close() {
+        sample();
+        save();
+    }
+
+    /**
+     * Estado actual: saldos totales de ahora y flujos desde la última muestra.
+     */
+    public Sample current() {
+        return new Sample(System.currentTimeMillis(), directory.getTotalBank(), directory.getTotalCash(),
+                pendingFaucets.get(), pendingSinks.get());
+    }
+
+    /**
+     * Las últimas {@code limit} muestras cerradas de la serie, de la más
+     * antigua a la más reciente.
+     */
+    public synchronized List<Sample> series(Resolution resolution, int limit) {
+        return rings[resolution.ordinal()].latest(limit);
+    }
+
+    /**
+     * Fuentes y sumideros acumulados por categoría, de mayor a menor volumen.
+     */
+    public List<Flow> flows() {
+        List<Flow> flows = new ArrayList<>(categories.size());
+        categories.forEach((category, totals) -> flows.add(new Flow(category, totals[0].get(), totals[1].get())));
+        flows.sort(Comparator.comparingLong((Flow flow) -> flow.faucets() + flow.sinks()).reversed());
+        return flows;
+    }
+
+    /**
+     * Añade la muestra a su serie y, si con ella empieza un intervalo nuevo del
+     * nivel superior, cierra el anterior y lo propaga.
+     *
+     * @return si se cerró alguna hora
+     */
+    private boolean append(int level, Sample sample) {
+        rings[level].add(sample);
+        int next = level + 1;
+        if (next >= RESOLUTIONS.length) {
+            return false;
+        }
+        Bucket bucket = buckets[next];
+        long start = sample.time() / RESOLUTIONS[next].millis * RESOLUTIONS[next].millis;
+        boolean closed = false;
+        if (bucket.count > 0 && bucket.start != start) {
+            Sample coarse = bucket.drain();
+            closed = next == Resolution.HOUR.ordinal();
+            closed |= append(next, coarse);
+        }
+        bucket.add(start, sample);
+        return closed;
+    }
+
+    private void save() {
+        ByteWriter out = new ByteWriter(16 * 1024);
+        List<Flow> flows = flows();
+        out.writeVarInt(flows.size());
+        for (Flow flow : flows) {
+            out.writeString(flow.category());
+            out.writeVarLong(flow.faucets());
+            out.writeVarLong(flow.sinks());
+        }
+        for (int level = 0; level < RESOLUTIONS.length; level++) {
+            Bucket bucket = buckets[level];
+            out.writeVarInt(bucket.count);
+            if (bucket.count > 0) {
+                writeSample(out, bucket.peek(), 0L, 0L, 0L);
+            }
+            List<Sample> samples = rings[level].latest(rings[level].capacity);
+            out.writeVarInt(samples.size());
+            long time = 0L;
+            long bank = 0L;
+            long cash = 0L;
+            for (Sample sample : samples) {
+                writeSample(out, sample, time, bank, cash);
+                time = sample.time();
+                bank = sample.bank();
+                cash = sample.cash();
+            }
+        }
+        byte[] body = out.toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + body.length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(checksum(body)).put(body);
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Files.write(tmp.toPath(), buffer.array());
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.severe("No se pudieron guardar las métricas económicas: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            ByteBuffer header = ByteBuffer.wrap(bytes);
+            if (bytes.length < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("cabecera desconocida");
+            }
+            int expected = header.getInt();
+            ByteReader in = new ByteReader(bytes, HEADER, bytes.length - HEADER);
+            byte[] body = new byte[bytes.length - HEADER];
+            System.arraycopy(bytes, HEADER, body, 0, body.length);
+            if (checksum(body) != expected) {
+                throw new IOException("checksum incorrecto");
+            }
+            int categoryCount = in.readVarInt();
+            for (int i = 0; i < categoryCount; i++) {
+                String category = in.readString();
+                categories.put(category, new AtomicLong[]{new AtomicLong(in.readVarLong()), new AtomicLong(in.readVarLong())});
+            }
+            for (int level = 0; level < RESOLUTIONS.length; level++) {
+                int bucketCount = in.readVarInt();
+                if (bucketCount > 0) {
+                    buckets[level].restore(readSample(in, 0L, 0L, 0L), bucketCount);
+                }
+                int size = in.readVarInt();
+                long time = 0L;
+                long bank = 0L;
+                long cash = 0L;
+                for (int i = 0; i < size; i++) {
+                    Sample sample = readSample(in, time, bank, cash);
+                    rings[level].add(sample);
+                    time = sample.time();
+                    bank = sample.bank();
+                    cash = sample.cash();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Métricas económicas ilegibles; se empieza de cero: " + e.getMessage());
+            categories.clear();
+            for (int level = 0; level < RESOLUTIONS.length; level++) {
+                rings[level] = new Ring(RESOLUTIONS[level].capacity);
+                buckets[level] = new Bucket();
+            }
+        }
+    }
+
+    private static void writeSample(ByteWriter out, Sample sample, long time, long bank, long cash) {
+        out.writeVarLong(sample.time() - time);
+        out.writeSignedVarLong(sample.bank() - bank);
+        out.writeSignedVarLong(sample.cash() - cash);
+        out.writeVarLong(sample.faucets());
+        out.writeVarLong(sample.sinks());
+    }
+
+    private static Sample readSample(ByteReader in, long time, long bank, long cash) throws IOException {
+        return new Sample(time + in.readVarLong(), bank + in.readSignedVarLong(), cash + in.readSignedVarLong(),
+                in.readVarLong(), in.readVarLong());
+    }
+
+    private static String category(String reason) {
+        int separator = reason.indexOf(':');
+        String category = separator < 0 ? reason : reason.substring(0, separator);
+        return category.isEmpty() ? "otros" : category;
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Serie circular de tamaño fijo guardada por columnas.
+     */
+    private static final class Ring {
+
+        private final int capacity;
+        private final long[] time;
+        private final long[] bank;
+        private final long[] cash;
+        private final long[] faucets;
+        private final long[] sinks;
+        private int head;
+        private int size;
+
+        private Ring(int capacity) {
+            this.capacity = capacity;
+            this.time = new long[capacity];
+            this.bank = new long[capacity];
+            this.cash = new long[capacity];
+            this.faucets = new long[capacity];
+            this.sinks = new long[capacity];
+        }
+
+        private void add(Sample sample) {
+            int slot = (head + size) % capacity;
+            if (size == capacity) {
+                head = (head + 1) % capacity;
+            } else {
+                size++;
+            }
+            time[slot] = sample.time();
+            bank[slot] = sample.bank();
+            cash[slot] = sample.cash();
+            faucets[slot] = sample.faucets();
+            sinks[slot] = sample.sinks();
+        }
+
+        private long lastTime() {
+            return time[(head + size - 1) % capacity];
+        }
+
+        private void mergeLast(Sample sample) {
+            int slot = (head + size - 1) % capacity;
+            bank[slot] = sample.bank();
+            cash[slot] = sample.cash();
+            faucets[slot] += sample.faucets();
+            sinks[slot] += sample.sinks();
+        }
+
+        private List<Sample> latest(int limit) {
+            int count = Math.max(0, Math.min(limit, size));
+            List<Sample> samples = new ArrayList<>(count);
+            for (int i = size - count; i < size; i++) {
+                int slot = (head + i) % capacity;
+                samples.add(new Sample(time[slot], bank[slot], cash[slot], faucets[slot], sinks[slot]));
+            }
+            return samples;
+        }
+    }
+
+    /**
+     * Intervalo abierto de una resolución gruesa: saldos de la última muestra
+     * recibida y flujos sumados.
+     */
+    private static final class Bucket {
+
+        private long start;
+        private long bank;
+        private long cash;
+        private long faucets;
+        private long sinks;
+        private int count;
+
+        private void add(long start, Sample sample) {
+            this.start = start;
+            bank = sample.bank();
+            cash = sample.cash();
+            faucets += sample.faucets();
+            sinks += sample.sinks();
+            count++;
+        }
+
+        private Sample peek() {
+            return new Sample(start, bank, cash, faucets, sinks);
+        }
+
+        private Sample drain() {
+            Sample sample = peek();
+            faucets = 0L;
+            sinks = 0L;
+            count = 0;
+            return sample;
+        }
+
+        private void restore(Sample sample, int count) {
+            start = sample.time();
+            bank = sample.bank();
+            cash = sample.cash();
+            faucets = sample.faucets();
+            sinks = sample.sinks();
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,529 @@
+package com.vendraly.core.economy;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.core.clans.ClanManager;
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerDirectory;
+import com.vendraly.core.database.UserDataManager;
+import com.vendraly.utils.TaskUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Aplica periódicamente las {@link PolicyRule} (intereses, impuestos,
+ * mantenimiento de clan) a todas las cuentas guardadas sin pasar a los
+ * jugadores por la caché:
+ * <ol>
+ *     <li>los UUID se recorren en bloques de {@code economy.policy.chunk-size}
+ *     repartidos entre {@code economy.policy.threads} hilos;</li>
+ *     <li>el {@link PlayerDirectory} descarta sin leer las cuentas a las que
+ *     ninguna regla afecta;</li>
+ *     <li>los jugadores en caché se modifican sobre su copia viva, de modo que
+ *     los conectados ven el cambio y nada diverge; el resto se lee y reescribe
+ *     directamente con {@link UserDataManager#updateStored};</li>
+ *     <li>los movimientos de cada bloque van al ledger con un único id de
+ *     transacción y los UUID ajustados se anotan en un fichero de progreso.
+ *     Los asientos de las cuentas guardadas están en disco antes de reescribir
+ *     los registros; si la escritura falla después, se anulan con asientos
+ *     de signo contrario.</li>
+ * </ol>
+ * Cada periodo de {@code economy.policy.interval-hours} es una pasada con id
+ * propio: si se interrumpe, la siguiente comprobación la reanuda saltándose
+ * los ya ajustados (según el progreso y los asientos del ledger con su
+ * motivo), y al completarse deja un fichero {@code .done} que impide repetirla.
+ */
+public class EconomyPolicyEngine {
+
+    public record Report(String run, long scanned, long adjusted, long skipped, long failed, long credited, long debited,
+                         boolean cancelled, long millis) {
+    }
+
+    private static final String REASON_PREFIX = "policy:";
+    private static final String REVERT_PREFIX = "policy-revert:";
+    private static final long LEDGER_TIMEOUT_SECONDS = 30L;
+    private static final String PROGRESS_SUFFIX = ".progress";
+    private static final String DONE_SUFFIX = ".done";
+
+    private final VendralyCore plugin;
+    private final UserDataManager userDataManager;
+    private final EconomyLedger ledger;
+    private final ClanManager clanManager;
+    private final List<PolicyRule> rules;
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final int threads;
+    private final int chunkSize;
+    private final File directory;
+    private final Logger logger;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong adjusted = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong credited = new AtomicLong();
+    private final AtomicLong debited = new AtomicLong();
+    private volatile String currentRun;
+    private volatile long total;
+    private volatile boolean cancelled;
+    private volatile Report lastReport;
+
+    public EconomyPolicyEngine(VendralyCore plugin, UserDataManager userDataManager, EconomyLedger ledger,
+                               ClanManager clanManager) {
+        this.plugin = plugin;
+        this.userDataManager = userDataManager;
+        this.ledger = ledger;
+        this.clanManager = clanManager;
+        this.logger = plugin.getPluginLogger();
+        FileConfiguration config = plugin.getConfig();
+        this.rules = Collections.unmodifiableList(PolicyRule.load(config.getConfigurationSection("economy.policy.rules"), logger));
+        this.enabled = config.getBoolean("economy.policy.enabled", true);
+        this.intervalMillis = Math.max(1L, config.getLong("economy.policy.interval-hours", 24L)) * 3_600_000L;
+        this.threads = Math.max(1, config.getInt("economy.policy.threads", 4));
+        this.chunkSize = Math.max(1, config.getInt("economy.policy.chunk-size", 1000));
+        this.directory = new File(plugin.getDataFolder(), "policy");
+    }
+
+    /**
+     * Comprobación periódica, fuera del hilo principal: ejecuta la pasada del
+     * periodo actual si no se completó ya.
+     */
+    public void runIfDue() {
+        if (!enabled || rules.isEmpty() || running.get()) {
+            return;
+        }
+        String run = currentPeriod();
+        if (isDone(run)) {
+            return;
+        }
+        try {
+            run(run);
+        } catch (IOException e) {
+            logger.severe("Política económica " + run + " abortada: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ejecuta (o reanuda) la pasada {@code run} en el hilo actual, que no debe
+     * ser el principal.
+     *
+     * @return el resultado, o {@code null} si ya había otra pasada en curso
+     * @throws IOException si no se pudo listar a los jugadores o leer el
+     *                     progreso
+     */
+    public Report run(String run) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            return execute(run);
+        } finally {
+            currentRun = null;
+            running.set(false);
+        }
+    }
+
+    /**
+     * Detiene la pasada en curso tras los bloques que se estén aplicando; se
+     * reanuda en la siguiente comprobación.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Id de la pasada del periodo actual: su inicio en UTC.
+     */
+    public String currentPeriod() {
+        long start = System.currentTimeMillis() / intervalMillis * intervalMillis;
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd-HHmm", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(start));
+    }
+
+    public boolean isDone(String run) {
+        return new File(directory, run + DONE_SUFFIX).exists();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public List<PolicyRule> getRules() {
+        return rules;
+    }
+
+    public String getCurrentRun() {
+        return currentRun;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getScanned() {
+        return scanned.get();
+    }
+
+    public long getAdjusted() {
+        return adjusted.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Resultado de la última pasada terminada en esta ejecución del servidor,
+     * o {@code null}.
+     */
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    private Report execute(String run) throws IOException {
+        long start = System.currentTimeMillis();
+        currentRun = run;
+        cancelled = false;
+        scanned.set(0L);
+        adjusted.set(0L);
+        skipped.set(0L);
+        failed.set(0L);
+        credited.set(0L);
+        debited.set(0L);
+        Files.createDirectories(directory.toPath());
+        File progressFile = new File(directory, run + PROGRESS_SUFFIX);
+        String spec = rules.stream().map(PolicyRule::describe).collect(Collectors.joining(","));
+        Set<UUID> done = readProgress(progressFile, spec);
+        if (progressFile.exists() && ledger.isOpen()) {
+            // Una caída pudo dejar asientos en el ledger sin su línea de progreso.
+            String reason = REASON_PREFIX + run + ":";
+            String revert = REVERT_PREFIX + run + ":";
+            ledger.replay(entry -> {
+                if (entry.reason().startsWith(reason)) {
+                    done.add(entry.player());
+                } else if (entry.reason().startsWith(revert)) {
+                    done.remove(entry.player());
+                }
+            });
+            logger.info("Reanudando la política económica " + run + ": " + done.size() + " cuentas ya ajustadas");
+        }
+        List<UUID> players = new ArrayList<>(userDataManager.listPlayers());
+        total = players.size();
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "VendralyCore-Policy-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore slots = new Semaphore(threads * 2);
+        try (BufferedWriter progress = Files.newBufferedWriter(progressFile.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (progressFile.length() == 0L) {
+                progress.write("# " + spec);
+                progress.newLine();
+                progress.flush();
+            }
+            List<UUID> chunk = new ArrayList<>(chunkSize);
+            for (UUID uuid : players) {
+                if (cancelled) {
+                    break;
+                }
+                if (done.contains(uuid)) {
+                    scanned.incrementAndGet();
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                chunk.add(uuid);
+                if (chunk.size() >= chunkSize) {
+                    submit(pool, slots, chunk, run, progress);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty() && !cancelled) {
+                submit(pool, slots, chunk, run, progress);
+            }
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Política económica interrumpida", e);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        if (!cancelled && failed.get() == 0L) {
+            finish(run);
+        }
+        Report report = new Report(run, scanned.get(), adjusted.get(), skipped.get(), failed.get(), credited.get(),
+                debited.get(), cancelled, System.currentTimeMillis() - start);
+        lastReport = report;
+        logger.info("Política económica " + run + ": " + report.adjusted() + " cuentas ajustadas (+" + Money.format(report.credited())
+                + " / -" + Money.format(report.debited()) + "), " + report.skipped() + " ya ajustadas, " + report.failed()
+                + " fallidas de " + report.scanned() + " en " + report.millis() + " ms" + (report.cancelled() ? " (detenida)" : ""));
+        return report;
+    }
+
+    private void submit(ExecutorService pool, Semaphore slots, List<UUID> chunk, String run, BufferedWriter progress) {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+            return;
+        }
+        pool.execute(() -> {
+            try {
+                applyChunk(chunk, run, progress);
+            } catch (RuntimeException e) {
+                failed.addAndGet(chunk.size());
+                logger.severe("Bloque de la política económica " + run + " fallido: " + e.getMessage());
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    private void applyChunk(List<UUID> chunk, String run, BufferedWriter progress) {
+        if (cancelled) {
+            return;
+        }
+        long transaction = ledger.nextTransaction();
+        long now = System.currentTimeMillis();
+        String reason = REASON_PREFIX + run + ":";
+        PlayerDirectory players = userDataManager.getDirectory();
+        List<UUID> stored = new ArrayList<>(chunk.size());
+        List<PlayerData> cached = new ArrayList<>();
+        for (UUID uuid : chunk) {
+            scanned.incrementAndGet();
+            PlayerData data = userDataManager.getCache().peek(uuid);
+            if (data != null) {
+                cached.add(data);
+            } else if (affected(players.get(uuid))) {
+                stored.add(uuid);
+            }
+        }
+        List<EconomyLedger.Entry> entries = new ArrayList<>();
+        List<UUID> applied = new ArrayList<>();
+        List<EconomyLedger.Entry> recorded = new ArrayList<>();
+        Set<UUID> busy;
+        try {
+            busy = userDataManager.updateStored(stored, data -> apply(data, transaction, now, reason, entries, applied),
+                    () -> {
+                        // Primero el ledger: una caída tras reescribir los registros no debe dejarlos sin asiento.
+                        recorded.addAll(entries);
+                        awaitLedger(ledger.recordAll(new ArrayList<>(entries)));
+                    });
+        } catch (IOException e) {
+            failed.addAndGet(stored.size());
+            logger.severe("No se pudo escribir un bloque de " + stored.size() + " cuentas en la política económica " + run
+                    + ": " + e.getMessage());
+            // Nada de lo leído llegó a escribirse: se anulan los asientos que ya se anotaron.
+            if (!recorded.isEmpty()) {
+                ledger.recordAll(reversals(recorded));
+            }
+            entries.clear();
+            applied.clear();
+            recorded.clear();
+            busy = Collections.emptySet();
+        }
+        for (UUID uuid : busy) {
+            try {
+                // Se cargó entre la consulta a la caché y la reserva: se ajusta su copia en caché.
+                cached.add(userDataManager.loadAsync(uuid).join());
+            } catch (CompletionException e) {
+                failed.incrementAndGet();
+                logger.warning("No se pudo cargar " + uuid + " en la política económica " + run + ": " + e.getMessage());
+            }
+        }
+        List<PlayerData> changed = new ArrayList<>();
+        for (PlayerData data : cached) {
+            if (apply(data, transaction, now, reason, entries, applied)) {
+                changed.add(data);
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (entries.size() > recorded.size()) {
+            CompletableFuture<Void> durable = ledger.recordAll(new ArrayList<>(entries.subList(recorded.size(),
+                    entries.size())));
+            try {
+                // Las copias en caché ya cambiaron: se guardan igualmente, pero después de sus asientos.
+                awaitLedger(durable);
+            } catch (IOException e) {
+                logger.severe("Asientos de la política económica " + run + " sin confirmar en el ledger: " + e.getMessage());
+            }
+        }
+        for (EconomyLedger.Entry entry : entries) {
+            long minor = entry.amountMinor();
+            (minor > 0L ? credited : debited).addAndGet(Math.abs(minor));
+        }
+        adjusted.addAndGet(applied.size());
+        if (!changed.isEmpty()) {
+            if (Bukkit.isPrimaryThread() || !plugin.isEnabled()) {
+                userDataManager.saveBatch(changed);
+            } else {
+                TaskUtil.runSync(plugin, () -> userDataManager.saveBatch(changed));
+            }
+        }
+        try {
+            synchronized (progress) {
+                for (UUID uuid : applied) {
+                    progress.write(uuid.toString());
+                    progress.newLine();
+                }
+                progress.flush();
+            }
+        } catch (IOException e) {
+            // Sin progreso no se puede reanudar sin riesgo de cobrar dos veces: se detiene.
+            cancelled = true;
+            logger.severe("No se pudo anotar el progreso de la política económica " + run + ": " + e.getMessage());
+        }
+    }
+
+    private static void awaitLedger(CompletableFuture<Void> durable) throws IOException {
+        try {
+            durable.get(LEDGER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando al ledger", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("El ledger no confirmó los asientos a tiempo", e);
+        }
+    }
+
+    /**
+     * Asientos que anulan otros que se anotaron pero cuyo cambio no llegó a
+     * guardarse.
+     */
+    private static List<EconomyLedger.Entry> reversals(List<EconomyLedger.Entry> entries) {
+        List<EconomyLedger.Entry> reversed = new ArrayList<>(entries.size());
+        for (EconomyLedger.Entry entry : entries) {
+            reversed.add(new EconomyLedger.Entry(entry.transaction(), System.currentTimeMillis(), entry.player(), null,
+                    entry.account(), -entry.amountMinor(), entry.balanceAfterMinor() - entry.amountMinor(),
+                    REVERT_PREFIX + entry.reason().substring(REASON_PREFIX.length())));
+        }
+        return reversed;
+    }
+
+    /**
+     * Aplica todas las reglas sobre {@code data} y añade sus asientos.
+     *
+     * @return si cambió algún saldo
+     */
+    private boolean apply(PlayerData data, long transaction, long now, String reason, List<EconomyLedger.Entry> entries,
+                          List<UUID> applied) {
+        UUID uuid = data.getUuid();
+        boolean member = clanManager.getClanByPlayer(uuid) != null;
+        boolean changed = false;
+        for (PolicyRule rule : rules) {
+            AtomicAccount.Change change = rule.account().of(data).addComputed(balance -> rule.delta(balance, member));
+            if (change == null || change.delta() == 0L) {
+                continue;
+            }
+            entries.add(new EconomyLedger.Entry(transaction, now, uuid, null, rule.account(), change.delta(), change.after(),
+                    reason + rule.id()));
+            changed = true;
+        }
+        if (changed) {
+            applied.add(uuid);
+        }
+        return changed;
+    }
+
+    /**
+     * Si alguna regla movería dinero según los saldos del directorio. Sin
+     * entrada en el directorio se lee el registro para decidir.
+     */
+    private boolean affected(PlayerDirectory.Entry entry) {
+        if (entry == null) {
+            return true;
+        }
+        boolean member = clanManager.getClanByPlayer(entry.uuid()) != null;
+        for (PolicyRule rule : rules) {
+            double balance = rule.account() == EconomyLedger.Account.BANK ? entry.bank() : entry.cash();
+            if (rule.delta(Money.toMinor(balance), member) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marca la pasada como completada y borra los restos de las anteriores.
+     */
+    private void finish(String run) {
+        try {
+            Files.write(new File(directory, run + DONE_SUFFIX).toPath(), new byte[0]);
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (!file.getName().equals(run + DONE_SUFFIX)) {
+                        Files.deleteIfExists(file.toPath());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.severe("No se pudo cerrar la pasada " + run + " de la política económica: " + e.getMessage());
+        }
+    }
+
+    private Set<UUID> readProgress(File progressFile, String spec) throws IOException {
+        Set<UUID> done = new HashSet<>();
+        if (!progressFile.exists()) {
+            return done;
+        }
+        List<String> lines = Files.readAllLines(progressFile.toPath(), StandardCharsets.UTF_8);
+        if (!lines.isEmpty() && lines.get(0).startsWith("# ") && !lines.get(0).substring(2).equals(spec)) {
+            // Las reglas cambiaron a mitad de periodo: lo ya cobrado sigue cobrado, el resto usa las nuevas.
+            logger.warning("Las reglas de la política económica cambiaron desde el inicio de la pasada en curso");
+        }
+        for (String line : lines) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                done.add(UUID.fromString(line.trim()));
+            } catch (IllegalArgumentException ignored) {
+                // Línea a medio escribir en una caída.
+            }
+        }
+        return done;
+    }
+}
@@ -0,0 +1,132 @@
+package com.vendraly.core.economy;
+
+import com.vendraly.core.database.UserDataManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reconstruye los saldos recorriendo el {@link EconomyLedger} de principio a
+ * fin y los compara con lo guardado. Detecta dos cosas: saltos en la cadena de
+ * una cuenta (el saldo anterior más el importe no da el saldo anotado) y
+ * jugadores cuyo último saldo del ledger no coincide con el almacenado. Los
+ * jugadores sin movimientos se ignoran, ya que su saldo es anterior al ledger.
+ * <p>
+ * Como las cuentas admiten cambios concurrentes, dos movimientos de una misma
+ * cuenta pueden llegar al ledger en distinto orden del que se aplicaron. Un
+ * movimiento que no encadena se aparca y se reintenta tras cada paso; solo
+ * cuenta como salto si sigue sin encadenar tras {@code MAX_PENDING}
+ * movimientos o al terminar. Todo se compara en céntimos y sin tolerancia.
+ */
+public class LedgerReplay {
+
+    private static final int MAX_LISTED = 10;
+    private static final int MAX_PENDING = 8;
+
+    public record Report(long entries, int players, long chainBreaks, int mismatches, List<UUID> mismatched,
+                         long millis) {
+    }
+
+    /**
+     * Estado de la cadena de una cuenta durante la reproducción.
+     */
+    private static final class Chain {
+        boolean started;
+        long balance;
+        final List<EconomyLedger.Entry> pending = new ArrayList<>();
+        long breaks;
+
+        void accept(EconomyLedger.Entry entry) {
+            if (!started || balance + entry.amountMinor() == entry.balanceAfterMinor()) {
+                started = true;
+                balance = entry.balanceAfterMinor();
+                drainPending();
+                return;
+            }
+            pending.add(entry);
+            if (pending.size() > MAX_PENDING) {
+                resync();
+            }
+        }
+
+        void finish() {
+            if (!pending.isEmpty()) {
+                resync();
+            }
+        }
+
+        private void drainPending() {
+            boolean progressed = true;
+            while (progressed && !pending.isEmpty()) {
+                progressed = false;
+                for (int i = 0; i < pending.size(); i++) {
+                    EconomyLedger.Entry parked = pending.get(i);
+                    if (balance + parked.amountMinor() == parked.balanceAfterMinor()) {
+                        balance = parked.balanceAfterMinor();
+                        pending.remove(i);
+                        progressed = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void resync() {
+            breaks++;
+            balance = pending.get(pending.size() - 1).balanceAfterMinor();
+            pending.clear();
+        }
+    }
+
+    private final EconomyLedger ledger;
+    private final UserDataManager userDataManager;
+
+    public LedgerReplay(EconomyLedger ledger, UserDataManager userDataManager) {
+        this.ledger = ledger;
+        this.userDataManager = userDataManager;
+    }
+
+    /**
+     * Ejecuta la reproducción completa; se llama fuera del hilo principal.
+     */
+    public Report run() throws IOException {
+        long start = System.currentTimeMillis();
+        Map<UUID, Chain[]> chains = new HashMap<>();
+        long[] entries = new long[1];
+        ledger.replay(entry -> {
+            entries[0]++;
+            chains.computeIfAbsent(entry.player(), key -> new Chain[]{new Chain(), new Chain()})[entry.account().ordinal()]
+                    .accept(entry);
+        });
+        long chainBreaks = 0L;
+        for (Chain[] accounts : chains.values()) {
+            for (Chain chain : accounts) {
+                chain.finish();
+                chainBreaks += chain.breaks;
+            }
+        }
+        List<UUID> mismatched = new ArrayList<>();
+        int[] mismatches = new int[1];
+        userDataManager.scanAll(snapshot -> {
+            Chain[] accounts = chains.get(snapshot.getUuid());
+            if (accounts == null) {
+                return;
+            }
+            Chain bank = accounts[EconomyLedger.Account.BANK.ordinal()];
+            Chain cash = accounts[EconomyLedger.Account.CASH.ordinal()];
+            if ((bank.started && bank.balance != snapshot.getBankMinor())
+                    || (cash.started && cash.balance != snapshot.getCashMinor())) {
+                mismatches[0]++;
+                if (mismatched.size() < MAX_LISTED) {
+                    mismatched.add(snapshot.getUuid());
+                }
+            }
+        });
+        return new Report(entries[0], chains.size(), chainBreaks, mismatches[0], mismatched,
+                System.currentTimeMillis() - start);
+    }
+}
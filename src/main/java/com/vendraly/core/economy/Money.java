@@ -0,0 +1,43 @@
+package com.vendraly.core.economy;
+
+import java.util.Locale;
+
+/**
+ * Conversión entre importes en monedas ({@code double}, tal como los escriben
+ * jugadores y configuración) y unidades mínimas ({@code long}, céntimos), que
+ * es como se guardan y operan los saldos para no acumular error de redondeo.
+ */
+public final class Money {
+
+    public static final long SCALE = 100L;
+
+    /**
+     * Mayor importe en monedas que cabe en unidades mínimas sin perder
+     * precisión en el {@code double} de origen.
+     */
+    public static final double MAX_AMOUNT = (double) (1L << 53) / SCALE;
+
+    private Money() {
+    }
+
+    /**
+     * Redondea al céntimo más cercano.
+     *
+     * @throws IllegalArgumentException si el importe no es finito o no cabe
+     */
+    public static long toMinor(double amount) {
+        if (!Double.isFinite(amount) || Math.abs(amount) > MAX_AMOUNT) {
+            throw new IllegalArgumentException("Importe fuera de rango: " + amount);
+        }
+        return Math.round(amount * SCALE);
+    }
+
+    public static double toMajor(long minor) {
+        return (double) minor / SCALE;
+    }
+
+    public static String format(long minor) {
+        long units = Math.abs(minor);
+        return String.format(Locale.ROOT, "%s%d.%02d", minor < 0 ? "-" : "", units / SCALE, units % SCALE);
+    }
+}
@@ -0,0 +1,89 @@
+package com.vendraly.core.economy;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Regla de {@link EconomyPolicyEngine} leída de {@code economy.policy.rules}.
+ * Los importes van en unidades mínimas ({@link Money}):
+ * <ul>
+ *     <li>{@code interest}: abona {@code rate} del saldo si llega a
+ *     {@code threshold}, con un máximo de {@code cap} por pasada (0 = sin
+ *     máximo);</li>
+ *     <li>{@code tax}: retira {@code rate} de lo que supere
+ *     {@code threshold}, también con {@code cap};</li>
+ *     <li>{@code upkeep}: retira {@code amount} a cada miembro de un clan, o
+ *     lo que tenga si es menos.</li>
+ * </ul>
+ */
+public record PolicyRule(String id, Kind kind, EconomyLedger.Account account, double rate, long threshold, long amount,
+                         long cap) {
+
+    public enum Kind {
+        INTEREST, TAX, UPKEEP
+    }
+
+    /**
+     * Movimiento que la regla aplica sobre {@code balance}; positivo para
+     * abonos, negativo para cargos y nunca mayor que el saldo.
+     */
+    public long delta(long balance, boolean clanMember) {
+        return switch (kind) {
+            case INTEREST -> balance < threshold ? 0L : capped((long) Math.floor(balance * rate));
+            case TAX -> balance <= threshold ? 0L : -capped((long) Math.floor((balance - threshold) * rate));
+            case UPKEEP -> clanMember ? -Math.min(amount, balance) : 0L;
+        };
+    }
+
+    /**
+     * Texto que identifica la configuración de la regla; dos pasadas con las
+     * mismas reglas producen la misma descripción.
+     */
+    public String describe() {
+        return id + "=" + kind.name().toLowerCase(Locale.ROOT) + "/" + account.name().toLowerCase(Locale.ROOT) + "/" + rate
+                + "/" + threshold + "/" + amount + "/" + cap;
+    }
+
+    /**
+     * Lee las reglas de {@code section}; las mal configuradas se descartan con
+     * un aviso.
+     */
+    public static List<PolicyRule> load(ConfigurationSection section, Logger logger) {
+        List<PolicyRule> rules = new ArrayList<>();
+        if (section == null) {
+            return rules;
+        }
+        for (String id : section.getKeys(false)) {
+            ConfigurationSection rule = section.getConfigurationSection(id);
+            if (rule == null) {
+                continue;
+            }
+            try {
+                Kind kind = Kind.valueOf(rule.getString("type", "").toUpperCase(Locale.ROOT));
+                EconomyLedger.Account account = EconomyLedger.Account.valueOf(rule.getString("account", "bank").toUpperCase(Locale.ROOT));
+                double rate = rule.getDouble("rate", 0.0);
+                if (!Double.isFinite(rate) || rate < 0.0 || (kind == Kind.TAX && rate > 1.0)) {
+                    throw new IllegalArgumentException("tasa fuera de rango: " + rate);
+                }
+                long threshold = Money.toMinor(rule.getDouble("threshold", 0.0));
+                long amount = Money.toMinor(rule.getDouble("amount", 0.0));
+                long cap = Money.toMinor(rule.getDouble("cap", 0.0));
+                if (threshold < 0L || amount < 0L || cap < 0L) {
+                    throw new IllegalArgumentException("importes negativos");
+                }
+                rules.add(new PolicyRule(id, kind, account, rate, threshold, amount, cap));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Regla de política económica " + id + " ignorada: " + e.getMessage());
+            }
+        }
+        return rules;
+    }
+
+    private long capped(long value) {
+        return cap > 0L ? Math.min(cap, value) : value;
+    }
+}
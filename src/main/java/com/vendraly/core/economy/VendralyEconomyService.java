@@ -0,0 +1,307 @@
+package com.vendraly.core.economy;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.api.Account;
+import com.vendraly.api.EconomyService;
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerDirectory;
+import com.vendraly.core.database.UserDataManager;
+import com.vendraly.utils.TaskUtil;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Implementación de {@link EconomyService}. Los saldos son
+ * {@link AtomicAccount}, así que las operaciones se aplican directamente en el
+ * hilo que tiene los datos (el del llamante si el jugador está en caché, el
+ * pool de precarga si hubo que cargarlo) y el guardado se reenvía al hilo
+ * principal. Cada cambio queda en el {@link EconomyLedger} con el motivo
+ * prefijado por {@code api:}; si llevaba clave de idempotencia, el motivo es
+ * {@code api:[<longitud>:<clave>]<motivo>} y al arrancar se reconstruyen las
+ * claves vigentes leyendo el ledger.
+ */
+public class VendralyEconomyService implements EconomyService {
+
+    private static final String REASON_PREFIX = "api:";
+    private static final int SWEEP_EVERY = 1024;
+
+    /**
+     * Resultado recordado de una clave de idempotencia junto con la operación
+     * que lo produjo, para detectar claves reutilizadas con otros datos.
+     */
+    private record Remembered(String operation, CompletableFuture<Result> result, long expiresAt) {
+    }
+
+    private final VendralyCore plugin;
+    private final UserDataManager userDataManager;
+    private final EconomyLedger ledger;
+    private final long idempotencyTtlMillis;
+    private final Map<String, Remembered> idempotency = new ConcurrentHashMap<>();
+    private final AtomicLong operations = new AtomicLong();
+    private final AtomicLong replays = new AtomicLong();
+    private final CompletableFuture<Void> recovered = new CompletableFuture<>();
+
+    public VendralyEconomyService(VendralyCore plugin, UserDataManager userDataManager, EconomyLedger ledger) {
+        this.plugin = plugin;
+        this.userDataManager = userDataManager;
+        this.ledger = ledger;
+        this.idempotencyTtlMillis = Math.max(1L, plugin.getConfig().getLong("economy.api.idempotency-ttl-seconds", 86400L)) * 1000L;
+        if (ledger.isOpen()) {
+            TaskUtil.runAsync(plugin, this::recover);
+        } else {
+            recovered.complete(null);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Double> getBalance(UUID player, Account account) {
+        return getBalances(List.of(player), account).thenApply(balances -> balances.get(player));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, Double>> getBalances(Collection<UUID> players, Account account) {
+        Map<UUID, Double> balances = new HashMap<>(players.size() * 2);
+        PlayerDirectory directory = userDataManager.getDirectory();
+        for (UUID uuid : players) {
+            PlayerData cached = userDataManager.getCache().peek(uuid);
+            if (cached != null) {
+                balances.put(uuid, Money.toMajor(ledgerAccount(account).of(cached).get()));
+                continue;
+            }
+            PlayerDirectory.Entry entry = directory.get(uuid);
+            balances.put(uuid, entry == null ? 0.0 : account == Account.BANK ? entry.bank() : entry.cash());
+        }
+        return CompletableFuture.completedFuture(balances);
+    }
+
+    @Override
+    public CompletableFuture<Result> deposit(UUID player, Account account, double amount, String reason,
+                                             String idempotencyKey) {
+        return singleAccount(player, account, amount, reason, idempotencyKey, "deposit", false);
+    }
+
+    @Override
+    public CompletableFuture<Result> withdraw(UUID player, Account account, double amount, String reason,
+                                              String idempotencyKey) {
+        return singleAccount(player, account, amount, reason, idempotencyKey, "withdraw", true);
+    }
+
+    @Override
+    public CompletableFuture<Result> transfer(UUID from, UUID to, Account account, double amount,
+                                              String reason, String idempotencyKey) {
+        long minor = minorOrZero(amount);
+        String operation = "transfer:" + from + ":" + to + ":" + account + ":" + minor;
+        return idempotent(idempotencyKey, operation, () -> {
+            if (minor <= 0L || from.equals(to)) {
+                return CompletableFuture.completedFuture(new Result(Status.INVALID_AMOUNT, 0.0, 0L, false));
+            }
+            EconomyLedger.Account ledgerAccount = ledgerAccount(account);
+            return userDataManager.loadAsync(from).thenCombine(userDataManager.loadAsync(to), (sender, target) -> {
+                AtomicAccount source = ledgerAccount.of(sender);
+                AtomicAccount.Change[] changes = AtomicAccount.transfer(source, ledgerAccount.of(target), minor);
+                if (changes == null) {
+                    // Sin distinguir el motivo exacto: si el emisor tenía saldo, el destino desbordaba.
+                    boolean funded = source.get() >= minor;
+                    return new Result(funded ? Status.LIMIT_EXCEEDED : Status.INSUFFICIENT_FUNDS,
+                            Money.toMajor(source.get()), 0L, false);
+                }
+                long transaction = ledger.nextTransaction();
+                ledger.record(transaction, from, to, ledgerAccount, changes[0], reason(reason, idempotencyKey));
+                ledger.record(transaction, to, from, ledgerAccount, changes[1], reason(reason, idempotencyKey));
+                userDataManager.save(sender);
+                userDataManager.save(target);
+                return new Result(Status.SUCCESS, Money.toMajor(changes[0].after()), transaction, false);
+            });
+        });
+    }
+
+    public long getOperations() {
+        return operations.get();
+    }
+
+    public long getReplays() {
+        return replays.get();
+    }
+
+    public int getRememberedKeys() {
+        return idempotency.size();
+    }
+
+    private CompletableFuture<Result> singleAccount(UUID player, Account account, double amount,
+                                                    String reason, String idempotencyKey, String kind, boolean debit) {
+        long minor = minorOrZero(amount);
+        String operation = kind + ":" + player + ":" + account + ":" + minor;
+        return idempotent(idempotencyKey, operation, () -> {
+            if (minor <= 0L) {
+                return CompletableFuture.completedFuture(new Result(Status.INVALID_AMOUNT, 0.0, 0L, false));
+            }
+            EconomyLedger.Account ledgerAccount = ledgerAccount(account);
+            return userDataManager.loadAsync(player).thenApply(data -> {
+                AtomicAccount target = ledgerAccount.of(data);
+                AtomicAccount.Change change = target.tryAdd(debit ? -minor : minor);
+                if (change == null) {
+                    return new Result(debit ? Status.INSUFFICIENT_FUNDS : Status.LIMIT_EXCEEDED,
+                            Money.toMajor(target.get()), 0L, false);
+                }
+                long transaction = ledger.nextTransaction();
+                ledger.record(transaction, player, null, ledgerAccount, change, reason(reason, idempotencyKey));
+                userDataManager.save(data);
+                return new Result(Status.SUCCESS, Money.toMajor(change.after()), transaction, false);
+            });
+        });
+    }
+
+    /**
+     * Ejecuta {@code action} una sola vez por clave. Las llamadas repetidas
+     * (incluso concurrentes) comparten el futuro de la primera; si esa falla
+     * con una excepción la clave se olvida para poder reintentar. Las claves
+     * esperan a que termine la recuperación desde el ledger.
+     */
+    private CompletableFuture<Result> idempotent(String key, String operation,
+                                                 Supplier<CompletableFuture<Result>> action) {
+        long count = operations.incrementAndGet();
+        if (key == null) {
+            return action.get();
+        }
+        if (!recovered.isDone()) {
+            return recovered.thenCompose(ignored -> deduplicate(key, operation, action));
+        }
+        if (count % SWEEP_EVERY == 0) {
+            sweepExpired();
+        }
+        return deduplicate(key, operation, action);
+    }
+
+    private CompletableFuture<Result> deduplicate(String key, String operation,
+                                                  Supplier<CompletableFuture<Result>> action) {
+        CompletableFuture<Result> created = new CompletableFuture<>();
+        Remembered fresh = new Remembered(operation, created, System.currentTimeMillis() + idempotencyTtlMillis);
+        Remembered existing = idempotency.putIfAbsent(key, fresh);
+        if (existing != null && existing.expiresAt() < System.currentTimeMillis() && idempotency.replace(key, existing, fresh)) {
+            existing = null;
+        }
+        if (existing != null) {
+            replays.incrementAndGet();
+            if (!existing.operation().equals(operation)) {
+                return CompletableFuture.completedFuture(new Result(Status.KEY_CONFLICT, 0.0, 0L, true));
+            }
+            return existing.result().thenApply(result -> new Result(result.status(), result.balance(), result.transaction(), true));
+        }
+        CompletableFuture<Result> running;
+        try {
+            running = action.get();
+        } catch (RuntimeException e) {
+            running = CompletableFuture.failedFuture(e);
+        }
+        running.whenComplete((result, error) -> {
+            if (error != null) {
+                idempotency.remove(key, fresh);
+                created.completeExceptionally(error);
+            } else {
+                created.complete(result);
+            }
+        });
+        return created;
+    }
+
+    private void sweepExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Remembered>> iterator = idempotency.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().expiresAt() < now) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Reconstruye las claves de operaciones aplicadas dentro del TTL a partir
+     * de los motivos del ledger. Una transferencia deja dos movimientos con la
+     * misma clave; cuenta el del emisor.
+     */
+    private void recover() {
+        long since = System.currentTimeMillis() - idempotencyTtlMillis;
+        try {
+            ledger.replay(since, entry -> {
+                if (entry.timestamp() < since || !entry.reason().startsWith(REASON_PREFIX + "[")) {
+                    return;
+                }
+                String key = keyOf(entry.reason());
+                String operation = operationOf(entry);
+                if (key == null || operation == null) {
+                    return;
+                }
+                Result result = new Result(Status.SUCCESS, Money.toMajor(entry.balanceAfterMinor()), entry.transaction(), false);
+                idempotency.put(key, new Remembered(operation, CompletableFuture.completedFuture(result),
+                        entry.timestamp() + idempotencyTtlMillis));
+            });
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "No se pudieron recuperar las claves de idempotencia del ledger", e);
+        } finally {
+            recovered.complete(null);
+        }
+    }
+
+    private static String operationOf(EconomyLedger.Entry entry) {
+        String account = entry.account().name();
+        if (entry.counterparty() != null) {
+            return entry.amountMinor() < 0L
+                    ? "transfer:" + entry.player() + ":" + entry.counterparty() + ":" + account + ":" + -entry.amountMinor()
+                    : null;
+        }
+        return entry.amountMinor() > 0L
+                ? "deposit:" + entry.player() + ":" + account + ":" + entry.amountMinor()
+                : "withdraw:" + entry.player() + ":" + account + ":" + -entry.amountMinor();
+    }
+
+    /**
+     * La clave de {@code api:[<longitud>:<clave>]<motivo>}, o {@code null} si
+     * el motivo no tiene esa forma.
+     */
+    static String keyOf(String reason) {
+        int start = REASON_PREFIX.length() + 1;
+        int colon = reason.indexOf(':', start);
+        if (colon < 0) {
+            return null;
+        }
+        int length;
+        try {
+            length = Integer.parseInt(reason.substring(start, colon));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        int end = colon + 1 + length;
+        if (length < 0 || end >= reason.length() || reason.charAt(end) != ']') {
+            return null;
+        }
+        return reason.substring(colon + 1, end);
+    }
+
+    static String reason(String reason, String key) {
+        String text = reason == null ? "" : reason;
+        return key == null ? REASON_PREFIX + text : REASON_PREFIX + "[" + key.length() + ":" + key + "]" + text;
+    }
+
+    private static EconomyLedger.Account ledgerAccount(Account account) {
+        return EconomyLedger.Account.valueOf(account.name());
+    }
+
+    private static long minorOrZero(double amount) {
+        try {
+            return Money.toMinor(amount);
+        } catch (IllegalArgumentException e) {
+            return 0L;
+        }
+    }
+}
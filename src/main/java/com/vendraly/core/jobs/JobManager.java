@@ -4,6 +4,9 @@ import com.vendraly.VendralyCore;
 import com.vendraly.core.config.ConfigManager;
 import com.vendraly.core.database.PlayerData;
 import com.vendraly.core.database.UserDataManager;
+import com.vendraly.core.economy.BatchTransferService;
+import com.vendraly.core.economy.EconomyBatch;
+import com.vendraly.core.economy.EconomyLedger;
 import com.vendraly.core.rpg.stats.XPManager;
 import org.bukkit.Material;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -13,15 +16,20 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Gestiona oficios configurables.
+ * Gestiona oficios configurables. Las recompensas en efectivo no se pagan una
+ * a una: se acumulan por jugador y oficio y {@link #payPending()} las abona
+ * periódicamente en un único {@link EconomyBatch}, con un aviso por jugador.
  */
 public class JobManager {
 
     private final Map<String, JobDefinition> jobs = new ConcurrentHashMap<>();
     private final UserDataManager userDataManager;
+    private final BatchTransferService batchTransferService;
+    private final Map<UUID, Map<String, Long>> pendingPay = new HashMap<>();
 
     public JobManager(VendralyCore plugin) {
         this.userDataManager = plugin.getUserDataManager();
+        this.batchTransferService = plugin.getBatchTransferService();
         loadJobs(plugin.getConfigManager());
     }
 
@@ -58,9 +66,27 @@ public class JobManager {
             JobProgress progress = data.getOrCreateJob(job.getId());
             progress.addExperience(job.getBaseReward());
             xpManager.addExperience(player, job.getBaseReward());
-            data.setCashBalance(data.getCashBalance() + job.getBaseReward());
             userDataManager.save(data);
-            player.sendMessage("Ganaste " + job.getBaseReward() + " monedas por tu oficio de " + job.getDisplayName());
+            pendingPay.computeIfAbsent(player.getUniqueId(), key -> new HashMap<>()).merge(job.getId(), job.getBaseReward(), Long::sum);
         });
     }
+
+    /**
+     * Abona las recompensas acumuladas desde el último pago. Se llama desde el
+     * hilo principal cada {@code economy.payroll.job-interval-ticks} y al
+     * apagar.
+     */
+    public void payPending() {
+        if (pendingPay.isEmpty()) {
+            return;
+        }
+        EconomyBatch batch = new EconomyBatch("job", "Pago de oficios");
+        for (Map.Entry<UUID, Map<String, Long>> player : pendingPay.entrySet()) {
+            for (Map.Entry<String, Long> job : player.getValue().entrySet()) {
+                batch.add(player.getKey(), EconomyLedger.Account.CASH, job.getValue(), "job:" + job.getKey());
+            }
+        }
+        pendingPay.clear();
+        batchTransferService.submit(batch);
+    }
 }
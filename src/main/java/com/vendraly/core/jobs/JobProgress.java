@@ -6,11 +6,18 @@ package com.vendraly.core.jobs;
 public class JobProgress {
 
     private final String jobId;
+    private final Runnable onChange;
     private long experience;
     private int level;
 
     public JobProgress(String jobId) {
+        this(jobId, () -> {
+        });
+    }
+
+    public JobProgress(String jobId, Runnable onChange) {
         this.jobId = jobId;
+        this.onChange = onChange;
         this.level = 1;
     }
 
@@ -22,8 +29,14 @@ public class JobProgress {
         return experience;
     }
 
+    public void setExperience(long experience) {
+        this.experience = experience;
+        onChange.run();
+    }
+
     public void addExperience(long amount) {
         this.experience += amount;
+        onChange.run();
     }
 
     public int getLevel() {
@@ -32,5 +45,6 @@ public class JobProgress {
 
     public void setLevel(int level) {
         this.level = level;
+        onChange.run();
     }
 }
@@ -0,0 +1,148 @@
+package com.vendraly.core.leaderboard;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerSnapshot;
+import com.vendraly.core.database.UserDataManager;
+import com.vendraly.utils.TaskUtil;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Clasificaciones en vivo de saldo total, nivel RPG y nivel de cada oficio.
+ * Se alimentan de las vistas que publica {@link UserDataManager#save}, así
+ * que cualquier cambio hecho por {@code CashManager}, {@code EconomyManager},
+ * {@code XPManager} o los oficios se refleja al instante sin leer disco. Al
+ * arrancar se reconstruyen en segundo plano recorriendo el almacenamiento;
+ * mientras tanto los cambios en vivo ya cuentan y la reconstrucción no los
+ * pisa.
+ */
+public class LeaderboardManager {
+
+    public static final String BALANCE = "balance";
+    public static final String LEVEL = "level";
+    private static final String JOB_PREFIX = "job:";
+
+    /**
+     * Multiplicador del nivel en las puntuaciones de progreso: el nivel manda y
+     * la experiencia desempata. Con niveles por debajo de 9000 el resultado
+     * sigue siendo exacto en un {@code double}.
+     */
+    private static final double LEVEL_WEIGHT = 1e12;
+
+    private final VendralyCore plugin;
+    private final UserDataManager userDataManager;
+    private final Map<String, RankIndex> boards = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public LeaderboardManager(VendralyCore plugin, UserDataManager userDataManager) {
+        this.plugin = plugin;
+        this.userDataManager = userDataManager;
+        boards.put(BALANCE, new RankIndex());
+        boards.put(LEVEL, new RankIndex());
+        userDataManager.addChangeListener(this::onChange);
+        TaskUtil.runAsync(plugin, this::rebuild);
+    }
+
+    /**
+     * Vuelve a llenar las clasificaciones desde el almacenamiento; se ejecuta
+     * fuera del hilo principal.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        ready = false;
+        boolean complete = userDataManager.scanAll(snapshot -> {
+            UUID uuid = snapshot.getUuid();
+            boards.get(BALANCE).putIfAbsent(uuid, balanceScore(snapshot));
+            boards.get(LEVEL).putIfAbsent(uuid, progressScore(snapshot.getRpgLevel(), snapshot.getRpgExperience()));
+            for (PlayerSnapshot.JobSnapshot job : snapshot.getJobs().values()) {
+                jobBoard(job.jobId()).putIfAbsent(uuid, progressScore(job.level(), job.experience()));
+            }
+        });
+        ready = complete;
+        plugin.getPluginLogger().info("Clasificaciones reconstruidas: " + boards.get(BALANCE).size() + " jugadores, "
+                + (boards.size() - 2) + " oficios en " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * {@code false} mientras la reconstrucción inicial no haya terminado.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Clasificación por nombre ({@link #BALANCE}, {@link #LEVEL} o
+     * {@code job:<oficio>}), o {@code null} si no existe.
+     */
+    public RankIndex getBoard(String name) {
+        return boards.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public static String jobBoardName(String jobId) {
+        return JOB_PREFIX + jobId.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Oficios con clasificación.
+     */
+    public Set<String> getJobIds() {
+        return boards.keySet().stream()
+                .filter(name -> name.startsWith(JOB_PREFIX))
+                .map(name -> name.substring(JOB_PREFIX.length()))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /**
+     * Página {@code page} (desde 1) de {@code size} posiciones.
+     */
+    public List<RankIndex.Ranked> page(String board, int page, int size) {
+        RankIndex index = getBoard(board);
+        if (index == null || page < 1) {
+            return Collections.emptyList();
+        }
+        return index.range((page - 1) * size + 1, size);
+    }
+
+    /**
+     * Nivel representado por una puntuación de progreso.
+     */
+    public static int levelOf(double score) {
+        return (int) (score / LEVEL_WEIGHT);
+    }
+
+    private void onChange(PlayerSnapshot snapshot, int sections) {
+        UUID uuid = snapshot.getUuid();
+        if ((sections & PlayerData.SECTION_BALANCES) != 0) {
+            boards.get(BALANCE).put(uuid, balanceScore(snapshot));
+        }
+        if ((sections & PlayerData.SECTION_PROGRESSION) != 0) {
+            boards.get(LEVEL).put(uuid, progressScore(snapshot.getRpgLevel(), snapshot.getRpgExperience()));
+        }
+        if ((sections & PlayerData.SECTION_JOBS) != 0) {
+            for (PlayerSnapshot.JobSnapshot job : snapshot.getJobs().values()) {
+                jobBoard(job.jobId()).put(uuid, progressScore(job.level(), job.experience()));
+            }
+        }
+    }
+
+    private RankIndex jobBoard(String jobId) {
+        return boards.computeIfAbsent(jobBoardName(jobId), key -> new RankIndex());
+    }
+
+    private static double balanceScore(PlayerSnapshot snapshot) {
+        return snapshot.getBankBalance() + snapshot.getCashBalance();
+    }
+
+    private static double progressScore(int level, long experience) {
+        return level * LEVEL_WEIGHT + Math.min(experience, (long) LEVEL_WEIGHT - 1L);
+    }
+}
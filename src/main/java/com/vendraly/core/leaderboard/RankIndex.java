@@ -0,0 +1,219 @@
+package com.vendraly.core.leaderboard;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Skip list indexable ordenada por puntuación descendente (desempate por
+ * UUID). Cada enlace guarda cuántos nodos salta, así que insertar, borrar,
+ * consultar la posición de un jugador y saltar a la posición {@code k} cuestan
+ * O(log n). Es segura entre hilos mediante un monitor propio.
+ */
+public class RankIndex {
+
+    private static final int MAX_LEVEL = 24;
+
+    /**
+     * Posición (desde 1) y puntuación de un jugador.
+     */
+    public record Ranked(int rank, UUID uuid, double score) {
+    }
+
+    private static final class Node {
+        final double score;
+        final long most;
+        final long least;
+        final Node[] next;
+        final int[] span;
+
+        Node(double score, long most, long least, int levels) {
+            this.score = score;
+            this.most = most;
+            this.least = least;
+            this.next = new Node[levels];
+            this.span = new int[levels];
+        }
+    }
+
+    private final Node head = new Node(Double.POSITIVE_INFINITY, Long.MIN_VALUE, Long.MIN_VALUE, MAX_LEVEL);
+    private final Map<UUID, Node> nodes = new HashMap<>();
+    private int level = 1;
+    private int length;
+
+    /**
+     * Fija la puntuación del jugador; no hace nada si no cambió.
+     */
+    public synchronized void put(UUID uuid, double score) {
+        Node current = nodes.get(uuid);
+        if (current != null) {
+            if (Double.compare(current.score, score) == 0) {
+                return;
+            }
+            unlink(current);
+        }
+        nodes.put(uuid, insert(score, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+    }
+
+    /**
+     * Como {@link #put} pero sin pisar una puntuación ya presente; la usa la
+     * reconstrucción para no deshacer cambios en vivo más recientes.
+     */
+    public synchronized void putIfAbsent(UUID uuid, double score) {
+        if (!nodes.containsKey(uuid)) {
+            nodes.put(uuid, insert(score, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+        }
+    }
+
+    public synchronized void remove(UUID uuid) {
+        Node current = nodes.remove(uuid);
+        if (current != null) {
+            unlink(current);
+        }
+    }
+
+    /**
+     * Posición desde 1, o 0 si el jugador no está.
+     */
+    public synchronized int rank(UUID uuid) {
+        Node target = nodes.get(uuid);
+        if (target == null) {
+            return 0;
+        }
+        int rank = 0;
+        Node node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && !after(node.next[i], target.score, target.most, target.least)) {
+                rank += node.span[i];
+                node = node.next[i];
+            }
+        }
+        return rank;
+    }
+
+    public synchronized double score(UUID uuid) {
+        Node node = nodes.get(uuid);
+        return node == null ? 0.0 : node.score;
+    }
+
+    /**
+     * Hasta {@code limit} jugadores a partir de la posición {@code fromRank}
+     * (desde 1).
+     */
+    public synchronized List<Ranked> range(int fromRank, int limit) {
+        List<Ranked> page = new ArrayList<>(Math.max(0, Math.min(limit, length)));
+        if (fromRank < 1 || fromRank > length || limit <= 0) {
+            return page;
+        }
+        int traversed = 0;
+        Node node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && traversed + node.span[i] <= fromRank) {
+                traversed += node.span[i];
+                node = node.next[i];
+            }
+        }
+        int rank = fromRank;
+        while (node != null && page.size() < limit) {
+            page.add(new Ranked(rank++, new UUID(node.most, node.least), node.score));
+            node = node.next[0];
+        }
+        return page;
+    }
+
+    public synchronized int size() {
+        return length;
+    }
+
+    public synchronized void clear() {
+        nodes.clear();
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = null;
+            head.span[i] = 0;
+        }
+        level = 1;
+        length = 0;
+    }
+
+    private Node insert(double score, long most, long least) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rankAt = new int[MAX_LEVEL];
+        Node node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rankAt[i] = i == level - 1 ? 0 : rankAt[i + 1];
+            while (node.next[i] != null && !after(node.next[i], score, most, least)) {
+                rankAt[i] += node.span[i];
+                node = node.next[i];
+            }
+            update[i] = node;
+        }
+        int levels = randomLevel();
+        if (levels > level) {
+            for (int i = level; i < levels; i++) {
+                rankAt[i] = 0;
+                update[i] = head;
+                update[i].span[i] = length;
+            }
+            level = levels;
+        }
+        Node created = new Node(score, most, least, levels);
+        for (int i = 0; i < levels; i++) {
+            created.next[i] = update[i].next[i];
+            update[i].next[i] = created;
+            created.span[i] = update[i].span[i] - (rankAt[0] - rankAt[i]);
+            update[i].span[i] = rankAt[0] - rankAt[i] + 1;
+        }
+        for (int i = levels; i < level; i++) {
+            update[i].span[i]++;
+        }
+        length++;
+        return created;
+    }
+
+    private void unlink(Node target) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && node.next[i] != target && !after(node.next[i], target.score, target.most, target.least)) {
+                node = node.next[i];
+            }
+            update[i] = node;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == target) {
+                update[i].span[i] += target.span[i] - 1;
+                update[i].next[i] = target.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        length--;
+    }
+
+    /**
+     * {@code true} si {@code node} va estrictamente detrás de la clave dada.
+     */
+    private static boolean after(Node node, double score, long most, long least) {
+        int byScore = Double.compare(score, node.score);
+        if (byScore != 0) {
+            return byScore > 0;
+        }
+        int byMost = Long.compare(node.most, most);
+        return byMost != 0 ? byMost > 0 : Long.compare(node.least, least) > 0;
+    }
+
+    private static int randomLevel() {
+        int levels = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (levels < MAX_LEVEL && random.nextInt(4) == 0) {
+            levels++;
+        }
+        return levels;
+    }
+}
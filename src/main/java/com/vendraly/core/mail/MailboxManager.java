@@ -0,0 +1,560 @@
+package com.vendraly.core.mail;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.UserDataManager;
+import com.vendraly.core.economy.CashManager;
+import com.vendraly.core.economy.Money;
+import com.vendraly.utils.ByteReader;
+import com.vendraly.utils.ByteWriter;
+import com.vendraly.utils.TaskUtil;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Buzón de envíos (objetos y dinero) para jugadores conectados o no. Cada
+ * jugador tiene un diario {@code mail/<uuid>.mail} en el que solo se añaden
+ * registros: el alta de un envío y la recogida de varios. Un único hilo,
+ * {@code VendralyCore-Mail}, escribe por grupos (un {@code force} por fichero
+ * y grupo) y lee el buzón cuando el jugador entra; mientras sigue conectado
+ * los envíos nuevos se le entregan en el hilo principal en el siguiente
+ * tick. Lo que no cabe en el inventario sigue en el buzón. Si una escritura
+ * falla, el fichero se recorta a como estaba y los registros se reintentan;
+ * {@link #send} avisa cuando su envío ya está en disco.
+ */
+public class MailboxManager implements Closeable {
+
+    private record Op(int type, UUID player, Parcel parcel, List<Long> ids, CompletableFuture<Void> done) {
+    }
+
+    private static final int FRAME_HEADER = 8;
+    private static final int ADD = 1;
+    private static final int CLAIM = 2;
+    private static final int LOAD = 3;
+    private static final int UNLOAD = 4;
+    private static final String SUFFIX = ".mail";
+
+    private final VendralyCore plugin;
+    private final UserDataManager userDataManager;
+    private final CashManager cashManager;
+    private final Logger logger;
+    private final File directory;
+    private final BlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+    private final Map<UUID, List<Parcel>> loaded = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong(System.currentTimeMillis() << 12);
+
+    private final Map<UUID, ByteWriter> pendingWrites = new HashMap<>();
+    private final Map<UUID, List<CompletableFuture<Void>>> pendingAcks = new HashMap<>();
+    private final Map<UUID, Long> damaged = new HashMap<>();
+    private final Set<UUID> ready = new LinkedHashSet<>();
+
+    private final AtomicLong posted = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong deliveredItems = new AtomicLong();
+    private final AtomicLong deliveredMoney = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private Thread writer;
+    private volatile boolean running;
+    private volatile boolean closed;
+
+    public MailboxManager(VendralyCore plugin, UserDataManager userDataManager, CashManager cashManager) {
+        this.plugin = plugin;
+        this.userDataManager = userDataManager;
+        this.cashManager = cashManager;
+        this.logger = plugin.getPluginLogger();
+        this.directory = new File(plugin.getDataFolder(), "mail");
+    }
+
+    public void start() {
+        if (!directory.exists() && !directory.mkdirs()) {
+            logger.severe("No se pudo crear " + directory);
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "VendralyCore-Mail");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Deja un envío en el buzón de {@code recipient}. Puede llamarse desde
+     * cualquier hilo; los objetos se serializan en el que llama.
+     *
+     * @return se completa cuando el envío está en disco
+     */
+    public CompletableFuture<Void> send(UUID recipient, String sender, String reason, long money,
+                                        Collection<ItemStack> items) {
+        return send(recipient, ids.incrementAndGet(), sender, reason, money, items);
+    }
+
+    /**
+     * Como {@link #send(UUID, String, String, long, Collection)} pero con el
+     * id del envío elegido por quien llama. Repetir el id no duplica nada: el
+     * envío sustituye al pendiente con ese id y se ignora si ya se recogió.
+     */
+    public CompletableFuture<Void> send(UUID recipient, long parcelId, String sender, String reason, long money,
+                                        Collection<ItemStack> items) {
+        List<byte[]> serialized = new ArrayList<>(items.size());
+        for (ItemStack item : items) {
+            if (item != null && item.getType() != Material.AIR && item.getAmount() > 0) {
+                serialized.add(item.serializeAsBytes());
+            }
+        }
+        Parcel parcel = new Parcel(parcelId, System.currentTimeMillis(), sender, reason, Math.max(0L, money), serialized);
+        if (parcel.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (closed) {
+            logger.severe("Correo cerrado: se pierde un envío " + reason + " para " + recipient);
+            return CompletableFuture.failedFuture(new IOException("El correo está cerrado"));
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Op(ADD, recipient, parcel, null, done));
+        posted.incrementAndGet();
+        return done;
+    }
+
+    /**
+     * Lee el buzón del jugador que entra y le entrega lo que quepa.
+     */
+    public void load(UUID player) {
+        queue.add(new Op(LOAD, player, null, null, null));
+    }
+
+    public void unload(UUID player) {
+        queue.add(new Op(UNLOAD, player, null, null, null));
+    }
+
+    /**
+     * Reintenta la entrega al jugador (por ejemplo tras liberar espacio).
+     * Debe llamarse desde el hilo principal.
+     *
+     * @return envíos que siguen en el buzón, o -1 si aún no se ha leído
+     */
+    public int deliver(Player player) {
+        List<Parcel> box = loaded.get(player.getUniqueId());
+        if (box == null) {
+            return -1;
+        }
+        deliverNow(player.getUniqueId());
+        synchronized (box) {
+            return box.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(10000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            closed = true;
+            List<Op> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            process(remaining);
+            if (!pendingWrites.isEmpty()) {
+                logger.severe("Correo cerrado sin poder escribir los buzones de " + pendingWrites.size()
+                        + " jugadores; sus envíos se pierden");
+                IOException cause = new IOException("No se pudo escribir el correo antes de cerrar");
+                pendingAcks.values().forEach(acks -> acks.forEach(ack -> ack.completeExceptionally(cause)));
+                pendingAcks.clear();
+                pendingWrites.clear();
+            }
+        }
+    }
+
+    public long getPosted() {
+        return posted.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public long getDeliveredItems() {
+        return deliveredItems.get();
+    }
+
+    public long getDeliveredMoney() {
+        return deliveredMoney.get();
+    }
+
+    public long getWrites() {
+        return writes.get();
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    public int getLoaded() {
+        return loaded.size();
+    }
+
+    private void runWriter() {
+        List<Op> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Op first = queue.poll(100L, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    synchronized (this) {
+                        if (!pendingWrites.isEmpty()) {
+                            // Reintenta lo que no se pudo escribir en la pasada anterior.
+                            process(batch);
+                        }
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                synchronized (this) {
+                    process(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Error procesando el correo", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Aplica un grupo en orden, escribe cada fichero tocado una sola vez y
+     * pasa al hilo principal las entregas a jugadores conectados.
+     */
+    private void process(List<Op> batch) {
+        for (Op op : batch) {
+            switch (op.type()) {
+                case ADD -> {
+                    ByteWriter body = new ByteWriter(64).writeByte(ADD);
+                    writeParcel(body, op.parcel());
+                    frame(op.player(), body);
+                    if (op.done() != null) {
+                        pendingAcks.computeIfAbsent(op.player(), key -> new ArrayList<>()).add(op.done());
+                    }
+                    List<Parcel> box = loaded.get(op.player());
+                    if (box != null) {
+                        synchronized (box) {
+                            box.removeIf(parcel -> parcel.id() == op.parcel().id());
+                            box.add(op.parcel());
+                        }
+                        ready.add(op.player());
+                    }
+                }
+                case CLAIM -> {
+                    ByteWriter body = new ByteWriter(16).writeByte(CLAIM).writeVarInt(op.ids().size());
+                    op.ids().forEach(body::writeVarLong);
+                    frame(op.player(), body);
+                }
+                case LOAD -> {
+                    flush(op.player());
+                    loaded.put(op.player(), read(op.player()));
+                    ready.add(op.player());
+                }
+                case UNLOAD -> {
+                    loaded.remove(op.player());
+                    ready.remove(op.player());
+                }
+                default -> throw new IllegalStateException("Operación de correo desconocida " + op.type());
+            }
+        }
+        for (UUID player : new ArrayList<>(pendingWrites.keySet())) {
+            flush(player);
+        }
+        if (!ready.isEmpty() && plugin.isEnabled() && !closed) {
+            Set<UUID> players = new HashSet<>(ready);
+            TaskUtil.runSync(plugin, () -> players.forEach(this::deliverNow));
+        }
+        ready.clear();
+    }
+
+    /**
+     * Entrega en el hilo principal los envíos que quepan. Un envío que entra
+     * a medias se recoge y lo sobrante vuelve al buzón como envío nuevo sin
+     * dinero; uno del que no cabe nada se queda como está.
+     */
+    private void deliverNow(UUID uuid) {
+        Player player = Bukkit.getPlayer(uuid);
+        List<Parcel> box = loaded.get(uuid);
+        if (player == null || box == null) {
+            return;
+        }
+        List<Parcel> parcels;
+        synchronized (box) {
+            parcels = new ArrayList<>(box);
+        }
+        if (parcels.isEmpty()) {
+            return;
+        }
+        Set<Long> claimed = new HashSet<>();
+        Map<String, Long> money = new LinkedHashMap<>();
+        int items = 0;
+        int kept = 0;
+        for (Parcel parcel : parcels) {
+            List<ItemStack> stacks = new ArrayList<>(parcel.items().size());
+            try {
+                for (byte[] bytes : parcel.items()) {
+                    stacks.add(ItemStack.deserializeBytes(bytes));
+                }
+            } catch (RuntimeException e) {
+                logger.warning("Envío " + parcel.id() + " de " + uuid + " ilegible; se conserva: " + e.getMessage());
+                kept++;
+                continue;
+            }
+            List<ItemStack> leftovers = new ArrayList<>();
+            int given = 0;
+            for (ItemStack stack : stacks) {
+                int amount = stack.getAmount();
+                for (ItemStack rest : player.getInventory().addItem(stack).values()) {
+                    leftovers.add(rest);
+                    amount -= rest.getAmount();
+                }
+                given += amount;
+            }
+            if (given == 0 && parcel.money() == 0L) {
+                kept++;
+                continue;
+            }
+            claimed.add(parcel.id());
+            items += given;
+            if (parcel.money() > 0L) {
+                money.merge("mail:" + parcel.reason(), parcel.money(), Long::sum);
+            }
+            if (!leftovers.isEmpty()) {
+                send(uuid, parcel.sender(), parcel.reason(), 0L, leftovers);
+                kept++;
+            }
+        }
+        if (claimed.isEmpty()) {
+            if (kept > 0) {
+                player.sendMessage(Component.text("Tienes " + kept + " envíos en el correo que no caben en el inventario; "
+                        + "libera espacio y usa /mail.", NamedTextColor.YELLOW));
+            }
+            return;
+        }
+        synchronized (box) {
+            box.removeIf(parcel -> claimed.contains(parcel.id()));
+        }
+        queue.add(new Op(CLAIM, uuid, null, new ArrayList<>(claimed), null));
+        long total = 0L;
+        if (!money.isEmpty()) {
+            PlayerData data = userDataManager.getOrCreate(uuid, player.getName());
+            for (Map.Entry<String, Long> entry : money.entrySet()) {
+                cashManager.adjust(data, Money.toMajor(entry.getValue()), entry.getKey());
+                total += entry.getValue();
+            }
+            userDataManager.save(data);
+        }
+        delivered.addAndGet(claimed.size());
+        deliveredItems.addAndGet(items);
+        deliveredMoney.addAndGet(total);
+        player.sendMessage(Component.text("Correo: recibiste " + claimed.size() + " envíos (" + items + " objetos"
+                + (total > 0L ? ", " + Money.format(total) : "") + ").", NamedTextColor.GREEN));
+        if (kept > 0) {
+            player.sendMessage(Component.text("Quedan " + kept + " envíos en el correo: libera espacio y usa /mail.",
+                    NamedTextColor.YELLOW));
+        }
+    }
+
+    private void frame(UUID player, ByteWriter body) {
+        byte[] bytes = body.toByteArray();
+        pendingWrites.computeIfAbsent(player, key -> new ByteWriter(256))
+                .writeInt(bytes.length)
+                .writeInt(checksum(bytes, 0, bytes.length))
+                .writeBytes(bytes);
+    }
+
+    /**
+     * Añade al buzón lo pendiente del jugador y lo fuerza a disco. Si falla,
+     * lo pendiente se conserva para el siguiente intento y el fichero vuelve
+     * a su tamaño anterior; si ni eso se puede, el siguiente intento recorta
+     * antes de escribir.
+     */
+    private void flush(UUID player) {
+        ByteWriter pending = pendingWrites.get(player);
+        if (pending == null) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+        try (FileChannel channel = FileChannel.open(file(player).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            Long cut = damaged.get(player);
+            long start = cut == null ? channel.size() : cut;
+            try {
+                if (channel.size() > start) {
+                    channel.truncate(start);
+                }
+                damaged.remove(player);
+                channel.position(start);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                damaged.put(player, start);
+                try {
+                    channel.truncate(start);
+                    damaged.remove(player);
+                } catch (IOException again) {
+                    e.addSuppressed(again);
+                }
+                throw e;
+            }
+        } catch (IOException e) {
+            logger.severe("No se pudo escribir el correo de " + player + "; se reintentará: " + e.getMessage());
+            return;
+        }
+        pendingWrites.remove(player);
+        writes.incrementAndGet();
+        List<CompletableFuture<Void>> acks = pendingAcks.remove(player);
+        if (acks != null) {
+            acks.forEach(ack -> ack.complete(null));
+        }
+    }
+
+    /**
+     * Lee los envíos pendientes hasta el primer registro dañado. Un buzón
+     * vacío se borra y uno con más recogidas que envíos vivos se reescribe.
+     * Un alta repetida de un envío ya recogido se ignora.
+     */
+    private List<Parcel> read(UUID player) {
+        File file = file(player);
+        if (!file.isFile()) {
+            return new ArrayList<>();
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            ByteBuffer header = ByteBuffer.wrap(bytes);
+            Map<Long, Parcel> live = new LinkedHashMap<>();
+            Set<Long> claimed = new HashSet<>();
+            int frames = 0;
+            int position = 0;
+            while (position + FRAME_HEADER <= bytes.length) {
+                int length = header.getInt(position);
+                int crc = header.getInt(position + 4);
+                if (length <= 0 || position + FRAME_HEADER + length > bytes.length
+                        || checksum(bytes, position + FRAME_HEADER, length) != crc) {
+                    break;
+                }
+                ByteReader in = new ByteReader(bytes, position + FRAME_HEADER, length);
+                if (in.readByte() == ADD) {
+                    Parcel parcel = readParcel(in);
+                    if (!claimed.contains(parcel.id())) {
+                        live.put(parcel.id(), parcel);
+                    }
+                } else {
+                    int count = in.readVarInt();
+                    for (int i = 0; i < count; i++) {
+                        long id = in.readVarLong();
+                        live.remove(id);
+                        claimed.add(id);
+                    }
+                }
+                frames++;
+                position += FRAME_HEADER + length;
+            }
+            if (position < bytes.length) {
+                logger.warning("Correo de " + player + " con " + (bytes.length - position) + " bytes incompletos; se descartan");
+            }
+            if (live.isEmpty()) {
+                Files.delete(file.toPath());
+            } else if (position < bytes.length || frames > live.size() * 2) {
+                rewrite(file, live.values());
+            }
+            // Si quedaban restos de una escritura fallida, ya no están: el fichero acaba en un registro completo.
+            damaged.remove(player);
+            return new ArrayList<>(live.values());
+        } catch (IOException e) {
+            logger.severe("No se pudo leer el correo de " + player + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private void rewrite(File file, Collection<Parcel> parcels) throws IOException {
+        ByteWriter out = new ByteWriter(1024);
+        for (Parcel parcel : parcels) {
+            ByteWriter body = new ByteWriter(64).writeByte(ADD);
+            writeParcel(body, parcel);
+            byte[] bytes = body.toByteArray();
+            out.writeInt(bytes.length).writeInt(checksum(bytes, 0, bytes.length)).writeBytes(bytes);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), out.toByteArray());
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeParcel(ByteWriter out, Parcel parcel) {
+        out.writeVarLong(parcel.id())
+                .writeVarLong(parcel.createdAt())
+                .writeString(parcel.sender())
+                .writeString(parcel.reason())
+                .writeVarLong(parcel.money())
+                .writeVarInt(parcel.items().size());
+        for (byte[] item : parcel.items()) {
+            out.writeVarInt(item.length).writeBytes(item);
+        }
+    }
+
+    private static Parcel readParcel(ByteReader in) throws IOException {
+        long id = in.readVarLong();
+        long createdAt = in.readVarLong();
+        String sender = in.readString();
+        String reason = in.readString();
+        long money = in.readVarLong();
+        int count = in.readVarInt();
+        List<byte[]> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(in.readBytes(in.readVarInt()));
+        }
+        return new Parcel(id, createdAt, sender, reason, money, items);
+    }
+
+    private File file(UUID player) {
+        return new File(directory, player + SUFFIX);
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,14 @@
+package com.vendraly.core.mail;
+
+import java.util.List;
+
+/**
+ * Envío pendiente en el buzón de un jugador: dinero en unidades mínimas
+ * ({@code Money}) y objetos serializados con {@code ItemStack#serializeAsBytes}.
+ */
+public record Parcel(long id, long createdAt, String sender, String reason, long money, List<byte[]> items) {
+
+    public boolean isEmpty() {
+        return money <= 0L && items.isEmpty();
+    }
+}
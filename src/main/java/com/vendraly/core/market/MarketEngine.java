@@ -0,0 +1,989 @@
+package com.vendraly.core.market;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.core.economy.CashManager;
+import com.vendraly.core.economy.Money;
+import com.vendraly.core.mail.MailboxManager;
+import com.vendraly.utils.ByteReader;
+import com.vendraly.utils.ByteWriter;
+import com.vendraly.utils.TaskUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Casa de subastas: un libro de órdenes por material con prioridad
+ * precio-tiempo, cruces parciales al precio de la orden en reposo y depósito
+ * previo de lo ofrecido (los objetos de las ventas y el dinero de las
+ * compras, retirados por quien coloca la orden en el hilo principal).
+ * <p>
+ * Todo el estado vive en un único hilo, {@code VendralyCore-Market}, que
+ * atiende las peticiones por grupos: aplica hasta {@code market.group-max},
+ * añade sus registros a {@code market/orders.log} con un solo {@code force}
+ * y solo entonces responde, paga a los vendedores con
+ * {@link CashManager#depositAsync} y manda lo comprado (o lo devuelto) al
+ * {@link MailboxManager} del destinatario. Lo que va al correo queda en
+ * depósito como envío anotado hasta que el correo lo tiene en disco; los
+ * envíos sin confirmar se repiten al arrancar con el mismo id, que el correo
+ * no duplica. Cada {@code market.snapshot-every} registros el
+ * estado completo se vuelca a {@code market/orders.snapshot} y el diario
+ * empieza de nuevo; al arrancar se carga la instantánea y se reaplican los
+ * registros posteriores. Si el diario no se puede escribir, el grupo se
+ * descarta, se devuelve lo depositado por sus peticiones y el mercado se
+ * detiene hasta reiniciarlo.
+ */
+public class MarketEngine implements Closeable {
+
+    /**
+     * Cantidad total en reposo a un precio.
+     */
+    public record PriceLevel(long price, long quantity, int orders) {
+    }
+
+    public record Depth(String item, List<PriceLevel> bids, List<PriceLevel> asks) {
+    }
+
+    /**
+     * Respuesta a una orden nueva: la orden tal como quedó (nula si se
+     * rechazó, con {@code error} explicando por qué) y los cruces que produjo.
+     */
+    public record PlaceResult(MarketOrder order, List<MarketFill> fills, String error) {
+
+        public boolean isAccepted() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Petición encolada para el hilo del mercado. Si se rechaza sin haber
+     * anotado nada en el diario, {@code release} devuelve lo depositado.
+     */
+    private static final class Command<T> {
+
+        private final Supplier<T> action;
+        private final Runnable release;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private RuntimeException error;
+        private boolean recorded;
+
+        private Command(Supplier<T> action, Runnable release) {
+            this.action = action;
+            this.release = release;
+        }
+
+        private void apply() {
+            try {
+                result = action.get();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+        private void complete() {
+            if (error == null) {
+                future.complete(result);
+            } else if (recorded) {
+                future.completeExceptionally(error);
+            } else {
+                reject(new RejectedExecutionException("Error interno del mercado.", error));
+            }
+        }
+
+        private void reject(RejectedExecutionException cause) {
+            if (release != null) {
+                release.run();
+            }
+            future.completeExceptionally(cause);
+        }
+    }
+
+    private static final int SNAPSHOT_MAGIC = 0x564D4B53;
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int SNAPSHOT_HEADER = 12;
+    private static final int FRAME_HEADER = 8;
+    private static final int PLACE = 1;
+    private static final int CANCEL = 2;
+    private static final int FILL = 3;
+    private static final int CLAIM = 4;
+    private static final int RETURN = 5;
+    private static final int SHIP = 6;
+    private static final int DELIVERED = 7;
+
+    /**
+     * Objetos que salieron de las entregas hacia el correo y aún no constan
+     * allí como guardados.
+     */
+    private record Shipment(UUID owner, Map<String, Integer> items) {
+    }
+
+    private final VendralyCore plugin;
+    private final CashManager cashManager;
+    private final MailboxManager mailbox;
+    private final Logger logger;
+    private final File logFile;
+    private final File snapshotFile;
+    private final boolean enabled;
+    private final int maxOrdersPerPlayer;
+    private final int groupMax;
+    private final int snapshotEvery;
+    private final BlockingQueue<Command<?>> queue = new LinkedBlockingQueue<>();
+
+    private final Map<Long, MarketOrder> orders = new HashMap<>();
+    private final Map<String, OrderBook> books = new HashMap<>();
+    private final Map<UUID, Set<Long>> byOwner = new HashMap<>();
+    private final Map<UUID, Map<String, Integer>> deliveries = new HashMap<>();
+    private final Map<Long, Shipment> shipments = new LinkedHashMap<>();
+    private long nextId = 1L;
+    private long sequence;
+    private long snapshotSequence;
+    private int sinceSnapshot;
+
+    private final ByteWriter entry = new ByteWriter(256);
+    private final List<byte[]> journal = new ArrayList<>();
+    private final Map<UUID, Long> sales = new HashMap<>();
+    private final Map<UUID, Long> refunds = new HashMap<>();
+    private final Map<UUID, List<String>> notices = new LinkedHashMap<>();
+    private final Set<UUID> toDeliver = new LinkedHashSet<>();
+    private final Set<Long> toShip = new LinkedHashSet<>();
+
+    private final AtomicLong placed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong fills = new AtomicLong();
+    private final AtomicLong volume = new AtomicLong();
+    private final AtomicLong turnover = new AtomicLong();
+    private final AtomicLong groups = new AtomicLong();
+    private final AtomicInteger openOrders = new AtomicInteger();
+    private FileChannel channel;
+    private Thread worker;
+    private volatile boolean running;
+    private boolean closing;
+    private boolean failed;
+
+    public MarketEngine(VendralyCore plugin, CashManager cashManager, MailboxManager mailbox) {
+        this(plugin, cashManager, mailbox, plugin.getPluginLogger(), new File(plugin.getDataFolder(), "market"),
+                plugin.getConfig().getBoolean("market.enabled", true),
+                plugin.getConfig().getInt("market.max-orders-per-player", 50),
+                plugin.getConfig().getInt("market.group-max", 512),
+                plugin.getConfig().getInt("market.snapshot-every", 10000));
+    }
+
+    /**
+     * Sin plugin solo se puede recuperar y consultar el estado: los cruces y
+     * los envíos necesitan el {@link CashManager} y el {@link MailboxManager}.
+     */
+    MarketEngine(VendralyCore plugin, CashManager cashManager, MailboxManager mailbox, Logger logger, File directory,
+                 boolean enabled, int maxOrdersPerPlayer, int groupMax, int snapshotEvery) {
+        this.plugin = plugin;
+        this.cashManager = cashManager;
+        this.mailbox = mailbox;
+        this.logger = logger;
+        this.logFile = new File(directory, "orders.log");
+        this.snapshotFile = new File(directory, "orders.snapshot");
+        this.enabled = enabled;
+        this.maxOrdersPerPlayer = Math.max(1, maxOrdersPerPlayer);
+        this.groupMax = Math.max(1, groupMax);
+        this.snapshotEvery = Math.max(1, snapshotEvery);
+    }
+
+    /**
+     * Recupera el estado (instantánea más diario, descartando una cola
+     * incompleta) y arranca el hilo del mercado. Si algo no se puede leer el
+     * mercado queda cerrado para no perder lo que hay en depósito.
+     */
+    public synchronized void open() throws IOException {
+        if (!enabled || running) {
+            return;
+        }
+        File directory = logFile.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear " + directory);
+        }
+        readSnapshot();
+        channel = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long valid = replayLog();
+        if (channel.size() > valid) {
+            logger.warning("Diario del mercado con " + (channel.size() - valid) + " bytes incompletos; se descartan");
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+        openOrders.set(orders.size());
+        logger.info("Mercado cargado: " + orders.size() + " órdenes abiertas, " + deliveries.size()
+                + " jugadores con entregas pendientes, " + shipments.size() + " envíos sin confirmar");
+        running = true;
+        worker = new Thread(this::runWorker, "VendralyCore-Market");
+        worker.setDaemon(true);
+        worker.start();
+        if (!deliveries.isEmpty() || !shipments.isEmpty()) {
+            submit(() -> {
+                toDeliver.addAll(deliveries.keySet());
+                toShip.addAll(shipments.keySet());
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Coloca una orden cuyo depósito ya se retiró: para una venta,
+     * {@code quantity} unidades de {@code item}; para una compra,
+     * {@code quantity * price} unidades mínimas de efectivo. Si se rechaza, el
+     * depósito se devuelve: el dinero al saldo y los objetos al correo.
+     */
+    public CompletableFuture<PlaceResult> place(UUID owner, MarketOrder.Side side, String item, long price, int quantity) {
+        return submit(() -> applyPlace(owner, side, item, price, quantity),
+                () -> release(owner, side, item, price, quantity))
+                .exceptionally(error -> {
+                    if (error instanceof RejectedExecutionException) {
+                        return new PlaceResult(null, List.of(), error.getMessage());
+                    }
+                    throw new CompletionException(error);
+                });
+    }
+
+    /**
+     * Cancela una orden de {@code requester} (cualquiera si {@code force}) y
+     * devuelve lo que quedaba en depósito.
+     *
+     * @return la orden cancelada, o {@code null} si no existe o no es suya
+     */
+    public CompletableFuture<MarketOrder> cancel(UUID requester, long id, boolean force) {
+        return submit(() -> {
+            MarketOrder order = orders.get(id);
+            if (order == null || (!force && !order.getOwner().equals(requester))) {
+                return null;
+            }
+            MarketOrder result = order.copy();
+            journal(writer(CANCEL).writeVarLong(id));
+            if (order.getSide() == MarketOrder.Side.BUY) {
+                credit(refunds, order.getOwner(), order.remaining * order.getPrice());
+            } else {
+                toDeliver.add(order.getOwner());
+            }
+            applyCancel(order);
+            cancelled.incrementAndGet();
+            return result;
+        });
+    }
+
+    /**
+     * Órdenes abiertas del jugador, de la más antigua a la más reciente.
+     */
+    public CompletableFuture<List<MarketOrder>> orders(UUID owner) {
+        return submit(() -> {
+            List<MarketOrder> result = new ArrayList<>();
+            for (long id : byOwner.getOrDefault(owner, Set.of())) {
+                result.add(orders.get(id).copy());
+            }
+            result.sort(Comparator.comparingLong(MarketOrder::getId));
+            return result;
+        });
+    }
+
+    /**
+     * Los {@code levels} mejores precios de compra y de venta de un material.
+     */
+    public CompletableFuture<Depth> depth(String item, int levels) {
+        return submit(() -> {
+            OrderBook book = books.get(item);
+            if (book == null) {
+                return new Depth(item, List.of(), List.of());
+            }
+            return new Depth(item, book.depth(MarketOrder.Side.BUY, levels), book.depth(MarketOrder.Side.SELL, levels));
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (worker != null) {
+            try {
+                worker.join(10000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (channel == null) {
+                return;
+            }
+            closing = true;
+            List<Command<?>> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            applyGroup(remaining);
+            if (!failed) {
+                writeSnapshot();
+            }
+            channel.close();
+            channel = null;
+        }
+    }
+
+    public boolean isOpen() {
+        return running;
+    }
+
+    public long getPlaced() {
+        return placed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    public long getFills() {
+        return fills.get();
+    }
+
+    public long getVolume() {
+        return volume.get();
+    }
+
+    public long getTurnover() {
+        return turnover.get();
+    }
+
+    public long getGroups() {
+        return groups.get();
+    }
+
+    public int getOpenOrders() {
+        return openOrders.get();
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> action) {
+        return submit(action, null);
+    }
+
+    /**
+     * Encola una petición. Si el mercado se cierra mientras tanto y nadie la
+     * ha sacado de la cola, se rechaza aquí mismo; si ya la tomó el hilo o
+     * {@link #close()}, la atienden ellos.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> action, Runnable release) {
+        Command<T> command = new Command<>(action, release);
+        if (running) {
+            queue.add(command);
+            if (running || !queue.remove(command)) {
+                return command.future;
+            }
+        }
+        command.reject(new RejectedExecutionException("El mercado está cerrado."));
+        return command.future;
+    }
+
+    private void runWorker() {
+        List<Command<?>> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Command<?> first = queue.poll(100L, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, groupMax - 1);
+                synchronized (this) {
+                    applyGroup(group);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Aplica un grupo de peticiones, lo hace durable con una sola escritura y
+     * después responde y ejecuta los efectos (pagos, avisos y envíos).
+     */
+    private void applyGroup(List<Command<?>> group) {
+        if (failed) {
+            reject(group, new RejectedExecutionException("El mercado está detenido por un fallo del diario."));
+            return;
+        }
+        for (Command<?> command : group) {
+            int mark = journal.size();
+            command.apply();
+            command.recorded = journal.size() > mark;
+            if (command.error != null) {
+                logger.log(Level.SEVERE, "Error aplicando una orden del mercado", command.error);
+            }
+        }
+        claimDeliveries();
+        if (!journal.isEmpty()) {
+            try {
+                writeJournal();
+            } catch (IOException e) {
+                fail(group, e);
+                return;
+            }
+            sinceSnapshot += journal.size();
+            journal.clear();
+            groups.incrementAndGet();
+        }
+        settle();
+        for (Command<?> command : group) {
+            command.complete();
+        }
+        if (sinceSnapshot >= snapshotEvery && !closing) {
+            try {
+                writeSnapshot();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "No se pudo guardar la instantánea del mercado", e);
+            }
+        }
+    }
+
+    /**
+     * El grupo no llegó al diario: no se paga ni se entrega nada de él, cada
+     * petición se rechaza devolviendo su depósito y el mercado deja de aceptar
+     * órdenes. El estado en memoria ya no coincide con el del disco, así que
+     * tampoco se vuelca al cerrar; al reiniciar se recupera el último grupo
+     * durable.
+     */
+    private void fail(List<Command<?>> group, IOException cause) {
+        logger.log(Level.SEVERE, "No se pudo escribir el diario del mercado; se detiene hasta reiniciarlo", cause);
+        failed = true;
+        running = false;
+        journal.clear();
+        sales.clear();
+        refunds.clear();
+        toShip.clear();
+        notices.clear();
+        toDeliver.clear();
+        reject(group, new RejectedExecutionException("El mercado no pudo guardar la orden.", cause));
+    }
+
+    private static void reject(List<Command<?>> group, RejectedExecutionException cause) {
+        for (Command<?> command : group) {
+            command.reject(cause);
+        }
+    }
+
+    /**
+     * Devuelve el depósito de una orden que no llegó a anotarse: el dinero de
+     * una compra al saldo y los objetos de una venta al correo.
+     */
+    private void release(UUID owner, MarketOrder.Side side, String item, long price, int quantity) {
+        rejected.incrementAndGet();
+        if (side == MarketOrder.Side.BUY) {
+            pay(owner, price * quantity, "market:refund");
+            return;
+        }
+        Material material = Material.matchMaterial(item);
+        if (material == null) {
+            logger.severe("No se pudieron devolver " + quantity + " " + item + " a " + owner + ": material desconocido");
+            return;
+        }
+        List<ItemStack> stacks = new ArrayList<>();
+        addStacks(stacks, material, quantity);
+        mailbox.send(owner, "Mercado", "market", 0L, stacks);
+    }
+
+    private PlaceResult applyPlace(UUID owner, MarketOrder.Side side, String item, long price, int quantity) {
+        Set<Long> own = byOwner.get(owner);
+        if (own != null && own.size() >= maxOrdersPerPlayer) {
+            rejected.incrementAndGet();
+            if (side == MarketOrder.Side.BUY) {
+                credit(refunds, owner, price * quantity);
+            } else {
+                journal(writer(RETURN).writeUuid(owner).writeString(item).writeVarInt(quantity));
+                addDelivery(owner, item, quantity);
+                toDeliver.add(owner);
+            }
+            return new PlaceResult(null, List.of(), "Tienes el máximo de " + maxOrdersPerPlayer + " órdenes abiertas.");
+        }
+        MarketOrder order = new MarketOrder(nextId++, owner, side, item, price, quantity, quantity, System.currentTimeMillis());
+        ByteWriter out = writer(PLACE);
+        writeOrder(out, order);
+        journal(out);
+        placed.incrementAndGet();
+        OrderBook book = books.computeIfAbsent(item, key -> new OrderBook(orders));
+        List<MarketFill> matched = new ArrayList<>();
+        book.match(order, matched);
+        for (MarketFill fill : matched) {
+            journal(writer(FILL).writeVarLong(fill.maker()).writeVarLong(fill.taker()).writeVarInt(fill.quantity())
+                    .writeVarLong(fill.price()));
+            MarketOrder maker = orders.get(fill.maker());
+            if (maker.remaining == 0) {
+                remove(maker);
+            }
+            addDelivery(fill.buyer(), item, fill.quantity());
+            toDeliver.add(fill.buyer());
+            credit(sales, fill.seller(), fill.total());
+            if (side == MarketOrder.Side.BUY && price > fill.price()) {
+                credit(refunds, owner, (price - fill.price()) * fill.quantity());
+            }
+            notice(fill.seller(), "Mercado: vendiste " + fill.quantity() + " " + item + " por "
+                    + Money.format(fill.total()) + ".");
+            notice(fill.buyer(), "Mercado: compraste " + fill.quantity() + " " + item + " por "
+                    + Money.format(fill.total()) + ".");
+            fills.incrementAndGet();
+            volume.addAndGet(fill.quantity());
+            turnover.addAndGet(fill.total());
+        }
+        if (order.remaining > 0) {
+            insert(order, book);
+        }
+        return new PlaceResult(order.copy(), matched, null);
+    }
+
+    private void applyCancel(MarketOrder order) {
+        if (order.getSide() == MarketOrder.Side.SELL) {
+            addDelivery(order.getOwner(), order.getItem(), order.remaining);
+        }
+        order.remaining = 0;
+        remove(order);
+    }
+
+    private void insert(MarketOrder order, OrderBook book) {
+        orders.put(order.getId(), order);
+        byOwner.computeIfAbsent(order.getOwner(), key -> new LinkedHashSet<>()).add(order.getId());
+        book.add(order);
+        openOrders.set(orders.size());
+    }
+
+    private void remove(MarketOrder order) {
+        orders.remove(order.getId());
+        Set<Long> own = byOwner.get(order.getOwner());
+        if (own != null && own.remove(order.getId()) && own.isEmpty()) {
+            byOwner.remove(order.getOwner());
+        }
+        books.get(order.getItem()).retire();
+        openOrders.set(orders.size());
+    }
+
+    private void addDelivery(UUID owner, String item, int quantity) {
+        if (quantity > 0) {
+            deliveries.computeIfAbsent(owner, key -> new LinkedHashMap<>()).merge(item, quantity, Integer::sum);
+        }
+    }
+
+    private static void credit(Map<UUID, Long> credits, UUID owner, long minor) {
+        if (minor > 0L) {
+            credits.merge(owner, minor, Long::sum);
+        }
+    }
+
+    private void notice(UUID owner, String message) {
+        notices.computeIfAbsent(owner, key -> new ArrayList<>()).add(message);
+    }
+
+    /**
+     * Paga lo acumulado por el grupo (un ingreso por jugador y motivo), manda
+     * al correo los objetos y pasa los avisos al hilo principal. Al cerrar se esperan los pagos para
+     * que lleguen antes que el guardado final de los jugadores.
+     */
+    private void settle() {
+        sales.forEach((owner, minor) -> pay(owner, minor, "market:sale"));
+        refunds.forEach((owner, minor) -> pay(owner, minor, "market:refund"));
+        sales.clear();
+        refunds.clear();
+        for (long id : toShip) {
+            Shipment shipment = shipments.get(id);
+            if (shipment != null) {
+                ship(id, shipment);
+            }
+        }
+        toShip.clear();
+        if (notices.isEmpty() || !plugin.isEnabled()) {
+            notices.clear();
+            return;
+        }
+        Map<UUID, List<String>> messages = new LinkedHashMap<>(notices);
+        notices.clear();
+        TaskUtil.runSync(plugin, () -> messages.forEach((owner, lines) -> {
+            Player player = Bukkit.getPlayer(owner);
+            if (player != null) {
+                lines.forEach(player::sendMessage);
+            }
+        }));
+    }
+
+    private void pay(UUID owner, long minor, String reason) {
+        CompletableFuture<Double> payment = cashManager.depositAsync(owner, Money.toMajor(minor), reason);
+        payment.whenComplete((balance, error) -> {
+            if (error != null) {
+                logger.severe("No se pudo abonar un pago del mercado: " + error.getMessage());
+            }
+        });
+        if (closing) {
+            try {
+                payment.join();
+            } catch (RuntimeException ignored) {
+                // Ya anotado arriba.
+            }
+        }
+    }
+
+    /**
+     * Convierte lo pendiente de quien recibió objetos en este grupo en un
+     * envío, anotado en el mismo grupo que el cruce o la devolución que lo
+     * causó. Su id es la secuencia de ese registro.
+     */
+    private void claimDeliveries() {
+        for (UUID owner : toDeliver) {
+            Map<String, Integer> items = deliveries.get(owner);
+            if (items == null || stacks(owner, items) == null) {
+                continue;
+            }
+            ByteWriter out = writer(SHIP).writeUuid(owner).writeVarInt(items.size());
+            items.forEach((item, quantity) -> out.writeString(item).writeVarInt(quantity));
+            journal(out);
+            deliveries.remove(owner);
+            shipments.put(sequence, new Shipment(owner, items));
+            toShip.add(sequence);
+        }
+        toDeliver.clear();
+    }
+
+    /**
+     * Manda un envío al correo. Solo cuando el correo lo tiene en disco se
+     * anota como entregado; al cerrar se espera a que lo esté para que la
+     * instantánea final ya no lo incluya.
+     */
+    private void ship(long id, Shipment shipment) {
+        List<ItemStack> stacks = stacks(shipment.owner(), shipment.items());
+        if (stacks == null) {
+            return;
+        }
+        CompletableFuture<Void> sent = mailbox.send(shipment.owner(), id, "Mercado", "market", 0L, stacks);
+        if (closing) {
+            try {
+                sent.orTimeout(10L, TimeUnit.SECONDS).join();
+                shipments.remove(id);
+            } catch (RuntimeException e) {
+                logger.warning("El envío " + id + " del mercado no llegó al correo; se repetirá al arrancar: "
+                        + e.getMessage());
+            }
+            return;
+        }
+        sent.whenComplete((ignored, error) -> {
+            if (error != null) {
+                logger.severe("El envío " + id + " del mercado no llegó al correo; se repetirá al arrancar: "
+                        + error.getMessage());
+                return;
+            }
+            submit(() -> {
+                if (shipments.remove(id) != null) {
+                    journal(writer(DELIVERED).writeVarLong(id));
+                }
+                return null;
+            });
+        });
+    }
+
+    /**
+     * Pilas de objetos de unas entregas, o {@code null} si alguna es de un
+     * material que ya no existe (se conservan sin enviar).
+     */
+    private List<ItemStack> stacks(UUID owner, Map<String, Integer> items) {
+        List<ItemStack> stacks = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : items.entrySet()) {
+            Material material = Material.matchMaterial(entry.getKey());
+            if (material == null) {
+                logger.warning("Material desconocido " + entry.getKey() + " en las entregas de " + owner
+                        + "; se conservan");
+                return null;
+            }
+            addStacks(stacks, material, entry.getValue());
+        }
+        return stacks;
+    }
+
+    private static void addStacks(List<ItemStack> stacks, Material material, int quantity) {
+        for (int left = quantity; left > 0; left -= material.getMaxStackSize()) {
+            stacks.add(new ItemStack(material, Math.min(left, material.getMaxStackSize())));
+        }
+    }
+
+    private ByteWriter writer(int type) {
+        entry.reset();
+        return entry.writeVarLong(++sequence).writeByte(type);
+    }
+
+    private void journal(ByteWriter writer) {
+        journal.add(writer.toByteArray());
+    }
+
+    /**
+     * Añade los registros del grupo y los fuerza a disco. Si falla, recorta el
+     * diario hasta donde estaba para que al cargar no quede un grupo a medias.
+     */
+    private void writeJournal() throws IOException {
+        long start = channel.position();
+        int size = 0;
+        for (byte[] body : journal) {
+            size += FRAME_HEADER + body.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] body : journal) {
+            buffer.putInt(body.length).putInt(checksum(body)).put(body);
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+                channel.force(true);
+            } catch (IOException again) {
+                e.addSuppressed(again);
+                logger.severe("No se pudo recortar el diario del mercado; revisa " + logFile + " antes de reiniciar");
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reaplica los registros posteriores a la instantánea como cambios de
+     * estado puros: sin pagos, avisos ni entregas, que ya ocurrieron.
+     *
+     * @return bytes válidos del diario
+     */
+    private long replayLog() throws IOException {
+        long size = channel.size();
+        long position = 0L;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        int replayed = 0;
+        while (position + FRAME_HEADER <= size) {
+            header.clear();
+            readFully(header, position);
+            int length = header.getInt(0);
+            int crc = header.getInt(4);
+            if (length <= 0 || position + FRAME_HEADER + length > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, position + FRAME_HEADER);
+            if (checksum(body.array()) != crc) {
+                break;
+            }
+            ByteReader in = new ByteReader(body.array());
+            long seq = in.readVarLong();
+            if (seq > snapshotSequence) {
+                replay(seq, in.readByte(), in);
+                replayed++;
+            }
+            sequence = Math.max(sequence, seq);
+            position += FRAME_HEADER + length;
+        }
+        sinceSnapshot = replayed;
+        return position;
+    }
+
+    private void replay(long seq, int type, ByteReader in) throws IOException {
+        switch (type) {
+            case PLACE -> {
+                MarketOrder order = readOrder(in);
+                nextId = Math.max(nextId, order.getId() + 1);
+                insert(order, books.computeIfAbsent(order.getItem(), key -> new OrderBook(orders)));
+            }
+            case CANCEL -> {
+                MarketOrder order = orders.get(in.readVarLong());
+                if (order != null) {
+                    applyCancel(order);
+                }
+            }
+            case FILL -> {
+                MarketOrder maker = orders.get(in.readVarLong());
+                MarketOrder taker = orders.get(in.readVarLong());
+                int quantity = in.readVarInt();
+                if (maker == null || taker == null) {
+                    throw new IOException("cruce sobre una orden desconocida");
+                }
+                maker.remaining -= quantity;
+                taker.remaining -= quantity;
+                MarketOrder buyer = maker.getSide() == MarketOrder.Side.BUY ? maker : taker;
+                addDelivery(buyer.getOwner(), buyer.getItem(), quantity);
+                if (maker.remaining <= 0) {
+                    remove(maker);
+                }
+                if (taker.remaining <= 0) {
+                    remove(taker);
+                }
+            }
+            // Diarios anteriores a los envíos: la recogida se daba por entregada al anotarla.
+            case CLAIM -> deliveries.remove(in.readUuid());
+            case RETURN -> addDelivery(in.readUuid(), in.readString(), in.readVarInt());
+            case SHIP -> {
+                UUID owner = in.readUuid();
+                shipments.put(seq, new Shipment(owner, readItems(in)));
+                deliveries.remove(owner);
+            }
+            case DELIVERED -> shipments.remove(in.readVarLong());
+            default -> throw new IOException("registro desconocido " + type);
+        }
+    }
+
+    private void readSnapshot() throws IOException {
+        if (!snapshotFile.isFile()) {
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(snapshotFile.toPath());
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        if (bytes.length < SNAPSHOT_HEADER || header.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("instantánea del mercado con cabecera desconocida");
+        }
+        int version = header.getInt();
+        if (version < 1 || version > SNAPSHOT_VERSION) {
+            throw new IOException("instantánea del mercado de versión desconocida " + version);
+        }
+        int expected = header.getInt();
+        byte[] body = new byte[bytes.length - SNAPSHOT_HEADER];
+        System.arraycopy(bytes, SNAPSHOT_HEADER, body, 0, body.length);
+        if (checksum(body) != expected) {
+            throw new IOException("instantánea del mercado con checksum incorrecto");
+        }
+        ByteReader in = new ByteReader(body);
+        snapshotSequence = in.readVarLong();
+        sequence = snapshotSequence;
+        nextId = in.readVarLong();
+        int orderCount = in.readVarInt();
+        for (int i = 0; i < orderCount; i++) {
+            MarketOrder order = readOrder(in);
+            insert(order, books.computeIfAbsent(order.getItem(), key -> new OrderBook(orders)));
+        }
+        int players = in.readVarInt();
+        for (int i = 0; i < players; i++) {
+            UUID owner = in.readUuid();
+            int items = in.readVarInt();
+            for (int j = 0; j < items; j++) {
+                addDelivery(owner, in.readString(), in.readVarInt());
+            }
+        }
+        if (version >= 2) {
+            int pending = in.readVarInt();
+            for (int i = 0; i < pending; i++) {
+                long id = in.readVarLong();
+                shipments.put(id, new Shipment(in.readUuid(), readItems(in)));
+            }
+        }
+    }
+
+    private static Map<String, Integer> readItems(ByteReader in) throws IOException {
+        int count = in.readVarInt();
+        Map<String, Integer> items = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            items.merge(in.readString(), in.readVarInt(), Integer::sum);
+        }
+        return items;
+    }
+
+    /**
+     * Vuelca el estado completo y, una vez a salvo, vacía el diario. Si se
+     * cae entre ambos pasos, los registros sobrantes se saltan al cargar por
+     * tener una secuencia ya incluida.
+     */
+    private void writeSnapshot() throws IOException {
+        ByteWriter out = new ByteWriter(64 + orders.size() * 48);
+        out.writeVarLong(sequence).writeVarLong(nextId).writeVarInt(orders.size());
+        for (MarketOrder order : orders.values()) {
+            writeOrder(out, order);
+        }
+        out.writeVarInt(deliveries.size());
+        deliveries.forEach((owner, items) -> {
+            out.writeUuid(owner).writeVarInt(items.size());
+            items.forEach((item, quantity) -> out.writeString(item).writeVarInt(quantity));
+        });
+        out.writeVarInt(shipments.size());
+        shipments.forEach((id, shipment) -> {
+            out.writeVarLong(id).writeUuid(shipment.owner()).writeVarInt(shipment.items().size());
+            shipment.items().forEach((item, quantity) -> out.writeString(item).writeVarInt(quantity));
+        });
+        byte[] body = out.toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_HEADER + body.length);
+        buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(checksum(body)).put(body).flip();
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try (FileChannel file = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                file.write(buffer);
+            }
+            file.force(true);
+        }
+        Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshotSequence = sequence;
+        channel.truncate(0L);
+        channel.position(0L);
+        channel.force(true);
+        sinceSnapshot = 0;
+    }
+
+    private static void writeOrder(ByteWriter out, MarketOrder order) {
+        out.writeVarLong(order.getId())
+                .writeUuid(order.getOwner())
+                .writeByte(order.getSide().ordinal())
+                .writeString(order.getItem())
+                .writeVarLong(order.getPrice())
+                .writeVarInt(order.getQuantity())
+                .writeVarInt(order.remaining)
+                .writeVarLong(order.getCreatedAt());
+    }
+
+    private static MarketOrder readOrder(ByteReader in) throws IOException {
+        return new MarketOrder(in.readVarLong(), in.readUuid(), MarketOrder.Side.values()[in.readByte()], in.readString(),
+                in.readVarLong(), in.readVarInt(), in.readVarInt(), in.readVarLong());
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Fin de fichero inesperado en el diario del mercado");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
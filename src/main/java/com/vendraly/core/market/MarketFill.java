@@ -0,0 +1,14 @@
+package com.vendraly.core.market;
+
+import java.util.UUID;
+
+/**
+ * Cruce entre la orden en reposo {@code maker} y la entrante {@code taker}.
+ * Se ejecuta siempre al precio de la orden en reposo.
+ */
+public record MarketFill(long maker, long taker, UUID buyer, UUID seller, String item, int quantity, long price) {
+
+    public long total() {
+        return quantity * price;
+    }
+}
@@ -0,0 +1,73 @@
+package com.vendraly.core.market;
+
+import java.util.UUID;
+
+/**
+ * Orden de compra o venta de {@code quantity} unidades de un material a
+ * {@code price} unidades mínimas ({@code Money}) cada una. Las ventas tienen
+ * los objetos en depósito y las compras el dinero de lo que falta por
+ * completar. Solo el hilo de {@link MarketEngine} modifica {@code remaining};
+ * fuera de él se manejan copias.
+ */
+public final class MarketOrder {
+
+    public enum Side {
+        BUY, SELL
+    }
+
+    private final long id;
+    private final UUID owner;
+    private final Side side;
+    private final String item;
+    private final long price;
+    private final int quantity;
+    private final long createdAt;
+    int remaining;
+
+    public MarketOrder(long id, UUID owner, Side side, String item, long price, int quantity, int remaining, long createdAt) {
+        this.id = id;
+        this.owner = owner;
+        this.side = side;
+        this.item = item;
+        this.price = price;
+        this.quantity = quantity;
+        this.remaining = remaining;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public UUID getOwner() {
+        return owner;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public String getItem() {
+        return item;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getRemaining() {
+        return remaining;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    MarketOrder copy() {
+        return new MarketOrder(id, owner, side, item, price, quantity, remaining, createdAt);
+    }
+}
@@ -0,0 +1,118 @@
+package com.vendraly.core.market;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Libro de órdenes de un material: compras y ventas en reposo en sendos
+ * {@link OrderHeap}. Solo lo usa el hilo de {@link MarketEngine}.
+ */
+final class OrderBook {
+
+    private static final int COMPACT_MIN_DEAD = 1024;
+
+    private final OrderHeap bids = new OrderHeap(true);
+    private final OrderHeap asks = new OrderHeap(false);
+    private final Map<Long, MarketOrder> orders;
+    private int dead;
+
+    OrderBook(Map<Long, MarketOrder> orders) {
+        this.orders = orders;
+    }
+
+    void add(MarketOrder order) {
+        heap(order.getSide()).push(order.getPrice(), order.getId(), order.getId());
+    }
+
+    /**
+     * Cruza {@code taker} contra el lado contrario mientras los precios se
+     * crucen, reduciendo {@code remaining} en ambas órdenes y anotando cada
+     * cruce en {@code fills}. La orden entrante no se añade al libro.
+     */
+    void match(MarketOrder taker, List<MarketFill> fills) {
+        boolean buying = taker.getSide() == MarketOrder.Side.BUY;
+        OrderHeap opposite = buying ? asks : bids;
+        while (taker.remaining > 0) {
+            MarketOrder maker = peekLive(opposite);
+            if (maker == null || (buying ? maker.getPrice() > taker.getPrice() : maker.getPrice() < taker.getPrice())) {
+                return;
+            }
+            int quantity = Math.min(taker.remaining, maker.remaining);
+            maker.remaining -= quantity;
+            taker.remaining -= quantity;
+            fills.add(new MarketFill(maker.getId(), taker.getId(), buying ? taker.getOwner() : maker.getOwner(),
+                    buying ? maker.getOwner() : taker.getOwner(), taker.getItem(), quantity, maker.getPrice()));
+        }
+    }
+
+    /**
+     * Anota que una orden dejó el libro (cancelada o completada) sin salir
+     * todavía de su montículo; cuando las entradas muertas abundan se compacta.
+     */
+    void retire() {
+        dead++;
+        if (dead >= COMPACT_MIN_DEAD && dead * 2 > bids.size() + asks.size()) {
+            bids.removeIf(id -> !orders.containsKey(id));
+            asks.removeIf(id -> !orders.containsKey(id));
+            dead = 0;
+        }
+    }
+
+    boolean isEmpty() {
+        return peekLive(bids) == null && peekLive(asks) == null;
+    }
+
+    /**
+     * Los {@code limit} mejores precios de un lado con su cantidad agregada.
+     */
+    List<MarketEngine.PriceLevel> depth(MarketOrder.Side side, int limit) {
+        OrderHeap heap = heap(side).copy();
+        List<MarketEngine.PriceLevel> levels = new ArrayList<>(limit);
+        long price = -1L;
+        long quantity = 0L;
+        int count = 0;
+        while (!heap.isEmpty()) {
+            MarketOrder order = orders.get(heap.peekId());
+            heap.pop();
+            if (order == null || order.remaining == 0) {
+                continue;
+            }
+            if (order.getPrice() != price) {
+                if (count > 0) {
+                    levels.add(new MarketEngine.PriceLevel(price, quantity, count));
+                    if (levels.size() == limit) {
+                        return levels;
+                    }
+                }
+                price = order.getPrice();
+                quantity = 0L;
+                count = 0;
+            }
+            quantity += order.remaining;
+            count++;
+        }
+        if (count > 0 && levels.size() < limit) {
+            levels.add(new MarketEngine.PriceLevel(price, quantity, count));
+        }
+        return levels;
+    }
+
+    private MarketOrder peekLive(OrderHeap heap) {
+        while (!heap.isEmpty()) {
+            MarketOrder order = orders.get(heap.peekId());
+            if (order != null && order.remaining > 0) {
+                return order;
+            }
+            heap.pop();
+            if (dead > 0) {
+                dead--;
+            }
+        }
+        return null;
+    }
+
+    private OrderHeap heap(MarketOrder.Side side) {
+        return side == MarketOrder.Side.BUY ? bids : asks;
+    }
+}
@@ -0,0 +1,141 @@
+package com.vendraly.core.market;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Montículo binario de órdenes sobre arrays primitivos ordenado por precio y,
+ * a igual precio, por antigüedad (prioridad precio-tiempo). Las compras se
+ * ordenan del precio más alto al más bajo y las ventas al revés. Solo guarda
+ * el id de cada orden: las canceladas o completadas se retiran de forma
+ * perezosa con {@link #removeIf}.
+ */
+final class OrderHeap {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final boolean highestFirst;
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private long[] sequences = new long[INITIAL_CAPACITY];
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int size;
+
+    OrderHeap(boolean highestFirst) {
+        this.highestFirst = highestFirst;
+    }
+
+    void push(long price, long sequence, long id) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            prices = Arrays.copyOf(prices, capacity);
+            sequences = Arrays.copyOf(sequences, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        prices[size] = price;
+        sequences[size] = sequence;
+        ids[size] = id;
+        siftUp(size++);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long peekId() {
+        return ids[0];
+    }
+
+    long peekPrice() {
+        return prices[0];
+    }
+
+    void pop() {
+        size--;
+        if (size > 0) {
+            move(size, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Quita las entradas cuyo id cumple {@code dead} y rehace el montículo.
+     */
+    void removeIf(LongPredicate dead) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!dead.test(ids[i])) {
+                move(i, kept++);
+            }
+        }
+        size = kept;
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Copia independiente, para recorrer el montículo en orden sin
+     * modificarlo.
+     */
+    OrderHeap copy() {
+        OrderHeap copy = new OrderHeap(highestFirst);
+        copy.prices = Arrays.copyOf(prices, Math.max(INITIAL_CAPACITY, size));
+        copy.sequences = Arrays.copyOf(sequences, Math.max(INITIAL_CAPACITY, size));
+        copy.ids = Arrays.copyOf(ids, Math.max(INITIAL_CAPACITY, size));
+        copy.size = size;
+        return copy;
+    }
+
+    private boolean before(int a, int b) {
+        if (prices[a] != prices[b]) {
+            return highestFirst ? prices[a] > prices[b] : prices[a] < prices[b];
+        }
+        return sequences[a] < sequences[b];
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(index, parent)) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = index * 2 + 1;
+            if (left >= size) {
+                return;
+            }
+            int best = left + 1 < size && before(left + 1, left) ? left + 1 : left;
+            if (!before(best, index)) {
+                return;
+            }
+            swap(index, best);
+            index = best;
+        }
+    }
+
+    private void move(int from, int to) {
+        prices[to] = prices[from];
+        sequences[to] = sequences[from];
+        ids[to] = ids[from];
+    }
+
+    private void swap(int a, int b) {
+        long price = prices[a];
+        long sequence = sequences[a];
+        long id = ids[a];
+        move(b, a);
+        prices[b] = price;
+        sequences[b] = sequence;
+        ids[b] = id;
+    }
+}
@@ -0,0 +1,279 @@
+package com.vendraly.core.pricing;
+
+import com.vendraly.VendralyCore;
+import com.vendraly.core.economy.Money;
+import com.vendraly.utils.ByteReader;
+import com.vendraly.utils.ByteWriter;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Precios de venta a NPC por material. Cada material tiene un precio base
+ * ({@code pricing.materials}) y una presión de oferta: las unidades vendidas
+ * recientemente, que decae exponencialmente con una vida media de
+ * {@code pricing.half-life-minutes}. El precio unitario es
+ * {@code base * e^(-presión / depth)}, sin bajar de
+ * {@code base * pricing.min-factor}, y una venta cobra la integral de esa
+ * curva, así que trocear un montón no sale más rentable que venderlo entero.
+ * <p>
+ * La tabla de materiales es inmutable tras cargar la configuración y el
+ * estado de cada uno es un valor inmutable que se sustituye con CAS: leer un
+ * precio o vender es O(1) y no bloquea. El estado se guarda cada
+ * {@code pricing.save-interval-ticks} en {@code pricing-state.bin}.
+ */
+public class PricingEngine {
+
+    public record Quote(Material material, long base, long price, double factor) {
+    }
+
+    private record State(double pressure, long time) {
+    }
+
+    private static final int MAGIC = 0x56505243;
+    private static final int VERSION = 1;
+    private static final int HEADER = 12;
+    private static final State IDLE = new State(0.0, 0L);
+
+    private final Logger logger;
+    private final File file;
+    private final Map<Material, Integer> index;
+    private final Material[] materials;
+    private final double[] base;
+    private final double[] depth;
+    private final AtomicReferenceArray<State> states;
+    private final double decayPerMilli;
+    private final double minFactor;
+
+    private final AtomicLong sales = new AtomicLong();
+    private final AtomicLong units = new AtomicLong();
+    private final AtomicLong paid = new AtomicLong();
+
+    public PricingEngine(VendralyCore plugin) {
+        this.logger = plugin.getPluginLogger();
+        this.file = new File(plugin.getDataFolder(), "pricing-state.bin");
+        FileConfiguration config = plugin.getConfig();
+        double halfLifeMillis = Math.max(1.0, config.getDouble("pricing.half-life-minutes", 60.0)) * 60_000.0;
+        this.decayPerMilli = Math.log(2.0) / halfLifeMillis;
+        this.minFactor = Math.min(1.0, Math.max(0.01, config.getDouble("pricing.min-factor", 0.2)));
+        double defaultDepth = Math.max(1.0, config.getDouble("pricing.default-depth", 256.0));
+        Map<Material, double[]> table = new EnumMap<>(Material.class);
+        ConfigurationSection section = config.getConfigurationSection("pricing.materials");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                Material material = Material.matchMaterial(key);
+                double price = section.isConfigurationSection(key) ? section.getDouble(key + ".base", 0.0) : section.getDouble(key, 0.0);
+                double materialDepth = section.isConfigurationSection(key) ? section.getDouble(key + ".depth", defaultDepth) : defaultDepth;
+                // Un precio que redondea a 0 unidades mínimas no paga nada.
+                if (material == null || !(price > 0.0) || price > Money.MAX_AMOUNT || Money.toMinor(price) <= 0L
+                        || !(materialDepth > 0.0)) {
+                    logger.warning("Precio inválido para " + key + " en pricing.materials; se ignora");
+                    continue;
+                }
+                table.put(material, new double[]{Money.toMinor(price), materialDepth});
+            }
+        }
+        this.materials = table.keySet().toArray(new Material[0]);
+        this.base = new double[materials.length];
+        this.depth = new double[materials.length];
+        Map<Material, Integer> slots = new EnumMap<>(Material.class);
+        for (int i = 0; i < materials.length; i++) {
+            double[] entry = table.get(materials[i]);
+            base[i] = entry[0];
+            depth[i] = entry[1];
+            slots.put(materials[i], i);
+        }
+        this.index = Collections.unmodifiableMap(slots);
+        this.states = new AtomicReferenceArray<>(materials.length);
+        for (int i = 0; i < materials.length; i++) {
+            states.set(i, IDLE);
+        }
+        load();
+    }
+
+    public boolean isPriced(Material material) {
+        return index.containsKey(material);
+    }
+
+    /**
+     * Vende {@code amount} unidades: suma su presión y devuelve lo que se
+     * cobra, en unidades mínimas (0 si el material no tiene precio).
+     */
+    public long sell(Material material, int amount) {
+        Integer slot = index.get(material);
+        if (slot == null || amount <= 0) {
+            return 0L;
+        }
+        long now = System.currentTimeMillis();
+        while (true) {
+            State current = states.get(slot);
+            double pressure = decayed(current, now);
+            if (states.compareAndSet(slot, current, new State(pressure + amount, now))) {
+                long value = value(slot, pressure, amount);
+                sales.incrementAndGet();
+                units.addAndGet(amount);
+                paid.addAndGet(value);
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Lo que se cobraría ahora por {@code amount} unidades, sin venderlas.
+     */
+    public long estimate(Material material, int amount) {
+        Integer slot = index.get(material);
+        if (slot == null || amount <= 0) {
+            return 0L;
+        }
+        return value(slot, decayed(states.get(slot), System.currentTimeMillis()), amount);
+    }
+
+    public Quote quote(Material material) {
+        Integer slot = index.get(material);
+        return slot == null ? null : quote(slot, System.currentTimeMillis());
+    }
+
+    /**
+     * Cotización de todos los materiales, de los más castigados por la oferta
+     * a los que están en su precio base.
+     */
+    public List<Quote> quotes() {
+        long now = System.currentTimeMillis();
+        List<Quote> quotes = new ArrayList<>(materials.length);
+        for (int i = 0; i < materials.length; i++) {
+            quotes.add(quote(i, now));
+        }
+        quotes.sort(Comparator.comparingDouble(Quote::factor));
+        return quotes;
+    }
+
+    public long getSales() {
+        return sales.get();
+    }
+
+    public long getUnits() {
+        return units.get();
+    }
+
+    public long getPaid() {
+        return paid.get();
+    }
+
+    /**
+     * Guarda la presión de cada material. Puede llamarse desde cualquier
+     * hilo; lo que se venda mientras tanto entra en el siguiente guardado.
+     */
+    public synchronized void save() {
+        ByteWriter out = new ByteWriter(32 + materials.length * 32);
+        out.writeVarInt(materials.length);
+        for (int i = 0; i < materials.length; i++) {
+            State state = states.get(i);
+            out.writeString(materials[i].name()).writeDouble(state.pressure()).writeVarLong(state.time());
+        }
+        byte[] body = out.toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + body.length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(checksum(body)).put(body);
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Files.write(tmp.toPath(), buffer.array());
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.severe("No se pudo guardar el estado de precios: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            ByteBuffer header = ByteBuffer.wrap(bytes);
+            if (bytes.length < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("cabecera desconocida");
+            }
+            int expected = header.getInt();
+            byte[] body = new byte[bytes.length - HEADER];
+            System.arraycopy(bytes, HEADER, body, 0, body.length);
+            if (checksum(body) != expected) {
+                throw new IOException("checksum incorrecto");
+            }
+            ByteReader in = new ByteReader(body);
+            int count = in.readVarInt();
+            for (int i = 0; i < count; i++) {
+                Material material = Material.matchMaterial(in.readString());
+                double pressure = in.readDouble();
+                long time = in.readVarLong();
+                Integer slot = material == null ? null : index.get(material);
+                if (slot != null && pressure >= 0.0 && Double.isFinite(pressure)) {
+                    states.set(slot, new State(pressure, time));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Estado de precios ilegible; se empieza sin presión: " + e.getMessage());
+            for (int i = 0; i < materials.length; i++) {
+                states.set(i, IDLE);
+            }
+        }
+    }
+
+    private Quote quote(int slot, long now) {
+        double factor = factor(slot, decayed(states.get(slot), now));
+        return new Quote(materials[slot], Math.round(base[slot]), Math.round(base[slot] * factor), factor);
+    }
+
+    private double decayed(State state, long now) {
+        if (state.pressure() == 0.0) {
+            return 0.0;
+        }
+        return state.pressure() * Math.exp(-decayPerMilli * Math.max(0L, now - state.time()));
+    }
+
+    private double factor(int slot, double pressure) {
+        return Math.max(minFactor, Math.exp(-pressure / depth[slot]));
+    }
+
+    /**
+     * Integral del precio entre {@code pressure} y {@code pressure + amount}:
+     * la parte exponencial hasta que el precio toca el suelo y el suelo a
+     * partir de ahí. Se redondea hacia abajo para no pagar nunca más de lo
+     * que vale el lote.
+     */
+    private long value(int slot, double pressure, int amount) {
+        double d = depth[slot];
+        double floorAt = d * Math.log(1.0 / minFactor);
+        double end = pressure + amount;
+        double total;
+        if (pressure >= floorAt) {
+            total = base[slot] * minFactor * amount;
+        } else if (end <= floorAt) {
+            total = base[slot] * d * (Math.exp(-pressure / d) - Math.exp(-end / d));
+        } else {
+            total = base[slot] * d * (Math.exp(-pressure / d) - minFactor) + base[slot] * minFactor * (end - floorAt);
+        }
+        return (long) Math.floor(total);
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
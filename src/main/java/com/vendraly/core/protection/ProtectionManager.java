@@ -3,9 +3,7 @@ package com.vendraly.core.protection;
 import com.vendraly.core.clans.Clan;
 import com.vendraly.core.clans.ClanManager;
 import org.bukkit.Location;
-import org.bukkit.Material;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -44,17 +42,4 @@ public class ProtectionManager {
     public void protectChest(Player player, Location location) {
         protectedChests.put(location, player.getUniqueId());
     }
-
-    public double getCurrencyValue(ItemStack itemStack) {
-        if (itemStack == null) {
-            return 0;
-        }
-        if (itemStack.getType() == Material.GOLD_INGOT) {
-            return itemStack.getAmount() * 10.0;
-        }
-        if (itemStack.getType() == Material.DIAMOND) {
-            return itemStack.getAmount() * 25.0;
-        }
-        return 0;
-    }
 }
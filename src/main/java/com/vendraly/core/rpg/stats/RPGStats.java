@@ -1,16 +1,25 @@
 package com.vendraly.core.rpg.stats;
 
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
 
 /**
- * Contenedor mutable de estadísticas RPG.
+ * Contenedor mutable de estadísticas RPG. El aviso opcional de cambios permite
+ * al propietario saber que debe volver a persistirlas.
  */
 public class RPGStats {
 
     private final Map<StatType, Double> stats = new EnumMap<>(StatType.class);
+    private final Runnable onChange;
 
     public RPGStats() {
+        this(() -> {
+        });
+    }
+
+    public RPGStats(Runnable onChange) {
+        this.onChange = onChange;
         for (StatType type : StatType.values()) {
             stats.put(type, type.getBaseValue());
         }
@@ -22,13 +31,19 @@ public class RPGStats {
 
     public void setStat(StatType type, double value) {
         stats.put(type, value);
+        onChange.run();
     }
 
     public void addStat(StatType type, double value) {
         stats.merge(type, value, Double::sum);
+        onChange.run();
     }
 
+    /**
+     * Vista de solo lectura; las modificaciones pasan por los setters para que
+     * se notifiquen.
+     */
     public Map<StatType, Double> asMap() {
-        return stats;
+        return Collections.unmodifiableMap(stats);
     }
 }
@@ -60,16 +60,23 @@ public class StatManager {
 
     public void resetPoints(Player player) {
         PlayerData data = userDataManager.getOrCreate(player.getUniqueId(), player.getName());
-        int totalPoints = (data.getRpgLevel() - 1) * 5;
-        data.setUnspentPoints(totalPoints);
-        for (StatType type : StatType.values()) {
-            data.getStats().setStat(type, type.getBaseValue());
-        }
+        resetPoints(data);
         userDataManager.save(data);
         apply(player);
         player.sendMessage(Component.text("Se han reiniciado tus estadísticas", NamedTextColor.YELLOW));
     }
 
+    /**
+     * Devuelve las estadísticas a su valor base y reembolsa los puntos del
+     * nivel actual; el guardado queda a cargo de quien llama.
+     */
+    public void resetPoints(PlayerData data) {
+        data.setUnspentPoints((data.getRpgLevel() - 1) * 5);
+        for (StatType type : StatType.values()) {
+            data.getStats().setStat(type, type.getBaseValue());
+        }
+    }
+
     public int getLevel(Player player) {
         PlayerData data = userDataManager.getOrCreate(player.getUniqueId(), player.getName());
         return data.getRpgLevel();
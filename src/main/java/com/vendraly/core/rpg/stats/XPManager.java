@@ -2,6 +2,7 @@ package com.vendraly.core.rpg.stats;
 
 import com.vendraly.VendralyCore;
 import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerOperations;
 import com.vendraly.core.database.UserDataManager;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -9,6 +10,7 @@ import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Gestiona la experiencia y niveles RPG de los jugadores.
@@ -17,10 +19,12 @@ public class XPManager {
 
     private final VendralyCore plugin;
     private final UserDataManager userDataManager;
+    private final PlayerOperations playerOperations;
 
-    public XPManager(VendralyCore plugin, UserDataManager userDataManager) {
+    public XPManager(VendralyCore plugin, UserDataManager userDataManager, PlayerOperations playerOperations) {
         this.plugin = plugin;
         this.userDataManager = userDataManager;
+        this.playerOperations = playerOperations;
     }
 
     public void addExperience(Player player, long amount) {
@@ -33,20 +37,26 @@ public class XPManager {
         userDataManager.save(data);
     }
 
-    public void addExperience(UUID uuid, long amount) {
+    /**
+     * Otorga experiencia a un jugador que puede estar desconectado. Si no está
+     * cargado se lee fuera del hilo principal; el futuro se completa en el
+     * hilo principal con el nivel resultante.
+     */
+    public CompletableFuture<Integer> addExperience(UUID uuid, long amount) {
         Player player = Bukkit.getPlayer(uuid);
         if (player != null) {
             addExperience(player, amount);
-        } else {
-            PlayerData data = userDataManager.getOrCreate(uuid, "Desconocido");
+            return CompletableFuture.completedFuture(userDataManager.getOrCreate(uuid, player.getName()).getRpgLevel());
+        }
+        return playerOperations.apply(uuid, "Desconocido", data -> {
             long newXp = data.getRpgExperience() + amount;
             data.setRpgExperience(newXp);
             while (newXp >= getRequiredForLevel(data.getRpgLevel() + 1)) {
                 data.setRpgLevel(data.getRpgLevel() + 1);
                 data.setUnspentPoints(data.getUnspentPoints() + 5);
             }
-            userDataManager.save(data);
-        }
+            return data.getRpgLevel();
+        });
     }
 
     private void levelUp(Player player, PlayerData data) {
@@ -2,6 +2,7 @@ package com.vendraly.core.trade;
 
 import com.vendraly.VendralyCore;
 import com.vendraly.core.economy.CashManager;
+import com.vendraly.core.mail.MailboxManager;
 import com.vendraly.core.tradingui.TradeGuiManager;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -9,7 +10,9 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -20,12 +23,14 @@ public class TradeManager {
 
     private final VendralyCore plugin;
     private final CashManager cashManager;
+    private final MailboxManager mailboxManager;
     private final Map<UUID, UUID> pendingRequests = new HashMap<>();
     private final Map<UUID, TradeSession> sessions = new HashMap<>();
 
-    public TradeManager(VendralyCore plugin, CashManager cashManager) {
+    public TradeManager(VendralyCore plugin, CashManager cashManager, MailboxManager mailboxManager) {
         this.plugin = plugin;
         this.cashManager = cashManager;
+        this.mailboxManager = mailboxManager;
     }
 
     public void requestTrade(Player requester, Player target) {
@@ -114,53 +119,44 @@ public class TradeManager {
     }
 
     private void transferItems(TradeSession session) {
-        Inventory inventory = session.getInventory();
-        Player requester = session.getRequester();
-        Player target = session.getTarget();
-        for (int slot : session.getRequesterSlots()) {
-            ItemStack stack = inventory.getItem(slot);
-            if (stack != null && stack.getType() != Material.AIR) {
-                target.getInventory().addItem(stack.clone());
-            }
-            inventory.clear(slot);
-        }
-        for (int slot : session.getTargetSlots()) {
-            ItemStack stack = inventory.getItem(slot);
-            if (stack != null && stack.getType() != Material.AIR) {
-                requester.getInventory().addItem(stack.clone());
-            }
-            inventory.clear(slot);
-        }
+        moveSlots(session.getInventory(), session.getRequesterSlots(), session.getTarget());
+        moveSlots(session.getInventory(), session.getTargetSlots(), session.getRequester());
     }
 
     private void transferMoney(TradeSession session) {
         double requesterOffer = session.getMoney(session.getRequester());
         double targetOffer = session.getMoney(session.getTarget());
+        UUID requester = session.getRequester().getUniqueId();
+        UUID target = session.getTarget().getUniqueId();
         if (requesterOffer > 0) {
-            cashManager.modify(session.getRequester().getUniqueId(), -requesterOffer);
-            cashManager.modify(session.getTarget().getUniqueId(), requesterOffer);
+            cashManager.transfer(requester, target, requesterOffer, "trade");
         }
         if (targetOffer > 0) {
-            cashManager.modify(session.getTarget().getUniqueId(), -targetOffer);
-            cashManager.modify(session.getRequester().getUniqueId(), targetOffer);
+            cashManager.transfer(target, requester, targetOffer, "trade");
         }
     }
 
     private void returnItems(TradeSession session) {
-        Inventory inventory = session.getInventory();
-        for (int slot : session.getRequesterSlots()) {
+        moveSlots(session.getInventory(), session.getRequesterSlots(), session.getRequester());
+        moveSlots(session.getInventory(), session.getTargetSlots(), session.getTarget());
+    }
+
+    /**
+     * Vacía los slots en el inventario de {@code recipient}; lo que no cabe
+     * va a su correo en un solo envío.
+     */
+    private void moveSlots(Inventory inventory, int[] slots, Player recipient) {
+        List<ItemStack> overflow = new ArrayList<>();
+        for (int slot : slots) {
             ItemStack stack = inventory.getItem(slot);
             if (stack != null && stack.getType() != Material.AIR) {
-                session.getRequester().getInventory().addItem(stack.clone());
+                overflow.addAll(recipient.getInventory().addItem(stack.clone()).values());
             }
             inventory.clear(slot);
         }
-        for (int slot : session.getTargetSlots()) {
-            ItemStack stack = inventory.getItem(slot);
-            if (stack != null && stack.getType() != Material.AIR) {
-                session.getTarget().getInventory().addItem(stack.clone());
-            }
-            inventory.clear(slot);
+        if (!overflow.isEmpty()) {
+            mailboxManager.send(recipient.getUniqueId(), "Comercio", "trade", 0L, overflow);
+            recipient.sendMessage("Parte del intercambio no cabía en tu inventario; está en tu correo (/mail).");
         }
     }
 }
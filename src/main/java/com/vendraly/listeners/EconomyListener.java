@@ -2,6 +2,8 @@ package com.vendraly.listeners;
 
 import com.vendraly.core.economy.CashManager;
 import com.vendraly.core.economy.EconomyManager;
+import com.vendraly.core.economy.Money;
+import com.vendraly.core.pricing.PricingEngine;
 import com.vendraly.core.protection.ProtectionManager;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -9,6 +11,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityPickupItemEvent;
 import org.bukkit.event.inventory.InventoryOpenEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.ItemStack;
 
 /**
  * Listeners generales relacionados con economía y protección de cofres.
@@ -19,23 +22,35 @@ public class EconomyListener implements Listener {
     private final CashManager cashManager;
     private final EconomyManager economyManager;
     private final ProtectionManager protectionManager;
+    private final PricingEngine pricingEngine;
 
-    public EconomyListener(CashManager cashManager, EconomyManager economyManager, ProtectionManager protectionManager) {
+    public EconomyListener(CashManager cashManager, EconomyManager economyManager, ProtectionManager protectionManager,
+                           PricingEngine pricingEngine) {
         this.cashManager = cashManager;
         this.economyManager = economyManager;
         this.protectionManager = protectionManager;
+        this.pricingEngine = pricingEngine;
     }
 
-    @EventHandler
+    /**
+     * Convierte en efectivo los materiales con precio de venta, al precio
+     * que marque en ese momento el {@link PricingEngine}.
+     */
+    @EventHandler(ignoreCancelled = true)
     public void onPickup(EntityPickupItemEvent event) {
         if (!(event.getEntity() instanceof Player player)) {
             return;
         }
-        double value = protectionManager.getCurrencyValue(event.getItem().getItemStack());
-        if (value > 0) {
-            cashManager.modify(player.getUniqueId(), value);
-            event.getItem().remove();
-            player.sendMessage("Convertiste botín en " + value + " monedas.");
+        ItemStack stack = event.getItem().getItemStack();
+        if (stack == null || !pricingEngine.isPriced(stack.getType())) {
+            return;
+        }
+        long value = pricingEngine.sell(stack.getType(), stack.getAmount());
+        event.setCancelled(true);
+        event.getItem().remove();
+        if (value > 0L) {
+            cashManager.modify(player.getUniqueId(), Money.toMajor(value), "loot");
+            player.sendMessage("Convertiste botín en " + Money.format(value) + " monedas.");
         }
     }
 
@@ -0,0 +1,31 @@
+package com.vendraly.listeners;
+
+import com.vendraly.core.mail.MailboxManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Carga el buzón del jugador al entrar (y entrega lo pendiente) y lo suelta
+ * al salir.
+ */
+public class MailListener implements Listener {
+
+    private final MailboxManager mailboxManager;
+
+    public MailListener(MailboxManager mailboxManager) {
+        this.mailboxManager = mailboxManager;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        mailboxManager.load(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        mailboxManager.unload(event.getPlayer().getUniqueId());
+    }
+}
@@ -1,13 +1,18 @@
 package com.vendraly.listeners;
 
 import com.vendraly.core.auth.AuthManager;
+import com.vendraly.core.database.PlayerData;
+import com.vendraly.core.database.PlayerDirectory;
 import com.vendraly.core.database.UserDataManager;
 import com.vendraly.core.rpg.stats.StatManager;
 import com.vendraly.core.rpg.stamina.StaminaManager;
 import com.vendraly.core.scoreboard.ScoreboardManager;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
@@ -30,10 +35,33 @@ public class PlayerConnectionListener implements Listener {
         this.scoreboardManager = scoreboardManager;
     }
 
+    /**
+     * Precarga los datos del jugador fuera del hilo principal y rechaza a los
+     * baneados antes de que la conexión se complete. Si la precarga agota su
+     * plazo se decide con el directorio de jugadores.
+     */
+    @EventHandler
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        PlayerData data = userDataManager.preload(event.getUniqueId(), event.getName());
+        boolean banned;
+        if (data != null) {
+            banned = data.isBanned();
+        } else {
+            PlayerDirectory.Entry entry = userDataManager.getDirectory().get(event.getUniqueId());
+            banned = entry != null && entry.banned();
+        }
+        if (banned) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, Component.text("Estás baneado de este servidor", NamedTextColor.RED));
+        }
+    }
+
     @EventHandler
     public void onJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
-        userDataManager.getOrCreate(player.getUniqueId(), player.getName());
+        userDataManager.handleJoin(player.getUniqueId(), player.getName());
         authManager.handleJoin(player);
         statManager.apply(player);
         staminaManager.initialize(player);
@@ -46,5 +74,6 @@ public class PlayerConnectionListener implements Listener {
         authManager.handleQuit(player);
         staminaManager.remove(player.getUniqueId());
         scoreboardManager.remove(player.getUniqueId());
+        userDataManager.handleQuit(player.getUniqueId());
     }
 }
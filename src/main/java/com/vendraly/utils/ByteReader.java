@@ -0,0 +1,143 @@
+package com.vendraly.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Lector secuencial complementario de {@link ByteWriter}.
+ */
+public final class ByteReader {
+
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    public ByteReader(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    public ByteReader(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    public int readByte() throws IOException {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public byte[] readBytes(int length) throws IOException {
+        require(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    public int readInt() throws IOException {
+        require(4);
+        int value = ((buffer[position] & 0xFF) << 24)
+                | ((buffer[position + 1] & 0xFF) << 16)
+                | ((buffer[position + 2] & 0xFF) << 8)
+                | (buffer[position + 3] & 0xFF);
+        position += 4;
+        return value;
+    }
+
+    public long readLong() throws IOException {
+        require(8);
+        long value = 0L;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buffer[position++] & 0xFFL);
+        }
+        return value;
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("VarInt demasiado largo");
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("VarLong demasiado largo");
+    }
+
+    public int readSignedVarInt() throws IOException {
+        int raw = readVarInt();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public long readSignedVarLong() throws IOException {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1L);
+    }
+
+    public String readString() throws IOException {
+        int length = readVarInt();
+        return readUtf8(length);
+    }
+
+    public String readNullableString() throws IOException {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        return readUtf8(length - 1);
+    }
+
+    public UUID readUuid() throws IOException {
+        return new UUID(readLong(), readLong());
+    }
+
+    public int remaining() {
+        return limit - position;
+    }
+
+    public int position() {
+        return position;
+    }
+
+    public void skip(int length) throws IOException {
+        require(length);
+        position += length;
+    }
+
+    private String readUtf8(int length) throws IOException {
+        require(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    private void require(int length) throws IOException {
+        if (length < 0 || length > limit - position) {
+            throw new EOFException("Registro truncado");
+        }
+    }
+}
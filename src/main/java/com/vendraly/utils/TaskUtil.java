@@ -26,4 +26,8 @@ public final class TaskUtil {
     public static void runAsync(Plugin plugin, Runnable runnable) {
         Bukkit.getScheduler().runTaskAsynchronously(plugin, runnable);
     }
+
+    public static void runAsyncTimer(Plugin plugin, Runnable runnable, long delay, long period) {
+        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, runnable, delay, period);
+    }
 }
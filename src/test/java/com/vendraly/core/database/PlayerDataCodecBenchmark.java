@@ -0,0 +1,103 @@
+package com.vendraly.core.database;
+
+import com.vendraly.core.rpg.stats.StatType;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compara tamaño y tiempo de ida y vuelta de {@link PlayerDataCodec} con el
+ * YAML de {@code YamlPlayerStorage} (mismas claves, volcadas con SnakeYAML).
+ * No forma parte de {@code mvn test}; se lanza a mano con
+ * {@code java -cp <clases de test> com.vendraly.core.database.PlayerDataCodecBenchmark [registros] [rondas]}.
+ */
+public final class PlayerDataCodecBenchmark {
+
+    private PlayerDataCodecBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Random random = new Random(1L);
+        List<PlayerSnapshot> snapshots = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            snapshots.add(PlayerDataCodecTest.randomPlayer(random).publishSnapshot());
+        }
+        Yaml yaml = new Yaml();
+        long plain = 0L;
+        long deflated = 0L;
+        long text = 0L;
+        for (PlayerSnapshot snapshot : snapshots) {
+            plain += PlayerDataCodec.encode(snapshot, false).length;
+            deflated += PlayerDataCodec.encode(snapshot, true).length;
+            text += yaml.dump(yamlLayout(snapshot)).getBytes(StandardCharsets.UTF_8).length;
+        }
+        System.out.printf(Locale.ROOT, "Tamaño medio: binario %d B, comprimido %d B, YAML %d B%n",
+                plain / records, deflated / records, text / records);
+
+        // La primera mitad de las rondas calienta el JIT y no se mide.
+        long binaryNanos = 0L;
+        long yamlNanos = 0L;
+        long sink = 0L;
+        for (int round = 0; round < rounds * 2; round++) {
+            long start = System.nanoTime();
+            for (PlayerSnapshot snapshot : snapshots) {
+                sink += PlayerDataCodec.decode(PlayerDataCodec.encode(snapshot, false)).getRpgLevel();
+            }
+            long middle = System.nanoTime();
+            for (PlayerSnapshot snapshot : snapshots) {
+                Map<String, Object> loaded = yaml.load(yaml.dump(yamlLayout(snapshot)));
+                sink += loaded.size();
+            }
+            long end = System.nanoTime();
+            if (round >= rounds) {
+                binaryNanos += middle - start;
+                yamlNanos += end - middle;
+            }
+        }
+        long operations = (long) records * rounds;
+        System.out.printf(Locale.ROOT, "Ida y vuelta: binario %.2f us, YAML %.2f us (control %d)%n",
+                binaryNanos / 1000.0 / operations, yamlNanos / 1000.0 / operations, sink);
+    }
+
+    /**
+     * Las claves que escribe {@code YamlPlayerStorage}.
+     */
+    static Map<String, Object> yamlLayout(PlayerSnapshot data) {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("name", data.getName());
+        root.put("password", data.getPasswordHash());
+        root.put("role", data.getRole().name());
+        root.put("bank", data.getBankBalance());
+        root.put("cash", data.getCashBalance());
+        root.put("clan", data.getClanId());
+        Map<String, Object> rpg = new LinkedHashMap<>();
+        rpg.put("level", data.getRpgLevel());
+        rpg.put("experience", data.getRpgExperience());
+        rpg.put("unspent", data.getUnspentPoints());
+        root.put("rpg", rpg);
+        root.put("banned", data.isBanned());
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (StatType type : StatType.values()) {
+            stats.put(type.name().toLowerCase(Locale.ROOT), data.getStat(type));
+        }
+        root.put("stats", stats);
+        Map<String, Object> jobs = new LinkedHashMap<>();
+        for (PlayerSnapshot.JobSnapshot job : data.getJobs().values()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("experience", job.experience());
+            entry.put("level", job.level());
+            jobs.put(job.jobId(), entry);
+        }
+        root.put("jobs", jobs);
+        return root;
+    }
+}
@@ -0,0 +1,365 @@
+package com.vendraly.core.database;
+
+import com.vendraly.core.roles.Role;
+import com.vendraly.core.rpg.stats.StatType;
+import com.vendraly.utils.ByteWriter;
+import org.junit.jupiter.api.Test;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class PlayerDataCodecTest {
+
+    private static final int[] SECTIONS = {
+            PlayerData.SECTION_PROFILE,
+            PlayerData.SECTION_AUTH,
+            PlayerData.SECTION_BALANCES,
+            PlayerData.SECTION_PROGRESSION,
+            PlayerData.SECTION_STATS,
+            PlayerData.SECTION_JOBS
+    };
+
+    @Test
+    void roundTripsRandomRecords() throws IOException {
+        Random random = new Random(42L);
+        for (int i = 0; i < 2000; i++) {
+            PlayerSnapshot original = randomPlayer(random).publishSnapshot();
+            for (boolean compress : new boolean[]{false, true}) {
+                PlayerData decoded = PlayerDataCodec.decode(PlayerDataCodec.encode(original, compress));
+                assertEquals(0, decoded.drainChangedSections(), "un registro leído no debe quedar sucio");
+                assertSnapshot(original, decoded.publishSnapshot());
+            }
+        }
+    }
+
+    @Test
+    void roundTripsEmptyAndDefaultFields() throws IOException {
+        PlayerData data = new PlayerData(new UUID(0L, 0L), "");
+        data.setPasswordHash(null);
+        PlayerSnapshot original = data.publishSnapshot();
+        PlayerSnapshot decoded = PlayerDataCodec.decode(PlayerDataCodec.encode(original, false)).publishSnapshot();
+        assertEquals("", decoded.getName());
+        assertEquals("", decoded.getPasswordHash());
+        assertNull(decoded.getClanId());
+        assertTrue(decoded.getJobs().isEmpty());
+        assertEquals(original.getRole(), decoded.getRole());
+    }
+
+    @Test
+    void deflatesOnlyWhenSmaller() throws IOException {
+        PlayerData verbose = randomPlayer(new Random(7L));
+        verbose.setName("a".repeat(300));
+        byte[] plain = PlayerDataCodec.encode(verbose.publishSnapshot(), false);
+        byte[] deflated = PlayerDataCodec.encode(verbose.publishSnapshot(), true);
+        assertEquals(0, plain[3] & PlayerDataCodec.FLAG_DEFLATE);
+        assertEquals(PlayerDataCodec.FLAG_DEFLATE, deflated[3] & PlayerDataCodec.FLAG_DEFLATE);
+        assertTrue(deflated.length < plain.length);
+
+        PlayerData tiny = new PlayerData(UUID.randomUUID(), "x");
+        byte[] tinyPlain = PlayerDataCodec.encode(tiny.publishSnapshot(), false);
+        byte[] tinyCompressed = PlayerDataCodec.encode(tiny.publishSnapshot(), true);
+        if ((tinyCompressed[3] & PlayerDataCodec.FLAG_DEFLATE) == 0) {
+            assertArrayEquals(tinyPlain, tinyCompressed);
+        } else {
+            assertTrue(tinyCompressed.length < tinyPlain.length);
+        }
+    }
+
+    @Test
+    void deltaReplacesOnlyItsSections() throws IOException {
+        Random random = new Random(11L);
+        for (int mask = 1; mask < PlayerData.SECTION_ALL; mask++) {
+            PlayerData base = randomPlayer(random);
+            // Los oficios solo se añaden, así que la copia cambiada parte de la original.
+            PlayerData changed = randomize(PlayerDataCodec.decode(PlayerDataCodec.encode(base.publishSnapshot(), false)), random);
+            PlayerSnapshot before = base.publishSnapshot();
+            PlayerSnapshot source = changed.publishSnapshot();
+            byte[] delta = PlayerDataCodec.encodeDelta(source, mask);
+            assertTrue(PlayerDataCodec.isDelta(delta));
+
+            PlayerData target = PlayerDataCodec.decode(PlayerDataCodec.encode(before, false));
+            PlayerDataCodec.apply(target, delta);
+            PlayerSnapshot after = target.publishSnapshot();
+            for (int section : SECTIONS) {
+                PlayerSnapshot expected = (mask & section) != 0 ? source : before;
+                assertSection(section, expected, after);
+            }
+        }
+    }
+
+    @Test
+    void deltaWithEverySectionIsAFullRecord() throws IOException {
+        PlayerSnapshot snapshot = randomPlayer(new Random(3L)).publishSnapshot();
+        byte[] delta = PlayerDataCodec.encodeDelta(snapshot, PlayerData.SECTION_ALL);
+        assertFalse(PlayerDataCodec.isDelta(delta));
+        assertArrayEquals(PlayerDataCodec.encode(snapshot, false), delta);
+    }
+
+    @Test
+    void refusesToDecodeADeltaAsARecord() {
+        PlayerSnapshot snapshot = randomPlayer(new Random(5L)).publishSnapshot();
+        byte[] delta = PlayerDataCodec.encodeDelta(snapshot, PlayerData.SECTION_BALANCES);
+        assertThrows(IOException.class, () -> PlayerDataCodec.decode(delta));
+    }
+
+    @Test
+    void refusesToApplyAnotherPlayersRecord() {
+        byte[] other = PlayerDataCodec.encode(randomPlayer(new Random(9L)).publishSnapshot(), false);
+        PlayerData target = new PlayerData(UUID.randomUUID(), "target");
+        assertThrows(IOException.class, () -> PlayerDataCodec.apply(target, other));
+    }
+
+    @Test
+    void upgradesVersion1Records() throws IOException {
+        UUID uuid = UUID.randomUUID();
+        ByteWriter out = header(1, 0);
+        out.writeUuid(uuid).writeString("Alex").writeString("hash").writeString("VIP")
+                .writeDouble(1234.56).writeDouble(7.5).writeNullableString("clan")
+                .writeSignedVarInt(12).writeSignedVarLong(3400L).writeSignedVarInt(3).writeBoolean(true);
+        // Un registro antiguo con menos estadísticas que las actuales.
+        out.writeVarInt(2).writeDouble(31.0).writeDouble(64.0);
+        out.writeVarInt(1).writeString("miner").writeSignedVarLong(500L).writeSignedVarInt(4);
+        byte[] v1 = out.toByteArray();
+
+        PlayerData data = PlayerDataCodec.decode(v1);
+        assertEquals(0, data.drainChangedSections());
+        PlayerSnapshot snapshot = data.publishSnapshot();
+        assertEquals(uuid, snapshot.getUuid());
+        assertEquals("Alex", snapshot.getName());
+        assertEquals("hash", snapshot.getPasswordHash());
+        assertEquals(Role.VIP, snapshot.getRole());
+        assertEquals(123456L, snapshot.getBankMinor());
+        assertEquals(750L, snapshot.getCashMinor());
+        assertEquals("clan", snapshot.getClanId());
+        assertEquals(12, snapshot.getRpgLevel());
+        assertEquals(3400L, snapshot.getRpgExperience());
+        assertEquals(3, snapshot.getUnspentPoints());
+        assertTrue(snapshot.isBanned());
+        assertEquals(31.0, snapshot.getStat(StatType.values()[0]));
+        assertEquals(64.0, snapshot.getStat(StatType.values()[1]));
+        assertEquals(StatType.values()[2].getBaseValue(), snapshot.getStat(StatType.values()[2]));
+        assertEquals(new PlayerSnapshot.JobSnapshot("miner", 500L, 4), snapshot.getJobs().get("miner"));
+
+        // Al reescribirlo sale en la versión actual con los mismos datos.
+        byte[] upgraded = PlayerDataCodec.encode(snapshot, false);
+        assertEquals(PlayerDataCodec.SCHEMA_VERSION, upgraded[2]);
+        assertSnapshot(snapshot, PlayerDataCodec.decode(upgraded).publishSnapshot());
+
+        PlayerData target = new PlayerData(uuid, "");
+        PlayerDataCodec.apply(target, v1);
+        assertSnapshot(snapshot, target.publishSnapshot());
+    }
+
+    @Test
+    void upgradesVersion2RecordsAndDeltas() throws IOException {
+        UUID uuid = UUID.randomUUID();
+        ByteWriter out = header(2, 0);
+        out.writeUuid(uuid).writeVarInt(PlayerData.SECTION_ALL);
+        out.writeString("Steve").writeNullableString(null);
+        out.writeString("hash").writeString("ADMIN").writeBoolean(false);
+        out.writeDouble(99.99).writeDouble(0.01);
+        out.writeSignedVarInt(5).writeSignedVarLong(77L).writeSignedVarInt(0);
+        // Uno más que las actuales: las estadísticas desconocidas se ignoran.
+        out.writeVarInt(StatType.values().length + 1);
+        for (int i = 0; i <= StatType.values().length; i++) {
+            out.writeDouble(i + 0.5);
+        }
+        out.writeVarInt(0);
+
+        PlayerData data = PlayerDataCodec.decode(out.toByteArray());
+        PlayerSnapshot snapshot = data.publishSnapshot();
+        assertEquals("Steve", snapshot.getName());
+        assertNull(snapshot.getClanId());
+        assertEquals(Role.ADMIN, snapshot.getRole());
+        assertEquals(9999L, snapshot.getBankMinor());
+        assertEquals(1L, snapshot.getCashMinor());
+        assertEquals(5, snapshot.getRpgLevel());
+        for (StatType type : StatType.values()) {
+            assertEquals(type.ordinal() + 0.5, snapshot.getStat(type));
+        }
+
+        ByteWriter delta = header(2, PlayerDataCodec.FLAG_DELTA);
+        delta.writeVarInt(PlayerData.SECTION_BALANCES).writeDouble(10.0).writeDouble(2.25);
+        PlayerDataCodec.apply(data, delta.toByteArray());
+        assertEquals(PlayerData.SECTION_BALANCES, data.drainChangedSections());
+        PlayerSnapshot applied = data.publishSnapshot();
+        assertEquals(1000L, applied.getBankMinor());
+        assertEquals(225L, applied.getCashMinor());
+        assertEquals("Steve", applied.getName());
+    }
+
+    @Test
+    void unknownRoleFallsBackToCivilian() throws IOException {
+        ByteWriter out = header(3, PlayerDataCodec.FLAG_DELTA);
+        out.writeVarInt(PlayerData.SECTION_AUTH).writeString("hash").writeString("EMPEROR").writeBoolean(false);
+        PlayerData data = new PlayerData(UUID.randomUUID(), "x");
+        data.setRole(Role.ADMIN);
+        PlayerDataCodec.apply(data, out.toByteArray());
+        assertEquals(Role.CIVILIAN, data.getRole());
+    }
+
+    @Test
+    void rejectsEveryTruncation() {
+        PlayerSnapshot snapshot = randomPlayer(new Random(13L)).publishSnapshot();
+        for (boolean compress : new boolean[]{false, true}) {
+            byte[] full = PlayerDataCodec.encode(snapshot, compress);
+            for (int length = 0; length < full.length; length++) {
+                byte[] truncated = Arrays.copyOf(full, length);
+                assertThrows(IOException.class, () -> PlayerDataCodec.decode(truncated),
+                        "truncado a " + length + " de " + full.length + (compress ? " comprimido" : ""));
+            }
+        }
+    }
+
+    @Test
+    void rejectsCorruptHeaders() {
+        byte[] valid = PlayerDataCodec.encode(randomPlayer(new Random(17L)).publishSnapshot(), false);
+        assertThrows(IOException.class, () -> PlayerDataCodec.decode(withByte(valid, 0, 'X')));
+        assertThrows(IOException.class, () -> PlayerDataCodec.decode(withByte(valid, 2, 0)));
+        assertThrows(IOException.class, () -> PlayerDataCodec.decode(withByte(valid, 2, PlayerDataCodec.SCHEMA_VERSION + 1)));
+        assertThrows(IOException.class, () -> PlayerDataCodec.decode(new byte[0]));
+        assertFalse(PlayerDataCodec.isEncoded("name: Alex\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void rejectsUnknownSections() {
+        ByteWriter out = header(PlayerDataCodec.SCHEMA_VERSION, 0);
+        out.writeUuid(UUID.randomUUID()).writeVarInt(PlayerData.SECTION_ALL + 1);
+        assertThrows(IOException.class, () -> PlayerDataCodec.decode(out.toByteArray()));
+    }
+
+    @Test
+    void rejectsOversizedLengths() {
+        ByteWriter out = header(PlayerDataCodec.SCHEMA_VERSION, PlayerDataCodec.FLAG_DELTA);
+        out.writeVarInt(PlayerData.SECTION_PROFILE).writeVarInt(Integer.MAX_VALUE).writeString("x");
+        PlayerData data = new PlayerData(UUID.randomUUID(), "x");
+        assertThrows(IOException.class, () -> PlayerDataCodec.apply(data, out.toByteArray()));
+    }
+
+    @Test
+    void rejectsCorruptDeflatedBody() {
+        byte[] garbage = header(PlayerDataCodec.SCHEMA_VERSION, PlayerDataCodec.FLAG_DEFLATE)
+                .writeInt(0xFFFFFFFF).writeInt(0x12345678).toByteArray();
+        assertThrows(IOException.class, () -> PlayerDataCodec.decode(garbage));
+    }
+
+    @Test
+    void corruptBytesOnlyRaiseIOException() {
+        Random random = new Random(23L);
+        for (int i = 0; i < 5000; i++) {
+            byte[] bytes = PlayerDataCodec.encode(randomPlayer(random).publishSnapshot(), random.nextBoolean());
+            // Se conserva la cabecera para llegar al cuerpo, con cualquier versión soportada.
+            bytes[2] = (byte) (1 + random.nextInt(PlayerDataCodec.SCHEMA_VERSION));
+            int flips = 1 + random.nextInt(4);
+            for (int j = 0; j < flips; j++) {
+                bytes[3 + random.nextInt(bytes.length - 3)] = (byte) random.nextInt(256);
+            }
+            try {
+                PlayerDataCodec.decode(bytes);
+            } catch (IOException expected) {
+                // Un registro corrupto debe rechazarse de forma controlada.
+            } catch (RuntimeException e) {
+                fail("Excepción inesperada con un registro corrupto: " + e, e);
+            }
+        }
+    }
+
+    @Test
+    void binaryIsSmallerThanYaml() {
+        Yaml yaml = new Yaml();
+        Random random = new Random(29L);
+        long binary = 0L;
+        long text = 0L;
+        for (int i = 0; i < 200; i++) {
+            PlayerSnapshot snapshot = randomPlayer(random).publishSnapshot();
+            binary += PlayerDataCodec.encode(snapshot, false).length;
+            text += yaml.dump(PlayerDataCodecBenchmark.yamlLayout(snapshot)).getBytes(StandardCharsets.UTF_8).length;
+        }
+        assertTrue(binary < text, "binario " + binary + " B frente a YAML " + text + " B");
+    }
+
+    static PlayerData randomPlayer(Random random) {
+        return randomize(new PlayerData(new UUID(random.nextLong(), random.nextLong()), ""), random);
+    }
+
+    private static PlayerData randomize(PlayerData data, Random random) {
+        data.setName("Jugador" + random.nextInt(100000));
+        data.setPasswordHash("$2a$10$" + Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+        data.setRole(Role.values()[random.nextInt(Role.values().length)]);
+        data.setClanId(random.nextBoolean() ? null : "clan-" + random.nextInt(50));
+        data.setBanned(random.nextInt(10) == 0);
+        data.getBank().set(Math.abs(random.nextLong() % 100_000_000_000L));
+        data.getCash().set(random.nextInt(10_000_000));
+        data.setRpgLevel(1 + random.nextInt(100));
+        data.setRpgExperience(Math.abs(random.nextLong() % 10_000_000L));
+        data.setUnspentPoints(random.nextInt(20));
+        for (StatType type : StatType.values()) {
+            data.getStats().setStat(type, Math.round(random.nextDouble() * 20000.0) / 100.0);
+        }
+        int jobs = random.nextInt(4);
+        for (int i = 0; i < jobs; i++) {
+            data.getOrCreateJob("job" + random.nextInt(8)).setExperience(random.nextInt(1_000_000));
+        }
+        return data;
+    }
+
+    private static ByteWriter header(int version, int flags) {
+        return new ByteWriter(64).writeByte('V').writeByte('D').writeByte(version).writeByte(flags);
+    }
+
+    private static byte[] withByte(byte[] bytes, int index, int value) {
+        byte[] copy = bytes.clone();
+        copy[index] = (byte) value;
+        return copy;
+    }
+
+    private static void assertSnapshot(PlayerSnapshot expected, PlayerSnapshot actual) {
+        for (int section : SECTIONS) {
+            assertSection(section, expected, actual);
+        }
+        assertEquals(expected.getUuid(), actual.getUuid());
+    }
+
+    private static void assertSection(int section, PlayerSnapshot expected, PlayerSnapshot actual) {
+        String where = "sección " + section;
+        switch (section) {
+            case PlayerData.SECTION_PROFILE -> {
+                assertEquals(expected.getName(), actual.getName(), where);
+                assertEquals(expected.getClanId(), actual.getClanId(), where);
+            }
+            case PlayerData.SECTION_AUTH -> {
+                assertEquals(expected.getPasswordHash(), actual.getPasswordHash(), where);
+                assertEquals(expected.getRole(), actual.getRole(), where);
+                assertEquals(expected.isBanned(), actual.isBanned(), where);
+            }
+            case PlayerData.SECTION_BALANCES -> {
+                assertEquals(expected.getBankMinor(), actual.getBankMinor(), where);
+                assertEquals(expected.getCashMinor(), actual.getCashMinor(), where);
+            }
+            case PlayerData.SECTION_PROGRESSION -> {
+                assertEquals(expected.getRpgLevel(), actual.getRpgLevel(), where);
+                assertEquals(expected.getRpgExperience(), actual.getRpgExperience(), where);
+                assertEquals(expected.getUnspentPoints(), actual.getUnspentPoints(), where);
+            }
+            case PlayerData.SECTION_STATS -> {
+                for (StatType type : StatType.values()) {
+                    assertEquals(expected.getStat(type), actual.getStat(type), where + " " + type);
+                }
+            }
+            case PlayerData.SECTION_JOBS -> assertEquals(expected.getJobs(), actual.getJobs(), where);
+            default -> fail("Sección desconocida " + section);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.vendraly.core.database;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerDirectoryTest {
+
+    private static final Logger LOGGER = Logger.getLogger("PlayerDirectoryTest");
+
+    @TempDir
+    File directory;
+
+    @Test
+    void keepsEntriesAfterACleanClose() throws IOException {
+        PlayerSnapshot player = PlayerDataCodecTest.randomPlayer(new Random(1L)).publishSnapshot();
+        PlayerDirectory written = directory();
+        written.open();
+        assertTrue(written.isFresh());
+        written.update(player);
+        written.close();
+
+        PlayerDirectory reopened = directory();
+        reopened.open();
+        assertFalse(reopened.isFresh());
+        assertEquals(1, reopened.size());
+        assertNotNull(reopened.get(player.getUuid()));
+        reopened.close();
+    }
+
+    @Test
+    void rebuildsWhenTheLastRunDidNotClose() throws IOException {
+        PlayerSnapshot player = PlayerDataCodecTest.randomPlayer(new Random(2L)).publishSnapshot();
+        PlayerDirectory clean = directory();
+        clean.open();
+        clean.update(player);
+        clean.close();
+
+        // Se abre y se abandona sin cerrar, como tras una caída del servidor.
+        directory().open();
+
+        PlayerDirectory reopened = directory();
+        reopened.open();
+        assertTrue(reopened.isFresh(), "sin marca de cierre limpio hay que reconstruir");
+        assertEquals(0, reopened.size());
+        assertNull(reopened.get(player.getUuid()));
+        reopened.close();
+    }
+
+    private PlayerDirectory directory() {
+        return new PlayerDirectory(new File(directory, "directory.dat"), LOGGER);
+    }
+}
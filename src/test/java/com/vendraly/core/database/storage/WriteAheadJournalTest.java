@@ -0,0 +1,150 @@
+package com.vendraly.core.database.storage;
+
+import com.vendraly.core.testing.FaultyFileChannel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteAheadJournalTest {
+
+    private static final Logger LOGGER = Logger.getLogger("WriteAheadJournalTest");
+    private static final UUID ALEX = new UUID(1L, 1L);
+    private static final UUID STEVE = new UUID(2L, 2L);
+
+    @TempDir
+    File directory;
+
+    @Test
+    void ignoresTornTail() throws IOException {
+        WriteAheadJournal journal = journal();
+        journal.open();
+        journal.append(ALEX, bytes("uno"));
+        journal.append(ALEX, bytes("dos"));
+        journal.close();
+        File[] files = directory.listFiles();
+        assertEquals(1, files.length);
+        // Un marco a medias al final, como tras una caída durante la escritura.
+        Files.write(files[0].toPath(), new byte[]{0x56, 0x4A, 0x52, 0x4E, 1, 0, 0}, StandardOpenOption.APPEND);
+
+        Map<UUID, List<WriteAheadJournal.Recovered>> recovered = journal().open();
+        assertPayloads(recovered.get(ALEX), "uno", "dos");
+    }
+
+    @Test
+    void keepsGroupsWrittenAfterAFailedOne() throws IOException {
+        FaultyJournal journal = new FaultyJournal(false);
+        journal.open();
+        journal.append(ALEX, bytes("antes"));
+        awaitDurable(journal);
+        journal.faults.failures = 1;
+        journal.append(ALEX, bytes("fallido"));
+        awaitDurable(journal);
+        journal.append(STEVE, bytes("despues"));
+        journal.close();
+        assertEquals(0, journal.faults.failures);
+
+        Map<UUID, List<WriteAheadJournal.Recovered>> recovered = journal().open();
+        assertPayloads(recovered.get(ALEX), "antes", "fallido");
+        assertPayloads(recovered.get(STEVE), "despues");
+    }
+
+    @Test
+    void movesToANewFileWhenTheTailCannotBeCut() throws IOException {
+        FaultyJournal journal = new FaultyJournal(true);
+        journal.open();
+        journal.append(ALEX, bytes("antes"));
+        awaitDurable(journal);
+        journal.faults.failures = 1;
+        journal.append(ALEX, bytes("fallido"));
+        awaitDurable(journal);
+        journal.append(STEVE, bytes("despues"));
+        journal.close();
+
+        assertEquals(2, directory.listFiles().length);
+        Map<UUID, List<WriteAheadJournal.Recovered>> recovered = journal().open();
+        assertPayloads(recovered.get(ALEX), "antes", "fallido");
+        assertPayloads(recovered.get(STEVE), "despues");
+    }
+
+    @Test
+    void commitMarkersHideCoveredRecords() throws IOException {
+        WriteAheadJournal journal = journal();
+        journal.open();
+        long first = journal.append(ALEX, bytes("uno"));
+        journal.append(ALEX, bytes("dos"));
+        long steve = journal.append(STEVE, bytes("tres"));
+        journal.commit(ALEX, first);
+        journal.commit(STEVE, steve);
+        journal.close();
+
+        WriteAheadJournal reopened = journal();
+        Map<UUID, List<WriteAheadJournal.Recovered>> recovered = reopened.open();
+        assertPayloads(recovered.get(ALEX), "dos");
+        assertFalse(recovered.containsKey(STEVE));
+        assertEquals(1, reopened.getPendingPlayers());
+
+        reopened.commit(ALEX, recovered.get(ALEX).get(0).sequence());
+        reopened.close();
+        assertEquals(0, directory.listFiles().length);
+        assertTrue(journal().open().isEmpty());
+    }
+
+    private WriteAheadJournal journal() {
+        return new WriteAheadJournal(directory, LOGGER, 0L, 1024L * 1024L);
+    }
+
+    private static void awaitDurable(WriteAheadJournal journal) {
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (journal.getDurableSequence() < journal.currentSequence()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("El journal no llegó a disco");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void assertPayloads(List<WriteAheadJournal.Recovered> recovered, String... expected) {
+        assertEquals(expected.length, recovered.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(bytes(expected[i]), recovered.get(i).payload());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Journal cuyo canal escribe la mitad del primer marco y falla mientras
+     * queden fallos; con {@code brokenTruncate} tampoco puede recortar.
+     */
+    private final class FaultyJournal extends WriteAheadJournal {
+
+        private final FaultyFileChannel.Faults faults = new FaultyFileChannel.Faults();
+
+        private FaultyJournal(boolean brokenTruncate) {
+            super(directory, LOGGER, 0L, 1024L * 1024L);
+            faults.brokenTruncate = brokenTruncate;
+        }
+
+        @Override
+        FileChannel openChannel(File file) throws IOException {
+            return new FaultyFileChannel(super.openChannel(file), faults);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.vendraly.core.economy;
+
+import com.vendraly.core.testing.FaultyFileChannel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EconomyLedgerTest {
+
+    private static final Logger LOGGER = Logger.getLogger("EconomyLedgerTest");
+    private static final UUID ALEX = new UUID(1L, 1L);
+    private static final UUID STEVE = new UUID(2L, 2L);
+
+    @TempDir
+    File directory;
+
+    @Test
+    void retriesAFailedGroupWithoutLosingLaterOnes() throws IOException {
+        assertSurvivesFailure(false);
+    }
+
+    @Test
+    void retriesWhenTheTailCannotBeCutAtOnce() throws IOException {
+        assertSurvivesFailure(true);
+    }
+
+    @Test
+    void readsLegacyDoubleFramesAsMinorUnits() throws IOException {
+        // Un marco de la primera versión, con importe y saldo en double.
+        byte[] reason = "pay".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(67 + reason.length);
+        body.putLong(7L).putLong(1L).putLong(1L).putLong(1L).putLong(0L).putLong(0L).put((byte) 0)
+                .putDouble(12.34).putDouble(1012.34).putShort((short) reason.length).put(reason);
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+        ByteBuffer frame = ByteBuffer.allocate(12 + body.capacity());
+        frame.putInt(0x564C4447).putInt(body.capacity()).putInt((int) crc.getValue()).put(body.array());
+        assertTrue(directory.isDirectory() || directory.mkdirs());
+        Files.write(new File(directory, "ledger-000001.log").toPath(), frame.array());
+
+        EconomyLedger ledger = new EconomyLedger(directory, LOGGER, 0L, 1024L * 1024L);
+        ledger.open();
+        long huge = (1L << 53) - 1L;
+        ledger.record(ledger.nextTransaction(), ALEX, STEVE, EconomyLedger.Account.CASH, huge, huge + 1234L, "grande");
+        ledger.close();
+
+        EconomyLedger reopened = new EconomyLedger(directory, LOGGER, 0L, 1024L * 1024L);
+        reopened.open();
+        List<EconomyLedger.Entry> entries = reopened.history(ALEX, 10);
+        reopened.close();
+        assertEquals(2, entries.size());
+        assertEquals(8L, entries.get(0).transaction(), "el contador sigue al del marco antiguo");
+        assertEquals(huge, entries.get(0).amountMinor());
+        assertEquals(huge + 1234L, entries.get(0).balanceAfterMinor());
+        assertEquals(STEVE, entries.get(0).counterparty());
+        assertEquals(1234L, entries.get(1).amountMinor());
+        assertEquals(101234L, entries.get(1).balanceAfterMinor());
+        assertEquals(EconomyLedger.Account.BANK, entries.get(1).account());
+        assertNull(entries.get(1).counterparty());
+    }
+
+    @Test
+    void recordAllCompletesOnceTheEntriesAreOnDisk() throws Exception {
+        FaultyLedger ledger = new FaultyLedger();
+        ledger.open();
+        ledger.faults.failures = 1;
+        long transaction = ledger.nextTransaction();
+        CompletableFuture<Void> durable = ledger.recordAll(List.of(
+                new EconomyLedger.Entry(transaction, 1L, ALEX, null, EconomyLedger.Account.BANK, 100L, 100L, "policy:a"),
+                new EconomyLedger.Entry(transaction, 1L, STEVE, null, EconomyLedger.Account.BANK, -50L, 0L, "policy:b")));
+        // El primer intento falla; el futuro espera al reintento.
+        durable.get(10L, TimeUnit.SECONDS);
+        assertEquals(List.of("policy:a"), reasons(ledger.history(ALEX, 10)));
+        assertEquals(List.of("policy:b"), reasons(ledger.history(STEVE, 10)));
+        ledger.close();
+
+        EconomyLedger closed = new EconomyLedger(directory, LOGGER, 0L, 1024L * 1024L);
+        assertTrue(closed.recordAll(List.of(new EconomyLedger.Entry(transaction, 1L, ALEX, null,
+                EconomyLedger.Account.CASH, 1L, 1L, "cerrado"))).isDone(), "sin abrir no hay nada que esperar");
+    }
+
+    private void assertSurvivesFailure(boolean brokenTruncate) throws IOException {
+        FaultyLedger ledger = new FaultyLedger();
+        ledger.faults.brokenTruncate = brokenTruncate;
+        ledger.open();
+        ledger.record(ledger.nextTransaction(), ALEX, null, EconomyLedger.Account.BANK, 1000L, 1000L, "antes");
+        awaitGroups(ledger, 1);
+        ledger.faults.failures = 1;
+        ledger.record(ledger.nextTransaction(), ALEX, null, EconomyLedger.Account.BANK, 500L, 1500L, "fallido");
+        awaitGroups(ledger, 2);
+        assertEquals(0, ledger.faults.failures);
+        // El índice no debe apuntar a los restos del intento fallido.
+        assertEquals(List.of("fallido", "antes"), reasons(ledger.history(ALEX, 10)));
+        ledger.record(ledger.nextTransaction(), STEVE, null, EconomyLedger.Account.CASH, 250L, 250L, "despues");
+        ledger.close();
+
+        EconomyLedger reopened = new EconomyLedger(directory, LOGGER, 0L, 1024L * 1024L);
+        reopened.open();
+        List<EconomyLedger.Entry> entries = new ArrayList<>();
+        reopened.replay(entries::add);
+        assertEquals(List.of("antes", "fallido", "despues"), reasons(entries));
+        assertEquals(List.of("fallido", "antes"), reasons(reopened.history(ALEX, 10)));
+        assertEquals(List.of("despues"), reasons(reopened.history(STEVE, 10)));
+        reopened.close();
+    }
+
+    private static void awaitGroups(EconomyLedger ledger, long groups) {
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (ledger.getGroups() < groups) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("El ledger no llegó a disco");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static List<String> reasons(List<EconomyLedger.Entry> entries) {
+        List<String> reasons = new ArrayList<>();
+        for (EconomyLedger.Entry entry : entries) {
+            reasons.add(entry.reason());
+        }
+        return reasons;
+    }
+
+    /**
+     * Ledger cuyo canal escribe la mitad del primer marco y falla mientras
+     * queden fallos.
+     */
+    private final class FaultyLedger extends EconomyLedger {
+
+        private final FaultyFileChannel.Faults faults = new FaultyFileChannel.Faults();
+
+        private FaultyLedger() {
+            super(directory, LOGGER, 0L, 1024L * 1024L);
+        }
+
+        @Override
+        FileChannel openChannel(File file) throws IOException {
+            return new FaultyFileChannel(super.openChannel(file), faults);
+        }
+    }
+}
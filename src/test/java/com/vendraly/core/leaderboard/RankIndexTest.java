@@ -0,0 +1,95 @@
+package com.vendraly.core.leaderboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankIndexTest {
+
+    /**
+     * Orden del índice: puntuación descendente y, a igualdad, los bits del
+     * UUID con signo.
+     */
+    private static final Comparator<Map.Entry<UUID, Double>> ORDER =
+            Comparator.<Map.Entry<UUID, Double>>comparingDouble(Map.Entry::getValue).reversed()
+                    .thenComparingLong(entry -> entry.getKey().getMostSignificantBits())
+                    .thenComparingLong(entry -> entry.getKey().getLeastSignificantBits());
+
+    @Test
+    void matchesASortedReference() {
+        Random random = new Random(42L);
+        List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // Algunos comparten la mitad alta para probar el desempate por la baja.
+            long most = i % 10 == 0 ? 7L : random.nextLong();
+            players.add(new UUID(most, random.nextLong()));
+        }
+        RankIndex index = new RankIndex();
+        Map<UUID, Double> reference = new HashMap<>();
+        for (int step = 0; step < 20_000; step++) {
+            UUID player = players.get(random.nextInt(players.size()));
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                // Pocas puntuaciones distintas para que abunden los empates y los cambios de puntuación.
+                double score = random.nextInt(40) - 10;
+                index.put(player, score);
+                reference.put(player, score);
+            } else if (operation < 7) {
+                double score = random.nextInt(40) - 10;
+                index.putIfAbsent(player, score);
+                reference.putIfAbsent(player, score);
+            } else {
+                index.remove(player);
+                reference.remove(player);
+            }
+            if (step % 500 == 0) {
+                assertMatches(index, reference, random);
+            }
+        }
+        assertMatches(index, reference, random);
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.range(1, 10).isEmpty());
+        index.put(players.get(0), 1.0);
+        assertEquals(1, index.rank(players.get(0)));
+    }
+
+    private static void assertMatches(RankIndex index, Map<UUID, Double> reference, Random random) {
+        List<Map.Entry<UUID, Double>> sorted = new ArrayList<>(reference.entrySet());
+        sorted.sort(ORDER);
+        assertEquals(sorted.size(), index.size());
+
+        List<RankIndex.Ranked> all = index.range(1, sorted.size() + 5);
+        assertEquals(sorted.size(), all.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            Map.Entry<UUID, Double> expected = sorted.get(i);
+            assertEquals(new RankIndex.Ranked(i + 1, expected.getKey(), expected.getValue()), all.get(i));
+            assertEquals(i + 1, index.rank(expected.getKey()));
+            assertEquals(expected.getValue(), index.score(expected.getKey()));
+        }
+
+        for (int probe = 0; probe < 20 && !sorted.isEmpty(); probe++) {
+            int from = 1 + random.nextInt(sorted.size());
+            int limit = 1 + random.nextInt(15);
+            List<RankIndex.Ranked> page = index.range(from, limit);
+            assertEquals(Math.min(limit, sorted.size() - from + 1), page.size());
+            for (int i = 0; i < page.size(); i++) {
+                assertEquals(sorted.get(from - 1 + i).getKey(), page.get(i).uuid());
+                assertEquals(from + i, page.get(i).rank());
+            }
+        }
+        assertTrue(index.range(0, 5).isEmpty());
+        assertTrue(index.range(sorted.size() + 1, 5).isEmpty());
+        assertEquals(0, index.rank(new UUID(0L, 0L)));
+    }
+}
@@ -0,0 +1,199 @@
+package com.vendraly.core.market;
+
+import com.vendraly.utils.ByteWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Recuperación del mercado desde {@code orders.log} escrito a mano con el
+ * mismo formato que el diario, sin pagos ni envíos.
+ */
+class MarketEngineTest {
+
+    private static final Logger LOGGER = Logger.getLogger("MarketEngineTest");
+    private static final UUID ALEX = new UUID(1L, 1L);
+    private static final UUID STEVE = new UUID(2L, 2L);
+
+    // Códigos de registro del diario de MarketEngine.
+    private static final int PLACE = 1;
+    private static final int CANCEL = 2;
+    private static final int FILL = 3;
+    private static final int SHIP = 6;
+    private static final int DELIVERED = 7;
+
+    @TempDir
+    File directory;
+
+    private long sequence;
+
+    @Test
+    void replaysFillsAndCancelsIntoTheBook() throws Exception {
+        File market = new File(directory, "market");
+        write(market, history());
+
+        MarketEngine engine = engine(market);
+        engine.open();
+        assertBook(engine);
+        engine.close();
+
+        // Al cerrar el estado pasa a la instantánea y el diario queda vacío.
+        assertEquals(0L, new File(market, "orders.log").length());
+        MarketEngine reopened = engine(market);
+        reopened.open();
+        assertBook(reopened);
+        reopened.close();
+    }
+
+    @Test
+    void snapshotPlusLogEndsInTheSameBook() throws Exception {
+        byte[] full = history();
+        File replayed = new File(directory, "completo");
+        write(replayed, full);
+
+        sequence = 0L;
+        File split = new File(directory, "partido");
+        byte[] before = firstHalf();
+        write(split, before);
+        MarketEngine first = engine(split);
+        first.open();
+        first.close();
+        // Los registros que siguieron a la instantánea, como tras una caída.
+        Files.write(new File(split, "orders.log").toPath(), secondHalf(), StandardOpenOption.APPEND);
+
+        MarketEngine fromFull = engine(replayed);
+        MarketEngine fromSplit = engine(split);
+        fromFull.open();
+        fromSplit.open();
+        assertEquals(fromFull.depth("STONE", 10).get(10L, TimeUnit.SECONDS),
+                fromSplit.depth("STONE", 10).get(10L, TimeUnit.SECONDS));
+        assertEquals(ids(fromFull.orders(ALEX).get(10L, TimeUnit.SECONDS)),
+                ids(fromSplit.orders(ALEX).get(10L, TimeUnit.SECONDS)));
+        assertBook(fromSplit);
+        fromFull.close();
+        fromSplit.close();
+    }
+
+    @Test
+    void compactsCancelledOrdersAndDropsATornTail() throws Exception {
+        File market = new File(directory, "market");
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        for (long id = 1L; id <= 3000L; id++) {
+            long order = id;
+            frame(log, PLACE, out -> order(out, order, ALEX, MarketOrder.Side.BUY, 10L + order / 100L % 5L, 2));
+        }
+        for (long id = 1L; id <= 3000L; id++) {
+            if (id % 100L != 0L) {
+                long order = id;
+                frame(log, CANCEL, out -> out.writeVarLong(order));
+            }
+        }
+        write(market, log.toByteArray());
+        // Un marco a medias al final.
+        Files.write(new File(market, "orders.log").toPath(), new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        MarketEngine engine = engine(market);
+        engine.open();
+        assertEquals(30, engine.getOpenOrders());
+        assertEquals(new MarketEngine.PriceLevel(14L, 12L, 6),
+                engine.depth("STONE", 1).get(10L, TimeUnit.SECONDS).bids().get(0));
+        engine.close();
+        assertFalse(engine.isOpen());
+    }
+
+    private static void assertBook(MarketEngine engine) throws Exception {
+        MarketEngine.Depth depth = engine.depth("STONE", 10).get(10L, TimeUnit.SECONDS);
+        assertEquals(List.of(new MarketEngine.PriceLevel(85L, 5L, 2)), depth.bids());
+        assertEquals(List.of(new MarketEngine.PriceLevel(100L, 8L, 1), new MarketEngine.PriceLevel(120L, 7L, 1)),
+                depth.asks());
+        assertEquals(List.of(1L, 7L), ids(engine.orders(ALEX).get(10L, TimeUnit.SECONDS)));
+        assertEquals(8, engine.orders(ALEX).get(10L, TimeUnit.SECONDS).get(0).getRemaining());
+        assertEquals(4, engine.getOpenOrders(), "siguen abiertas la 1, la 6, la 7 y la 8");
+    }
+
+    private byte[] history() {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        log.writeBytes(firstHalf());
+        log.writeBytes(secondHalf());
+        return log.toByteArray();
+    }
+
+    /**
+     * Tres ventas y una compra que cruza con las dos más baratas (misma
+     * cantidad a 90, la más antigua primero) y en parte con la de 100.
+     */
+    private byte[] firstHalf() {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        frame(log, PLACE, out -> order(out, 1L, ALEX, MarketOrder.Side.SELL, 100L, 10));
+        frame(log, PLACE, out -> order(out, 2L, ALEX, MarketOrder.Side.SELL, 90L, 5));
+        frame(log, PLACE, out -> order(out, 3L, STEVE, MarketOrder.Side.SELL, 90L, 5));
+        frame(log, PLACE, out -> order(out, 4L, STEVE, MarketOrder.Side.BUY, 100L, 12));
+        frame(log, FILL, out -> out.writeVarLong(2L).writeVarLong(4L).writeVarInt(5).writeVarLong(90L));
+        frame(log, FILL, out -> out.writeVarLong(3L).writeVarLong(4L).writeVarInt(5).writeVarLong(90L));
+        frame(log, FILL, out -> out.writeVarLong(1L).writeVarLong(4L).writeVarInt(2).writeVarLong(100L));
+        long shipment = sequence + 1L;
+        frame(log, SHIP, out -> out.writeUuid(STEVE).writeVarInt(1).writeString("STONE").writeVarInt(12));
+        frame(log, DELIVERED, out -> out.writeVarLong(shipment));
+        return log.toByteArray();
+    }
+
+    /**
+     * Una venta cancelada (sus objetos vuelven por correo), otra que queda en
+     * el libro y dos compras al mismo precio.
+     */
+    private byte[] secondHalf() {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        frame(log, PLACE, out -> order(out, 5L, STEVE, MarketOrder.Side.SELL, 95L, 4));
+        frame(log, CANCEL, out -> out.writeVarLong(5L));
+        long shipment = sequence + 1L;
+        frame(log, SHIP, out -> out.writeUuid(STEVE).writeVarInt(1).writeString("STONE").writeVarInt(4));
+        frame(log, DELIVERED, out -> out.writeVarLong(shipment));
+        frame(log, PLACE, out -> order(out, 6L, STEVE, MarketOrder.Side.SELL, 120L, 7));
+        frame(log, PLACE, out -> order(out, 7L, ALEX, MarketOrder.Side.BUY, 85L, 3));
+        frame(log, PLACE, out -> order(out, 8L, STEVE, MarketOrder.Side.BUY, 85L, 2));
+        return log.toByteArray();
+    }
+
+    private void frame(ByteArrayOutputStream log, int type, Consumer<ByteWriter> payload) {
+        ByteWriter out = new ByteWriter(64).writeVarLong(++sequence).writeByte(type);
+        payload.accept(out);
+        byte[] body = out.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        log.writeBytes(ByteBuffer.allocate(8).putInt(body.length).putInt((int) crc.getValue()).array());
+        log.writeBytes(body);
+    }
+
+    private static void order(ByteWriter out, long id, UUID owner, MarketOrder.Side side, long price, int quantity) {
+        out.writeVarLong(id).writeUuid(owner).writeByte(side.ordinal()).writeString("STONE").writeVarLong(price)
+                .writeVarInt(quantity).writeVarInt(quantity).writeVarLong(id);
+    }
+
+    private static void write(File market, byte[] log) throws IOException {
+        Files.createDirectories(market.toPath());
+        Files.write(new File(market, "orders.log").toPath(), log);
+    }
+
+    private static List<Long> ids(List<MarketOrder> orders) {
+        return orders.stream().map(MarketOrder::getId).toList();
+    }
+
+    private static MarketEngine engine(File market) {
+        return new MarketEngine(null, null, null, LOGGER, market, true, 50, 512, 10000);
+    }
+}
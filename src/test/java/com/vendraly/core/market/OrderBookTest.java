@@ -0,0 +1,120 @@
+package com.vendraly.core.market;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderBookTest {
+
+    private static final UUID ALEX = new UUID(1L, 1L);
+    private static final UUID STEVE = new UUID(2L, 2L);
+
+    private final Map<Long, MarketOrder> orders = new HashMap<>();
+    private final OrderBook book = new OrderBook(orders);
+
+    @Test
+    void fillsAtTheBestPriceAndOldestOrderFirst() {
+        MarketOrder dear = rest(1L, ALEX, MarketOrder.Side.SELL, 100L, 10);
+        rest(2L, ALEX, MarketOrder.Side.SELL, 90L, 5);
+        rest(3L, STEVE, MarketOrder.Side.SELL, 90L, 5);
+        MarketOrder taker = order(4L, STEVE, MarketOrder.Side.BUY, 100L, 12);
+
+        List<MarketFill> fills = new ArrayList<>();
+        book.match(taker, fills);
+        assertEquals(List.of(
+                new MarketFill(2L, 4L, STEVE, ALEX, "STONE", 5, 90L),
+                new MarketFill(3L, 4L, STEVE, STEVE, "STONE", 5, 90L),
+                new MarketFill(1L, 4L, STEVE, ALEX, "STONE", 2, 100L)), fills);
+        assertEquals(0, taker.getRemaining());
+        assertEquals(8, dear.getRemaining(), "el cruce parcial deja el resto en el libro");
+    }
+
+    @Test
+    void stopsWhenPricesNoLongerCross() {
+        rest(1L, ALEX, MarketOrder.Side.BUY, 80L, 5);
+        rest(2L, ALEX, MarketOrder.Side.BUY, 70L, 5);
+        MarketOrder taker = order(3L, STEVE, MarketOrder.Side.SELL, 75L, 8);
+
+        List<MarketFill> fills = new ArrayList<>();
+        book.match(taker, fills);
+        assertEquals(List.of(new MarketFill(1L, 3L, ALEX, STEVE, "STONE", 5, 80L)), fills);
+        assertEquals(3, taker.getRemaining());
+        assertEquals(List.of(new MarketEngine.PriceLevel(70L, 5L, 1)), book.depth(MarketOrder.Side.BUY, 10));
+    }
+
+    @Test
+    void skipsCancelledOrders() {
+        rest(1L, ALEX, MarketOrder.Side.SELL, 50L, 5);
+        rest(2L, STEVE, MarketOrder.Side.SELL, 60L, 5);
+        cancel(1L);
+
+        List<MarketFill> fills = new ArrayList<>();
+        book.match(order(3L, STEVE, MarketOrder.Side.BUY, 60L, 2), fills);
+        assertEquals(List.of(new MarketFill(2L, 3L, STEVE, STEVE, "STONE", 2, 60L)), fills);
+        assertEquals(List.of(new MarketEngine.PriceLevel(60L, 3L, 1)), book.depth(MarketOrder.Side.SELL, 10));
+    }
+
+    @Test
+    void depthAggregatesLevelsUpToTheLimit() {
+        rest(1L, ALEX, MarketOrder.Side.BUY, 90L, 5);
+        rest(2L, STEVE, MarketOrder.Side.BUY, 90L, 3);
+        rest(3L, ALEX, MarketOrder.Side.BUY, 80L, 1);
+        rest(4L, ALEX, MarketOrder.Side.BUY, 70L, 1);
+        assertEquals(List.of(new MarketEngine.PriceLevel(90L, 8L, 2), new MarketEngine.PriceLevel(80L, 1L, 1)),
+                book.depth(MarketOrder.Side.BUY, 2));
+        assertTrue(book.depth(MarketOrder.Side.SELL, 2).isEmpty());
+    }
+
+    @Test
+    void keepsPriorityAcrossCompactions() {
+        // Suficientes cancelaciones para compactar los montículos varias veces.
+        for (long id = 1L; id <= 5000L; id++) {
+            rest(id, id % 2L == 0L ? ALEX : STEVE, MarketOrder.Side.SELL, 100L + id % 7L, 1);
+        }
+        for (long id = 1L; id <= 5000L; id++) {
+            if (id % 10L != 0L) {
+                cancel(id);
+            }
+        }
+        List<MarketEngine.PriceLevel> levels = book.depth(MarketOrder.Side.SELL, 10);
+        assertEquals(7, levels.size());
+        assertEquals(new MarketEngine.PriceLevel(100L, 71L, 71), levels.get(0));
+
+        List<MarketFill> fills = new ArrayList<>();
+        book.match(order(9000L, ALEX, MarketOrder.Side.BUY, 100L, 3), fills);
+        assertEquals(List.of(70L, 140L, 210L), makers(fills));
+        assertFalse(book.isEmpty());
+    }
+
+    private MarketOrder rest(long id, UUID owner, MarketOrder.Side side, long price, int quantity) {
+        MarketOrder order = order(id, owner, side, price, quantity);
+        orders.put(id, order);
+        book.add(order);
+        return order;
+    }
+
+    private void cancel(long id) {
+        orders.remove(id).remaining = 0;
+        book.retire();
+    }
+
+    private static MarketOrder order(long id, UUID owner, MarketOrder.Side side, long price, int quantity) {
+        return new MarketOrder(id, owner, side, "STONE", price, quantity, quantity, 0L);
+    }
+
+    private static List<Long> makers(List<MarketFill> fills) {
+        List<Long> makers = new ArrayList<>();
+        for (MarketFill fill : fills) {
+            makers.add(fill.maker());
+        }
+        return makers;
+    }
+}
@@ -0,0 +1,72 @@
+package com.vendraly.core.market;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderHeapTest {
+
+    @Test
+    void bidsPopHighestPriceThenOldest() {
+        OrderHeap heap = new OrderHeap(true);
+        heap.push(100L, 1L, 1L);
+        heap.push(120L, 2L, 2L);
+        heap.push(100L, 3L, 3L);
+        heap.push(120L, 4L, 4L);
+        assertEquals(List.of(2L, 4L, 1L, 3L), drain(heap));
+    }
+
+    @Test
+    void asksPopLowestPriceThenOldest() {
+        OrderHeap heap = new OrderHeap(false);
+        heap.push(100L, 3L, 3L);
+        heap.push(90L, 2L, 2L);
+        heap.push(100L, 1L, 1L);
+        heap.push(90L, 4L, 4L);
+        assertEquals(List.of(2L, 4L, 1L, 3L), drain(heap));
+    }
+
+    @Test
+    void matchesASortedReference() {
+        Random random = new Random(7L);
+        for (boolean highestFirst : new boolean[]{true, false}) {
+            OrderHeap heap = new OrderHeap(highestFirst);
+            List<long[]> reference = new ArrayList<>();
+            for (long id = 1L; id <= 500L; id++) {
+                long price = 1L + random.nextInt(20);
+                heap.push(price, id, id);
+                reference.add(new long[]{price, id});
+            }
+            // Se retiran los ids múltiplos de 3, como órdenes canceladas.
+            heap.removeIf(id -> id % 3L == 0L);
+            reference.removeIf(order -> order[1] % 3L == 0L);
+            Comparator<long[]> byPrice = Comparator.comparingLong(order -> order[0]);
+            reference.sort((highestFirst ? byPrice.reversed() : byPrice).thenComparingLong(order -> order[1]));
+
+            OrderHeap copy = heap.copy();
+            List<Long> expected = new ArrayList<>();
+            for (long[] order : reference) {
+                expected.add(order[1]);
+            }
+            assertEquals(expected, drain(copy));
+            assertEquals(reference.size(), heap.size(), "la copia no altera el original");
+            assertEquals(expected, drain(heap));
+        }
+    }
+
+    private static List<Long> drain(OrderHeap heap) {
+        List<Long> ids = new ArrayList<>();
+        while (!heap.isEmpty()) {
+            ids.add(heap.peekId());
+            heap.pop();
+        }
+        assertTrue(heap.isEmpty());
+        return ids;
+    }
+}
@@ -0,0 +1,133 @@
+package com.vendraly.core.testing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Canal que delega en uno real pero, mientras queden fallos en su
+ * {@link Faults}, escribe la mitad del primer búfer de un grupo y lanza
+ * {@link IOException}; el recorte posterior consume el fallo y, con
+ * {@code brokenTruncate}, también falla.
+ */
+public final class FaultyFileChannel extends FileChannel {
+
+    /**
+     * Fallos pendientes, compartidos por todos los canales de una prueba.
+     */
+    public static final class Faults {
+        public volatile int failures;
+        public volatile boolean brokenTruncate;
+    }
+
+    private final FileChannel delegate;
+    private final Faults faults;
+
+    public FaultyFileChannel(FileChannel delegate, Faults faults) {
+        this.delegate = delegate;
+        this.faults = faults;
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+        if (faults.failures > 0) {
+            ByteBuffer torn = sources[offset].duplicate();
+            torn.limit(torn.position() + torn.remaining() / 2);
+            delegate.write(torn);
+            throw new IOException("fallo simulado de escritura");
+        }
+        return delegate.write(sources, offset, length);
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+        if (faults.failures > 0) {
+            faults.failures--;
+            if (faults.brokenTruncate) {
+                throw new IOException("fallo simulado al recortar");
+            }
+        }
+        delegate.truncate(size);
+        return this;
+    }
+
+    @Override
+    public int write(ByteBuffer source) throws IOException {
+        return delegate.write(source);
+    }
+
+    @Override
+    public int read(ByteBuffer target) throws IOException {
+        return delegate.read(target);
+    }
+
+    @Override
+    public long read(ByteBuffer[] targets, int offset, int length) throws IOException {
+        return delegate.read(targets, offset, length);
+    }
+
+    @Override
+    public long position() throws IOException {
+        return delegate.position();
+    }
+
+    @Override
+    public FileChannel position(long position) throws IOException {
+        delegate.position(position);
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return delegate.size();
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+        delegate.force(metaData);
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        return delegate.transferTo(position, count, target);
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel source, long position, long count) throws IOException {
+        return delegate.transferFrom(source, position, count);
+    }
+
+    @Override
+    public int read(ByteBuffer target, long position) throws IOException {
+        return delegate.read(target, position);
+    }
+
+    @Override
+    public int write(ByteBuffer source, long position) throws IOException {
+        return delegate.write(source, position);
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+        return delegate.map(mode, position, size);
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+        return delegate.lock(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+        return delegate.tryLock(position, size, shared);
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        delegate.close();
+    }
+}